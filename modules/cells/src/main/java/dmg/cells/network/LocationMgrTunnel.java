@@ -46,6 +46,8 @@ import dmg.cells.nucleus.CellTunnelInfo;
 import dmg.cells.nucleus.MessageEvent;
 import dmg.cells.nucleus.NoRouteToCellException;
 import dmg.cells.nucleus.RoutedMessageEvent;
+import dmg.cells.nucleus.SerializableClassRegistry;
+import dmg.cells.nucleus.SerializationException;
 import dmg.util.StreamEngine;
 
 import org.dcache.util.Args;
@@ -95,7 +97,8 @@ public class LocationMgrTunnel
         CellDomainRole role = args.hasOption("role") ? CellDomainRole.valueOf(
                 args.getOption("role").toUpperCase()) : CellDomainRole.SATELLITE;
         _localDomainInfo = new CellDomainInfo(_nucleus.getCellDomainName(),
-                                              Version.of(LocationMgrTunnel.class).getVersion(), role);
+                                              Version.of(LocationMgrTunnel.class).getVersion(), role,
+                                              SerializableClassRegistry.getInstance().getFingerprint());
     }
 
     @Override
@@ -169,8 +172,16 @@ public class LocationMgrTunnel
 
             _allowForwardingOfRemoteMessages = (_remoteDomainInfo.getRole() != CellDomainRole.CORE);
 
-            _input = new JavaObjectSource(in);
-            _output = new JavaObjectSink(out);
+            /* Domains announcing a class registry fingerprint understand
+             * the compact envelope format.
+             */
+            if (_remoteDomainInfo.getClassRegistryFingerprint() != null) {
+                _input = new CompactObjectSource(in);
+                _output = new CompactObjectSink(out);
+            } else {
+                _input = new JavaObjectSource(in);
+                _output = new JavaObjectSink(out);
+            }
         } catch (ClassNotFoundException e) {
             throw new IOException("Cannot deserialize object. This is most likely due to a version mismatch.", e);
         }
@@ -204,7 +215,13 @@ public class LocationMgrTunnel
             CellMessage msg = me.getMessage();
             try {
                 _messagesToTunnel.increment();
-                _output.writeObject(msg);
+                _output.writeObject(msg.encodeFor(_remoteDomainInfo));
+            } catch (SerializationException e) {
+                _log.warn("Error while sending message: " + e.getMessage());
+                CellMessage envelope = new CellMessage(msg.getSourcePath().revert(),
+                        new NoRouteToCellException(msg, "Message could not be encoded for " + getRemoteDomainName() + "."));
+                envelope.setLastUOID(msg.getUOID());
+                _nucleus.sendMessage(envelope, true, true);
             } catch (IOException e) {
                 _log.warn("Error while sending message: " + e.getMessage());
                 CellMessage envelope = new CellMessage(msg.getSourcePath().revert(),
@@ -244,6 +261,7 @@ public class LocationMgrTunnel
         pw.println("Messages delivered to");
         pw.println("   Peer       : " + _messagesToTunnel);
         pw.println("   Local      : " + _messagesToSystem);
+        pw.println("Codec         : " + _output);
         pw.println("Local domain");
         pw.println("   Name       : " + _localDomainInfo.getCellDomainName());
         pw.println("   Version    : " + _localDomainInfo.getVersion());
@@ -327,6 +345,49 @@ public class LocationMgrTunnel
         void writeObject(CellMessage message) throws IOException;
     }
 
+    private static class CompactObjectSource implements ObjectSource
+    {
+        private final ObjectInputStream in;
+
+        private CompactObjectSource(ObjectInputStream in)
+        {
+            this.in = in;
+        }
+
+        @Override
+        public CellMessage readObject() throws IOException
+        {
+            return CellMessage.readFrom(in);
+        }
+    }
+
+    private static class CompactObjectSink implements ObjectSink
+    {
+        private final ObjectOutputStream out;
+
+        private CompactObjectSink(ObjectOutputStream out)
+        {
+            this.out = out;
+        }
+
+        @Override
+        public void writeObject(CellMessage message) throws IOException
+        {
+            /* The envelope is written as primitive data on the object
+             * stream established during the handshake, so no class
+             * descriptors are sent and the stream need not be reset.
+             */
+            message.writeTo(out);
+            out.flush();
+        }
+
+        @Override
+        public String toString()
+        {
+            return "compact";
+        }
+    }
+
     private static class JavaObjectSource implements ObjectSource
     {
         private ObjectInputStream in;
@@ -367,5 +428,11 @@ public class LocationMgrTunnel
             out.reset();
             out.flush();
         }
+
+        @Override
+        public String toString()
+        {
+            return "java";
+        }
     }
 }
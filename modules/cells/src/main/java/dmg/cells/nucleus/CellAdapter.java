@@ -628,7 +628,7 @@ public class CellAdapter
         @Option(name = "a", usage = "Display content of unanswered message requests.")
         boolean full;
 
-        @Option(name = "l", usage = "Display unanswered message requests.")
+        @Option(name = "l", usage = "Display request statistics and unanswered message requests.")
         boolean lng;
 
         @Override
@@ -637,6 +637,10 @@ public class CellAdapter
             if (lng || full) {
                 StringBuilder sb = new StringBuilder();
                 sb.append(getInfo()).append("\n");
+                sb.append("Requests: sent=").append(_nucleus.getSentRequestCount())
+                        .append(" outstanding=").append(_nucleus.getOutstandingRequestCount())
+                        .append(" timed out=").append(_nucleus.getTimedOutRequestCount())
+                        .append("\n");
                 Map<UOID,CellLock > map = _nucleus.getWaitQueue();
                 if (! map.isEmpty()) {
                     sb.append("\nWe are waiting for the following messages\n");
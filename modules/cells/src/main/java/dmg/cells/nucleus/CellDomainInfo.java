@@ -30,6 +30,12 @@ public class CellDomainInfo implements Serializable
     private final String _version;
     private CellDomainRole _role;
 
+    /**
+     * Fingerprint of the SerializableClassRegistry of the domain. Null for
+     * domains that do not support the compact message codec.
+     */
+    private Integer _classRegistryFingerprint;
+
     public CellDomainInfo(String name, String version, CellDomainRole role)
     {
         _domainName = checkNotNull(name);
@@ -37,6 +43,12 @@ public class CellDomainInfo implements Serializable
         _role = checkNotNull(role);
     }
 
+    public CellDomainInfo(String name, String version, CellDomainRole role, int classRegistryFingerprint)
+    {
+        this(name, version, role);
+        _classRegistryFingerprint = classRegistryFingerprint;
+    }
+
     public String getVersion()
     {
         return _version;
@@ -57,6 +69,11 @@ public class CellDomainInfo implements Serializable
         return _role;
     }
 
+    public Integer getClassRegistryFingerprint()
+    {
+        return _classRegistryFingerprint;
+    }
+
     public String toString()
     {
         return _domainName + "," + _version + "," + _role;
@@ -2,13 +2,10 @@ package dmg.cells.nucleus ;
 
 import com.google.common.base.Throwables;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.io.InvalidClassException;
-import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -33,6 +30,17 @@ public class CellMessage implements Cloneable , Serializable {
    */
   private static final float TTL_BUFFER_FRACTION = 0.10f;
 
+  /**
+   * Codec used for encoding payloads. Payloads encoded with any known
+   * codec can be decoded.
+   */
+  private static final CompactMessageCodec CODEC =
+          new CompactMessageCodec(SerializableClassRegistry.getInstance());
+
+  private static final int SESSION_NONE = 0;
+  private static final int SESSION_STRING = 1;
+  private static final int SESSION_OBJECT = 2;
+
   private CellPath    _source , _destination ;
   private Object      _message ;
   private long        _creationTime ;
@@ -193,32 +201,109 @@ public boolean equals( Object obj ){
         return decoded;
     }
 
-    protected static byte[] encode(Object message)
+    /**
+     * Returns this encoded message if its payload can be decoded by the
+     * given domain, or a copy with the payload re-encoded using Java
+     * serialization otherwise.
+     */
+    public CellMessage encodeFor(CellDomainInfo domain) throws SerializationException
     {
-        int initialBufferSize = 256;
-        ByteArrayOutputStream array = new ByteArrayOutputStream(initialBufferSize);
-        try (ObjectOutputStream out = new ObjectOutputStream(array)) {
-            out.writeObject(message);
-        } catch (InvalidClassException e) {
-            throw new SerializationException("Failed to serialize object: "
-                    + e + "(this is usually a bug)", e);
-        } catch (NotSerializableException e) {
-            throw new SerializationException("Failed to serialize object because the object is not serializable (this is usually a bug)", e);
-        } catch (IOException e) {
-            throw new SerializationException("Failed to serialize object: " + e, e);
+        checkState(_mode == STREAM_MODE);
+        if (!CODEC.isEncodedWith(_messageStream)) {
+            return this;
         }
-        return array.toByteArray();
+        Integer fingerprint = domain.getClassRegistryFingerprint();
+        if (fingerprint != null && fingerprint == CompactMessageCodec.getFingerprint(_messageStream)) {
+            return this;
+        }
+        CellMessage encoded = clone();
+        encoded._messageStream = JavaMessageCodec.INSTANCE.encode(decode(_messageStream));
+        return encoded;
+    }
+
+    protected static byte[] encode(Object message)
+    {
+        return CODEC.encode((Serializable) message);
     }
 
     protected static Object decode(byte[] messageStream)
     {
-        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(messageStream))) {
-            return stream.readObject();
-        } catch (ClassNotFoundException e) {
-            throw new SerializationException("Failed to deserialize object: The class could not be found. Is there a software version mismatch in your installation?", e);
-        } catch (IOException e) {
-            throw new SerializationException("Failed to deserialize object: " + e, e);
+        if (CODEC.isEncodedWith(messageStream)) {
+            return CODEC.decode(messageStream);
+        }
+        return JavaMessageCodec.INSTANCE.decode(messageStream);
+    }
+
+    /**
+     * Writes this encoded message in a compact binary form. Unlike Java
+     * serialization of the envelope, no class descriptors are written.
+     */
+    public void writeTo(DataOutput out) throws IOException
+    {
+        checkState(_mode == STREAM_MODE);
+        _source.writeTo(out);
+        _destination.writeTo(out);
+        out.writeLong(_creationTime);
+        out.writeLong(_ttl);
+        _umid.writeTo(out);
+        _lastUmid.writeTo(out);
+        out.writeBoolean(_isPersistent);
+        if (_session == null) {
+            out.writeByte(SESSION_NONE);
+        } else if (_session instanceof String) {
+            out.writeByte(SESSION_STRING);
+            out.writeUTF((String) _session);
+        } else {
+            byte[] session = JavaMessageCodec.INSTANCE.encode((Serializable) _session);
+            out.writeByte(SESSION_OBJECT);
+            out.writeInt(session.length);
+            out.write(session);
+        }
+        out.writeInt(_messageStream.length);
+        out.write(_messageStream);
+    }
+
+    /**
+     * Reads an encoded message written by {@link #writeTo}.
+     */
+    public static CellMessage readFrom(DataInput in) throws IOException
+    {
+        CellMessage message = new CellMessage();
+        message._mode = STREAM_MODE;
+        message._source = CellPath.readFrom(in);
+        message._destination = CellPath.readFrom(in);
+        message._creationTime = in.readLong();
+        message._ttl = in.readLong();
+        message._umid = UOID.readFrom(in);
+        message._lastUmid = UOID.readFrom(in);
+        message._isPersistent = in.readBoolean();
+        int sessionType = in.readByte();
+        switch (sessionType) {
+        case SESSION_NONE:
+            break;
+        case SESSION_STRING:
+            message._session = in.readUTF();
+            break;
+        case SESSION_OBJECT:
+            message._session = JavaMessageCodec.INSTANCE.decode(readBytes(in));
+            break;
+        default:
+            throw new IOException("Invalid session type: " + sessionType);
+        }
+        message._messageStream = readBytes(in);
+        message._receivedAt = System.currentTimeMillis();
+        return message;
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length: " + length);
         }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
     }
 
     public void addSourceAddress( CellAddressCore source ){
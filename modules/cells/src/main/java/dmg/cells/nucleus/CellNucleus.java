@@ -21,13 +21,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
@@ -36,6 +37,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import dmg.cells.zookeeper.CellCuratorFramework;
 import dmg.util.Pinboard;
@@ -77,8 +79,15 @@ public class CellNucleus implements ThreadFactory
 
     private final AtomicInteger _state = new AtomicInteger(INITIAL);
 
-    //  have to be synchronized map
-    private final  Map<UOID, CellLock> _waitHash = new HashMap<>();
+    /**
+     * Requests awaiting a reply. The deadlines of these requests are tracked
+     * by _timeouts; both must always be updated together.
+     */
+    private final  ConcurrentMap<UOID, CellLock> _waitHash = new ConcurrentHashMap<>();
+    private final  TimeoutWheel<CellLock> _timeouts =
+            new TimeoutWheel<>(1024, 1000, CellLock::getTimeout, System.currentTimeMillis());
+    private final  LongAdder _sentRequests = new LongAdder();
+    private final  LongAdder _timedOutRequests = new LongAdder();
     private String _cellClass;
 
     private final BoundedExecutor _messageExecutor;
@@ -411,33 +420,63 @@ public class CellNucleus implements ThreadFactory
 
     public Map<UOID,CellLock > getWaitQueue()
     {
-        synchronized (_waitHash) {
-            return new HashMap<>(_waitHash);
+        return new HashMap<>(_waitHash);
+    }
+
+    /**
+     * Returns the number of requests sent by this cell that await a reply.
+     */
+    public int getOutstandingRequestCount()
+    {
+        return _waitHash.size();
+    }
+
+    /**
+     * Returns the number of requests sent by this cell with a callback.
+     */
+    public long getSentRequestCount()
+    {
+        return _sentRequests.sum();
+    }
+
+    /**
+     * Returns the number of requests sent by this cell for which no reply
+     * arrived before the timeout.
+     */
+    public long getTimedOutRequestCount()
+    {
+        return _timedOutRequests.sum();
+    }
+
+    private void addWaiting(UOID uoid, CellLock lock)
+    {
+        _waitHash.put(uoid, lock);
+        _timeouts.add(lock);
+    }
+
+    private CellLock removeWaiting(UOID uoid)
+    {
+        CellLock lock = _waitHash.remove(uoid);
+        if (lock != null) {
+            _timeouts.remove(lock);
         }
+        return lock;
     }
 
     private int executeMaintenanceTasks()
     {
         Collection<CellLock> expired = new ArrayList<>();
-        long now = System.currentTimeMillis();
-        int size;
-
-        synchronized (_waitHash) {
-            Iterator<CellLock> i = _waitHash.values().iterator();
-            while (i.hasNext()) {
-                CellLock lock =  i.next();
-                if (lock.getTimeout() < now) {
-                    expired.add(lock);
-                    i.remove();
-                }
+        for (CellLock lock : _timeouts.expire(System.currentTimeMillis())) {
+            /* The reply may have arrived concurrently, in which case
+             * the lock is no longer in _waitHash.
+             */
+            if (_waitHash.remove(lock.getMessage().getUOID(), lock)) {
+                expired.add(lock);
             }
-            size = _waitHash.size();
         }
+        int size = _waitHash.size();
+        _timedOutRequests.add(expired.size());
 
-        //
-        // _waitHash can't be used here. Otherwise
-        // we will end up in a deadlock (NO LOCKS WHILE CALLING CALLBACKS)
-        //
         for (final CellLock lock: expired) {
             try (CDC ignored = lock.getCdc().restore()) {
                 try {
@@ -450,18 +489,14 @@ public class CellNucleus implements ThreadFactory
                             /* May happen when the callback itself tries to schedule the call
                              * on an executor. Put the request back and let it time out.
                              */
-                            synchronized (_waitHash) {
-                                _waitHash.put(envelope.getUOID(), lock);
-                            }
+                            addWaiting(envelope.getUOID(), lock);
                             LOGGER.warn("Failed to invoke callback: {}", e.toString());
                         }
                     });
                 } catch (RejectedExecutionException e) {
                     /* Put it back and deal with it later.
                      */
-                    synchronized (_waitHash) {
-                        _waitHash.put(lock.getMessage().getUOID(), lock);
-                    }
+                    addWaiting(lock.getMessage().getUOID(), lock);
                     LOGGER.warn("Failed to invoke callback: {}", e.toString());
                 } catch (RuntimeException e) {
                     /* Don't let a problem in the callback prevent us from
@@ -524,21 +559,16 @@ public class CellNucleus implements ThreadFactory
         final CellLock lock = new CellLock(msg, callback, executor, timeout);
 
         EventLogger.sendBegin(this, msg, "callback");
-        synchronized (_waitHash) {
-            _waitHash.put(uoid, lock);
-        }
+        _sentRequests.increment();
+        addWaiting(uoid, lock);
         try {
             __cellGlue.sendMessage(msg, local, remote);
         } catch (SerializationException e) {
-            synchronized (_waitHash) {
-                _waitHash.remove(uoid);
-            }
+            removeWaiting(uoid);
             EventLogger.sendEnd(msg);
             throw e;
         } catch (RuntimeException e) {
-            synchronized (_waitHash) {
-                _waitHash.remove(uoid);
-            }
+            removeWaiting(uoid);
             try {
                 executor.execute(() -> {
                     try {
@@ -548,18 +578,14 @@ public class CellNucleus implements ThreadFactory
                         /* May happen when the callback itself tries to schedule the call
                          * on an executor. Put the request back and let it time out.
                          */
-                        synchronized (_waitHash) {
-                            _waitHash.put(uoid, lock);
-                        }
+                        addWaiting(uoid, lock);
                         LOGGER.error("Failed to invoke callback: {}", e1.toString());
                     }
                 });
             } catch (RejectedExecutionException e1) {
                 /* Put it back and let it time out.
                  */
-                synchronized (_waitHash) {
-                    _waitHash.put(uoid, lock);
-                }
+                addWaiting(uoid, lock);
                 LOGGER.error("Failed to invoke callback: {}", e1.toString());
             }
         }
@@ -832,10 +858,7 @@ public class CellNucleus implements ThreadFactory
         CellMessage msg = ce.getMessage();
         LOGGER.trace("addToEventQueue : message arrived : {}", msg);
 
-        CellLock lock;
-        synchronized (_waitHash) {
-            lock = _waitHash.remove(msg.getLastUOID());
-        }
+        CellLock lock = removeWaiting(msg.getLastUOID());
 
         if (lock != null) {
             //
@@ -849,9 +872,7 @@ public class CellNucleus implements ThreadFactory
                 _eventQueueSize.decrementAndGet();
                 /* Put it back; the timeout handler will eventually take care of it.
                  */
-                synchronized (_waitHash) {
-                    _waitHash.put(msg.getLastUOID(), lock);
-                }
+                addWaiting(msg.getLastUOID(), lock);
                 LOGGER.error("Dropping reply: {}", e.getMessage());
             }
         } else {
@@ -1039,9 +1060,7 @@ public class CellNucleus implements ThreadFactory
                         /* May happen when the callback itself tries to schedule the call
                          * on an executor. Put the request back and let it time out.
                          */
-                        synchronized (_waitHash) {
-                            _waitHash.put(request.getUOID(), _lock);
-                        }
+                        addWaiting(request.getUOID(), _lock);
                         LOGGER.error("Failed to invoke callback: {}", e.toString());
                     }
                     LOGGER.trace("addToEventQueue : callback done for : {}", _message);
@@ -4,6 +4,9 @@ import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -185,6 +188,32 @@ public final class CellPath implements Cloneable, Serializable
         return _list.get(_list.size() - 1);
     }
 
+    synchronized void writeTo(DataOutput out) throws IOException
+    {
+        out.writeInt(_position);
+        out.writeInt(_list.size());
+        for (CellAddressCore address : _list) {
+            out.writeUTF(address.getCellName());
+            out.writeUTF(address.getCellDomainName());
+        }
+    }
+
+    static CellPath readFrom(DataInput in) throws IOException
+    {
+        int position = in.readInt();
+        int size = in.readInt();
+        if (size < 0 || position < -1 || position >= size) {
+            throw new IOException("Invalid cell path: position " + position + " of " + size + " hops");
+        }
+        List<CellAddressCore> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String cell = in.readUTF();
+            String domain = in.readUTF();
+            list.add(new CellAddressCore(cell, domain));
+        }
+        return new CellPath(position, list);
+    }
+
     synchronized void replaceCurrent(CellAddressCore core)
     {
         if ((_list.size() == 0) ||
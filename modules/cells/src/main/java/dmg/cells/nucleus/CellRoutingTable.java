@@ -1,6 +1,9 @@
 package dmg.cells.nucleus;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.SetMultimap;
@@ -10,228 +13,209 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 
 import org.dcache.util.ColumnWriter;
 
-import static java.util.stream.Collectors.toList;
-
+/**
+ * Routing table of a cell domain.
+ *
+ * Routes are looked up for every message leaving a cell, while they change
+ * rarely. Lookups therefore operate on an immutable snapshot of the table
+ * published through a single volatile field and never block. Updates are
+ * serialized, modify the mutable master copy of the affected route type and
+ * publish a new snapshot.
+ */
 public class CellRoutingTable implements Serializable
 {
     private static final long serialVersionUID = -1456280129622980563L;
 
+    /* Master copies of the routes. Guarded by this. */
     private final ListMultimap<String, CellRoute> _queue = ArrayListMultimap.create();
     private final SetMultimap<String, CellRoute> _domain = LinkedHashMultimap.create();
     private final SetMultimap<String, CellRoute> _exact = LinkedHashMultimap.create();
-    private final Map<String, CopyOnWriteArraySet<CellRoute>> _topic = new HashMap<>();
-    private final AtomicReference<CellRoute> _dumpster = new AtomicReference<>();
+    private final SetMultimap<String, CellRoute> _topic = LinkedHashMultimap.create();
     private final List<CellRoute> _default = new ArrayList<>();
-    private final Random _random = new Random();
+    private CellRoute _dumpster;
+
+    private volatile Snapshot _snapshot = new Snapshot();
 
-    public void add(CellRoute route)
+    public synchronized void add(CellRoute route)
             throws IllegalArgumentException
     {
         String dest;
+        Snapshot snapshot = _snapshot;
         switch (route.getRouteType()) {
         case CellRoute.EXACT:
         case CellRoute.ALIAS:
             dest = route.getCellName() + "@" + route.getDomainName();
-            synchronized (_exact) {
-                if (!_exact.put(dest, route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
+            if (!_exact.put(dest, route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
+            snapshot = snapshot.withExact(_exact);
             break;
         case CellRoute.QUEUE:
             dest = route.getCellName();
-            synchronized (_queue) {
-                if (_queue.containsEntry(dest, route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
-                _queue.put(dest, route);
+            if (_queue.containsEntry(dest, route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
+            _queue.put(dest, route);
+            snapshot = snapshot.withQueue(_queue);
             break;
         case CellRoute.TOPIC:
             dest = route.getCellName();
-            synchronized (_topic) {
-                if (!_topic.computeIfAbsent(dest, key -> new CopyOnWriteArraySet()).add(route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
+            if (!_topic.put(dest, route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
+            snapshot = snapshot.withTopic(_topic);
             break;
         case CellRoute.DOMAIN:
             dest = route.getDomainName();
-            synchronized (_domain) {
-                if (!_domain.put(dest, route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
+            if (!_domain.put(dest, route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
+            snapshot = snapshot.withDomain(_domain);
             break;
         case CellRoute.DEFAULT:
-            synchronized (_default) {
-                if (!_default.contains(route)) {
-                    _default.add(route);
-                }
+            if (!_default.contains(route)) {
+                _default.add(route);
             }
+            snapshot = snapshot.withDefault(_default);
             break;
         case CellRoute.DUMPSTER:
-            if (!_dumpster.compareAndSet(null, route)) {
+            if (_dumpster != null) {
                 throw new IllegalArgumentException("Duplicated route entry for dumpster");
             }
+            _dumpster = route;
+            snapshot = snapshot.withDumpster(_dumpster);
             break;
         }
+        _snapshot = snapshot;
     }
 
-    public void delete(CellRoute route)
+    public synchronized void delete(CellRoute route)
             throws IllegalArgumentException
     {
         String dest;
+        Snapshot snapshot = _snapshot;
         switch (route.getRouteType()) {
         case CellRoute.EXACT:
         case CellRoute.ALIAS:
             dest = route.getCellName() + "@" + route.getDomainName();
-            synchronized (_exact) {
-                if (!_exact.remove(dest, route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
+            if (!_exact.remove(dest, route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
+            snapshot = snapshot.withExact(_exact);
             break;
         case CellRoute.QUEUE:
             dest = route.getCellName();
-            synchronized (_queue) {
-                if (!_queue.remove(dest, route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
+            if (!_queue.remove(dest, route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
+            snapshot = snapshot.withQueue(_queue);
             break;
         case CellRoute.TOPIC:
             dest = route.getCellName();
-            synchronized (_topic) {
-                Set<CellRoute> routes = _topic.get(dest);
-                if (!routes.remove(route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
-                if (routes.isEmpty()) {
-                    _topic.remove(dest);
-                }
+            if (!_topic.remove(dest, route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
+            snapshot = snapshot.withTopic(_topic);
             break;
         case CellRoute.DOMAIN:
             dest = route.getDomainName();
-            synchronized (_domain) {
-                if (!_domain.remove(dest, route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
+            if (!_domain.remove(dest, route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
+            snapshot = snapshot.withDomain(_domain);
             break;
         case CellRoute.DEFAULT:
-            synchronized (_default) {
-                if (!_default.remove(route)) {
-                    throw new IllegalArgumentException("Route entry not found for default");
-                }
+            if (!_default.remove(route)) {
+                throw new IllegalArgumentException("Route entry not found for default");
             }
+            snapshot = snapshot.withDefault(_default);
             break;
         case CellRoute.DUMPSTER:
-            CellRoute currentDumpster = _dumpster.get();
-            if (!Objects.equals(currentDumpster, route) || !_dumpster.compareAndSet(currentDumpster, null)) {
+            if (!Objects.equals(_dumpster, route)) {
                 throw new IllegalArgumentException("Route entry not found dumpster");
             }
+            _dumpster = null;
+            snapshot = snapshot.withDumpster(null);
             break;
         }
+        _snapshot = snapshot;
     }
 
-    public Collection<CellRoute> delete(CellAddressCore target)
+    public synchronized Collection<CellRoute> delete(CellAddressCore target)
     {
         Collection<CellRoute> deleted = new ArrayList<>();
 
         String addr = target.toString();
-        synchronized (_exact) {
-            delete(_exact.values(), addr, deleted);
+        Snapshot snapshot = _snapshot;
+        if (delete(_exact.values(), addr, deleted)) {
+            snapshot = snapshot.withExact(_exact);
         }
-        synchronized (_queue) {
-            delete(_queue.values(), addr, deleted);
+        if (delete(_queue.values(), addr, deleted)) {
+            snapshot = snapshot.withQueue(_queue);
         }
-        synchronized (_domain) {
-            delete(_domain.values(), addr, deleted);
+        if (delete(_domain.values(), addr, deleted)) {
+            snapshot = snapshot.withDomain(_domain);
         }
-        synchronized (_topic) {
-            /* We cannot use the regular delete method because a CopyOnWriteArraySet iterator
-             * doesn't allow manipulating operations. We trade expensive deletion for not having
-             * to copy the set of topic routes in findTopicRoutes.
-             */
-            Iterator<CopyOnWriteArraySet<CellRoute>> iterator = _topic.values().iterator();
-            while (iterator.hasNext()) {
-                Set<CellRoute> routes = iterator.next();
-                List<CellRoute> toRemove =
-                        routes.stream().filter(route -> route.getTargetName().equals(addr)).collect(toList());
-                routes.removeAll(toRemove);
-                if (routes.isEmpty()) {
-                    iterator.remove();
-                }
-                deleted.addAll(toRemove);
-            }
+        if (delete(_topic.values(), addr, deleted)) {
+            snapshot = snapshot.withTopic(_topic);
         }
-        synchronized (_default) {
-            delete(_default, addr, deleted);
+        if (delete(_default, addr, deleted)) {
+            snapshot = snapshot.withDefault(_default);
         }
+        _snapshot = snapshot;
         return deleted;
     }
 
-    private void delete(Collection<CellRoute> values, String addr, Collection<CellRoute> deleted)
+    private boolean delete(Collection<CellRoute> values, String addr, Collection<CellRoute> deleted)
     {
+        boolean modified = false;
         Iterator<CellRoute> iterator = values.iterator();
         while (iterator.hasNext()) {
             CellRoute route = iterator.next();
             if (route.getTargetName().equals(addr)) {
                 iterator.remove();
                 deleted.add(route);
+                modified = true;
             }
         }
+        return modified;
     }
 
     public CellRoute find(CellAddressCore addr)
     {
+        Snapshot snapshot = _snapshot;
         String cellName = addr.getCellName();
         String domainName = addr.getCellDomainName();
-        Optional<CellRoute> route;
-        synchronized (_exact) {
-            route = _exact.get(cellName + "@" + domainName).stream().findFirst();
-        }
-        if (route.isPresent()) {
-            return route.get();
+        Set<CellRoute> routes = snapshot.exact.get(cellName + "@" + domainName);
+        if (!routes.isEmpty()) {
+            return routes.iterator().next();
         }
         if (domainName.equals("local")) {
             //
             // this is not really local but wellknown
             // we checked for local before we called this.
             //
-            synchronized (_queue) {
-                List<CellRoute> routes = _queue.get(cellName);
-                if (!routes.isEmpty()) {
-                    return routes.get(_random.nextInt(routes.size()));
-                }
+            List<CellRoute> queues = snapshot.queue.get(cellName);
+            if (!queues.isEmpty()) {
+                return queues.get(ThreadLocalRandom.current().nextInt(queues.size()));
             }
         } else {
-            synchronized (_domain) {
-                route = _domain.get(domainName).stream().findFirst();
-            }
-            if (route.isPresent()) {
-                return route.get();
+            routes = snapshot.domain.get(domainName);
+            if (!routes.isEmpty()) {
+                return routes.iterator().next();
             }
         }
-        synchronized (_default) {
-            return _default.isEmpty() ? null : _default.get(IntMath.mod(addr.hashCode(), _default.size()));
-        }
+        List<CellRoute> defaults = snapshot.defaults;
+        return defaults.isEmpty() ? null : defaults.get(IntMath.mod(addr.hashCode(), defaults.size()));
     }
 
     public Set<CellRoute> findTopicRoutes(CellAddressCore addr)
@@ -241,11 +225,7 @@ public class CellRoutingTable implements Serializable
         if (!domainName.equals("local")) {
             return Collections.emptySet();
         }
-        CopyOnWriteArraySet<CellRoute> routes;
-        synchronized (_topic) {
-            routes = _topic.get(cellName);
-        }
-        return (routes != null) ? routes : Collections.emptySet();
+        return _snapshot.topic.get(cellName);
     }
 
     public String toString()
@@ -263,57 +243,98 @@ public class CellRoutingTable implements Serializable
                         .value("gateway", route.getTargetName())
                         .value("type", route.getRouteTypeName());
 
-        synchronized (_topic) {
-            _topic.values().forEach(routes -> routes.forEach(append));
-        }
-        synchronized (_exact) {
-            _exact.values().forEach(append);
-        }
-        synchronized (_queue) {
-            _queue.values().forEach(append);
-        }
-        synchronized (_domain) {
-            _domain.values().forEach(append);
-        }
-        synchronized (_default) {
-            _default.forEach(append);
-        }
-        CellRoute dumpsterRoute = _dumpster.get();
-        if (dumpsterRoute != null) {
-            append.accept(dumpsterRoute);
-        }
+        _snapshot.forEach(append);
         return writer.toString();
     }
 
     public CellRoute[] getRoutingList()
     {
         List<CellRoute> routes = new ArrayList<>();
-        synchronized (_topic) {
-            _topic.values().forEach(routes::addAll);
+        _snapshot.forEach(routes::add);
+        return routes.toArray(new CellRoute[routes.size()]);
+    }
+
+    public boolean hasDefaultRoute()
+    {
+        return !_snapshot.defaults.isEmpty();
+    }
+
+    /**
+     * Immutable view of the routing table. Updating a route type creates a
+     * new snapshot sharing the routes of all other types.
+     */
+    private static class Snapshot implements Serializable
+    {
+        private static final long serialVersionUID = 2209342865839474211L;
+
+        final ImmutableSetMultimap<String, CellRoute> exact;
+        final ImmutableListMultimap<String, CellRoute> queue;
+        final ImmutableSetMultimap<String, CellRoute> domain;
+        final ImmutableSetMultimap<String, CellRoute> topic;
+        final ImmutableList<CellRoute> defaults;
+        final CellRoute dumpster;
+
+        Snapshot()
+        {
+            this(ImmutableSetMultimap.of(), ImmutableListMultimap.of(), ImmutableSetMultimap.of(),
+                 ImmutableSetMultimap.of(), ImmutableList.of(), null);
         }
-        synchronized (_exact) {
-            routes.addAll(_exact.values());
+
+        Snapshot(ImmutableSetMultimap<String, CellRoute> exact,
+                 ImmutableListMultimap<String, CellRoute> queue,
+                 ImmutableSetMultimap<String, CellRoute> domain,
+                 ImmutableSetMultimap<String, CellRoute> topic,
+                 ImmutableList<CellRoute> defaults,
+                 CellRoute dumpster)
+        {
+            this.exact = exact;
+            this.queue = queue;
+            this.domain = domain;
+            this.topic = topic;
+            this.defaults = defaults;
+            this.dumpster = dumpster;
+        }
+
+        Snapshot withExact(SetMultimap<String, CellRoute> routes)
+        {
+            return new Snapshot(ImmutableSetMultimap.copyOf(routes), queue, domain, topic, defaults, dumpster);
+        }
+
+        Snapshot withQueue(ListMultimap<String, CellRoute> routes)
+        {
+            return new Snapshot(exact, ImmutableListMultimap.copyOf(routes), domain, topic, defaults, dumpster);
         }
-        synchronized (_queue) {
-            routes.addAll(_queue.values());
+
+        Snapshot withDomain(SetMultimap<String, CellRoute> routes)
+        {
+            return new Snapshot(exact, queue, ImmutableSetMultimap.copyOf(routes), topic, defaults, dumpster);
         }
-        synchronized (_domain) {
-            routes.addAll(_domain.values());
+
+        Snapshot withTopic(SetMultimap<String, CellRoute> routes)
+        {
+            return new Snapshot(exact, queue, domain, ImmutableSetMultimap.copyOf(routes), defaults, dumpster);
         }
-        synchronized (_default) {
-            routes.addAll(_default);
+
+        Snapshot withDefault(List<CellRoute> routes)
+        {
+            return new Snapshot(exact, queue, domain, topic, ImmutableList.copyOf(routes), dumpster);
         }
-        CellRoute dumpsterRoute = _dumpster.get();
-        if (dumpsterRoute != null) {
-            routes.add(dumpsterRoute);
+
+        Snapshot withDumpster(CellRoute route)
+        {
+            return new Snapshot(exact, queue, domain, topic, defaults, route);
         }
-        return routes.toArray(new CellRoute[routes.size()]);
-    }
 
-    public boolean hasDefaultRoute()
-    {
-        synchronized (_default) {
-            return !_default.isEmpty();
+        void forEach(Consumer<CellRoute> action)
+        {
+            topic.values().forEach(action);
+            exact.values().forEach(action);
+            queue.values().forEach(action);
+            domain.values().forEach(action);
+            defaults.forEach(action);
+            if (dumpster != null) {
+                action.accept(dumpster);
+            }
         }
     }
 }
@@ -0,0 +1,173 @@
+package dmg.cells.nucleus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+
+/**
+ * Codec using Java serialization with compact class descriptors.
+ *
+ * Java serialization writes a full description of every class of the
+ * object graph - name, serialVersionUID and all serializable fields - into
+ * every message. For classes registered in a {@link SerializableClassRegistry}
+ * the descriptor is replaced by a two byte id. Other classes fall back to
+ * regular class descriptors, so any serializable object can be encoded.
+ *
+ * The encoded form starts with a magic number and the fingerprint of the
+ * registry. A payload can only be decoded by a registry with the same
+ * fingerprint; {@link CellMessage#encodeFor} re-encodes payloads with
+ * Java serialization before they are sent to a domain with a different
+ * registry.
+ */
+public class CompactMessageCodec implements MessageCodec
+{
+    private static final short MAGIC = (short) 0xDCC1;
+    private static final int HEADER_SIZE = 6;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final int DESCRIPTOR_FULL = 0;
+    private static final int DESCRIPTOR_REGISTERED = 1;
+
+    private final SerializableClassRegistry _registry;
+
+    public CompactMessageCodec(SerializableClassRegistry registry)
+    {
+        _registry = registry;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "compact";
+    }
+
+    @Override
+    public boolean isEncodedWith(byte[] data)
+    {
+        return data.length >= HEADER_SIZE && (short) (((data[0] & 0xff) << 8) | (data[1] & 0xff)) == MAGIC;
+    }
+
+    /**
+     * Returns the registry fingerprint of a payload encoded with this codec.
+     */
+    public static int getFingerprint(byte[] data)
+    {
+        return ((data[2] & 0xff) << 24) | ((data[3] & 0xff) << 16) | ((data[4] & 0xff) << 8) | (data[5] & 0xff);
+    }
+
+    public int getFingerprint()
+    {
+        return _registry.getFingerprint();
+    }
+
+    @Override
+    public byte[] encode(Serializable message)
+    {
+        ByteArrayOutputStream array = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try {
+            DataOutputStream header = new DataOutputStream(array);
+            header.writeShort(MAGIC);
+            header.writeInt(_registry.getFingerprint());
+            try (ObjectOutputStream out = new CompactObjectOutputStream(array)) {
+                out.writeObject(message);
+            }
+        } catch (InvalidClassException e) {
+            throw new SerializationException("Failed to serialize object: "
+                    + e + "(this is usually a bug)", e);
+        } catch (NotSerializableException e) {
+            throw new SerializationException("Failed to serialize object because the object is not serializable (this is usually a bug)", e);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize object: " + e, e);
+        }
+        return array.toByteArray();
+    }
+
+    @Override
+    public Serializable decode(byte[] data)
+    {
+        if (!isEncodedWith(data)) {
+            throw new SerializationException("Failed to deserialize object: Not a compact payload.");
+        }
+        if (getFingerprint(data) != _registry.getFingerprint()) {
+            throw new SerializationException("Failed to deserialize object: The payload was encoded with a different set of registered classes. Is there a software version mismatch in your installation?");
+        }
+        InputStream in = new ByteArrayInputStream(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        try (ObjectInputStream stream = new CompactObjectInputStream(in)) {
+            return (Serializable) stream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("Failed to deserialize object: The class could not be found. Is there a software version mismatch in your installation?", e);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to deserialize object: " + e, e);
+        }
+    }
+
+    private class CompactObjectOutputStream extends ObjectOutputStream
+    {
+        CompactObjectOutputStream(OutputStream out) throws IOException
+        {
+            super(out);
+        }
+
+        @Override
+        protected void writeStreamHeader() throws IOException
+        {
+            /* The codec header replaces the stream header. */
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException
+        {
+            int id = _registry.indexOf(desc.forClass());
+            if (id < 0) {
+                write(DESCRIPTOR_FULL);
+                super.writeClassDescriptor(desc);
+            } else {
+                write(DESCRIPTOR_REGISTERED);
+                writeShort(id);
+            }
+        }
+    }
+
+    private class CompactObjectInputStream extends ObjectInputStream
+    {
+        CompactObjectInputStream(InputStream in) throws IOException
+        {
+            super(in);
+        }
+
+        @Override
+        protected void readStreamHeader()
+        {
+            /* The codec header replaces the stream header. */
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException
+        {
+            int type = read();
+            switch (type) {
+            case DESCRIPTOR_FULL:
+                return super.readClassDescriptor();
+            case DESCRIPTOR_REGISTERED:
+                int id = readUnsignedShort();
+                Class<?> c = _registry.get(id);
+                if (c == null) {
+                    throw new StreamCorruptedException("Unknown class id: " + id);
+                }
+                return ObjectStreamClass.lookup(c);
+            default:
+                throw new StreamCorruptedException("Unknown class descriptor type: " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dmg.cells.nucleus;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Registers common JDK classes and the messages of the cells framework
+ * with the {@link SerializableClassRegistry}.
+ *
+ * Classes must only ever be appended to this list; reordering or removing
+ * classes changes the registry fingerprint.
+ */
+public class DefaultSerializableClassProvider implements SerializableClassProvider
+{
+    private static final List<String> CLASSES = ImmutableList.of(
+            "java.lang.Number",
+            "java.lang.Boolean",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Enum",
+            "java.lang.Throwable",
+            "java.lang.Exception",
+            "java.lang.RuntimeException",
+            "java.lang.StackTraceElement",
+            "java.util.ArrayList",
+            "java.util.HashMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashMap",
+            "java.util.LinkedHashSet",
+            "java.util.Date",
+            "java.util.EnumSet$SerializationProxy",
+            "java.util.Collections$EmptyList",
+            "java.util.Collections$EmptyMap",
+            "java.util.Collections$EmptySet",
+            "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableSet",
+            "java.util.Collections$UnmodifiableList",
+            "java.util.Collections$UnmodifiableRandomAccessList",
+            "java.util.Collections$UnmodifiableMap",
+            "java.util.Collections$SynchronizedCollection",
+            "java.util.Collections$SynchronizedSet",
+            "java.net.InetAddress",
+            "java.net.Inet4Address",
+            "java.net.Inet6Address",
+            "java.net.InetSocketAddress",
+            "javax.security.auth.Subject",
+            "javax.security.auth.Subject$SecureSet",
+            "dmg.cells.nucleus.CellAddressCore",
+            "dmg.cells.nucleus.CellPath",
+            "dmg.cells.nucleus.CellMessage",
+            "dmg.cells.nucleus.UOID",
+            "dmg.cells.nucleus.CellInfo",
+            "dmg.cells.nucleus.CellVersion",
+            "dmg.cells.nucleus.CellDomainInfo",
+            "dmg.cells.nucleus.CellDomainRole",
+            "dmg.cells.nucleus.CellRoute",
+            "dmg.cells.nucleus.CellTunnelInfo",
+            "dmg.cells.nucleus.NoRouteToCellException",
+            "dmg.cells.nucleus.SerializationException",
+            "dmg.cells.network.PingMessage",
+            "dmg.cells.services.login.LoginBrokerInfo");
+
+    @Override
+    public List<String> getClassNames()
+    {
+        return CLASSES;
+    }
+}
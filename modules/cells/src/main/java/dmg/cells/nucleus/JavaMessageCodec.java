@@ -0,0 +1,68 @@
+package dmg.cells.nucleus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.Serializable;
+
+/**
+ * Codec using plain Java serialization. This is the format understood
+ * by all versions of dCache.
+ */
+public class JavaMessageCodec implements MessageCodec
+{
+    public static final JavaMessageCodec INSTANCE = new JavaMessageCodec();
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private JavaMessageCodec()
+    {
+    }
+
+    @Override
+    public String getName()
+    {
+        return "java";
+    }
+
+    @Override
+    public boolean isEncodedWith(byte[] data)
+    {
+        return data.length >= 2 &&
+               (short) (((data[0] & 0xff) << 8) | (data[1] & 0xff)) == ObjectStreamConstants.STREAM_MAGIC;
+    }
+
+    @Override
+    public byte[] encode(Serializable message)
+    {
+        ByteArrayOutputStream array = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (ObjectOutputStream out = new ObjectOutputStream(array)) {
+            out.writeObject(message);
+        } catch (InvalidClassException e) {
+            throw new SerializationException("Failed to serialize object: "
+                    + e + "(this is usually a bug)", e);
+        } catch (NotSerializableException e) {
+            throw new SerializationException("Failed to serialize object because the object is not serializable (this is usually a bug)", e);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize object: " + e, e);
+        }
+        return array.toByteArray();
+    }
+
+    @Override
+    public Serializable decode(byte[] data)
+    {
+        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Serializable) stream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("Failed to deserialize object: The class could not be found. Is there a software version mismatch in your installation?", e);
+        } catch (IOException e) {
+            throw new SerializationException("Failed to deserialize object: " + e, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dmg.cells.nucleus;
+
+import java.io.Serializable;
+
+/**
+ * Encodes the payload of cell messages to bytes and back.
+ *
+ * The encoded form of every codec starts with a codec specific header,
+ * which allows {@link CellMessage#decode} to pick the codec that produced
+ * a payload.
+ */
+public interface MessageCodec
+{
+    /**
+     * Returns a short name identifying the codec.
+     */
+    String getName();
+
+    /**
+     * Returns true if the given bytes were produced by this codec.
+     */
+    boolean isEncodedWith(byte[] data);
+
+    byte[] encode(Serializable message) throws SerializationException;
+
+    Serializable decode(byte[] data) throws SerializationException;
+}
@@ -0,0 +1,17 @@
+package dmg.cells.nucleus;
+
+import java.util.List;
+
+/**
+ * Service provider interface for contributing classes to the
+ * {@link SerializableClassRegistry}.
+ *
+ * Implementations are discovered through {@link java.util.ServiceLoader}.
+ * Classes are listed by name, which allows non-public classes such as
+ * serialization proxies to be registered. Names of classes that cannot
+ * be loaded are ignored.
+ */
+public interface SerializableClassProvider
+{
+    List<String> getClassNames();
+}
@@ -0,0 +1,115 @@
+package dmg.cells.nucleus;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Registry of classes whose serialization class descriptors are replaced
+ * by a small numeric id in the compact message format.
+ *
+ * Both ends must agree on the numbering and on the serialized form of
+ * every registered class. The registry therefore has a fingerprint
+ * covering the name, serialVersionUID and serializable fields of every
+ * registered class in order; payloads are only exchanged in the compact
+ * format between domains with the same fingerprint.
+ */
+public final class SerializableClassRegistry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerializableClassRegistry.class);
+
+    private static final SerializableClassRegistry INSTANCE = load();
+
+    private final List<Class<?>> _classes = new ArrayList<>();
+    private final Map<Class<?>, Integer> _ids = new HashMap<>();
+    private final int _fingerprint;
+
+    SerializableClassRegistry(List<String> classNames, ClassLoader loader)
+    {
+        Hasher hasher = Hashing.murmur3_32().newHasher();
+        for (String name : classNames) {
+            Class<?> c;
+            try {
+                c = Class.forName(name, false, loader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                LOGGER.debug("Not registering {}: {}", name, e.toString());
+                continue;
+            }
+            ObjectStreamClass descriptor = ObjectStreamClass.lookup(c);
+            if (descriptor == null || _ids.containsKey(c)) {
+                continue;
+            }
+            _ids.put(c, _classes.size());
+            _classes.add(c);
+
+            hasher.putString(descriptor.getName(), UTF_8);
+            hasher.putLong(descriptor.getSerialVersionUID());
+            for (ObjectStreamField field : descriptor.getFields()) {
+                hasher.putString(field.getName(), UTF_8);
+                hasher.putChar(field.getTypeCode());
+                if (field.getTypeString() != null) {
+                    hasher.putString(field.getTypeString(), UTF_8);
+                }
+            }
+        }
+        _fingerprint = hasher.hash().asInt();
+    }
+
+    private static SerializableClassRegistry load()
+    {
+        List<SerializableClassProvider> providers = new ArrayList<>();
+        ServiceLoader.load(SerializableClassProvider.class).forEach(providers::add);
+        providers.sort(Comparator.comparing(p -> p.getClass().getName()));
+
+        List<String> names = new ArrayList<>();
+        for (SerializableClassProvider provider : providers) {
+            names.addAll(provider.getClassNames());
+        }
+        return new SerializableClassRegistry(names, SerializableClassRegistry.class.getClassLoader());
+    }
+
+    public static SerializableClassRegistry getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a hash identifying the registered classes, their order and
+     * their serialized form.
+     */
+    public int getFingerprint()
+    {
+        return _fingerprint;
+    }
+
+    public int size()
+    {
+        return _classes.size();
+    }
+
+    /**
+     * Returns the id of a class, or -1 if the class is not registered.
+     */
+    int indexOf(Class<?> c)
+    {
+        Integer id = _ids.get(c);
+        return (id == null) ? -1 : id;
+    }
+
+    Class<?> get(int id)
+    {
+        return (id >= 0 && id < _classes.size()) ? _classes.get(id) : null;
+    }
+}
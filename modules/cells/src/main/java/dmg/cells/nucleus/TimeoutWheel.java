@@ -0,0 +1,120 @@
+package dmg.cells.nucleus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Hashed timing wheel tracking the deadlines of a large number of entries.
+ *
+ * Entries are hashed into buckets by their deadline. Adding and removing an
+ * entry only touches a single bucket, and expiring entries only visits the
+ * buckets of the ticks that passed since the previous call. Entries with a
+ * deadline further away than one rotation of the wheel stay in their bucket
+ * until a later rotation.
+ *
+ * Entries with a deadline of Long.MAX_VALUE never expire and are not tracked.
+ *
+ * Adding and removing entries is thread safe. Expiring entries is expected
+ * to be done by one thread at a time.
+ */
+class TimeoutWheel<T>
+{
+    private final long _tickMillis;
+    private final Set<T>[] _buckets;
+    private final ToLongFunction<T> _deadline;
+
+    /**
+     * Entries with a deadline in a tick that was already processed.
+     */
+    private final Set<T> _overdue = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The last tick for which buckets were processed.
+     */
+    private final AtomicLong _lastTick;
+
+    @SuppressWarnings("unchecked")
+    TimeoutWheel(int size, long tickMillis, ToLongFunction<T> deadline, long now)
+    {
+        checkArgument(size > 0, "Size must be positive");
+        checkArgument(tickMillis > 0, "Tick duration must be positive");
+        _tickMillis = tickMillis;
+        _deadline = deadline;
+        _buckets = new Set[size];
+        for (int i = 0; i < size; i++) {
+            _buckets[i] = ConcurrentHashMap.newKeySet();
+        }
+        _lastTick = new AtomicLong(now / tickMillis - 1);
+    }
+
+    void add(T entry)
+    {
+        long deadline = _deadline.applyAsLong(entry);
+        if (deadline == Long.MAX_VALUE) {
+            return;
+        }
+        long tick = deadline / _tickMillis;
+        if (tick <= _lastTick.get()) {
+            _overdue.add(entry);
+        } else {
+            Set<T> bucket = bucketOf(tick);
+            bucket.add(entry);
+            /* If the tick was processed concurrently, the entry may have
+             * been missed. Move it to the overdue set unless it already
+             * was expired.
+             */
+            if (tick <= _lastTick.get() && bucket.remove(entry)) {
+                _overdue.add(entry);
+            }
+        }
+    }
+
+    boolean remove(T entry)
+    {
+        long deadline = _deadline.applyAsLong(entry);
+        return deadline != Long.MAX_VALUE &&
+               (bucketOf(deadline / _tickMillis).remove(entry) || _overdue.remove(entry));
+    }
+
+    /**
+     * Removes and returns all entries with a deadline before {@code now}.
+     */
+    synchronized List<T> expire(long now)
+    {
+        List<T> expired = new ArrayList<>();
+        long tick = now / _tickMillis - 1;
+        long last = _lastTick.get();
+        if (tick > last) {
+            _lastTick.set(tick);
+            for (long t = Math.max(last + 1, tick - _buckets.length + 1); t <= tick; t++) {
+                expire(bucketOf(t), now, expired);
+            }
+        }
+        expire(_overdue, now, expired);
+        return expired;
+    }
+
+    private void expire(Set<T> bucket, long now, Collection<T> expired)
+    {
+        Iterator<T> i = bucket.iterator();
+        while (i.hasNext()) {
+            T entry = i.next();
+            if (_deadline.applyAsLong(entry) < now && bucket.remove(entry)) {
+                expired.add(entry);
+            }
+        }
+    }
+
+    private Set<T> bucketOf(long tick)
+    {
+        return _buckets[(int) Math.floorMod(tick, (long) _buckets.length)];
+    }
+}
@@ -0,0 +1,92 @@
+package dmg.cells.nucleus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures routing throughput of CellRoutingTable#find with many threads.
+ *
+ * Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=dmg.cells.nucleus.CellRoutingTableBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CellRoutingTableBenchmark
+{
+    @Param({"1000"})
+    public int routes;
+
+    private CellRoutingTable _table;
+    private CellAddressCore[] _exact;
+    private CellAddressCore[] _domain;
+    private CellAddressCore[] _queue;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        _table = new CellRoutingTable();
+        _exact = new CellAddressCore[routes];
+        _domain = new CellAddressCore[routes];
+        _queue = new CellAddressCore[routes];
+        for (int i = 0; i < routes; i++) {
+            String gateway = "tunnel" + (i % 16) + "@dCacheDomain";
+            _table.add(new CellRoute("pool" + i + "@pool" + i + "Domain", gateway, CellRoute.EXACT));
+            _table.add(new CellRoute("domain" + i, gateway, CellRoute.DOMAIN));
+            _table.add(new CellRoute("queue" + i, gateway, CellRoute.QUEUE));
+            _exact[i] = new CellAddressCore("pool" + i, "pool" + i + "Domain");
+            _domain[i] = new CellAddressCore("cell", "domain" + i);
+            _queue[i] = new CellAddressCore("queue" + i);
+        }
+        _table.add(new CellRoute(null, "tunnel0@dCacheDomain", CellRoute.DEFAULT));
+    }
+
+    @Benchmark
+    public CellRoute findExact()
+    {
+        return _table.find(_exact[ThreadLocalRandom.current().nextInt(routes)]);
+    }
+
+    @Benchmark
+    public CellRoute findDomain()
+    {
+        return _table.find(_domain[ThreadLocalRandom.current().nextInt(routes)]);
+    }
+
+    @Benchmark
+    public CellRoute findQueue()
+    {
+        return _table.find(_queue[ThreadLocalRandom.current().nextInt(routes)]);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        for (int threads : new int[] { 1, 4, 16, 64 }) {
+            new Runner(new OptionsBuilder()
+                               .include(CellRoutingTableBenchmark.class.getSimpleName())
+                               .threads(threads)
+                               .build()).run();
+        }
+    }
+}
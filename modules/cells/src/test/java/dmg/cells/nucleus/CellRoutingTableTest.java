@@ -0,0 +1,90 @@
+package dmg.cells.nucleus;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CellRoutingTableTest
+{
+    private CellRoutingTable _table;
+
+    @Before
+    public void setUp()
+    {
+        _table = new CellRoutingTable();
+    }
+
+    @Test
+    public void shouldPreferExactRouteOverDomainRoute()
+    {
+        CellRoute exact = new CellRoute("pool@poolDomain", "tunnel1@dCacheDomain", CellRoute.EXACT);
+        CellRoute domain = new CellRoute("poolDomain", "tunnel2@dCacheDomain", CellRoute.DOMAIN);
+        _table.add(domain);
+        _table.add(exact);
+
+        assertThat(_table.find(new CellAddressCore("pool@poolDomain")), is(exact));
+        assertThat(_table.find(new CellAddressCore("other@poolDomain")), is(domain));
+    }
+
+    @Test
+    public void shouldFallBackToDefaultRoute()
+    {
+        CellRoute route = new CellRoute(null, "tunnel@dCacheDomain", CellRoute.DEFAULT);
+
+        assertThat(_table.find(new CellAddressCore("pool@poolDomain")), is(nullValue()));
+        assertThat(_table.hasDefaultRoute(), is(false));
+
+        _table.add(route);
+
+        assertThat(_table.find(new CellAddressCore("pool@poolDomain")), is(route));
+        assertThat(_table.hasDefaultRoute(), is(true));
+    }
+
+    @Test
+    public void shouldFindQueueRouteForWellKnownCell()
+    {
+        CellRoute route = new CellRoute("PoolManager", "tunnel@dCacheDomain", CellRoute.QUEUE);
+        _table.add(route);
+
+        assertThat(_table.find(new CellAddressCore("PoolManager")), is(route));
+    }
+
+    @Test
+    public void shouldFindTopicRoutes()
+    {
+        CellRoute a = new CellRoute("topic", "a@aDomain", CellRoute.TOPIC);
+        CellRoute b = new CellRoute("topic", "b@bDomain", CellRoute.TOPIC);
+        _table.add(a);
+        _table.add(b);
+
+        assertThat(_table.findTopicRoutes(new CellAddressCore("topic")), hasItems(a, b));
+        assertThat(_table.findTopicRoutes(new CellAddressCore("topic@otherDomain")).isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateRoute()
+    {
+        _table.add(new CellRoute("pool@poolDomain", "tunnel@dCacheDomain", CellRoute.EXACT));
+        _table.add(new CellRoute("pool@poolDomain", "tunnel@dCacheDomain", CellRoute.EXACT));
+    }
+
+    @Test
+    public void shouldDeleteRoutesOfGateway()
+    {
+        CellRoute exact = new CellRoute("pool@poolDomain", "tunnel@dCacheDomain", CellRoute.EXACT);
+        CellRoute topic = new CellRoute("topic", "tunnel@dCacheDomain", CellRoute.TOPIC);
+        CellRoute other = new CellRoute("poolDomain", "other@dCacheDomain", CellRoute.DOMAIN);
+        _table.add(exact);
+        _table.add(topic);
+        _table.add(other);
+
+        assertThat(_table.delete(new CellAddressCore("tunnel@dCacheDomain")), hasItems(exact, topic));
+        assertThat(_table.find(new CellAddressCore("pool@poolDomain")), is(other));
+        assertThat(_table.findTopicRoutes(new CellAddressCore("topic")).isEmpty(), is(true));
+        assertThat(_table.getRoutingList().length, is(1));
+    }
+}
@@ -0,0 +1,96 @@
+package dmg.cells.nucleus;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class CompactMessageCodecTest
+{
+    private CompactMessageCodec _codec;
+    private HashMap<String, Serializable> _payload;
+
+    @Before
+    public void setUp()
+    {
+        _codec = new CompactMessageCodec(SerializableClassRegistry.getInstance());
+
+        List<CellPath> paths = new ArrayList<>();
+        paths.add(new CellPath("PoolManager@dCacheDomain"));
+        paths.add(new CellPath("pool_1", "poolDomain"));
+        _payload = new HashMap<>();
+        _payload.put("paths", (Serializable) paths);
+        _payload.put("count", 42L);
+        _payload.put("flag", true);
+    }
+
+    @Test
+    public void shouldDecodeEncodedPayload()
+    {
+        byte[] data = _codec.encode(_payload);
+
+        assertThat(_codec.isEncodedWith(data), is(true));
+        assertThat(JavaMessageCodec.INSTANCE.isEncodedWith(data), is(false));
+        assertThat(_codec.decode(data), is((Serializable) _payload));
+    }
+
+    @Test
+    public void shouldProduceSmallerPayloadThanJavaSerialization()
+    {
+        assertThat(_codec.encode(_payload).length,
+                   is(lessThan(JavaMessageCodec.INSTANCE.encode(_payload).length)));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void shouldRejectPayloadWithDifferentFingerprint()
+    {
+        byte[] data = _codec.encode(_payload);
+        data[5] ^= 0xff;
+        _codec.decode(data);
+    }
+
+    @Test
+    public void shouldDecodeJavaSerializedPayloadOfCellMessage()
+    {
+        byte[] data = JavaMessageCodec.INSTANCE.encode(_payload);
+
+        assertThat(CellMessage.decode(data), is((Object) _payload));
+    }
+
+    @Test
+    public void shouldReadWrittenCellMessage() throws IOException
+    {
+        CellMessage message = new CellMessage(new CellPath("PoolManager@dCacheDomain"), _payload);
+        message.setSession("session");
+        message.setTtl(1000);
+        CellMessage encoded = message.encode();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encoded.writeTo(out);
+        }
+        CellMessage read;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = CellMessage.readFrom(in).decode();
+        }
+
+        assertThat(read.getUOID(), is(message.getUOID()));
+        assertThat(read.getDestinationPath(), is(message.getDestinationPath()));
+        assertThat(read.getSession(), is((Serializable) "session"));
+        assertThat(read.getTtl(), is(1000L));
+        assertThat(read.getMessageObject(), is((Serializable) _payload));
+    }
+}
@@ -0,0 +1,152 @@
+package dmg.cells.nucleus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Java serialization with the compact codec, both for message
+ * payloads and for the envelope framing used by tunnels.
+ *
+ * Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=dmg.cells.nucleus.MessageCodecBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MessageCodecBenchmark
+{
+    private MessageCodec _java;
+    private MessageCodec _compact;
+    private HashMap<String, Serializable> _payload;
+    private byte[] _javaPayload;
+    private byte[] _compactPayload;
+    private CellMessage _message;
+    private byte[] _javaEnvelope;
+    private byte[] _compactEnvelope;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        _java = JavaMessageCodec.INSTANCE;
+        _compact = new CompactMessageCodec(SerializableClassRegistry.getInstance());
+
+        List<CellPath> paths = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            paths.add(new CellPath("pool_" + i, "poolDomain"));
+        }
+        _payload = new HashMap<>();
+        _payload.put("paths", (Serializable) paths);
+        _payload.put("size", 1L << 32);
+        _payload.put("flag", true);
+
+        _javaPayload = _java.encode(_payload);
+        _compactPayload = _compact.encode(_payload);
+
+        _message = new CellMessage(new CellPath("PoolManager@dCacheDomain"), _payload).encode();
+        _javaEnvelope = writeJavaEnvelope();
+        _compactEnvelope = writeCompactEnvelope();
+    }
+
+    @Benchmark
+    public byte[] encodeJava()
+    {
+        return _java.encode(_payload);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact()
+    {
+        return _compact.encode(_payload);
+    }
+
+    @Benchmark
+    public Serializable decodeJava()
+    {
+        return _java.decode(_javaPayload);
+    }
+
+    @Benchmark
+    public Serializable decodeCompact()
+    {
+        return _compact.decode(_compactPayload);
+    }
+
+    @Benchmark
+    public byte[] writeJavaEnvelope() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(_message);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeCompactEnvelope() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            _message.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object readJavaEnvelope() throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(_javaEnvelope))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public CellMessage readCompactEnvelope() throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(_compactEnvelope))) {
+            return CellMessage.readFrom(in);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException
+    {
+        MessageCodecBenchmark benchmark = new MessageCodecBenchmark();
+        benchmark.setUp();
+        System.out.println("Payload size:  java=" + benchmark._javaPayload.length +
+                           " compact=" + benchmark._compactPayload.length);
+        System.out.println("Envelope size: java=" + benchmark._javaEnvelope.length +
+                           " compact=" + benchmark._compactEnvelope.length);
+
+        new Runner(new OptionsBuilder()
+                           .include(MessageCodecBenchmark.class.getSimpleName())
+                           .build()).run();
+    }
+}
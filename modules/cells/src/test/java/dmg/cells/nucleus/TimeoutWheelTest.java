@@ -0,0 +1,98 @@
+package dmg.cells.nucleus;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TimeoutWheelTest
+{
+    private static final long START = 1_000_000;
+
+    private TimeoutWheel<Entry> _wheel;
+
+    @Before
+    public void setUp()
+    {
+        _wheel = new TimeoutWheel<>(8, 100, Entry::getDeadline, START);
+    }
+
+    @Test
+    public void shouldNotExpireEntriesBeforeTheirDeadline()
+    {
+        _wheel.add(new Entry(START + 500));
+
+        assertThat(_wheel.expire(START + 400).isEmpty(), is(true));
+        assertThat(_wheel.expire(START + 500).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldExpireEntriesAfterTheirDeadline()
+    {
+        Entry a = new Entry(START + 150);
+        Entry b = new Entry(START + 250);
+        _wheel.add(a);
+        _wheel.add(b);
+
+        assertThat(_wheel.expire(START + 300), hasItems(a, b));
+        assertThat(_wheel.expire(START + 400).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldExpireEntriesBeyondOneRotation()
+    {
+        Entry entry = new Entry(START + 2050);
+        _wheel.add(entry);
+
+        assertThat(_wheel.expire(START + 1000).isEmpty(), is(true));
+        assertThat(_wheel.expire(START + 2000).isEmpty(), is(true));
+        assertThat(_wheel.expire(START + 2200), hasItems(entry));
+    }
+
+    @Test
+    public void shouldExpireOverdueEntries()
+    {
+        _wheel.expire(START + 1000);
+        Entry entry = new Entry(START + 100);
+        _wheel.add(entry);
+
+        assertThat(_wheel.expire(START + 1000), hasItems(entry));
+    }
+
+    @Test
+    public void shouldNotExpireRemovedEntries()
+    {
+        Entry entry = new Entry(START + 150);
+        _wheel.add(entry);
+
+        assertThat(_wheel.remove(entry), is(true));
+        assertThat(_wheel.expire(START + 300).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldNotTrackEntriesWithoutDeadline()
+    {
+        Entry entry = new Entry(Long.MAX_VALUE);
+        _wheel.add(entry);
+
+        assertThat(_wheel.remove(entry), is(false));
+        assertThat(_wheel.expire(Long.MAX_VALUE - 1).isEmpty(), is(true));
+    }
+
+    private static class Entry
+    {
+        private final long _deadline;
+
+        private Entry(long deadline)
+        {
+            _deadline = deadline;
+        }
+
+        public long getDeadline()
+        {
+            return _deadline;
+        }
+    }
+}
@@ -331,7 +331,13 @@ public class FsSqlDriver {
         return true;
     }
 
-    void remove(FsInode inode) {
+    /**
+     * Removes all links to an inode and the inode itself.
+     *
+     * @param inode
+     * @return the inode numbers of the directories the inode was linked from
+     */
+    List<Long> remove(FsInode inode) {
         if (inode.isDirectory()) {
             removeTag(inode);
         }
@@ -355,6 +361,7 @@ public class FsSqlDriver {
         }
 
         removeInodeIfUnlinked(inode);
+        return parents;
     }
 
     public Stat stat(String id) {
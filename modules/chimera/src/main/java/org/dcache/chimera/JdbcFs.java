@@ -16,10 +16,12 @@
  */
 package org.dcache.chimera;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
@@ -33,6 +35,8 @@ import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
 
@@ -41,6 +45,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -51,6 +56,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.dcache.acl.ACE;
 import org.dcache.acl.enums.RsType;
@@ -148,6 +154,46 @@ public class JdbcFs implements FileSystemProvider {
                     .maximumSize(100000)
                     .build();
 
+    /* Directory entries of directories, keyed on the parent inode number and the
+     * name of the entry, together with the stat of the directory. Only directories
+     * are cached as they form the prefix of every path lookup. Entries are
+     * invalidated after the transaction removing or renaming the name commits, and
+     * whenever the directory or its content changes. Only changes made through this
+     * instance invalidate the cache, thus it is disabled by default; see
+     * setDirectoryEntryCacheEnabled.
+     */
+    private final Cache<DirectoryEntry, Stat> _dentryCache =
+            CacheBuilder.newBuilder()
+                    .maximumSize(DENTRY_CACHE_SIZE)
+                    .expireAfterWrite(DENTRY_CACHE_LIFETIME, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build();
+
+    /* Reverse index of the directory entry cache, keyed on the inode number of the
+     * directory. A cached directory entry is only used if the index refers back
+     * to it, thus invalidating the index entry invalidates the directory entry.
+     */
+    private final Cache<Long, DirectoryEntry> _dentryIndex =
+            CacheBuilder.newBuilder()
+                    .maximumSize(DENTRY_CACHE_SIZE)
+                    .expireAfterWrite(DENTRY_CACHE_LIFETIME, TimeUnit.SECONDS)
+                    .build();
+
+    /* Incremented on every invalidation of the directory entry cache. Lookups only
+     * keep the entries they added if no invalidation happened in the meantime, as
+     * otherwise the entries may have been read before the invalidating transaction
+     * committed.
+     */
+    private final AtomicLong _dentryGeneration = new AtomicLong();
+
+    private volatile boolean _isDentryCacheEnabled;
+
+    private static final long DENTRY_CACHE_SIZE = 100000;
+
+    private static final long DENTRY_CACHE_LIFETIME = 10;
+
+    private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+
     /**
      * current fs id
      */
@@ -182,6 +228,22 @@ public class JdbcFs implements FileSystemProvider {
         _sqlDriver = FsSqlDriver.getDriverInstance(dataSource);
     }
 
+    /**
+     * Enables the cache of directory entries used to resolve the leading directories
+     * of a path. The cache is only invalidated by changes made through this instance.
+     * It must therefore only be enabled if no other instance modifies the same name
+     * space, as otherwise renamed or removed directories may be resolved by their old
+     * name for up to {@value #DENTRY_CACHE_LIFETIME} seconds.
+     */
+    public void setDirectoryEntryCacheEnabled(boolean enabled)
+    {
+        _isDentryCacheEnabled = enabled;
+        if (!enabled) {
+            _dentryIndex.invalidateAll();
+            _dentryCache.invalidateAll();
+        }
+    }
+
     private FsInode getWormID() throws ChimeraFsException {
 
         return this.path2inode("/admin/etc/config");
@@ -262,6 +324,7 @@ public class JdbcFs implements FileSystemProvider {
                 Stat stat = parent.statCache();
                 int group = (stat.getMode() & UnixPermission.S_ISGID) != 0 ? stat.getGid() : gid;
                 inode = _sqlDriver.createFile(parent, name, uid, group, mode, UnixPermission.S_IFLNK);
+                invalidateDirectory(parent);
                 // link is a regular file where content is a reference
                 _sqlDriver.setInodeIo(inode, true);
                 _sqlDriver.write(inode, 0, 0, dest, 0, dest.length);
@@ -296,6 +359,7 @@ public class JdbcFs implements FileSystemProvider {
                 _sqlDriver.createEntryInParent(parent, name, inode);
                 _sqlDriver.incNlink(inode);
                 _sqlDriver.incNlink(parent);
+                invalidateDirectory(parent);
             } catch (DuplicateKeyException e) {
                 throw new FileExistsChimeraFsException(e);
             }
@@ -397,6 +461,7 @@ public class JdbcFs implements FileSystemProvider {
 
                 int gid = (parentStat.getMode() & UnixPermission.S_ISGID) != 0 ? parentStat.getGid() : group;
                 FsInode inode = _sqlDriver.createFile(parent, name, owner, gid, mode, type);
+                invalidateDirectory(parent);
                 _sqlDriver.copyAcl(parent, inode, RsType.FILE,
                                    EnumSet.of(INHERIT_ONLY_ACE, DIRECTORY_INHERIT_ACE, FILE_INHERIT_ACE),
                                    EnumSet.of(FILE_INHERIT_ACE));
@@ -437,6 +502,7 @@ public class JdbcFs implements FileSystemProvider {
                 Stat stat = parent.statCache();
                 int gid = (stat.getMode() & UnixPermission.S_ISGID) != 0 ? stat.getGid() : group;
                 FsInode inode = _sqlDriver.createFileWithId(parent, id, name, owner, gid, mode, type);
+                invalidateDirectory(parent);
                 _sqlDriver.copyAcl(parent, inode, RsType.FILE,
                                    EnumSet.of(INHERIT_ONLY_ACE, DIRECTORY_INHERIT_ACE, FILE_INHERIT_ACE),
                                    EnumSet.of(FILE_INHERIT_ACE));
@@ -477,13 +543,14 @@ public class JdbcFs implements FileSystemProvider {
             throw new InvalidArgumentChimeraException("Cannot delete file system root.");
         }
 
+        FsInode parent = path2inode(parentPath);
+        String name = filePath.getName();
         inTransaction(status -> {
-            FsInode parent = path2inode(parentPath);
-            String name = filePath.getName();
             FsInode inode = _sqlDriver.inodeOf(parent, name, STAT);
             if (inode == null || !_sqlDriver.remove(parent, name, inode)) {
                 throw new FileNotFoundHimeraFsException(path);
             }
+            invalidateEntry(parent, name);
             return null;
         });
     }
@@ -494,6 +561,7 @@ public class JdbcFs implements FileSystemProvider {
             if (!_sqlDriver.remove(directory, name, inode)) {
                 throw new FileNotFoundHimeraFsException(name);
             }
+            invalidateEntry(directory, name);
             return null;
         });
     }
@@ -511,10 +579,15 @@ public class JdbcFs implements FileSystemProvider {
             if (!inode.exists()) {
                 throw new FileNotFoundHimeraFsException("No such file.");
             }
-            if (inode.isDirectory() && inode.statCache().getNlink() > 2) {
-                throw new DirNotEmptyHimeraFsException("Directory is not empty");
+            if (inode.isDirectory()) {
+                if (inode.statCache().getNlink() > 2) {
+                    throw new DirNotEmptyHimeraFsException("Directory is not empty");
+                }
+                invalidateDirectory(inode);
+            }
+            for (long parent : _sqlDriver.remove(inode)) {
+                invalidateDirectory(new FsInode(this, parent));
             }
-            _sqlDriver.remove(inode);
             return null;
         });
     }
@@ -576,6 +649,7 @@ public class JdbcFs implements FileSystemProvider {
                 }
 
                 FsInode inode = _sqlDriver.mkdir(parent, name, owner, gid, perm);
+                invalidateDirectory(parent);
                 _sqlDriver.copyTags(parent, inode);
                 _sqlDriver.copyAcl(parent, inode, RsType.DIR, EnumSet.of(INHERIT_ONLY_ACE),
                                    EnumSet.of(FILE_INHERIT_ACE, DIRECTORY_INHERIT_ACE));
@@ -618,6 +692,7 @@ public class JdbcFs implements FileSystemProvider {
                     perm = mode;
                 }
                 FsInode inode = _sqlDriver.mkdir(parent, name, owner, gid, perm);
+                invalidateDirectory(parent);
                 _sqlDriver.createTags(inode, owner, gid, perm & 0666, tags);
                 _sqlDriver.writeAcl(inode, RsType.DIR, acl);
                 fillIdCaches(inode);
@@ -635,10 +710,11 @@ public class JdbcFs implements FileSystemProvider {
 
     @Override
     public FsInode path2inode(String path, FsInode startFrom) throws ChimeraFsException {
-        FsInode inode = _sqlDriver.path2inode(startFrom, path);
-        if (inode == null) {
+        List<FsInode> inodes = resolvePath(startFrom, path);
+        if (inodes.isEmpty()) {
             throw new FileNotFoundHimeraFsException(path);
         }
+        FsInode inode = inodes.get(inodes.size() - 1);
         fillIdCaches(inode);
         return inode;
     }
@@ -696,7 +772,7 @@ public class JdbcFs implements FileSystemProvider {
     public List<FsInode> path2inodes(String path, FsInode startFrom)
         throws ChimeraFsException
     {
-        List<FsInode> inodes = _sqlDriver.path2inodes(startFrom, path);
+        List<FsInode> inodes = resolvePath(startFrom, path);
         if (inodes.isEmpty()) {
             throw new FileNotFoundHimeraFsException(path);
         }
@@ -704,6 +780,122 @@ public class JdbcFs implements FileSystemProvider {
         return inodes;
     }
 
+    /**
+     * Resolves the inodes of a path starting at {@code startFrom}. Leading directories
+     * are looked up in the directory entry cache; the remainder of the path, and
+     * always the last path element, is resolved by the SQL driver. Directories
+     * found by the driver are added to the cache.
+     *
+     * @return the inodes along the path or an empty list if the path does not exist
+     */
+    private List<FsInode> resolvePath(FsInode startFrom, String path) throws ChimeraFsException
+    {
+        if (!_isDentryCacheEnabled) {
+            return _sqlDriver.path2inodes(startFrom, path);
+        }
+
+        List<String> elements = PATH_SPLITTER.splitToList(path);
+        List<FsInode> inodes = new ArrayList<>(elements.size() + 1);
+        inodes.add(startFrom);
+
+        long generation = _dentryGeneration.get();
+
+        FsInode parent = startFrom;
+        int i = 0;
+        for (; i < elements.size() - 1; i++) {
+            String name = elements.get(i);
+            if (name.equals(".") || name.equals("..")) {
+                break;
+            }
+            DirectoryEntry entry = new DirectoryEntry(parent.ino(), name);
+            Stat stat = _dentryCache.getIfPresent(entry);
+            if (stat == null || !entry.equals(_dentryIndex.getIfPresent(stat.getIno()))) {
+                break;
+            }
+            FsInode dir = new FsInode(this, stat.getIno(), FsInodeType.INODE, 0, new Stat(stat));
+            dir.setParent(parent);
+            inodes.add(dir);
+            parent = dir;
+        }
+
+        List<String> remaining = elements.subList(i, elements.size());
+        List<FsInode> resolved = _sqlDriver.path2inodes(parent, String.join("/", remaining));
+        if (resolved.isEmpty()) {
+            return resolved;
+        }
+        inodes.addAll(resolved.subList(1, resolved.size()));
+
+        /* Path elements and inodes are only aligned up to the first symbolic link.
+         */
+        List<DirectoryEntry> added = new ArrayList<>();
+        for (int j = 0; j < remaining.size() && j + 1 < resolved.size(); j++) {
+            String name = remaining.get(j);
+            FsInode inode = resolved.get(j + 1);
+            Stat stat = inode.getStatCache();
+            if (name.equals(".") || name.equals("..") || stat == null ||
+                    UnixPermission.getType(stat.getMode()) == UnixPermission.S_IFLNK) {
+                break;
+            }
+            if (UnixPermission.getType(stat.getMode()) == UnixPermission.S_IFDIR) {
+                DirectoryEntry entry = new DirectoryEntry(resolved.get(j).ino(), name);
+                _dentryCache.put(entry, new Stat(stat));
+                _dentryIndex.put(stat.getIno(), entry);
+                added.add(entry);
+            }
+        }
+
+        /* The entries may have been read before a concurrent transaction invalidating
+         * them committed.
+         */
+        if (_dentryGeneration.get() != generation) {
+            _dentryCache.invalidateAll(added);
+        }
+        return inodes;
+    }
+
+    /**
+     * Invalidates the directory entry cache for the given name and for its parent
+     * directory, whose link count and modification time change with it. Must be
+     * called within the transaction modifying the entry: the entry is invalidated
+     * both immediately and once the transaction completes.
+     */
+    private void invalidateEntry(FsInode parent, String name)
+    {
+        DirectoryEntry entry = new DirectoryEntry(parent.ino(), name);
+        long ino = parent.ino();
+        invalidateOnCompletion(() -> {
+            _dentryCache.invalidate(entry);
+            _dentryIndex.invalidate(ino);
+        });
+    }
+
+    /**
+     * Invalidates the directory entry cache for the given directory. Must be called
+     * within the transaction modifying the directory or adding entries to it.
+     */
+    private void invalidateDirectory(FsInode dir)
+    {
+        long ino = dir.ino();
+        invalidateOnCompletion(() -> _dentryIndex.invalidate(ino));
+    }
+
+    private void invalidateOnCompletion(Runnable invalidation)
+    {
+        _dentryGeneration.incrementAndGet();
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion(int status)
+                {
+                    _dentryGeneration.incrementAndGet();
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
     @Override
     public FsInode inodeOf(FsInode parent, String name, StatCacheOption cacheOption) throws ChimeraFsException {
         // only if it's PNFS command
@@ -953,6 +1145,9 @@ public class JdbcFs implements FileSystemProvider {
             switch (inode.type()) {
             case INODE:
             case PSET:
+                if (level == 0) {
+                    invalidateDirectory(inode);
+                }
                 boolean applied = _sqlDriver.setInodeAttributes(inode, level, stat);
                 if (!applied) {
                     /**
@@ -1049,6 +1244,8 @@ public class JdbcFs implements FileSystemProvider {
         checkNameLength(dest);
 
         return inTransaction(status -> {
+            invalidateEntry(srcDir, source);
+            invalidateEntry(destDir, dest);
             if (!destDir.isDirectory()) {
                 throw new NotDirChimeraException(destDir);
             }
@@ -1347,6 +1544,13 @@ public class JdbcFs implements FileSystemProvider {
             sb.append("rootID    : ").append(e.getMessage()).append("\n");
         }
         sb.append("FsId      : ").append(_fsId).append("\n");
+        CacheStats dentryStats = _dentryCache.stats();
+        sb.append("DirCache  : ")
+                .append(_isDentryCacheEnabled ? "" : "disabled ")
+                .append("size=").append(_dentryCache.size())
+                .append(" hits=").append(dentryStats.hitCount())
+                .append(" misses=").append(dentryStats.missCount())
+                .append(" evictions=").append(dentryStats.evictionCount()).append("\n");
         return sb.toString();
     }
 
@@ -1388,6 +1592,40 @@ public class JdbcFs implements FileSystemProvider {
         T doInTransaction(TransactionStatus status) throws ChimeraFsException;
     }
 
+    /**
+     * Key of the directory entry cache.
+     */
+    private static class DirectoryEntry
+    {
+        private final long _parent;
+        private final String _name;
+
+        DirectoryEntry(long parent, String name)
+        {
+            _parent = parent;
+            _name = name;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DirectoryEntry)) {
+                return false;
+            }
+            DirectoryEntry that = (DirectoryEntry) o;
+            return _parent == that._parent && _name.equals(that._name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * Long.hashCode(_parent) + _name.hashCode();
+        }
+    }
+
     private static class RootInode extends FsInode
     {
         public RootInode(FileSystemProvider fs, long ino)
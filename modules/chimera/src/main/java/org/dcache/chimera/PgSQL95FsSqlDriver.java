@@ -23,6 +23,10 @@ import org.springframework.dao.DuplicateKeyException;
 import javax.sql.DataSource;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.dcache.chimera.store.InodeStorageInformation;
 
@@ -38,6 +42,30 @@ public class PgSQL95FsSqlDriver extends PgSQLFsSqlDriver {
      */
     private static final Logger _log = LoggerFactory.getLogger(PgSQL95FsSqlDriver.class);
 
+    /**
+     * Resolves a path in a single query. The walk starts at the given root and
+     * follows t_dirs one path element at a time for as long as the current inode
+     * is a directory. It stops at the first element that does not exist, or at
+     * the first inode that is not a directory, e.g. a symbolic link.
+     */
+    private static final String PATH2INODES_QUERY =
+            "WITH RECURSIVE " +
+            "elements(iname, depth) AS (" +
+            "    SELECT * FROM unnest(string_to_array(?, '/')) WITH ORDINALITY" +
+            "), " +
+            "path(inumber,ipnfsid,isize,inlink,itype,imode,iuid,igid,iatime,ictime,imtime,depth) AS (" +
+            "    SELECT inumber,ipnfsid,isize,inlink,itype,imode,iuid,igid,iatime,ictime,imtime,0 " +
+            "    FROM t_inodes WHERE inumber = ? " +
+            "  UNION ALL " +
+            "    SELECT c.inumber,c.ipnfsid,c.isize,c.inlink,c.itype,c.imode,c.iuid,c.igid,c.iatime,c.ictime,c.imtime,p.depth + 1 " +
+            "    FROM path p " +
+            "    JOIN elements e ON e.depth = p.depth + 1 " +
+            "    JOIN t_dirs d ON d.iparent = p.inumber AND d.iname = e.iname " +
+            "    JOIN t_inodes c ON c.inumber = d.ichild " +
+            "    WHERE p.itype = " + UnixPermission.S_IFDIR +
+            ") " +
+            "SELECT inumber,ipnfsid,isize,inlink,itype,imode,iuid,igid,iatime,ictime,imtime FROM path ORDER BY depth";
+
     /**
      *  this is a utility class which is issues SQL queries on database
      *
@@ -49,6 +77,64 @@ public class PgSQL95FsSqlDriver extends PgSQLFsSqlDriver {
     }
 
 
+    @Override
+    FsInode path2inode(FsInode root, String path) throws ChimeraFsException
+    {
+        List<FsInode> inodes = path2inodes(root, path);
+        return inodes.isEmpty() ? null : inodes.get(inodes.size() - 1);
+    }
+
+    /**
+     * Get the inodes of given the path starting at <i>root</i>.
+     *
+     * Paths without symbolic links are resolved with a single recursive query. If a
+     * symbolic link is encountered, the remainder of the path starting at the link
+     * is resolved by the stored procedure. Paths containing '.' or '..' are passed
+     * to the stored procedure directly.
+     *
+     * @param root staring point
+     * @param path
+     * @return the inodes along the path or an empty list if path does not exist.
+     */
+    @Override
+    List<FsInode> path2inodes(FsInode root, String path) throws ChimeraFsException
+    {
+        String normalizedPath = normalizePath(path);
+        if (normalizedPath.isEmpty()) {
+            return Collections.singletonList(root);
+        }
+
+        List<String> elements = Arrays.asList(normalizedPath.split("/"));
+        if (elements.contains(".") || elements.contains("..")) {
+            return super.path2inodes(root, path);
+        }
+
+        List<FsInode> inodes = _jdbc.query(PATH2INODES_QUERY,
+                                           ps -> {
+                                               ps.setString(1, normalizedPath);
+                                               ps.setLong(2, root.ino());
+                                           },
+                                           (rs, rowNum) -> toInode(root.getFs(), rs));
+        if (inodes.isEmpty()) {
+            return inodes;
+        }
+
+        int depth = inodes.size() - 1;
+        if (depth > 0 && inodes.get(depth).isLink()) {
+            FsInode dir = inodes.get(depth - 1);
+            String remaining = String.join("/", elements.subList(depth - 1, elements.size()));
+            List<FsInode> resolved = super.path2inodes(dir, remaining);
+            if (resolved.isEmpty()) {
+                return resolved;
+            }
+            List<FsInode> result = new ArrayList<>(inodes.subList(0, depth));
+            result.addAll(resolved.subList(1, resolved.size()));
+            return result;
+        }
+
+        return (depth == elements.size()) ? inodes : Collections.emptyList();
+    }
+
     @Override
     void createEntryInParent(FsInode parent, String name, FsInode inode) {
         int n = _jdbc.update("INSERT INTO t_dirs (iparent, iname, ichild) VALUES(?,?,?) ON CONFLICT ON CONSTRAINT t_dirs_pkey DO NOTHING",
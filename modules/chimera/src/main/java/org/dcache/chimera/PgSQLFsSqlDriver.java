@@ -24,6 +24,8 @@ import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
 import javax.sql.DataSource;
 
 import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -130,7 +132,7 @@ public class PgSQLFsSqlDriver extends FsSqlDriver {
      * it does not have a leading slash (i.e. it is relative), and it
      * has no empty path elements.
      */
-    private String normalizePath(String path) {
+    String normalizePath(String path) {
         File file = new File(path);
         List<String> elements = new ArrayList<>();
         do {
@@ -215,23 +217,31 @@ public class PgSQLFsSqlDriver extends FsSqlDriver {
                     ps.setLong(1, root.ino());
                     ps.setString(2, normalizedPath);
                 },
-                (rs, rowNum) -> {
-                    FsInode inode = new FsInode(root.getFs(), rs.getLong("inumber"));
-                    Stat stat = new Stat();
-                    stat.setIno(rs.getLong("inumber"));
-                    stat.setId(rs.getString("ipnfsid"));
-                    stat.setSize(rs.getLong("isize"));
-                    stat.setATime(rs.getTimestamp("iatime").getTime());
-                    stat.setCTime(rs.getTimestamp("ictime").getTime());
-                    stat.setMTime(rs.getTimestamp("imtime").getTime());
-                    stat.setUid(rs.getInt("iuid"));
-                    stat.setGid(rs.getInt("igid"));
-                    stat.setMode(rs.getInt("imode") | rs.getInt("itype"));
-                    stat.setNlink(rs.getInt("inlink"));
-                    stat.setDev(17);
-                    inode.setStatCache(stat);
-                    return inode;
-                });
+                (rs, rowNum) -> toInode(root.getFs(), rs));
+    }
+
+    /**
+     * Creates an inode with a populated stat cache from a result set containing the
+     * inumber, ipnfsid, isize, inlink, itype, imode, iuid, igid, iatime, ictime and
+     * imtime columns.
+     */
+    FsInode toInode(FileSystemProvider fs, ResultSet rs) throws SQLException
+    {
+        FsInode inode = new FsInode(fs, rs.getLong("inumber"));
+        Stat stat = new Stat();
+        stat.setIno(rs.getLong("inumber"));
+        stat.setId(rs.getString("ipnfsid"));
+        stat.setSize(rs.getLong("isize"));
+        stat.setATime(rs.getTimestamp("iatime").getTime());
+        stat.setCTime(rs.getTimestamp("ictime").getTime());
+        stat.setMTime(rs.getTimestamp("imtime").getTime());
+        stat.setUid(rs.getInt("iuid"));
+        stat.setGid(rs.getInt("igid"));
+        stat.setMode(rs.getInt("imode") | rs.getInt("itype"));
+        stat.setNlink(rs.getInt("inlink"));
+        stat.setDev(17);
+        inode.setStatCache(stat);
+        return inode;
     }
 
     @Override
@@ -6,6 +6,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -784,6 +785,90 @@ public class BasicTest extends ChimeraTestCaseHelper {
                      inodes);
     }
 
+    @Test
+    public void testPathLookupAfterDirectoryRename() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheEnabled(true);
+        FsInode dirInode = _rootInode.mkdir("testDir", 0, 0, 0755);
+        FsInode subdirInode = dirInode.mkdir("testDir2", 0, 0, 0755);
+        FsInode fileInode = subdirInode.create("aFile", 0, 0, 0644);
+
+        assertEquals(fileInode, _fs.path2inode("/testDir/testDir2/aFile"));
+
+        _fs.rename(subdirInode, dirInode, "testDir2", _rootInode, "testDir3");
+
+        assertEquals(fileInode, _fs.path2inode("/testDir3/aFile"));
+        try {
+            _fs.path2inode("/testDir/testDir2/aFile");
+            fail("Lookup of renamed directory must fail");
+        } catch (FileNotFoundHimeraFsException e) {
+        }
+    }
+
+    @Test
+    public void testPathLookupAfterDirectoryRecreate() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheEnabled(true);
+        FsInode dirInode = _rootInode.mkdir("testDir", 0, 0, 0755);
+        FsInode subdirInode = dirInode.mkdir("testDir2", 0, 0, 0755);
+        subdirInode.create("aFile", 0, 0, 0644);
+
+        assertEquals(subdirInode, _fs.path2inodes("/testDir/testDir2/aFile").get(2));
+
+        _fs.remove("/testDir/testDir2/aFile");
+        _fs.remove(dirInode, "testDir2", subdirInode);
+        FsInode newSubdirInode = dirInode.mkdir("testDir2", 0, 0, 0755);
+        FsInode newFileInode = newSubdirInode.create("aFile", 0, 0, 0644);
+
+        assertEquals(newFileInode, _fs.path2inode("/testDir/testDir2/aFile"));
+        assertEquals(newSubdirInode, _fs.path2inodes("/testDir/testDir2/aFile").get(2));
+    }
+
+    @Test
+    public void testPathLookupAfterDirectoryModeChange() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheEnabled(true);
+        FsInode dirInode = _rootInode.mkdir("testDir", 0, 0, 0755);
+        FsInode subdirInode = dirInode.mkdir("testDir2", 0, 0, 0755);
+        subdirInode.create("aFile", 0, 0, 0644);
+
+        assertEquals(0755, _fs.path2inodes("/testDir/testDir2/aFile").get(1).statCache().getMode() & 0777);
+
+        Stat stat = new Stat();
+        stat.setMode(0700);
+        dirInode.setStat(stat);
+
+        assertEquals(0700, _fs.path2inodes("/testDir/testDir2/aFile").get(1).statCache().getMode() & 0777);
+    }
+
+    @Test
+    public void testPathLookupAfterDirectoryContentChange() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheEnabled(true);
+        FsInode dirInode = _rootInode.mkdir("testDir", 0, 0, 0755);
+        FsInode subdirInode = dirInode.mkdir("testDir2", 0, 0, 0755);
+        subdirInode.create("aFile", 0, 0, 0644);
+
+        _fs.path2inodes("/testDir/testDir2/aFile");
+        subdirInode.mkdir("testDir3", 0, 0, 0755);
+
+        assertEquals(subdirInode.stat().getNlink(),
+                     _fs.path2inodes("/testDir/testDir2/aFile").get(2).statCache().getNlink());
+    }
+
+    @Test
+    public void testPathLookupAfterDirectoryRenameByOtherInstance() throws Exception {
+        FsInode dirInode = _rootInode.mkdir("testDir", 0, 0, 0755);
+        FsInode subdirInode = dirInode.mkdir("testDir2", 0, 0, 0755);
+        FsInode fileInode = subdirInode.create("aFile", 0, 0, 0644);
+
+        assertEquals(fileInode, _fs.path2inode("/testDir/testDir2/aFile"));
+
+        FileSystemProvider other = new JdbcFs(_dataSource, new DataSourceTransactionManager(_dataSource));
+        other.rename(subdirInode, dirInode, "testDir2", _rootInode, "testDir3");
+        FsInode newSubdirInode = other.mkdir("/testDir/testDir2");
+        FsInode newFileInode = other.createFile("/testDir/testDir2/aFile");
+
+        assertEquals(newFileInode, _fs.path2inode("/testDir/testDir2/aFile"));
+        assertEquals(newSubdirInode, _fs.path2inodes("/testDir/testDir2/aFile").get(2));
+    }
+
     @Test
     public void testUpdateCtimeOnSetOwner() throws Exception {
         FsInode dirInode = _rootInode.mkdir("testDir", 0, 0, 0755);
@@ -11,6 +11,7 @@ package diskCacheV111.util;
 
 
 import java.io.FileInputStream;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 
 import org.dcache.util.Checksum;
@@ -88,6 +89,11 @@ public class Adler32 extends MessageDigest
        _zipAdler.update( data, offset , size ) ;
    }
    @Override
+   public void engineUpdate( ByteBuffer input ){
+       // Lets zlib consume direct buffers without copying them to the heap
+       _zipAdler.update( input ) ;
+   }
+   @Override
    public int engineGetDigestLength(){ return 4 ; }
 
    public byte [] digestAdler32(){
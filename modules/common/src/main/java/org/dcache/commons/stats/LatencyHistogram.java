@@ -0,0 +1,106 @@
+package org.dcache.commons.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies.
+ *
+ * Latencies are recorded in buckets with power of two bounds in
+ * microseconds, i.e. bucket i holds latencies in [2^(i-1), 2^i) us, with
+ * bucket 0 holding latencies below one microsecond. Percentiles are thus
+ * approximated by the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram
+{
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder _count = new LongAdder();
+    private final LongAdder _total = new LongAdder();
+    private final LongAccumulator _max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        _buckets.incrementAndGet(bucket);
+        _count.increment();
+        _total.add(micros);
+        _max.accumulate(micros);
+    }
+
+    public long getCount()
+    {
+        return _count.sum();
+    }
+
+    /**
+     * Returns the mean latency in microseconds.
+     */
+    public double getMean()
+    {
+        long count = _count.sum();
+        return (count == 0) ? 0 : (double) _total.sum() / count;
+    }
+
+    /**
+     * Returns the maximum latency in microseconds.
+     */
+    public long getMax()
+    {
+        return _max.get();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile in microseconds.
+     *
+     * @param percentile a value between 0 and 100
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = _buckets.get(i);
+            count += buckets[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank && buckets[i] > 0) {
+                return Math.min(1L << i, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++) {
+            _buckets.set(i, 0);
+        }
+        _count.reset();
+        _total.reset();
+        _max.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("count=%d mean=%.0fus p50=%dus p90=%dus p99=%dus max=%dus",
+                             getCount(), getMean(), getPercentile(50), getPercentile(90),
+                             getPercentile(99), getMax());
+    }
+}
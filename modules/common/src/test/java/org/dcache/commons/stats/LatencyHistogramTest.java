@@ -0,0 +1,54 @@
+package org.dcache.commons.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest
+{
+    private LatencyHistogram _histogram;
+
+    @Before
+    public void setUp()
+    {
+        _histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void shouldBeEmptyInitially()
+    {
+        assertThat(_histogram.getCount(), is(0L));
+        assertThat(_histogram.getPercentile(99), is(0L));
+    }
+
+    @Test
+    public void shouldApproximatePercentilesByBucketBounds()
+    {
+        for (int i = 0; i < 90; i++) {
+            _histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            _histogram.record(TimeUnit.MICROSECONDS.toNanos(5000));
+        }
+
+        assertThat(_histogram.getCount(), is(100L));
+        assertThat(_histogram.getPercentile(50), is(128L));
+        assertThat(_histogram.getPercentile(90), is(128L));
+        assertThat(_histogram.getPercentile(99), is(5000L));
+        assertThat(_histogram.getMax(), is(5000L));
+    }
+
+    @Test
+    public void shouldForgetLatenciesOnReset()
+    {
+        _histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        _histogram.reset();
+
+        assertThat(_histogram.getCount(), is(0L));
+        assertThat(_histogram.getMax(), is(0L));
+    }
+}
@@ -46,7 +46,8 @@ import static org.dcache.util.ByteUnit.KiB;
 import static org.dcache.util.ByteUnit.MiB;
 
 
-public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArgsAware
+public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArgsAware,
+        DirectBufferPoolAware
 {
     private static Logger _log = LoggerFactory.getLogger(DCapProtocol_3_nio.class);
     private static Logger _logSocketIO = LoggerFactory.getLogger("logger.dev.org.dcache.io.socket");
@@ -62,6 +63,8 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
     private long _transferTime       = -1;
     private long _lastTransferred    = System.currentTimeMillis();
 
+    private DirectBufferPool _bufferPool;
+    private DirectBufferPool.PooledBuffer _pooledBigBuffer;
     private ByteBuffer _bigBuffer;
     private String  _status          = "None";
     private boolean _io_ok           = true;
@@ -96,12 +99,17 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
     }
 
     private void initialiseBuffer(MoverIoBuffer bufferSize) {
-        try {
-            _bigBuffer = _bigBuffer
-                    == null ? ByteBuffer.allocate(bufferSize.getIoBufferSize()) :
-                        _bigBuffer;
-        } catch (OutOfMemoryError om) {
-            _bigBuffer = ByteBuffer.allocate(KiB.toBytes(32));
+        if (_bigBuffer == null) {
+            _pooledBigBuffer = _bufferPool.acquire(bufferSize.getIoBufferSize());
+            _bigBuffer = _pooledBigBuffer.buffer();
+        }
+    }
+
+    private void releaseBuffer() {
+        if (_pooledBigBuffer != null) {
+            _pooledBigBuffer.close();
+            _pooledBigBuffer = null;
+            _bigBuffer = null;
         }
     }
 
@@ -141,6 +149,12 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
         _args = args;
     }
 
+    @Override
+    public void setDirectBufferPool(DirectBufferPool bufferPool)
+    {
+        _bufferPool = bufferPool;
+    }
+
     private class SpaceMonitorHandler {
 
         private final Allocator _allocator;
@@ -185,15 +199,19 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
     //
     //   helper class to use nio channels for input requests.
     //
-    private class RequestBlock {
+    private class RequestBlock implements AutoCloseable {
 
-        private ByteBuffer _buffer;
+        private final DirectBufferPool.PooledBuffer _pooledBuffer;
+        private final ByteBuffer _buffer;
         private int _commandSize;
         private int _commandCode;
 
         private RequestBlock(){
-            _buffer = ByteBuffer.allocate(16384);
+            _pooledBuffer = _bufferPool.acquire(16384);
+            _buffer = _pooledBuffer.buffer();
         }
+        @Override
+        public void close(){ _pooledBuffer.close(); }
         private void read(SocketChannel channel) throws Exception {
 
             _commandSize = _commandCode = 0;
@@ -292,6 +310,20 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
                       Allocator    allocator,
                       IoMode          access  )
         throws Exception
+    {
+        try {
+            transfer(fileAttributes, fileChannel, protocol, allocator, access);
+        } finally {
+            releaseBuffer();
+        }
+    }
+
+    private void transfer(FileAttributes fileAttributes,
+                          RepositoryChannel  fileChannel,
+                          ProtocolInfo protocol,
+                          Allocator    allocator,
+                          IoMode          access  )
+        throws Exception
     {
         configureBufferSizes();
         Exception ioException         = null;
@@ -741,6 +773,7 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
         }catch(Exception e){
             ioException = e;
         }finally{
+            requestBlock.close();
 
             try{
                 _logSocketIO.debug("Socket CLOSE remote = {}:{} local {}:{}",
@@ -947,13 +980,15 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
         int     rest;
         int     size, rc;
 
-        RequestBlock requestBlock = new RequestBlock();
-        requestBlock.read(socketChannel);
+        int commandCode;
+        try (RequestBlock requestBlock = new RequestBlock()) {
+            requestBlock.read(socketChannel);
+            commandCode = requestBlock.getCommandCode();
+        }
 
-        if(requestBlock.getCommandCode() != DCapConstants.IOCMD_DATA) {
+        if(commandCode != DCapConstants.IOCMD_DATA) {
             throw new
-                    IOException("Expecting : " + DCapConstants.IOCMD_DATA + "; got : " + requestBlock
-                    .getCommandCode());
+                    IOException("Expecting : " + DCapConstants.IOCMD_DATA + "; got : " + commandCode);
         }
 
         while(! Thread.currentThread().isInterrupted()){
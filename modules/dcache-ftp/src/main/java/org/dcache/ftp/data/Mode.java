@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.dcache.pool.movers.DirectBufferPool;
 import org.dcache.pool.repository.RepositoryChannel;
 
 /**
@@ -47,8 +48,17 @@ public abstract class Mode extends AbstractMultiplexerListener
 
     private   long              _fileSize;
 
+    /** Size of the buffer used by transferTo and transferFrom. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Pool of buffers for transferTo and transferFrom. */
+    private   DirectBufferPool  _buffers;
+
+    /** Buffer for transferTo and transferFrom, if taken from the pool. */
+    private   DirectBufferPool.PooledBuffer _pooledBuffer;
+
     /** Buffer for transferTo and transferFrom. */
-    private final ByteBuffer        _buffer = ByteBuffer.allocate(8192);
+    private   ByteBuffer        _buffer;
 
     /** The address to connect to for outgoing connections. */
     private   InetSocketAddress     _address;
@@ -89,6 +99,47 @@ public abstract class Mode extends AbstractMultiplexerListener
         _monitor     = monitor;
     }
 
+    /**
+     * Sets the pool from which the buffer for transferTo and
+     * transferFrom is taken. Without a pool, the mode allocates its
+     * own buffer.
+     */
+    public void setBufferPool(DirectBufferPool buffers)
+    {
+        _buffers = buffers;
+    }
+
+    /**
+     * Returns the buffer for transferTo and transferFrom. The buffer is
+     * allocated on first use and kept until the mode is closed.
+     */
+    private ByteBuffer getBuffer()
+    {
+        if (_buffer == null) {
+            if (_buffers != null) {
+                _pooledBuffer = _buffers.acquire(BUFFER_SIZE);
+                _buffer = _pooledBuffer.buffer();
+            } else {
+                _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            }
+        }
+        _buffer.clear();
+        return _buffer;
+    }
+
+    /**
+     * Releases the resources held by the mode. Must be called once the
+     * transfer has completed.
+     */
+    public void close()
+    {
+        if (_pooledBuffer != null) {
+            _pooledBuffer.close();
+            _pooledBuffer = null;
+        }
+        _buffer = null;
+    }
+
     /**
      * Enable passive mode. Connections will be accepted on the given
      * channel.
@@ -190,25 +241,25 @@ public abstract class Mode extends AbstractMultiplexerListener
     {
         long tr = 0;                        // Total bytes read
         long pos = position;
-        _buffer.clear();
+        ByteBuffer buffer = getBuffer();
         while (tr < count) {
-            _buffer.limit((int)Math.min((count - tr),
-                                        (long)_buffer.capacity()));
-            int nr = _file.read(_buffer, pos);
+            buffer.limit((int)Math.min((count - tr),
+                                       (long)buffer.capacity()));
+            int nr = _file.read(buffer, pos);
             if (nr < 0 && tr == 0) {
                 return -1;
             }
             if (nr <= 0) {
                 break;
             }
-            _buffer.flip();
-            int nw = socket.write(_buffer);
+            buffer.flip();
+            int nw = socket.write(buffer);
             tr += nw;
             if (nw != nr) {
                 break;
             }
             pos += nw;
-            _buffer.clear();
+            buffer.clear();
         }
         return tr;
     }
@@ -240,25 +291,25 @@ public abstract class Mode extends AbstractMultiplexerListener
         long tw = 0;                    // Total bytes written
         long pos = position;
         try {
-            _buffer.clear();
+            ByteBuffer buffer = getBuffer();
             while (tw < count) {
-                _buffer.limit((int)Math.min((count - tw),
-                                            (long)_buffer.capacity()));
-                int nr = socket.read(_buffer);
+                buffer.limit((int)Math.min((count - tw),
+                                           (long)buffer.capacity()));
+                int nr = socket.read(buffer);
                 if (nr < 0 && tw == 0) {
                     return -1;
                 }
                 if (nr <= 0) {
                     break;
                 }
-                _buffer.flip();
-                int nw = _file.write(_buffer, pos);
+                buffer.flip();
+                int nw = _file.write(buffer, pos);
                 tw += nw;
                 if (nw != nr) {
                     break;
                 }
                 pos += nw;
-                _buffer.clear();
+                buffer.clear();
             }
             return tw;
         } catch (IOException x) {
@@ -61,7 +61,7 @@ import static com.google.common.base.Preconditions.checkState;
  * FTP mover. Supports both mover protocols GFtp/1 and GFtp/2.
  */
 public class GFtpProtocol_2_nio implements ConnectionMonitor,
-        MoverProtocol, ChecksumMover, CellArgsAware
+        MoverProtocol, ChecksumMover, CellArgsAware, DirectBufferPoolAware
 {
     private static final Logger _log =
             LoggerFactory.getLogger(GFtpProtocol_2_nio.class);
@@ -191,6 +191,12 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
      */
     protected boolean      _allowPassivePool;
 
+    /**
+     * Pool of the buffers used by the modes. Modes allocate their own
+     * buffers when null.
+     */
+    protected DirectBufferPool _bufferPool;
+
     /**
      * True while the transfer is in progress.
      */
@@ -215,22 +221,30 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
             throws IOException
     {
         int blockSize;
+        Mode result;
         switch (Character.toUpperCase(mode.charAt(0))) {
         case 'S':
             blockSize =
                     (_blockSize == null) ? MODE_S_DEFAULT_BLOCK_SIZE : _blockSize;
-            return new ModeS(role, fileChannel, this, blockSize);
+            result = new ModeS(role, fileChannel, this, blockSize);
+            break;
         case 'E':
             blockSize =
                     (_blockSize == null) ? MODE_E_DEFAULT_BLOCK_SIZE : _blockSize;
-            return new ModeE(role, fileChannel, this, blockSize);
+            result = new ModeE(role, fileChannel, this, blockSize);
+            break;
         case 'X':
             blockSize =
                     (_blockSize == null) ? MODE_X_DEFAULT_BLOCK_SIZE : _blockSize;
-            return new ModeX(role, fileChannel, this, blockSize);
+            result = new ModeX(role, fileChannel, this, blockSize);
+            break;
         default:
             throw new IllegalArgumentException("Unknown mode");
         }
+        if (_bufferPool != null) {
+            result.setBufferPool(_bufferPool);
+        }
+        return result;
     }
 
     /**
@@ -546,6 +560,8 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
         try {
             transfer(fileChannel, role, mode, allocator);
         } finally {
+            mode.close();
+
             /* Log some useful information about the transfer. This
              * will be send back to the door by the pool cell.
              */
@@ -781,6 +797,12 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
         }
     }
 
+    @Override
+    public void setDirectBufferPool(DirectBufferPool bufferPool)
+    {
+        _bufferPool = bufferPool;
+    }
+
     @Override
     public void setCellArgs(Args args)
     {
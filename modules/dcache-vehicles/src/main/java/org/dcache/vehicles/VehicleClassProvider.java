@@ -0,0 +1,72 @@
+package org.dcache.vehicles;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import dmg.cells.nucleus.SerializableClassProvider;
+
+/**
+ * Registers the most frequently exchanged vehicles and the types they
+ * carry with the serializable class registry of the cells framework.
+ *
+ * Classes must only ever be appended to this list; reordering or removing
+ * classes changes the registry fingerprint.
+ */
+public class VehicleClassProvider implements SerializableClassProvider
+{
+    private static final List<String> CLASSES = ImmutableList.of(
+            "diskCacheV111.vehicles.Message",
+            "diskCacheV111.vehicles.PnfsMessage",
+            "diskCacheV111.vehicles.PoolMessage",
+            "diskCacheV111.vehicles.PoolManagerMessage",
+            "diskCacheV111.vehicles.PoolManagerPoolUpMessage",
+            "diskCacheV111.vehicles.PoolMgrGetPoolMsg",
+            "diskCacheV111.vehicles.PoolIoFileMessage",
+            "diskCacheV111.vehicles.PoolDeliverFileMessage",
+            "diskCacheV111.vehicles.PoolAcceptFileMessage",
+            "diskCacheV111.vehicles.PoolCheckFileMessage",
+            "diskCacheV111.vehicles.PoolFileFlushedMessage",
+            "diskCacheV111.vehicles.PnfsAddCacheLocationMessage",
+            "diskCacheV111.vehicles.PnfsClearCacheLocationMessage",
+            "diskCacheV111.vehicles.InfoMessage",
+            "diskCacheV111.vehicles.MoverInfoMessage",
+            "diskCacheV111.vehicles.DoorRequestInfoMessage",
+            "diskCacheV111.vehicles.GenericStorageInfo",
+            "diskCacheV111.vehicles.OSMStorageInfo",
+            "diskCacheV111.vehicles.DCapProtocolInfo",
+            "diskCacheV111.pools.PoolCostInfo",
+            "diskCacheV111.pools.PoolCostInfo$PoolQueueInfo",
+            "diskCacheV111.pools.PoolCostInfo$NamedPoolQueueInfo",
+            "diskCacheV111.pools.PoolCostInfo$PoolSpaceInfo",
+            "diskCacheV111.pools.PoolV2Mode",
+            "diskCacheV111.util.PnfsId",
+            "diskCacheV111.util.CacheException",
+            "diskCacheV111.util.AccessLatency",
+            "diskCacheV111.util.RetentionPolicy",
+            "org.dcache.vehicles.FileAttributes",
+            "org.dcache.vehicles.PnfsGetFileAttributes",
+            "org.dcache.vehicles.PnfsSetFileAttributes",
+            "org.dcache.namespace.FileAttribute",
+            "org.dcache.namespace.FileType",
+            "org.dcache.util.Checksum",
+            "org.dcache.util.ChecksumType",
+            "org.dcache.acl.enums.AccessMask",
+            "org.dcache.auth.attributes.Activity",
+            "org.dcache.auth.attributes.DenyActivityRestriction",
+            "org.dcache.auth.attributes.PrefixRestriction",
+            "org.dcache.auth.attributes.Restrictions$CompositeRestriction",
+            "org.dcache.auth.UidPrincipal",
+            "org.dcache.auth.GidPrincipal",
+            "org.dcache.auth.UserNamePrincipal",
+            "org.dcache.auth.GroupNamePrincipal",
+            "org.dcache.auth.LoginNamePrincipal",
+            "org.dcache.auth.FQANPrincipal",
+            "org.dcache.auth.Origin");
+
+    @Override
+    public List<String> getClassNames()
+    {
+        return CLASSES;
+    }
+}
@@ -6,54 +6,229 @@ import io.netty.util.ReferenceCountUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import org.dcache.xrootd.core.XrootdException;
+import org.dcache.xrootd.protocol.messages.GenericReadRequestMessage.EmbeddedReadRequest;
 import org.dcache.xrootd.protocol.messages.ReadVRequest;
 import org.dcache.xrootd.stream.AbstractChunkedReadvResponse;
 
 import static org.dcache.xrootd.protocol.XrootdProtocol.kXR_FileNotOpen;
 
+/**
+ * Chunked response to a kXR_readv request.
+ *
+ * Vector reads typically consist of many small segments close to each
+ * other. Rather than reading each segment separately, the segments are
+ * sorted by file and offset, and segments separated by at most maxGap
+ * bytes are coalesced into a single read of at most maxFrameSize bytes.
+ * The data of a coalesced read is kept until all of its segments have
+ * been sent.
+ *
+ * Every segment is mapped to the block it was coalesced into. Segments
+ * that are not found, e.g. because the request was split differently,
+ * are read on their own.
+ */
 public class ChunkedFileDescriptorReadvResponse extends AbstractChunkedReadvResponse
 {
     private final List<FileDescriptor> descriptors;
+    private final ReadvStatistics statistics;
+
+    /** Coalesced reads by segment. */
+    private final Map<Segment, Block> blocks = new HashMap<>();
 
     public ChunkedFileDescriptorReadvResponse(ReadVRequest request,
                                               int maxFrameSize,
-                                              List<FileDescriptor> descriptors)
+                                              List<FileDescriptor> descriptors,
+                                              int maxGap,
+                                              ReadvStatistics statistics)
     {
         super(request, maxFrameSize);
         this.descriptors = descriptors;
+        this.statistics = statistics;
+        coalesce(request.getReadRequestList(), maxGap, maxFrameSize);
     }
 
-    @Override
-    protected long getSize(int fd) throws IOException, XrootdException
+    private void coalesce(EmbeddedReadRequest[] requests, long maxGap, long maxReadSize)
+    {
+        EmbeddedReadRequest[] sorted = requests.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(EmbeddedReadRequest::getFileHandle)
+                .thenComparingLong(EmbeddedReadRequest::getOffset));
+
+        long bytes = 0;
+        Block block = null;
+        for (EmbeddedReadRequest request : sorted) {
+            int fd = request.getFileHandle();
+            long start = request.getOffset();
+            long end = start + request.BytesToRead();
+            bytes += request.BytesToRead();
+            if (block != null && block.fd == fd && start <= block.end + maxGap &&
+                Math.max(end, block.end) - block.start <= maxReadSize) {
+                block.end = Math.max(end, block.end);
+                block.segments++;
+            } else {
+                block = new Block(fd, start, end);
+            }
+            blocks.put(new Segment(fd, start, request.BytesToRead()), block);
+        }
+        statistics.requested(sorted.length, bytes);
+    }
+
+    private FileDescriptor getDescriptor(int fd) throws XrootdException
     {
         if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
             throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
         }
-        return descriptors.get(fd).getChannel().size();
+        return descriptors.get(fd);
+    }
+
+    @Override
+    protected long getSize(int fd) throws IOException, XrootdException
+    {
+        return getDescriptor(fd).getChannel().size();
     }
 
     @Override
     protected ByteBuf read(ByteBufAllocator alloc, int fd, long position, int length)
             throws IOException, XrootdException
     {
-        if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
-            throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
-        }
+        FileDescriptor descriptor = getDescriptor(fd);
 
-        FileDescriptor descriptor = descriptors.get(fd);
+        Block block = blocks.get(new Segment(fd, position, length));
+        if (block != null && block.covers(position, length)) {
+            return block.read(alloc, descriptor, position, length);
+        }
 
         ByteBuf chunk = alloc.ioBuffer(length);
         try {
             ByteBuffer buffer = chunk.nioBuffer(0, length);
             descriptor.read(buffer, position);
             chunk.writerIndex(buffer.position());
+            statistics.read(buffer.position());
             return chunk;
         } catch (RuntimeException | IOException e) {
             ReferenceCountUtil.release(chunk);
             throw e;
         }
     }
+
+    /**
+     * Releases the data of blocks that still have segments to be sent,
+     * e.g. because the client disconnected or reading a segment failed.
+     */
+    @Override
+    public void close() throws Exception
+    {
+        for (Block block : new HashSet<>(blocks.values())) {
+            block.release();
+        }
+        super.close();
+    }
+
+    /**
+     * A coalesced read covering one or more segments of a file.
+     */
+    private class Block
+    {
+        private final int fd;
+        private final long start;
+        private long end;
+        private int segments = 1;
+        private ByteBuf data;
+
+        Block(int fd, long start, long end)
+        {
+            this.fd = fd;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean covers(long position, int length)
+        {
+            return start <= position && position + length <= end;
+        }
+
+        ByteBuf read(ByteBufAllocator alloc, FileDescriptor descriptor, long position, int length)
+                throws IOException
+        {
+            if (data == null) {
+                int size = (int) (end - start);
+                ByteBuf buffer = alloc.ioBuffer(size);
+                try {
+                    ByteBuffer nioBuffer = buffer.nioBuffer(0, size);
+                    descriptor.read(nioBuffer, start);
+                    buffer.writerIndex(nioBuffer.position());
+                } catch (RuntimeException | IOException e) {
+                    ReferenceCountUtil.release(buffer);
+                    throw e;
+                }
+                statistics.read(buffer.readableBytes());
+                data = buffer;
+            }
+
+            int from = (int) Math.min(position - start, data.writerIndex());
+            int to = (int) Math.min(position - start + length, data.writerIndex());
+            ByteBuf chunk = data.slice(from, to - from).retain();
+
+            /* Segments are sent once, so the data is no longer needed once
+             * all segments of this block have been read. Should a segment
+             * be read again, the block is simply re-read.
+             */
+            if (--segments <= 0) {
+                data.release();
+                data = null;
+            }
+            return chunk;
+        }
+
+        void release()
+        {
+            if (data != null) {
+                data.release();
+                data = null;
+            }
+        }
+    }
+
+    /**
+     * A segment of a vector read.
+     */
+    private static class Segment
+    {
+        private final int fd;
+        private final long offset;
+        private final int length;
+
+        Segment(int fd, long offset, int length)
+        {
+            this.fd = fd;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Segment)) {
+                return false;
+            }
+            Segment that = (Segment) o;
+            return fd == that.fd && offset == that.offset && length == that.length;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(fd, offset, length);
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package org.dcache.xrootd.pool;
+
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import org.dcache.pool.repository.RepositoryChannel;
+import org.dcache.xrootd.protocol.messages.ReadRequest;
+
+import static org.dcache.xrootd.protocol.XrootdProtocol.kXR_ok;
+import static org.dcache.xrootd.protocol.XrootdProtocol.kXR_oksofar;
+
+/**
+ * Netty FileRegion for the response to a kXR_read request.
+ *
+ * The region contains the complete response, i.e. one or more frames
+ * each consisting of an eight byte response header followed by up to
+ * maxFrameSize bytes of file data. All but the last frame carry the status
+ * kXR_oksofar. The file data is written using RepositoryChannel#transferTo,
+ * thus it is not copied into user space.
+ *
+ * Unlike ChunkedFileDescriptorReadResponse, the size of the response must
+ * be known up front. The region should thus only be used for files that
+ * are not being written to.
+ */
+public class FileDescriptorReadRegion extends AbstractReferenceCounted implements FileRegion
+{
+    private static final int HEADER_SIZE = 8;
+
+    private final RepositoryChannel channel;
+    private final int streamId;
+    private final long offset;
+    private final long length;
+    private final int maxFrameSize;
+    private final long frames;
+    private long transferred;
+
+    public FileDescriptorReadRegion(ReadRequest request, int maxFrameSize, RepositoryChannel channel)
+            throws IOException
+    {
+        this.channel = channel;
+        this.streamId = request.getStreamId();
+        this.offset = request.getReadOffset();
+        this.length = Math.max(0, Math.min(request.bytesToRead(), channel.size() - offset));
+        this.maxFrameSize = maxFrameSize;
+        this.frames = Math.max(1, (length + maxFrameSize - 1) / maxFrameSize);
+    }
+
+    @Override
+    public long position()
+    {
+        return 0;
+    }
+
+    @Override
+    public long count()
+    {
+        return frames * HEADER_SIZE + length;
+    }
+
+    @Override
+    public long transfered()
+    {
+        return transferred;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException
+    {
+        if (position != transferred) {
+            throw new IllegalArgumentException("Region must be transferred sequentially");
+        }
+        long total = 0;
+        while (transferred < count()) {
+            long frame = transferred / (HEADER_SIZE + maxFrameSize);
+            long frameOffset = transferred % (HEADER_SIZE + maxFrameSize);
+            long frameLength = Math.min(maxFrameSize, length - frame * maxFrameSize);
+
+            long written;
+            if (frameOffset < HEADER_SIZE) {
+                ByteBuffer header = header(frame, frameLength);
+                header.position((int) frameOffset);
+                written = target.write(header);
+            } else {
+                long dataOffset = frameOffset - HEADER_SIZE;
+                long filePosition = offset + frame * maxFrameSize + dataOffset;
+                written = channel.transferTo(filePosition, frameLength - dataOffset, target);
+                if (written == 0 && filePosition >= channel.size()) {
+                    throw new IOException("File was truncated during read");
+                }
+            }
+            if (written <= 0) {
+                break;
+            }
+            transferred += written;
+            total += written;
+        }
+        return total;
+    }
+
+    private ByteBuffer header(long frame, long frameLength)
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putShort((short) streamId);
+        header.putShort((short) (frame < frames - 1 ? kXR_oksofar : kXR_ok));
+        header.putInt((int) frameLength);
+        header.flip();
+        return header;
+    }
+
+    @Override
+    public FileDescriptorReadRegion retain()
+    {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FileDescriptorReadRegion retain(int increment)
+    {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    protected void deallocate()
+    {
+        /* The channel is owned by the mover. */
+    }
+}
@@ -0,0 +1,76 @@
+package org.dcache.xrootd.pool;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters comparing the segments requested by kXR_readv requests with
+ * the reads issued to the repository to serve them.
+ */
+public class ReadvStatistics
+{
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder segments = new LongAdder();
+    private final LongAdder requestedBytes = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+
+    /**
+     * Records a vector read request.
+     */
+    public void requested(int segments, long bytes)
+    {
+        this.requests.increment();
+        this.segments.add(segments);
+        this.requestedBytes.add(bytes);
+    }
+
+    /**
+     * Records a read issued to the repository.
+     */
+    public void read(long bytes)
+    {
+        reads.increment();
+        readBytes.add(bytes);
+    }
+
+    public long getRequests()
+    {
+        return requests.sum();
+    }
+
+    public long getSegments()
+    {
+        return segments.sum();
+    }
+
+    public long getRequestedBytes()
+    {
+        return requestedBytes.sum();
+    }
+
+    public long getReads()
+    {
+        return reads.sum();
+    }
+
+    public long getReadBytes()
+    {
+        return readBytes.sum();
+    }
+
+    public void getInfo(PrintWriter pw)
+    {
+        long segments = getSegments();
+        long reads = getReads();
+        pw.println("Vector reads:");
+        pw.println("    Requests        : " + getRequests());
+        pw.println("    Segments        : " + segments);
+        pw.println("    Requested bytes : " + getRequestedBytes());
+        pw.println("    Physical reads  : " + reads);
+        pw.println("    Read bytes      : " + getReadBytes());
+        if (reads > 0) {
+            pw.printf("    Segments/read   : %.1f\n", (double) segments / reads);
+        }
+    }
+}
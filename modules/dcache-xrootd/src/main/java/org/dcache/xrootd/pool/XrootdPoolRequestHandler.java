@@ -21,6 +21,7 @@ import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Uninterruptibles;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
@@ -37,6 +38,7 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FileCorruptedCacheException;
@@ -140,12 +142,26 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler
      */
     private final Map<String,String> _queryConfig;
 
+    /**
+     * Maximum distance in bytes between segments of a vector read for them
+     * to be read together.
+     */
+    private final int _readvMaxGap;
+
+    /**
+     * Statistics about vector reads.
+     */
+    private final ReadvStatistics _readvStatistics;
+
     public XrootdPoolRequestHandler(NettyTransferService<XrootdProtocolInfo> server, int maxFrameSize,
-                                    Map<String, String> queryConfig)
+                                    Map<String, String> queryConfig, int readvMaxGap,
+                                    ReadvStatistics readvStatistics)
     {
         _server = server;
         _maxFrameSize = maxFrameSize;
         _queryConfig = queryConfig;
+        _readvMaxGap = readvMaxGap;
+        _readvStatistics = readvStatistics;
     }
 
     @Override
@@ -409,10 +425,19 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler
                                       "file.");
         }
 
+        FileDescriptor descriptor = _descriptors.get(fd);
+        throttle(ctx, descriptor);
         if (msg.bytesToRead() == 0) {
             return withOk(msg);
+        } else if (_server.isZeroCopyAllowed(ctx.channel(), descriptor.getChannel()) &&
+                   descriptor.getChannel().getIoMode() == IoMode.READ) {
+            try {
+                return new FileDescriptorReadRegion(msg, _maxFrameSize, descriptor.getChannel());
+            } catch (IOException e) {
+                throw new XrootdException(kXR_IOError, e.getMessage());
+            }
         } else {
-            return new ChunkedFileDescriptorReadResponse(msg, _maxFrameSize, _descriptors.get(fd));
+            return new ChunkedFileDescriptorReadResponse(msg, _maxFrameSize, descriptor);
         }
     }
 
@@ -454,9 +479,12 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler
                           _maxFrameSize);
                 throw new XrootdException(kXR_ArgInvalid, "Single readv transfer is too large.");
             }
+
+            throttle(ctx, _descriptors.get(fd));
         }
 
-        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, new ArrayList<>(_descriptors));
+        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, new ArrayList<>(_descriptors),
+                                                      _readvMaxGap, _readvStatistics);
     }
 
     /**
@@ -489,6 +517,7 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler
 
         try {
             descriptor.write(msg);
+            throttle(ctx, descriptor);
         } catch (ClosedChannelException e) {
             throw new XrootdException(kXR_FileNotOpen,
                     "The file was forcefully closed by the server.");
@@ -498,6 +527,25 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler
         return withOk(msg);
     }
 
+    /**
+     * Stops reading further requests from the client while the bandwidth
+     * limits of the mover serving {@code descriptor} are in debt.
+     *
+     * The event loop is shared with other movers and must not block.
+     * Instead reading is resumed from a task scheduled on the event loop
+     * once the debt has been paid off, thus pacing the requests of the
+     * client.
+     */
+    private void throttle(ChannelHandlerContext ctx, FileDescriptor descriptor)
+    {
+        long delay = descriptor.getChannel().getThrottleDelay();
+        Channel channel = ctx.channel();
+        if (delay > 0 && channel.config().isAutoRead()) {
+            channel.config().setAutoRead(false);
+            ctx.executor().schedule(() -> channel.config().setAutoRead(true), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
     /**
      * Lookup the file descriptor and invoke its sync operation.
      *
@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
 
+import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
@@ -34,6 +35,8 @@ import java.util.UUID;
 
 import diskCacheV111.util.CacheException;
 
+import dmg.cells.nucleus.CellInfo;
+import dmg.cells.nucleus.CellInfoProvider;
 import dmg.cells.nucleus.CellPath;
 
 import org.dcache.pool.movers.NettyMover;
@@ -81,6 +84,7 @@ import org.dcache.xrootd.stream.ChunkedResponseWriteHandler;
  *   end of the file is wrong.
  */
 public class XrootdTransferService extends NettyTransferService<XrootdProtocolInfo>
+        implements CellInfoProvider
 {
     private static final Logger LOGGER =
             LoggerFactory.getLogger(XrootdTransferService.class);
@@ -88,6 +92,8 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
     private int maxFrameSize;
     private List<ChannelHandlerFactory> plugins;
     private Map<String, String> queryConfig;
+    private int readvMaxGap;
+    private final ReadvStatistics readvStatistics = new ReadvStatistics();
 
     public XrootdTransferService()
     {
@@ -116,6 +122,22 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
         return maxFrameSize;
     }
 
+    @Required
+    public void setReadvMaxGap(int readvMaxGap)
+    {
+        this.readvMaxGap = readvMaxGap;
+    }
+
+    public int getReadvMaxGap()
+    {
+        return readvMaxGap;
+    }
+
+    public ReadvStatistics getReadvStatistics()
+    {
+        return readvStatistics;
+    }
+
     public Map<String, String> getQueryConfig()
     {
         return queryConfig;
@@ -149,6 +171,18 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
         LOGGER.debug("sending redirect {} to Xrootd-door {}", localIP, cellpath);
     }
 
+    @Override
+    public void getInfo(PrintWriter pw)
+    {
+        readvStatistics.getInfo(pw);
+    }
+
+    @Override
+    public CellInfo getCellInfo(CellInfo info)
+    {
+        return info;
+    }
+
     @Override
     protected void initChannel(Channel ch) throws Exception
     {
@@ -172,6 +206,7 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
                                                          clientIdleTimeout,
                                                          clientIdleTimeoutUnit));
         pipeline.addLast("chunkedWriter", new ChunkedResponseWriteHandler());
-        pipeline.addLast("transfer", new XrootdPoolRequestHandler(this, maxFrameSize, queryConfig));
+        pipeline.addLast("transfer", new XrootdPoolRequestHandler(this, maxFrameSize, queryConfig,
+                                                                   readvMaxGap, readvStatistics));
     }
 }
@@ -0,0 +1,206 @@
+package org.dcache.xrootd.pool;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.dcache.xrootd.protocol.messages.GenericReadRequestMessage.EmbeddedReadRequest;
+import org.dcache.xrootd.protocol.messages.ReadVRequest;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ChunkedFileDescriptorReadvResponseTest
+{
+    private static final int MAX_FRAME_SIZE = 1024;
+    private static final int MAX_GAP = 16;
+
+    private final ByteBufAllocator alloc = new UnpooledByteBufAllocator(true);
+    private final byte[] content = new byte[4096];
+    private FileDescriptor descriptor;
+    private ReadvStatistics statistics;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        descriptor = mock(FileDescriptor.class);
+        doAnswer(invocation -> {
+            ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+            int position = (int) (long) (Long) invocation.getArguments()[1];
+            buffer.put(content, position, Math.min(buffer.remaining(), content.length - position));
+            return null;
+        }).when(descriptor).read(any(ByteBuffer.class), anyLong());
+        statistics = new ReadvStatistics();
+    }
+
+    @Test
+    public void shouldCoalesceNearbySegments() throws Exception
+    {
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(MAX_FRAME_SIZE, segment(0, 0, 10), segment(0, 20, 10));
+
+        assertContent(response.read(alloc, 0, 0, 10), 0, 10);
+        assertContent(response.read(alloc, 0, 20, 10), 20, 10);
+
+        verify(descriptor, times(1)).read(any(ByteBuffer.class), anyLong());
+        assertThat(statistics.getSegments(), is(2L));
+        assertThat(statistics.getReads(), is(1L));
+        assertThat(statistics.getReadBytes(), is(30L));
+    }
+
+    @Test
+    public void shouldNotCoalesceDistantSegments() throws Exception
+    {
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(MAX_FRAME_SIZE, segment(0, 0, 10), segment(0, 10 + MAX_GAP + 1, 10));
+
+        assertContent(response.read(alloc, 0, 0, 10), 0, 10);
+        assertContent(response.read(alloc, 0, 10 + MAX_GAP + 1, 10), 10 + MAX_GAP + 1, 10);
+
+        verify(descriptor, times(2)).read(any(ByteBuffer.class), anyLong());
+        assertThat(statistics.getReadBytes(), is(20L));
+    }
+
+    @Test
+    public void shouldNotCoalesceBeyondMaxFrameSize() throws Exception
+    {
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(64, segment(0, 0, 10), segment(0, 20, 50));
+
+        assertContent(response.read(alloc, 0, 0, 10), 0, 10);
+        assertContent(response.read(alloc, 0, 20, 50), 20, 50);
+
+        verify(descriptor, times(2)).read(any(ByteBuffer.class), anyLong());
+    }
+
+    @Test
+    public void shouldServeSegmentsInRequestOrder() throws Exception
+    {
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(MAX_FRAME_SIZE, segment(0, 40, 10), segment(0, 0, 10), segment(0, 20, 10));
+
+        assertContent(response.read(alloc, 0, 40, 10), 40, 10);
+        assertContent(response.read(alloc, 0, 0, 10), 0, 10);
+        assertContent(response.read(alloc, 0, 20, 10), 20, 10);
+
+        verify(descriptor, times(1)).read(any(ByteBuffer.class), eq(0L));
+    }
+
+    @Test
+    public void shouldServeSegmentsFromTheBlockTheyWereCoalescedInto() throws Exception
+    {
+        /* The second segment is coalesced with the first. The third is too
+         * large to be coalesced and starts a block at the offset of the
+         * second segment.
+         */
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(64, segment(0, 0, 60), segment(0, 10, 5), segment(0, 10, 100));
+
+        assertContent(response.read(alloc, 0, 0, 60), 0, 60);
+        assertContent(response.read(alloc, 0, 10, 5), 10, 5);
+        assertContent(response.read(alloc, 0, 10, 100), 10, 100);
+
+        verify(descriptor, times(2)).read(any(ByteBuffer.class), anyLong());
+    }
+
+    @Test
+    public void shouldReadUnknownSegmentsOnTheirOwn() throws Exception
+    {
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(MAX_FRAME_SIZE, segment(0, 0, 10), segment(0, 20, 10));
+
+        assertContent(response.read(alloc, 0, 5, 20), 5, 20);
+
+        verify(descriptor).read(any(ByteBuffer.class), eq(5L));
+    }
+
+    @Test
+    public void shouldRereadBlockAfterAllSegmentsWereSent() throws Exception
+    {
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(MAX_FRAME_SIZE, segment(0, 0, 10), segment(0, 20, 10));
+
+        assertContent(response.read(alloc, 0, 0, 10), 0, 10);
+        assertContent(response.read(alloc, 0, 20, 10), 20, 10);
+        assertContent(response.read(alloc, 0, 0, 10), 0, 10);
+
+        verify(descriptor, times(2)).read(any(ByteBuffer.class), eq(0L));
+    }
+
+    @Test
+    public void shouldReleaseBlocksWhenClosedMidway() throws Exception
+    {
+        List<ByteBuf> buffers = new ArrayList<>();
+        ByteBufAllocator alloc = new UnpooledByteBufAllocator(true)
+        {
+            @Override
+            public ByteBuf ioBuffer(int initialCapacity)
+            {
+                ByteBuf buffer = super.ioBuffer(initialCapacity);
+                buffers.add(buffer);
+                return buffer;
+            }
+        };
+        ChunkedFileDescriptorReadvResponse response =
+                givenResponse(64, segment(0, 0, 10), segment(0, 20, 10),
+                              segment(0, 100, 10), segment(0, 120, 10));
+
+        assertContent(response.read(alloc, 0, 0, 10), 0, 10);
+        assertContent(response.read(alloc, 0, 100, 10), 100, 10);
+        response.close();
+
+        assertThat(buffers, hasSize(2));
+        for (ByteBuf buffer : buffers) {
+            assertThat(buffer.refCnt(), is(0));
+        }
+    }
+
+    private ChunkedFileDescriptorReadvResponse givenResponse(int maxFrameSize,
+                                                             EmbeddedReadRequest... segments)
+    {
+        ReadVRequest request = mock(ReadVRequest.class);
+        given(request.getReadRequestList()).willReturn(segments);
+        return new ChunkedFileDescriptorReadvResponse(request, maxFrameSize,
+                                                      Collections.singletonList(descriptor),
+                                                      MAX_GAP, statistics);
+    }
+
+    private static EmbeddedReadRequest segment(int fd, long offset, int length)
+    {
+        EmbeddedReadRequest segment = mock(EmbeddedReadRequest.class);
+        given(segment.getFileHandle()).willReturn(fd);
+        given(segment.getOffset()).willReturn(offset);
+        given(segment.BytesToRead()).willReturn(length);
+        return segment;
+    }
+
+    private void assertContent(ByteBuf chunk, int offset, int length)
+    {
+        try {
+            byte[] actual = new byte[chunk.readableBytes()];
+            chunk.readBytes(actual);
+            assertThat(actual, is(Arrays.copyOfRange(content, offset, offset + length)));
+        } finally {
+            chunk.release();
+        }
+    }
+}
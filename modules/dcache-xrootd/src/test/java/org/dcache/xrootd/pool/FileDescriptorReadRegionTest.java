@@ -0,0 +1,187 @@
+package org.dcache.xrootd.pool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.dcache.pool.repository.RepositoryChannel;
+import org.dcache.xrootd.protocol.messages.ReadRequest;
+
+import static org.dcache.xrootd.protocol.XrootdProtocol.kXR_ok;
+import static org.dcache.xrootd.protocol.XrootdProtocol.kXR_oksofar;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+
+public class FileDescriptorReadRegionTest
+{
+    private static final int STREAM_ID = 42;
+
+    private final byte[] content = new byte[100];
+    private RepositoryChannel channel;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        channel = mock(RepositoryChannel.class);
+        given(channel.size()).willReturn((long) content.length);
+        given(channel.transferTo(anyLong(), anyLong(), any(WritableByteChannel.class))).willAnswer(invocation -> {
+            int position = (int) (long) (Long) invocation.getArguments()[0];
+            int count = (int) Math.min((Long) invocation.getArguments()[1], content.length - position);
+            WritableByteChannel target = (WritableByteChannel) invocation.getArguments()[2];
+            return (long) target.write(ByteBuffer.wrap(content, position, Math.max(0, count)));
+        });
+    }
+
+    @Test
+    public void shouldInterleaveFrameHeadersAndPayload() throws Exception
+    {
+        FileDescriptorReadRegion region = givenRegion(10, 25, 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = region.transferTo(new Target(out, Integer.MAX_VALUE), 0);
+
+        assertThat(written, is(3 * 8 + 25L));
+        assertThat(region.count(), is(written));
+        assertThat(region.transfered(), is(written));
+        assertThat(out.toByteArray(), is(concat(header(kXR_oksofar, 10), payload(10, 10),
+                                                header(kXR_oksofar, 10), payload(20, 10),
+                                                header(kXR_ok, 5), payload(30, 5))));
+    }
+
+    @Test
+    public void shouldResumePartialWritesOfHeadersAndPayload() throws Exception
+    {
+        FileDescriptorReadRegion region = givenRegion(0, 12, 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Target target = new Target(out, 3);
+
+        while (region.transfered() < region.count()) {
+            target.allowMore();
+            region.transferTo(target, region.transfered());
+        }
+
+        assertThat(out.toByteArray(), is(concat(header(kXR_oksofar, 5), payload(0, 5),
+                                                header(kXR_oksofar, 5), payload(5, 5),
+                                                header(kXR_ok, 2), payload(10, 2))));
+    }
+
+    @Test
+    public void shouldLimitResponseToFileSize() throws Exception
+    {
+        FileDescriptorReadRegion region = givenRegion(90, 50, 64);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        region.transferTo(new Target(out, Integer.MAX_VALUE), 0);
+
+        assertThat(out.toByteArray(), is(concat(header(kXR_ok, 10), payload(90, 10))));
+    }
+
+    @Test
+    public void shouldSendSingleEmptyFrameBeyondEndOfFile() throws Exception
+    {
+        FileDescriptorReadRegion region = givenRegion(200, 50, 64);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        region.transferTo(new Target(out, Integer.MAX_VALUE), 0);
+
+        assertThat(out.toByteArray(), is(header(kXR_ok, 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonSequentialTransfer() throws Exception
+    {
+        FileDescriptorReadRegion region = givenRegion(0, 50, 64);
+
+        region.transferTo(new Target(new ByteArrayOutputStream(), Integer.MAX_VALUE), 10);
+    }
+
+    private FileDescriptorReadRegion givenRegion(long offset, int length, int maxFrameSize)
+            throws IOException
+    {
+        ReadRequest request = mock(ReadRequest.class);
+        given(request.getStreamId()).willReturn(STREAM_ID);
+        given(request.getReadOffset()).willReturn(offset);
+        given(request.bytesToRead()).willReturn(length);
+        return new FileDescriptorReadRegion(request, maxFrameSize, channel);
+    }
+
+    private static byte[] header(int status, int length)
+    {
+        return ByteBuffer.allocate(8)
+                .putShort((short) STREAM_ID)
+                .putShort((short) status)
+                .putInt(length)
+                .array();
+    }
+
+    private byte[] payload(int offset, int length)
+    {
+        return Arrays.copyOfRange(content, offset, offset + length);
+    }
+
+    private static byte[] concat(byte[]... arrays)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            out.write(array, 0, array.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Channel accepting at most a given number of bytes between calls to
+     * allowMore, similar to a non-blocking socket with a full send buffer.
+     */
+    private static class Target implements WritableByteChannel
+    {
+        private final ByteArrayOutputStream out;
+        private final int limit;
+        private int remaining;
+
+        Target(ByteArrayOutputStream out, int limit)
+        {
+            this.out = out;
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        void allowMore()
+        {
+            remaining = limit;
+        }
+
+        @Override
+        public int write(ByteBuffer src)
+        {
+            int n = Math.min(src.remaining(), remaining);
+            byte[] bytes = new byte[n];
+            src.get(bytes);
+            out.write(bytes, 0, n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -3,6 +3,7 @@
 package diskCacheV111.poolManager ;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,10 +16,15 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.regex.Pattern;
 
 import diskCacheV111.pools.CostCalculatable;
@@ -63,14 +69,42 @@ public class CostModuleV1
 
     private static final long serialVersionUID = -267023006449629909L;
 
-    private final Map<String, Entry> _hash = new HashMap<>() ;
-    private boolean _isActive = true ;
-    private boolean _update = true ;
-    private boolean _magic = true ;
-    private boolean _debug;
-    private boolean _cachedPercentileCostCutIsValid;
-    private double _cachedPercentileCostCut;
-    private double _cachedPercentileFraction;
+    private static final AtomicLongFieldUpdater<CostModuleV1> VERSION =
+            AtomicLongFieldUpdater.newUpdater(CostModuleV1.class, "_version");
+
+    /*
+     * The cost module is updated by every pool heartbeat and adjusted on
+     * every pool selection and transfer. Rather than serializing all of
+     * these on a single lock, entries are kept in a concurrent map and
+     * the cost information of a pool is modified while holding the lock
+     * of its entry only.
+     */
+    private final Map<String, Entry> _hash = new ConcurrentHashMap<>() ;
+    private volatile boolean _isActive = true ;
+    private volatile boolean _update = true ;
+    private volatile boolean _magic = true ;
+    private volatile boolean _debug;
+
+    /**
+     * Performance costs of all pools in increasing order, maintained as
+     * pools are updated such that percentiles are obtained without
+     * recalculating and sorting the costs of all pools.
+     */
+    private transient NavigableSet<PerformanceCost> _costs = new ConcurrentSkipListSet<>();
+
+    /**
+     * Identifies this instance, such that deltas are not applied to
+     * copies of another instance.
+     */
+    private final long _epoch;
+
+    /**
+     * Incremented on every change of the cost information. Being a
+     * primitive field, it is serialized before the entries, so a copy
+     * never claims a version newer than its content.
+     */
+    private volatile long _version;
+
     private transient CellMessageDispatcher _handlers =
         new CellMessageDispatcher("messageToForward");
 
@@ -84,10 +118,15 @@ public class CostModuleV1
 
        private final long timestamp;
        private final PoolCostInfo _info;
-       private double _fakeCpu = -1.0;
        private final ImmutableMap<String,String> _tagMap;
        private final CellAddressCore _address;
 
+       /* The following fields and the content of _info are guarded by the entry. */
+       private double _fakeCpu = -1.0;
+       private long _version;
+       private transient PerformanceCost _cost;
+       private transient boolean _isRemoved;
+
        public Entry(CellAddressCore address, PoolCostInfo info, Map<String,String> tagMap)
        {
            timestamp = System.currentTimeMillis();
@@ -118,14 +157,82 @@ public class CostModuleV1
        {
            return new PoolInfo(_address, _info, _tagMap);
        }
+
+       private synchronized void writeObject(ObjectOutputStream stream) throws IOException
+       {
+           stream.defaultWriteObject();
+       }
    }
 
+    /**
+     * Performance cost of a pool at some point in time.
+     */
+    private static class PerformanceCost implements Comparable<PerformanceCost>
+    {
+        private final double _cost;
+        private final String _pool;
+
+        PerformanceCost(double cost, String pool)
+        {
+            _cost = cost;
+            _pool = pool;
+        }
+
+        @Override
+        public int compareTo(PerformanceCost other)
+        {
+            int c = Double.compare(_cost, other._cost);
+            return (c != 0) ? c : _pool.compareTo(other._pool);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof PerformanceCost && compareTo((PerformanceCost) o) == 0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return _pool.hashCode();
+        }
+    }
+
     public CostModuleV1()
     {
+        _epoch = ThreadLocalRandom.current().nextLong();
         _handlers.addMessageListener(this);
     }
 
-    public synchronized void messageArrived(CellMessage envelope, PoolManagerPoolUpMessage msg)
+    private CostModuleV1(CostModuleV1 other)
+    {
+        _epoch = other._epoch;
+        _isActive = other._isActive;
+        _update = other._update;
+        _magic = other._magic;
+        _debug = other._debug;
+        _handlers.addMessageListener(this);
+        synchronized (other) {
+            _hash.putAll(other._hash);
+            _costs = new ConcurrentSkipListSet<>(other._costs);
+            _version = other._version;
+        }
+    }
+
+    /**
+     * Returns a copy of this instance to which deltas can be applied
+     * without affecting this instance. The copy shares the entries and
+     * performance costs of the pools with this instance rather than
+     * recalculating them, thus neither must be updated by messages; only
+     * deltas may be applied. Applying a delta replaces the entries of the
+     * pools that changed without modifying the entries it replaces.
+     */
+    public CostModuleV1 copy()
+    {
+        return new CostModuleV1(this);
+    }
+
+    public void messageArrived(CellMessage envelope, PoolManagerPoolUpMessage msg)
     {
         if (! _update) {
             return;
@@ -135,64 +242,77 @@ public class CostModuleV1
         String poolName = msg.getPoolName();
         PoolV2Mode poolMode = msg.getPoolMode();
         PoolCostInfo newInfo = msg.getPoolCostInfo();
-        Entry poolEntry = _hash.get(poolName);
-        boolean isNewPool = poolEntry == null;
 
         /* Whether the pool mentioned in the message should be removed */
         boolean shouldRemovePool = poolMode.getMode() == PoolV2Mode.DISABLED ||
                 poolMode.isDisabled(PoolV2Mode.DISABLED_STRICT) ||
                 poolMode.isDisabled(PoolV2Mode.DISABLED_DEAD);
 
-        if( isNewPool || shouldRemovePool) {
-            _cachedPercentileCostCutIsValid = false;
-        } else {
-            PoolCostInfo currentInfo = poolEntry.getPoolCostInfo();
-            considerInvalidatingCache(currentInfo, newInfo);
-        }
-
         if (shouldRemovePool) {
-            _hash.remove(poolName);
+            if (remove(poolName)) {
+                VERSION.incrementAndGet(this);
+            }
         } else if (newInfo != null) {
-            _hash.put(poolName, new Entry(poolAddress, newInfo, msg.getTagMap()));
+            Entry entry = new Entry(poolAddress, newInfo, msg.getTagMap());
+            synchronized (entry) {
+                put(poolName, entry);
+                changed(entry);
+            }
         }
     }
 
-    private void considerInvalidatingCache(PoolCostInfo currentInfo, PoolCostInfo newInfo)
+    /**
+     * Adds or replaces the entry of a pool. The caller must hold the
+     * lock of the new entry and subsequently update its performance cost.
+     */
+    private void put(String poolName, Entry entry)
     {
-        if( !_cachedPercentileCostCutIsValid) {
-            return;
+        Entry old = _hash.put(poolName, entry);
+        if (old != null) {
+            synchronized (old) {
+                old._isRemoved = true;
+                if (old._cost != null) {
+                    _costs.remove(old._cost);
+                }
+            }
         }
-
-        double currentCost = getPerformanceCost(currentInfo);
-        double newCost = getPerformanceCost(newInfo);
-        considerInvalidatingCache(currentCost, newCost);
     }
 
-    private void considerInvalidatingCache(double currentCost, PoolCostInfo newInfo)
+    private boolean remove(String poolName)
     {
-        if( !_cachedPercentileCostCutIsValid) {
-            return;
+        Entry old = _hash.remove(poolName);
+        if (old == null) {
+            return false;
         }
-
-        double newCost = getPerformanceCost(newInfo);
-        considerInvalidatingCache(currentCost, newCost);
+        synchronized (old) {
+            old._isRemoved = true;
+            if (old._cost != null) {
+                _costs.remove(old._cost);
+            }
+        }
+        return true;
     }
 
-    /* Check whether we should invalidate the cached.  We must do this when
-     * a pool changes its relationship to the cost threshold:
-     *       o  a pool with cost less than the cached value assumes a cost greater
-     *                  than the cached value,
-     *       o  a pool with cost greater than the cached value assumes a cost less
-     *                  than the cached value.
-     *       o  a pool with cost equal to the cached value assumes a cost less
-     *                  than or greater than the cached value.
+    /**
+     * Records that the cost information of a pool was modified. The
+     * caller must hold the lock of the entry.
      */
-    private void considerInvalidatingCache(double currentCost, double newCost)
+    private void changed(Entry entry)
+    {
+        updatePerformanceCost(entry);
+        entry._version = VERSION.incrementAndGet(this);
+    }
+
+    private void updatePerformanceCost(Entry entry)
     {
-        if( Math.signum(currentCost-_cachedPercentileCostCut) !=
-            Math.signum(newCost-_cachedPercentileCostCut)) {
-            _cachedPercentileCostCutIsValid = false;
+        if (entry._isRemoved) {
+            return;
+        }
+        if (entry._cost != null) {
+            _costs.remove(entry._cost);
         }
+        entry._cost = new PerformanceCost(getPerformanceCost(entry._info), entry._info.getPoolName());
+        _costs.add(entry._cost);
     }
 
     private double getPerformanceCost(PoolCostInfo info)
@@ -202,7 +322,7 @@ public class CostModuleV1
         return cost.getPerformanceCost();
     }
 
-    public synchronized void messageToForward(PoolIoFileMessage msg)
+    public void messageToForward(PoolIoFileMessage msg)
     {
         String poolName = msg.getPoolName();
         Entry e = _hash.get(poolName);
@@ -213,7 +333,6 @@ public class CostModuleV1
         String requestedQueueName = msg.getIoQueueName();
 
         PoolCostInfo costInfo = e.getPoolCostInfo();
-        double currentPerformanceCost = getPerformanceCost(costInfo);
         Map<String, NamedPoolQueueInfo> map =
             costInfo.getExtendedMoverHash();
 
@@ -246,15 +365,16 @@ public class CostModuleV1
             }
         }
 
-        queue.modifyQueue(diff);
-        spaceInfo.modifyPinnedSpace(pinned);
-
-        considerInvalidatingCache(currentPerformanceCost, costInfo);
+        synchronized (e) {
+            queue.modifyQueue(diff);
+            spaceInfo.modifyPinnedSpace(pinned);
+            changed(e);
+        }
 
         xsay("Mover"+(requestedQueueName==null?"":("("+requestedQueueName+")")) , poolName, diff, pinned, msg);
     }
 
-    public synchronized void messageToForward(DoorTransferFinishedMessage msg)
+    public void messageToForward(DoorTransferFinishedMessage msg)
     {
         String poolName = msg.getPoolName();
         Entry e = _hash.get(poolName);
@@ -263,7 +383,6 @@ public class CostModuleV1
         }
 
         PoolCostInfo costInfo = e.getPoolCostInfo();
-        double currentPerformanceCost = getPerformanceCost(costInfo);
         String requestedQueueName = msg.getIoQueueName();
 
         Map<String, NamedPoolQueueInfo> map =
@@ -285,12 +404,14 @@ public class CostModuleV1
         int diff = -1;
         long pinned = 0;
 
-        queue.modifyQueue(diff);
-        considerInvalidatingCache(currentPerformanceCost, costInfo);
+        synchronized (e) {
+            queue.modifyQueue(diff);
+            changed(e);
+        }
         xsay("Mover"+(requestedQueueName==null?"":("("+requestedQueueName+")")), poolName, diff, pinned, msg);
     }
 
-    public synchronized void messageToForward(PoolFetchFileMessage msg)
+    public void messageToForward(PoolFetchFileMessage msg)
     {
          String poolName = msg.getPoolName();
          Entry e = _hash.get(poolName);
@@ -299,7 +420,6 @@ public class CostModuleV1
          }
 
          PoolCostInfo costInfo = e.getPoolCostInfo();
-         double currentPerformanceCost = getPerformanceCost(costInfo);
          PoolCostInfo.PoolQueueInfo queue = costInfo.getRestoreQueue();
          PoolCostInfo.PoolSpaceInfo spaceInfo = costInfo.getSpaceInfo();
 
@@ -317,13 +437,15 @@ public class CostModuleV1
                 pinned = 0;
             }
         }
-        queue.modifyQueue(diff);
-         spaceInfo.modifyPinnedSpace(pinned);
-         considerInvalidatingCache(currentPerformanceCost, costInfo);
+        synchronized (e) {
+            queue.modifyQueue(diff);
+            spaceInfo.modifyPinnedSpace(pinned);
+            changed(e);
+        }
          xsay("Restore", poolName, diff, pinned, msg);
     }
 
-    public synchronized void messageToForward(PoolMgrSelectPoolMsg msg)
+    public void messageToForward(PoolMgrSelectPoolMsg msg)
     {
          if (!_magic) {
              return;
@@ -341,7 +463,6 @@ public class CostModuleV1
          String requestedQueueName = msg.getIoQueueName();
 
          PoolCostInfo costInfo = e.getPoolCostInfo();
-         double currentPerformanceCost = getPerformanceCost(costInfo);
          Map<String, NamedPoolQueueInfo> map =
              costInfo.getExtendedMoverHash();
          PoolCostInfo.PoolQueueInfo queue;
@@ -361,13 +482,15 @@ public class CostModuleV1
          int diff = 1;
          long pinned =
              (msg instanceof PoolMgrSelectWritePoolMsg) ? ((PoolMgrSelectWritePoolMsg) msg).getPreallocated() : 0;
-         queue.modifyQueue(diff);
-         spaceInfo.modifyPinnedSpace(pinned);
-         considerInvalidatingCache(currentPerformanceCost, costInfo);
+         synchronized (e) {
+             queue.modifyQueue(diff);
+             spaceInfo.modifyPinnedSpace(pinned);
+             changed(e);
+         }
          xsay("Mover (magic)"+(requestedQueueName==null?"":("("+requestedQueueName+")")), poolName, diff, pinned, msg);
     }
 
-    public synchronized void messageToForward(Pool2PoolTransferMsg msg)
+    public void messageToForward(Pool2PoolTransferMsg msg)
     {
         _log.debug( "Pool2PoolTransferMsg : reply="+msg.isReply());
 
@@ -378,7 +501,6 @@ public class CostModuleV1
         }
 
         PoolCostInfo sourceCostInfo = source.getPoolCostInfo();
-        double currentSourcePerformanceCost = getPerformanceCost(sourceCostInfo);
 
         PoolCostInfo.PoolQueueInfo sourceQueue = sourceCostInfo.getP2pQueue();
 
@@ -389,8 +511,6 @@ public class CostModuleV1
         }
 
         PoolCostInfo destinationCostInfo = destination.getPoolCostInfo();
-        double currentDestinationPerformanceCost =
-            getPerformanceCost(destinationCostInfo);
 
         PoolCostInfo.PoolQueueInfo destinationQueue =
             destinationCostInfo.getP2pClientQueue();
@@ -400,13 +520,15 @@ public class CostModuleV1
         int diff = msg.isReply() ? -1 : 1;
         long pinned = msg.getFileAttributes().getSizeIfPresent().or(0L);
 
-        sourceQueue.modifyQueue(diff);
-        destinationQueue.modifyQueue(diff);
-        destinationSpaceInfo.modifyPinnedSpace(pinned);
-
-        considerInvalidatingCache(currentSourcePerformanceCost, sourceCostInfo);
-        considerInvalidatingCache(currentDestinationPerformanceCost,
-                destinationCostInfo);
+        synchronized (source) {
+            sourceQueue.modifyQueue(diff);
+            changed(source);
+        }
+        synchronized (destination) {
+            destinationQueue.modifyQueue(diff);
+            destinationSpaceInfo.modifyPinnedSpace(pinned);
+            changed(destination);
+        }
 
         xsay("P2P client (magic)", destinationName, diff, pinned, msg);
         xsay("P2P server (magic)", sourceName, diff, 0, msg);
@@ -464,46 +586,40 @@ public class CostModuleV1
     }
 
    @Override
-   public synchronized double getPoolsPercentilePerformanceCost(double fraction) {
+   public double getPoolsPercentilePerformanceCost(double fraction) {
 
        if( fraction <= 0 || fraction >= 1) {
            throw new IllegalArgumentException("supplied fraction (" + Double.toString( fraction) +") not between 0 and 1");
        }
 
-       if( !_cachedPercentileCostCutIsValid || _cachedPercentileFraction != fraction) {
-           _cachedPercentileCostCut = calculatePercentileCostCut(fraction);
-           _cachedPercentileFraction = fraction;
-           _cachedPercentileCostCutIsValid = true;
-       }
-
-       return _cachedPercentileCostCut;
-   }
-
-   private double calculatePercentileCostCut(double fraction)
-   {
-       if( _hash.isEmpty()) {
+       int size = _hash.size();
+       if (size == 0) {
            _log.debug( "no pools available");
            return 0;
        }
 
-       _log.debug( "{} pools available", _hash.size());
-
-       double poolCosts[] = new double[_hash.size()];
-
-       int idx=0;
-       for( Entry poolInfo : _hash.values()) {
-           poolCosts[idx] = getPerformanceCost(poolInfo.getPoolCostInfo());
-           idx++;
+       _log.debug( "{} pools available", size);
+
+       /* Walk from whichever end is closer to the percentile. While pools
+        * are updated concurrently the result is approximate.
+        */
+       int index = (int) Math.floor(fraction * size);
+       Iterator<PerformanceCost> costs;
+       int steps;
+       if (index < size / 2) {
+           costs = _costs.iterator();
+           steps = index;
+       } else {
+           costs = _costs.descendingIterator();
+           steps = size - 1 - index;
        }
-
-       Arrays.sort(poolCosts);
-
-       return poolCosts [ (int) Math.floor(fraction * _hash.size())];
+       double cost = 0;
+       for (int i = 0; i <= steps && costs.hasNext(); i++) {
+           cost = costs.next()._cost;
+       }
+       return cost;
    }
 
-
-
-
    @Override
    public boolean isActive(){ return _isActive ; }
 
@@ -552,7 +668,7 @@ public class CostModuleV1
      return "";
    }
    public static final String hh_cm_fake = "<poolName> [off] | [-cpu=<cpuCost>|off]" ;
-   public synchronized String ac_cm_fake_$_1_2( Args args ){
+   public String ac_cm_fake_$_1_2( Args args ){
       String poolName = args.argv(0) ;
       Entry e = _hash.get(poolName);
       if( e == null ) {
@@ -562,7 +678,10 @@ public class CostModuleV1
 
       if( args.argc() > 1 ){
         if( args.argv(1).equals("off") ){
-           e._fakeCpu   = -1.0 ;
+           synchronized (e) {
+               e._fakeCpu   = -1.0 ;
+               changed(e);
+           }
         }else{
            throw new
            IllegalArgumentException("Unknown argument : "+args.argv(1));
@@ -571,14 +690,17 @@ public class CostModuleV1
       }
       String val = args.getOpt("cpu") ;
       if( val != null ) {
-          e._fakeCpu = Double.parseDouble(val);
+          synchronized (e) {
+              e._fakeCpu = Double.parseDouble(val);
+              changed(e);
+          }
       }
 
       return poolName+" -cpu="+e._fakeCpu ;
    }
 
    public static final String hh_xcm_ls = "";
-   public synchronized Object ac_xcm_ls_$_0(Args args)
+   public Object ac_xcm_ls_$_0(Args args)
    {
        CostModulePoolInfoTable reply = new CostModulePoolInfoTable();
        for (Entry e : _hash.values() ){
@@ -588,7 +710,7 @@ public class CostModuleV1
    }
 
    public static final String hh_cm_ls = " -t | -r <pattern> # list all pools";
-   public synchronized String ac_cm_ls_$_0_1(Args args)
+   public String ac_cm_ls_$_0_1(Args args)
    {
        StringBuilder sb = new StringBuilder();
        boolean useTime   = args.hasOption("t");
@@ -619,7 +741,7 @@ public class CostModuleV1
    }
 
     @Override
-    public synchronized Collection<PoolCostInfo> getPoolCostInfos()
+    public Collection<PoolCostInfo> getPoolCostInfos()
     {
         Collection<PoolCostInfo> costInfos = new ArrayList<>();
         for (Entry entry: _hash.values()) {
@@ -631,7 +753,7 @@ public class CostModuleV1
     }
 
     @Override @Nullable
-    public synchronized PoolCostInfo getPoolCostInfo(String poolName)
+    public PoolCostInfo getPoolCostInfo(String poolName)
     {
         Entry entry = _hash.get(poolName);
         if (entry != null && (entry.isValid() || !_update)) {
@@ -641,7 +763,7 @@ public class CostModuleV1
     }
 
     @Override @Nullable
-    public synchronized PoolInfo getPoolInfo(String pool)
+    public PoolInfo getPoolInfo(String pool)
     {
         Entry entry = _hash.get(pool);
         if (entry != null && (entry.isValid() || !_update)) {
@@ -651,8 +773,7 @@ public class CostModuleV1
     }
 
     @Override
-    public synchronized
-        Map<String,PoolInfo> getPoolInfoAsMap(Iterable<String> pools)
+    public Map<String,PoolInfo> getPoolInfoAsMap(Iterable<String> pools)
     {
         Map<String,PoolInfo> map = new HashMap<>();
         for (String pool: pools) {
@@ -664,16 +785,132 @@ public class CostModuleV1
         return map;
     }
 
+    public long getVersion()
+    {
+        return _version;
+    }
+
+    /**
+     * Returns the cost information that changed after the given version.
+     *
+     * The version of the delta is read before the entries, so entries
+     * changed concurrently are either included or are newer than the
+     * version of the delta.
+     */
+    public Delta getChangesSince(long version)
+    {
+        long current = _version;
+        ImmutableMap.Builder<String, Entry> changed = ImmutableMap.builder();
+        for (Map.Entry<String, Entry> e : _hash.entrySet()) {
+            Entry entry = e.getValue();
+            synchronized (entry) {
+                if (entry._version > version) {
+                    changed.put(e.getKey(), entry);
+                }
+            }
+        }
+        return new Delta(_epoch, version, current, changed.build(), ImmutableSet.copyOf(_hash.keySet()));
+    }
+
+    /**
+     * Applies changes obtained from another instance, typically the one
+     * this instance is a copy of.
+     *
+     * @return false if the changes were obtained from a different instance
+     * or are relative to a version newer than the version of this instance.
+     */
+    public synchronized boolean apply(Delta delta)
+    {
+        if (delta._epoch != _epoch || delta._since > _version) {
+            return false;
+        }
+        if (delta._version > _version) {
+            for (String pool : _hash.keySet()) {
+                if (!delta._pools.contains(pool)) {
+                    discard(_hash.remove(pool));
+                }
+            }
+            delta._changed.forEach((pool, entry) -> {
+                synchronized (entry) {
+                    discard(_hash.put(pool, entry));
+                    updatePerformanceCost(entry);
+                }
+            });
+            _version = delta._version;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the performance cost of an entry replaced by a delta. The
+     * entry may be shared with the instance this one was copied from,
+     * thus unlike put and remove it is not marked as removed.
+     */
+    private void discard(Entry old)
+    {
+        if (old != null) {
+            synchronized (old) {
+                if (old._cost != null) {
+                    _costs.remove(old._cost);
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes to the cost information of a CostModuleV1 since some
+     * earlier version.
+     */
+    public static class Delta implements Serializable
+    {
+        private static final long serialVersionUID = 3862232587744542291L;
+
+        private final long _epoch;
+        private final long _since;
+        private final long _version;
+        private final ImmutableMap<String, Entry> _changed;
+        private final ImmutableSet<String> _pools;
+
+        private Delta(long epoch, long since, long version,
+                      ImmutableMap<String, Entry> changed, ImmutableSet<String> pools)
+        {
+            _epoch = epoch;
+            _since = since;
+            _version = version;
+            _changed = changed;
+            _pools = pools;
+        }
+
+        public long getSince()
+        {
+            return _since;
+        }
+
+        public long getVersion()
+        {
+            return _version;
+        }
+
+        /**
+         * Returns the names of the pools for which cost information changed.
+         */
+        public ImmutableSet<String> getChangedPools()
+        {
+            return _changed.keySet();
+        }
+    }
+
     private void readObject(ObjectInputStream in)
         throws IOException, ClassNotFoundException
     {
         in.defaultReadObject();
         _handlers = new CellMessageDispatcher("messageToForward");
         _handlers.addMessageListener(this);
-    }
-
-    private synchronized void writeObject(ObjectOutputStream stream) throws IOException
-    {
-        stream.defaultWriteObject();
+        _costs = new ConcurrentSkipListSet<>();
+        _hash.forEach((pool, entry) -> {
+            synchronized (entry) {
+                updatePerformanceCost(entry);
+            }
+        });
     }
 }
\ No newline at end of file
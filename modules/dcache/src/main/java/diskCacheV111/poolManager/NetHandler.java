@@ -1,5 +1,7 @@
 package diskCacheV111.poolManager;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.net.Inet4Address;
@@ -17,6 +19,12 @@ class NetHandler implements Serializable {
     private final String[] _maskStringsV6 = new String[129];
     private final BigInteger[] _masksV6 = new BigInteger[129];
 
+    /**
+     * Index for longest prefix matching. Replaced on every update so that
+     * matching does not need any locks.
+     */
+    private transient volatile NetUnitTrie _trie = NetUnitTrie.EMPTY;
+
     NetHandler() {
         long mask = 0;
         long xmask;
@@ -55,6 +63,7 @@ class NetHandler implements Serializable {
                 netMap.clear();
             }
         }
+        _trie = NetUnitTrie.EMPTY;
     }
 
     private BigInteger inetAddressToBigInteger(InetAddress address) {
@@ -88,6 +97,7 @@ class NetHandler implements Serializable {
             BigInteger addr = inetAddressToBigInteger(net.getHostAddress());
             _netListV6[bit].put(addr.and(_masksV6[bit]), net);
         }
+        _trie = _trie.add(net);
     }
 
     void remove(NetUnit net) {
@@ -98,7 +108,7 @@ class NetHandler implements Serializable {
             }
             long addr = inetAddressToLong(net.getHostAddress());
             _netList[bit].remove(addr & _masks[bit]);
-            if (_netList.length == 0) {
+            if (_netList[bit].isEmpty()) {
                 _netList[bit] = null;
             }
         } else {
@@ -107,10 +117,11 @@ class NetHandler implements Serializable {
             }
             BigInteger addr = inetAddressToBigInteger(net.getHostAddress());
             _netListV6[bit].remove(addr.and(_masksV6[bit]));
-            if (_netList.length == 0) {
+            if (_netListV6[bit].isEmpty()) {
                 _netListV6[bit] = null;
             }
         }
+        _trie = _trie.remove(net);
     }
 
     NetUnit find(NetUnit net) {
@@ -127,46 +138,40 @@ class NetHandler implements Serializable {
         return result;
     }
 
+    /**
+     * Returns the most specific net unit containing the given address, or
+     * null if no unit contains it. Does not acquire any locks.
+     */
     NetUnit match(String inetAddress) throws UnknownHostException {
-        InetAddress address = InetAddress.getByName(inetAddress);
-        if (address instanceof Inet4Address) {
-            long addr = inetAddressToLong(address);
-            long mask = 0;
-            long cursor = 1;
-            NetUnit unit;
-            for (Map<Long, NetUnit> map : _netList) {
-                if (map != null) {
-                    Long l = addr & ~mask;
-                    unit = map.get(l);
-                    if (unit != null) {
-                        return unit;
-                    }
-                }
-                mask |= cursor;
-                cursor <<= 1;
-            }
-        } else {
-           BigInteger addr = inetAddressToBigInteger(address);
-           BigInteger mask = BigInteger.ZERO;
-           BigInteger cursor = BigInteger.ONE;
-           NetUnit unit;
-           for (Map<BigInteger, NetUnit> map : _netListV6) {
-               if (map != null) {
-                   BigInteger l = addr.and(mask.not());
-                   unit = map.get(l);
-                   if (unit != null) {
-                       return unit;
-                   }
-               }
-               mask = mask.or(cursor);
-               cursor = cursor.shiftLeft(1);
-           }
-        }
-        return null;
+        return match(InetAddress.getByName(inetAddress));
+    }
+
+    NetUnit match(InetAddress address) {
+        return _trie.match(address);
     }
 
     String bitsToString(int bits) {
         return _maskStringsV6[bits];
     }
 
+    private void readObject(ObjectInputStream stream)
+            throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        NetUnitTrie trie = NetUnitTrie.EMPTY;
+        for (Map<Long, NetUnit> netMap : _netList) {
+            if (netMap != null) {
+                for (NetUnit net : netMap.values()) {
+                    trie = trie.add(net);
+                }
+            }
+        }
+        for (Map<BigInteger, NetUnit> netMap : _netListV6) {
+            if (netMap != null) {
+                for (NetUnit net : netMap.values()) {
+                    trie = trie.add(net);
+                }
+            }
+        }
+        _trie = trie;
+    }
 }
@@ -0,0 +1,178 @@
+package diskCacheV111.poolManager;
+
+import java.net.InetAddress;
+
+/**
+ * Immutable compressed binary trie (PATRICIA trie) of net units for
+ * longest prefix matching.
+ *
+ * Updates copy the path from the root to the modified node and return a
+ * new trie, leaving the original trie untouched. A trie can thus be
+ * published through a volatile field and matched against without any
+ * locking while updates are in progress. Matching visits at most one node
+ * per address bit.
+ *
+ * IPv4 and IPv6 units live in separate tries, as their addresses differ in
+ * length.
+ */
+class NetUnitTrie
+{
+    static final NetUnitTrie EMPTY = new NetUnitTrie(null, null);
+
+    private final Node _v4;
+    private final Node _v6;
+
+    private NetUnitTrie(Node v4, Node v6)
+    {
+        _v4 = v4;
+        _v6 = v6;
+    }
+
+    NetUnitTrie add(NetUnit unit)
+    {
+        byte[] key = unit.getHostAddress().getAddress();
+        int length = key.length * 8 - unit.getHostBits();
+        return (key.length == 4)
+               ? new NetUnitTrie(add(_v4, key, length, unit), _v6)
+               : new NetUnitTrie(_v4, add(_v6, key, length, unit));
+    }
+
+    NetUnitTrie remove(NetUnit unit)
+    {
+        byte[] key = unit.getHostAddress().getAddress();
+        int length = key.length * 8 - unit.getHostBits();
+        return (key.length == 4)
+               ? new NetUnitTrie(remove(_v4, key, length), _v6)
+               : new NetUnitTrie(_v4, remove(_v6, key, length));
+    }
+
+    /**
+     * Returns the net unit with the longest prefix matching the address, or
+     * null if no unit matches.
+     */
+    NetUnit match(InetAddress address)
+    {
+        byte[] key = address.getAddress();
+        Node node = (key.length == 4) ? _v4 : _v6;
+        NetUnit best = null;
+        while (node != null && commonPrefixLength(node.key, key, node.length) == node.length) {
+            if (node.unit != null) {
+                best = node.unit;
+            }
+            if (node.length == key.length * 8) {
+                break;
+            }
+            node = node.child(bit(key, node.length));
+        }
+        return best;
+    }
+
+    private static Node add(Node node, byte[] key, int length, NetUnit unit)
+    {
+        if (node == null) {
+            return new Node(mask(key, length), length, unit, null, null);
+        }
+        int common = commonPrefixLength(node.key, key, Math.min(node.length, length));
+        if (common == node.length && common == length) {
+            return new Node(node.key, node.length, unit, node.zero, node.one);
+        }
+        if (common == node.length) {
+            int bit = bit(key, common);
+            return node.withChild(bit, add(node.child(bit), key, length, unit));
+        }
+        if (common == length) {
+            Node parent = new Node(mask(key, length), length, unit, null, null);
+            return parent.withChild(bit(node.key, length), node);
+        }
+        Node leaf = new Node(mask(key, length), length, unit, null, null);
+        Node branch = new Node(mask(key, common), common, null, null, null);
+        return branch.withChild(bit(key, common), leaf).withChild(bit(node.key, common), node);
+    }
+
+    private static Node remove(Node node, byte[] key, int length)
+    {
+        if (node == null || node.length > length ||
+                commonPrefixLength(node.key, key, node.length) < node.length) {
+            return node;
+        }
+        if (node.length == length) {
+            return compact(new Node(node.key, node.length, null, node.zero, node.one));
+        }
+        int bit = bit(key, node.length);
+        Node child = node.child(bit);
+        Node newChild = remove(child, key, length);
+        if (newChild == child) {
+            return node;
+        }
+        return compact(node.withChild(bit, newChild));
+    }
+
+    /**
+     * Drops a node that neither holds a unit nor branches.
+     */
+    private static Node compact(Node node)
+    {
+        if (node.unit != null || (node.zero != null && node.one != null)) {
+            return node;
+        }
+        return (node.zero != null) ? node.zero : node.one;
+    }
+
+    private static int bit(byte[] key, int index)
+    {
+        return (key[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static int commonPrefixLength(byte[] a, byte[] b, int max)
+    {
+        int i = 0;
+        while (i < max) {
+            int diff = (a[i >>> 3] ^ b[i >>> 3]) & 0xff;
+            if (diff != 0) {
+                return Math.min(max, i + Integer.numberOfLeadingZeros(diff) - 24);
+            }
+            i += 8;
+        }
+        return max;
+    }
+
+    private static byte[] mask(byte[] key, int length)
+    {
+        byte[] masked = new byte[key.length];
+        for (int i = 0; i < length; i += 8) {
+            int bits = Math.min(8, length - i);
+            masked[i >>> 3] = (byte) (key[i >>> 3] & (0xff << (8 - bits)));
+        }
+        return masked;
+    }
+
+    private static class Node
+    {
+        final byte[] key;
+        final int length;
+        final NetUnit unit;
+        final Node zero;
+        final Node one;
+
+        Node(byte[] key, int length, NetUnit unit, Node zero, Node one)
+        {
+            this.key = key;
+            this.length = length;
+            this.unit = unit;
+            this.zero = zero;
+            this.one = one;
+        }
+
+        Node child(int bit)
+        {
+            return (bit == 0) ? zero : one;
+        }
+
+        Node withChild(int bit, Node child)
+        {
+            return (bit == 0)
+                   ? new Node(key, length, unit, child, one)
+                   : new Node(key, length, unit, zero, child);
+        }
+    }
+}
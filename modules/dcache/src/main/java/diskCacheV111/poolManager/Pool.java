@@ -46,6 +46,18 @@ public class Pool extends PoolCore implements SelectionPool {
         _active = active ? System.currentTimeMillis() : 0;
     }
 
+    /**
+     * Returns the time of the last heartbeat in milliseconds since the
+     * epoch, or zero if the pool is inactive.
+     */
+    long getHeartbeat() {
+        return _active;
+    }
+
+    void setHeartbeat(long time) {
+        _active = time;
+    }
+
     @Override
     public long getActive() {
         return _ping ? (System.currentTimeMillis() - _active) : 0L;
@@ -62,6 +62,7 @@ import org.dcache.cells.CellStub;
 import org.dcache.poolmanager.Partition;
 import org.dcache.poolmanager.PoolInfo;
 import org.dcache.poolmanager.PoolLinkGroupInfo;
+import org.dcache.poolmanager.PoolMonitorDelta;
 import org.dcache.poolmanager.PoolSelector;
 import org.dcache.poolmanager.SerializablePoolMonitor;
 import org.dcache.poolmanager.Utils;
@@ -110,6 +111,7 @@ public class PoolManagerV5
     private long _poolMonitorUpdatePeriod;
     private TimeUnit _poolMonitorUpdatePeriodUnit;
     private double _poolMonitorMaxUpdatesPerSecond;
+    private int _poolMonitorUpdatesBetweenSnapshots;
 
     public PoolManagerV5()
     {
@@ -176,6 +178,11 @@ public class PoolManagerV5
         _poolMonitorMaxUpdatesPerSecond = maxUpdatesPerSecond;
     }
 
+    public void setPoolMonitorUpdatesBetweenSnapshots(int updates)
+    {
+        _poolMonitorUpdatesBetweenSnapshots = updates;
+    }
+
     public void init()
     {
         String watchdogParam = getArgs().getOpt("watchdog");
@@ -303,26 +310,61 @@ public class PoolManagerV5
 
         private final RateLimiter limiter = RateLimiter.create(_poolMonitorMaxUpdatesPerSecond);
 
+        /** Version of the pool monitor included in the last update. */
+        private long publishedVersion;
+
+        /** Number of deltas published since the last full snapshot. */
+        private int deltas;
+
         @Override
         public void run()
         {
             try {
                 limiter.acquire();
+                boolean isStructuralChange = true;
                 while (!Thread.interrupted()) {
-                    _poolMonitorTopic.notify(_poolMonitor);
-                    waitUntilNextUpdate();
+                    publish(isStructuralChange);
+                    isStructuralChange = waitUntilNextUpdate();
                     limiter.acquire();
                 }
             } catch (InterruptedException ignored) {
             }
         }
 
-        protected synchronized void waitUntilNextUpdate() throws InterruptedException
+        /**
+         * Publishes the pool monitor. Structural changes, such as changes
+         * to the pool selection configuration, are only propagated by full
+         * snapshots. In between snapshots only the changes to the pool
+         * heartbeats and cost information are published.
+         */
+        private void publish(boolean isStructuralChange)
+        {
+            if (!isStructuralChange && deltas < _poolMonitorUpdatesBetweenSnapshots) {
+                PoolMonitorDelta delta = _poolMonitor.getChangesSince(publishedVersion);
+                if (delta != null) {
+                    _poolMonitorTopic.notify(delta);
+                    publishedVersion = delta.getVersion();
+                    deltas++;
+                    return;
+                }
+            }
+            publishedVersion = _poolMonitor.getVersion();
+            _poolMonitorTopic.notify(_poolMonitor);
+            deltas = 0;
+        }
+
+        /**
+         * Returns true if the pool monitor changed structurally while
+         * waiting.
+         */
+        protected synchronized boolean waitUntilNextUpdate() throws InterruptedException
         {
             if (!isChanged) {
                 _poolMonitorUpdatePeriodUnit.timedWait(this, _poolMonitorUpdatePeriod);
             }
+            boolean wasChanged = isChanged;
             isChanged = false;
+            return wasChanged;
         }
 
         public synchronized void onChange()
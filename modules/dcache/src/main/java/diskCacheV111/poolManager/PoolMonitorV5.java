@@ -2,6 +2,7 @@
 
 package diskCacheV111.poolManager;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.common.primitives.Ints;
@@ -37,6 +38,7 @@ import org.dcache.namespace.FileType;
 import org.dcache.poolmanager.Partition;
 import org.dcache.poolmanager.PartitionManager;
 import org.dcache.poolmanager.PoolInfo;
+import org.dcache.poolmanager.PoolMonitorDelta;
 import org.dcache.poolmanager.PoolSelector;
 import org.dcache.poolmanager.SerializablePoolMonitor;
 import org.dcache.vehicles.FileAttributes;
@@ -95,6 +97,94 @@ public class PoolMonitorV5
         _costModule.messageArrived(cellMessage);
     }
 
+    @Override
+    public long getVersion()
+    {
+        return (_costModule instanceof CostModuleV1) ? ((CostModuleV1) _costModule).getVersion() : 0;
+    }
+
+    /**
+     * Returns the cost information of pools that changed since the given
+     * version together with their last heartbeat, or null if the cost
+     * module does not support deltas.
+     */
+    @Override
+    public PoolMonitorDelta getChangesSince(long version)
+    {
+        if (!(_costModule instanceof CostModuleV1)) {
+            return null;
+        }
+        CostModuleV1.Delta costs = ((CostModuleV1) _costModule).getChangesSince(version);
+        ImmutableMap.Builder<String, Long> heartbeats = ImmutableMap.builder();
+        for (String name : costs.getChangedPools()) {
+            PoolSelectionUnit.SelectionPool pool = _selectionUnit.getPool(name);
+            if (pool instanceof Pool) {
+                heartbeats.put(name, ((Pool) pool).getHeartbeat());
+            }
+        }
+        return new Delta(costs, heartbeats.build());
+    }
+
+    /**
+     * Returns a copy with the changes applied to a copy of the cost module.
+     * The pool selection unit is shared with this pool monitor: pool
+     * heartbeats are updated in place, just as pool manager updates them
+     * in its own pool selection unit.
+     */
+    @Override
+    public SerializablePoolMonitor withChanges(PoolMonitorDelta delta)
+    {
+        if (!(delta instanceof Delta) || !(_costModule instanceof CostModuleV1)) {
+            return null;
+        }
+        Delta changes = (Delta) delta;
+        CostModuleV1 costModule = ((CostModuleV1) _costModule).copy();
+        long version = costModule.getVersion();
+        if (!costModule.apply(changes._costs)) {
+            return null;
+        }
+        if (changes.getVersion() > version) {
+            changes._heartbeats.forEach((name, heartbeat) -> {
+                PoolSelectionUnit.SelectionPool pool = _selectionUnit.getPool(name);
+                if (pool instanceof Pool) {
+                    ((Pool) pool).setHeartbeat(heartbeat);
+                }
+            });
+        }
+
+        PoolMonitorV5 monitor = new PoolMonitorV5();
+        monitor.setPoolSelectionUnit(_selectionUnit);
+        monitor.setCostModule(costModule);
+        monitor.setPartitionManager(_partitionManager);
+        return monitor;
+    }
+
+    private static class Delta extends PoolMonitorDelta
+    {
+        private static final long serialVersionUID = -1907426355826302453L;
+
+        private final CostModuleV1.Delta _costs;
+        private final ImmutableMap<String, Long> _heartbeats;
+
+        Delta(CostModuleV1.Delta costs, ImmutableMap<String, Long> heartbeats)
+        {
+            _costs = costs;
+            _heartbeats = heartbeats;
+        }
+
+        @Override
+        public long getSince()
+        {
+            return _costs.getSince();
+        }
+
+        @Override
+        public long getVersion()
+        {
+            return _costs.getVersion();
+        }
+    }
+
     @Override
     public PoolSelector getPoolSelector(FileAttributes fileAttributes,
                                         ProtocolInfo protocolInfo,
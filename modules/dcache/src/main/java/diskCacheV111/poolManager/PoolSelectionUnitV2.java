@@ -27,9 +27,12 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -43,6 +46,7 @@ import org.dcache.util.Glob;
 import org.dcache.vehicles.FileAttributes;
 
 import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
 
 public class PoolSelectionUnitV2
                 implements Serializable,
@@ -89,6 +93,22 @@ public class PoolSelectionUnitV2
 
     private final NetHandler _netHandler = new NetHandler();
 
+    /**
+     * Upper bound on the number of entries in each of the match caches.
+     * The caches are cleared when the bound is exceeded.
+     */
+    private static final int MAX_MATCH_CACHE_SIZE = 10000;
+
+    /**
+     * Caches of the parts of a match that only depend on the configuration.
+     * Entries are added while holding the read lock, and the caches are
+     * cleared while holding the write lock, thus they never contain results
+     * of a previous configuration.
+     */
+    private transient ConcurrentMap<String, Unit> _storeUnitCache = new ConcurrentHashMap<>();
+    private transient ConcurrentMap<String, Pattern> _patternCache = new ConcurrentHashMap<>();
+    private transient ConcurrentMap<MatchKey, List<Link>> _linkCache = new ConcurrentHashMap<>();
+
     @Override
     public void addChangeListener(Runnable runnable)
     {
@@ -569,6 +589,131 @@ public class PoolSelectionUnitV2
         return linkMap;
     }
 
+    /**
+     * Looks up {@code key} in {@code cache}, computing the value if absent.
+     * Must be called with the read lock held.
+     */
+    private static <K, V> V cached(ConcurrentMap<K, V> cache, K key, Function<K, V> compute)
+    {
+        V value = cache.get(key);
+        if (value == null) {
+            if (cache.size() >= MAX_MATCH_CACHE_SIZE) {
+                cache.clear();
+            }
+            value = compute.apply(key);
+            cache.putIfAbsent(key, value);
+        }
+        return value;
+    }
+
+    private void clearMatchCaches()
+    {
+        _storeUnitCache.clear();
+        _patternCache.clear();
+        _linkCache.clear();
+    }
+
+    /**
+     * Resolves the store unit of a storage class. Must be called with the
+     * read lock held.
+     */
+    private Unit findStoreUnit(String storeUnitName)
+    {
+        //
+        // regexp code added by rw2 12/5/02
+        // original code is in the else
+        //
+        if (_useRegex) {
+            Unit universalCoverage = null;
+            Unit classCoverage = null;
+
+            for (Unit unit : _units.values()) {
+                if (unit.getType() != STORE) {
+                    continue;
+                }
+
+                if (unit.getName().equals("*@*")) {
+                    universalCoverage = unit;
+                } else if (unit.getName().equals("*@" + storeUnitName)) {
+                    classCoverage = unit;
+                } else {
+                    Pattern pattern = cached(_patternCache, unit.getName(), Pattern::compile);
+                    if (pattern.matcher(storeUnitName).matches()) {
+                        return unit;
+                    }
+                }
+            }
+            //
+            // If a pattern matches then use it, fail over to a class,
+            // then universal. If nothing, throw exception
+            //
+            if (classCoverage != null) {
+                return classCoverage;
+            } else if (universalCoverage != null) {
+                return universalCoverage;
+            } else {
+                throw new IllegalArgumentException(
+                                "Unit not found : " + storeUnitName);
+            }
+        } else {
+            Unit unit = _units.get(storeUnitName);
+            if (unit == null) {
+                int ind = storeUnitName.lastIndexOf("@");
+                if ((ind > 0) && (ind < (storeUnitName.length() - 1))) {
+                    String template = "*@"
+                                    + storeUnitName.substring(ind + 1);
+                    if ((unit = _units.get(template)) == null) {
+
+                        if ((unit = _units.get("*@*")) == null) {
+                            _log.debug("no matching storage unit found for: {}", storeUnitName);
+                            throw new IllegalArgumentException(
+                                            "Unit not found : " + storeUnitName);
+                        }
+                    }
+                } else {
+                    throw new IllegalArgumentException(
+                                    "IllegalUnitFormat : " + storeUnitName);
+                }
+            }
+            _log.debug("matching storage unit found for: {}", storeUnitName);
+            return unit;
+        }
+    }
+
+    /**
+     * Returns the links matching all of the given units, sorted by the
+     * preference for the given direction. Must be called with the read
+     * lock held.
+     */
+    private List<Link> findLinks(DirectionType type, List<Unit> units, LinkGroup linkGroup)
+    {
+        //
+        // i) sort according to the type (read,write,cache)
+        // ii) the and is only OK if we have at least as many
+        // units (from the arguments) as required by the
+        // number of uGroupList(s).
+        //
+        int fitCount = units.size();
+        Set<Link> sortedSet = new TreeSet<>(new LinkComparator(type));
+
+        //
+        // find all links that matches the specified list of units
+        //
+        LinkMap matchingLinks = new LinkMap();
+        for (Unit unit : units) {
+            matchingLinks = match(matchingLinks, unit, linkGroup, type);
+        }
+
+        Iterator<Link> linkIterator = matchingLinks.iterator();
+        while (linkIterator.hasNext()) {
+            Link link = linkIterator.next();
+            if (link._uGroupList.size() <= fitCount) {
+                sortedSet.add(link);
+            }
+        }
+        return ImmutableList.copyOf(sortedSet);
+    }
+
     @Override
     public PoolPreferenceLevel[] match(DirectionType type,  String netUnitName, String protocolUnitName,
                     FileAttributes fileAttributes, String linkGroupName) {
@@ -590,68 +735,8 @@ public class PoolSelectionUnitV2
             //
             // resolve the unit from the unitname (or net unit mask)
             //
-            // regexp code added by rw2 12/5/02
-            // original code is in the else
-            //
             List<Unit> list = new ArrayList<>();
-            if (_useRegex) {
-                Unit universalCoverage = null;
-                Unit classCoverage = null;
-
-                for (Unit unit : _units.values()) {
-                    if (unit.getType() != STORE) {
-                        continue;
-                    }
-
-                    if (unit.getName().equals("*@*")) {
-                        universalCoverage = unit;
-                    } else if (unit.getName().equals("*@" + storeUnitName)) {
-                        classCoverage = unit;
-                    } else {
-                        if (Pattern.matches(unit.getName(), storeUnitName)) {
-                            list.add(unit);
-                            break;
-                        }
-                    }
-                }
-                //
-                // If a pattern matches then use it, fail over to a class,
-                // then universal. If nothing, throw exception
-                //
-                if (list.isEmpty()) {
-                    if (classCoverage != null) {
-                        list.add(classCoverage);
-                    } else if (universalCoverage != null) {
-                        list.add(universalCoverage);
-                    } else {
-                        throw new IllegalArgumentException(
-                                        "Unit not found : " + storeUnitName);
-                    }
-                }
-
-            } else {
-                Unit unit = _units.get(storeUnitName);
-                if (unit == null) {
-                    int ind = storeUnitName.lastIndexOf("@");
-                    if ((ind > 0) && (ind < (storeUnitName.length() - 1))) {
-                        String template = "*@"
-                                        + storeUnitName.substring(ind + 1);
-                        if ((unit = _units.get(template)) == null) {
-
-                            if ((unit = _units.get("*@*")) == null) {
-                                _log.debug("no matching storage unit found for: {}", storeUnitName);
-                                throw new IllegalArgumentException(
-                                                "Unit not found : " + storeUnitName);
-                            }
-                        }
-                    } else {
-                        throw new IllegalArgumentException(
-                                        "IllegalUnitFormat : " + storeUnitName);
-                    }
-                }
-                _log.debug("matching storage unit found for: {}", storeUnitName);
-                list.add(unit);
-            }
+            list.add(cached(_storeUnitCache, storeUnitName, this::findStoreUnit));
             if (protocolUnitName != null) {
 
                 Unit unit = findProtocolUnit(protocolUnitName);
@@ -689,58 +774,27 @@ public class PoolSelectionUnitV2
                                     "NetUnit not resolved : " + netUnitName);
                 }
             }
-            //
-            // match the requests ( logical AND )
-            //
-            //
-            // Map map = null ;
-            // while( units.hasNext() )map = match( map , (Unit)units.next() ) ;
-            // Iterator links = map.values().iterator() ;
-            //
-
-            //
-            // i) sort according to the type (read,write,cache)
-            // ii) the and is only OK if we have at least as many
-            // units (from the arguments) as required by the
-            // number of uGroupList(s).
-            // iii) check for the hashtable if required.
-            //
-            int fitCount = list.size();
-            Set<Link> sortedSet = new TreeSet<>(new LinkComparator(type));
-
             //
             // use subset on links if it's defined
             //
-
-            LinkGroup linkGroup = null;
-            if (linkGroupName != null) {
-                linkGroup = _linkGroups.get(linkGroupName);
-                if (linkGroup == null) {
-                    _log.debug("LinkGroup not found : {}", linkGroupName );
-                    throw new IllegalArgumentException("LinkGroup not found : "
-                                    + linkGroupName);
-                }
+            LinkGroup linkGroup = (linkGroupName == null) ? null : _linkGroups.get(linkGroupName);
+            if (linkGroupName != null && linkGroup == null) {
+                _log.debug("LinkGroup not found : {}", linkGroupName );
+                throw new IllegalArgumentException("LinkGroup not found : "
+                                + linkGroupName);
             }
 
             //
-            // find all links that matches the specified list of units
+            // match the requests ( logical AND )
             //
-
-            LinkMap matchingLinks = new LinkMap();
-            for (Unit unit : list) {
-                matchingLinks = match(matchingLinks, unit, linkGroup, type);
-            }
-
-            Iterator<Link> linkIterator = matchingLinks.iterator();
-            while (linkIterator.hasNext()) {
-
-                Link link = linkIterator.next();
-                if ((link._uGroupList.size() <= fitCount)
-                                && ((variableMap == null) || link.exec(variableMap))) {
-
-                    sortedSet.add(link);
+            List<Link> sortedLinks = new ArrayList<>();
+            for (Link link : cached(_linkCache, new MatchKey(type, list, linkGroup),
+                                    key -> findLinks(type, list, linkGroup))) {
+                if ((variableMap == null) || link.exec(variableMap)) {
+                    sortedLinks.add(link);
                 }
             }
+
             int pref = -1;
             List<List<Link>> listList = new ArrayList<>();
             List<Link> current = null;
@@ -748,7 +802,7 @@ public class PoolSelectionUnitV2
             switch (type) {
 
                 case READ:
-                    for (Link link : sortedSet) {
+                    for (Link link : sortedLinks) {
                         if (link.getReadPref() < 1) {
                             continue;
                         }
@@ -760,7 +814,7 @@ public class PoolSelectionUnitV2
                     }
                     break;
                 case CACHE:
-                    for (Link link : sortedSet) {
+                    for (Link link : sortedLinks) {
                         if (link.getCachePref() < 1) {
                             continue;
                         }
@@ -772,7 +826,7 @@ public class PoolSelectionUnitV2
                     }
                     break;
                 case P2P:
-                    for (Link link : sortedSet) {
+                    for (Link link : sortedLinks) {
                         int tmpPref = link.getP2pPref() < 0 ? link.getReadPref()
                                         : link.getP2pPref();
                         if (tmpPref < 1) {
@@ -786,7 +840,7 @@ public class PoolSelectionUnitV2
                     }
                     break;
                 case WRITE:
-                    for (Link link : sortedSet) {
+                    for (Link link : sortedLinks) {
                         if (link.getWritePref() < 1) {
                             continue;
                         }
@@ -1133,18 +1187,23 @@ public class PoolSelectionUnitV2
 
     public String setRegex(String onOff) {
         String retVal;
-        switch (onOff) {
-            case "on":
-                _useRegex = true;
-                retVal = "regex turned on";
-                break;
-            case "off":
-                _useRegex = false;
-                retVal = "regex turned off";
-                break;
-            default:
-                throw new IllegalArgumentException(
-                                "please set regex either on or off");
+        wlock();
+        try {
+            switch (onOff) {
+                case "on":
+                    _useRegex = true;
+                    retVal = "regex turned on";
+                    break;
+                case "off":
+                    _useRegex = false;
+                    retVal = "regex turned off";
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                                    "please set regex either on or off");
+            }
+        } finally {
+            wunlock();
         }
         return retVal;
     }
@@ -2460,6 +2519,7 @@ public class PoolSelectionUnitV2
 
     protected void wunlock()
     {
+        clearMatchCaches();
         _psuWriteLock.unlock();
         if (!_psuReadWriteLock.isWriteLockedByCurrentThread()) {
             _onChangeListeners.stream().forEach(Runnable::run);
@@ -2481,6 +2541,9 @@ public class PoolSelectionUnitV2
     {
         stream.defaultReadObject();
         _onChangeListeners = new CopyOnWriteArrayList<>();
+        _storeUnitCache = new ConcurrentHashMap<>();
+        _patternCache = new ConcurrentHashMap<>();
+        _linkCache = new ConcurrentHashMap<>();
     }
 
     private void writeObject(ObjectOutputStream stream) throws IOException
@@ -2492,4 +2555,41 @@ public class PoolSelectionUnitV2
             runlock();
         }
     }
+
+    /**
+     * Key of the link cache. Identifies the configuration dependent inputs
+     * of a match.
+     */
+    private static final class MatchKey
+    {
+        private final DirectionType type;
+        private final List<String> units;
+        private final String linkGroup;
+
+        MatchKey(DirectionType type, List<Unit> units, LinkGroup linkGroup)
+        {
+            this.type = type;
+            this.units = units.stream().map(Unit::getName).collect(toList());
+            this.linkGroup = (linkGroup == null) ? null : linkGroup.getName();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MatchKey)) {
+                return false;
+            }
+            MatchKey other = (MatchKey) o;
+            return type == other.type && units.equals(other.units) && Objects.equals(linkGroup, other.linkGroup);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(type, units, linkGroup);
+        }
+    }
 }
@@ -16,14 +16,19 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Deque;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -61,6 +66,7 @@ import dmg.cells.nucleus.CellPath;
 import dmg.cells.nucleus.UOID;
 
 import org.dcache.cells.CellStub;
+import org.dcache.commons.stats.LatencyHistogram;
 import org.dcache.poolmanager.Partition;
 import org.dcache.poolmanager.PartitionManager;
 import org.dcache.poolmanager.PoolInfo;
@@ -91,8 +97,22 @@ public class RequestContainerV5
 
     private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MM.dd HH:mm:ss");
 
-    private final Map<UOID, PoolRequestHandler>     _messageHash   = new HashMap<>() ;
-    private final Map<String, PoolRequestHandler>   _handlerHash   = new HashMap<>() ;
+    /*
+     * Request bookkeeping is kept in concurrent maps such that pool
+     * selection for different files does not contend on a common lock.
+     * The requests of a single handler are guarded by the handler itself.
+     */
+    private final Map<UOID, PoolRequestHandler>     _messageHash   = new ConcurrentHashMap<>() ;
+    private final Map<String, PoolRequestHandler>   _handlerHash   = new ConcurrentHashMap<>() ;
+
+    /** Serializes the restore limit check with the registration of restores. */
+    private final Object _restoreLock = new Object();
+
+    /** Number of request handlers in each state. */
+    private final Map<RequestState, LongAdder> _stateCounts = new EnumMap<>(RequestState.class);
+
+    /** Time from the arrival of a pool selection request to its reply. */
+    private final LatencyHistogram _selectionLatency = new LatencyHistogram();
 
     private CellStub _billing;
     private CellStub _poolStub;
@@ -117,7 +137,7 @@ public class RequestContainerV5
     private PnfsHandler        _pnfsHandler;
 
     private Executor _executor;
-    private final Map<PnfsId, CacheException>            _selections       = new HashMap<>() ;
+    private final Map<PnfsId, CacheException>            _selections       = new ConcurrentHashMap<>() ;
     private PartitionManager   _partitionManager ;
     private volatile long               _checkFilePingTimer = 10 * 60 * 1000 ;
     /** value in milliseconds */
@@ -139,6 +159,9 @@ public class RequestContainerV5
         EnumSet.complementOf(EnumSet.of(RequestState.ST_STAGE));
 
     public RequestContainerV5(long tickerInterval) {
+        for (RequestState state : RequestState.values()) {
+            _stateCounts.put(state, new LongAdder());
+        }
         _ticketInterval = tickerInterval;
         _tickerThread = new Thread(this, "Container-ticker");
         _tickerThread.start();
@@ -206,13 +229,9 @@ public class RequestContainerV5
     public void messageArrived(CellMessage envelope, Object message)
     {
         UOID uoid = envelope.getLastUOID();
-        PoolRequestHandler handler;
-
-        synchronized (_messageHash) {
-            handler = _messageHash.remove(uoid);
-            if (handler == null) {
-                return;
-            }
+        PoolRequestHandler handler = _messageHash.remove(uoid);
+        if (handler == null) {
+            return;
         }
 
         handler.mailForYou(message);
@@ -225,14 +244,8 @@ public class RequestContainerV5
             try {
                 Thread.sleep(_ticketInterval) ;
 
-                List<PoolRequestHandler> list;
-                synchronized (_handlerHash) {
-                    list = new ArrayList<>(_handlerHash.values());
-                }
-                for (PoolRequestHandler handler: list) {
-                    if (handler != null) {
-                        handler.alive();
-                    }
+                for (PoolRequestHandler handler: _handlerHash.values()) {
+                    handler.alive();
                 }
             } catch (InterruptedException e) {
                 break;
@@ -249,18 +262,7 @@ public class RequestContainerV5
     public void poolStatusChanged(String poolName, int poolStatus) {
         _log.info("Restore Manager : got 'poolRestarted' for " + poolName);
         try {
-            List<PoolRequestHandler> list;
-            synchronized (_handlerHash) {
-                list = new ArrayList<>(_handlerHash.values());
-            }
-
-            for (PoolRequestHandler rph : list) {
-
-                if (rph == null) {
-                    continue;
-                }
-
-
+            for (PoolRequestHandler rph : _handlerHash.values()) {
                 switch( poolStatus ) {
                     case PoolStatusChangedMessage.UP:
                         /*
@@ -312,6 +314,20 @@ public class RequestContainerV5
        if( _suspendStaging ) {
            pw.println("   Suspend Staging  : on (not persistent)");
        }
+       pw.println( "           Requests : "+getStateCounts() ) ;
+       pw.println( "  Selection Latency : "+_selectionLatency ) ;
+    }
+
+    private String getStateCounts()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<RequestState, LongAdder> entry : _stateCounts.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count > 0) {
+                sb.append(entry.getKey()).append('=').append(count).append(' ');
+            }
+        }
+        return (sb.length() == 0) ? "none" : sb.toString().trim();
     }
 
     @Override
@@ -364,32 +380,39 @@ public class RequestContainerV5
     public static final String hh_rc_select = "[<pnfsId> [<errorNumber> [<errorMessage>]] [-remove]]" ;
     public String ac_rc_select_$_0_3( Args args ){
 
-       synchronized( _selections ){
-          if( args.argc() == 0 ){
-             StringBuilder sb = new StringBuilder() ;
-             for( Map.Entry<PnfsId, CacheException > entry: _selections.entrySet() ){
-
-                sb.append(entry.getKey().toString()).
-                   append("  ").
-                   append(entry.getValue().toString()).
-                   append("\n");
-             }
-             return sb.toString() ;
-          }
-          boolean remove = args.hasOption("remove") ;
-          PnfsId  pnfsId = new PnfsId(args.argv(0));
+       if( args.argc() == 0 ){
+          StringBuilder sb = new StringBuilder() ;
+          for( Map.Entry<PnfsId, CacheException > entry: _selections.entrySet() ){
 
-          if( remove ){
-             _selections.remove( pnfsId ) ;
-             return "" ;
+             sb.append(entry.getKey().toString()).
+                append("  ").
+                append(entry.getValue().toString()).
+                append("\n");
           }
-          int    errorNumber  = args.argc() > 1 ? Integer.parseInt(args.argv(1)) : 1 ;
-          String errorMessage = args.argc() > 2 ? args.argv(2) : ("Failed-"+errorNumber);
+          return sb.toString() ;
+       }
+       boolean remove = args.hasOption("remove") ;
+       PnfsId  pnfsId = new PnfsId(args.argv(0));
 
-          _selections.put( pnfsId , new CacheException(errorNumber,errorMessage) ) ;
+       if( remove ){
+          _selections.remove( pnfsId ) ;
+          return "" ;
        }
+       int    errorNumber  = args.argc() > 1 ? Integer.parseInt(args.argv(1)) : 1 ;
+       String errorMessage = args.argc() > 2 ? args.argv(2) : ("Failed-"+errorNumber);
+
+       _selections.put( pnfsId , new CacheException(errorNumber,errorMessage) ) ;
        return "" ;
     }
+    public static final String hh_rc_stats = "[-reset] # request counts by state and selection latency" ;
+    public String ac_rc_stats( Args args ){
+       String stats = "Requests : " + getStateCounts() + "\n" +
+                      "Selection latency : " + _selectionLatency + "\n";
+       if( args.hasOption("reset") ) {
+           _selectionLatency.reset();
+       }
+       return stats ;
+    }
     public static final String hh_rc_set_warning_path = " # obsolete";
     public String ac_rc_set_warning_path_$_0_1( Args args ){
        return "";
@@ -480,28 +503,17 @@ public class RequestContainerV5
     {
        boolean forceAll = args.hasOption("force-all") ;
        if( args.argv(0).equals("*") ){
-          List<PoolRequestHandler> all;
-          //
-          // Remember : we are not allowed to call 'retry' as long
-          // as we  are holding the _handlerHash lock.
-          //
-          synchronized( _handlerHash ){
-             all = new ArrayList<>( _handlerHash.values() ) ;
-          }
-          for (PoolRequestHandler rph : all) {
+          for (PoolRequestHandler rph : _handlerHash.values()) {
               if( forceAll || ( rph._currentRc != 0 ) ) {
                   rph.retry();
               }
           }
        }else{
-          PoolRequestHandler rph;
-          synchronized( _handlerHash ){
-             rph = _handlerHash.get(args.argv(0));
-             if( rph == null ) {
-                 throw new
-                         IllegalArgumentException("Not found : " + args
-                         .argv(0));
-             }
+          PoolRequestHandler rph = _handlerHash.get(args.argv(0));
+          if( rph == null ) {
+              throw new
+                      IllegalArgumentException("Not found : " + args
+                      .argv(0));
           }
           rph.retry() ;
        }
@@ -513,14 +525,10 @@ public class RequestContainerV5
        int    errorNumber = args.argc() > 1 ? Integer.parseInt(args.argv(1)) : 1;
        String errorString = args.argc() > 2 ? args.argv(2) : "Operator Intervention" ;
 
-       PoolRequestHandler rph;
-
-       synchronized( _handlerHash ){
-          rph = _handlerHash.get(args.argv(0));
-          if( rph == null ) {
-              throw new
-                      IllegalArgumentException("Not found : " + args.argv(0));
-          }
+       PoolRequestHandler rph = _handlerHash.get(args.argv(0));
+       if( rph == null ) {
+           throw new
+                   IllegalArgumentException("Not found : " + args.argv(0));
        }
        rph.failed(errorNumber,errorString) ;
        return "" ;
@@ -534,16 +542,7 @@ public class RequestContainerV5
        boolean isLongListing = args.hasOption("l");
 
        if( !args.hasOption("w") ){
-          List<PoolRequestHandler>    allRequestHandlers;
-          synchronized( _handlerHash ){
-              allRequestHandlers = new ArrayList<>( _handlerHash.values() ) ;
-          }
-
-          for( PoolRequestHandler h : allRequestHandlers ){
-
-              if( h == null ) {
-                  continue;
-              }
+          for( PoolRequestHandler h : _handlerHash.values() ){
               String line = h.toString() ;
               if( ( pattern == null ) || pattern.matcher(line).matches() ) {
                   sb.append(line).append("\n");
@@ -558,19 +557,10 @@ public class RequestContainerV5
           }
        }else{
 
-           Map<UOID, PoolRequestHandler>  allPendingRequestHandlers   = new HashMap<>() ;
-          synchronized(_messageHash){
-              allPendingRequestHandlers.putAll( _messageHash ) ;
-          }
-
-          for (Map.Entry<UOID, PoolRequestHandler> requestHandler : allPendingRequestHandlers.entrySet()) {
+          for (Map.Entry<UOID, PoolRequestHandler> requestHandler : _messageHash.entrySet()) {
 
                 UOID uoid = requestHandler.getKey();
                 PoolRequestHandler h = requestHandler.getValue();
-
-                if (h == null) {
-                    continue;
-                }
                 String line = uoid.toString() + " " + h.toString();
                 if ((pattern == null) || pattern.matcher(line).matches()) {
                     sb.append(line).append("\n");
@@ -583,17 +573,9 @@ public class RequestContainerV5
     public static final String hh_xrc_ls = " # lists pending requests (binary)" ;
     public Object ac_xrc_ls( Args args ){
 
-       List<PoolRequestHandler> all;
-       synchronized( _handlerHash ){
-          all = new ArrayList<>( _handlerHash.values() ) ;
-       }
-
        List<RestoreHandlerInfo>          list = new ArrayList<>() ;
 
-       for( PoolRequestHandler h: all  ){
-          if( h  == null ) {
-              continue;
-          }
+       for( PoolRequestHandler h: _handlerHash.values() ){
           list.add( h.getRestoreHandlerInfo() ) ;
        }
        return list.toArray( new RestoreHandlerInfo[list.size()] ) ;
@@ -634,11 +616,20 @@ public class RequestContainerV5
         String canonicalName = pnfsId +"@"+netName+"-"+protocolName+(enforceP2P?"-p2p":"")  ;
         //
         //
-        PoolRequestHandler handler;
         _log.info( "Adding request for : "+canonicalName ) ;
-        synchronized( _handlerHash ){
-           handler = _handlerHash.computeIfAbsent(canonicalName, n -> new PoolRequestHandler(pnfsId, n, allowedStates));
-           handler.addRequest(envelope) ;
+        //
+        // A handler may complete and remove itself between being looked
+        // up and locked, in which case we retry with a new handler.
+        //
+        while (true) {
+           PoolRequestHandler handler =
+               _handlerHash.computeIfAbsent(canonicalName, n -> new PoolRequestHandler(pnfsId, n, allowedStates));
+           synchronized (handler) {
+              if (!handler._isRemoved) {
+                 handler.addRequest(envelope);
+                 return;
+              }
+           }
         }
     }
 
@@ -688,6 +679,12 @@ public class RequestContainerV5
 
         private   String       _status        = "[<idle>]";
         private   volatile RequestState _state         = RequestState.ST_INIT;
+
+        /**
+         * Set once the handler has been removed from _handlerHash.
+         * Requests must not be added afterwards. Guarded by the handler.
+         */
+        private   boolean      _isRemoved;
         private   final Collection<RequestState> _allowedStates;
         private   boolean      _stagingDenied;
         private   int          _currentRc;
@@ -766,6 +763,7 @@ public class RequestContainerV5
 	    _pnfsId  = pnfsId ;
 	    _name    = canonicalName ;
 	    _allowedStates = allowedStates ;
+	    _stateCounts.get(_state).increment();
 	}
         //...........................................................
         //
@@ -773,7 +771,8 @@ public class RequestContainerV5
         // at any time.
         //...........................................................
         //
-        // add request is assumed to be synchronized by a higher level.
+        // add request is assumed to be called while holding the
+        // lock of the handler.
         //
         public void addRequest( CellMessage message ){
 
@@ -819,10 +818,8 @@ public class RequestContainerV5
            add(null) ;
         }
 
-        public List<CellMessage> getMessages() {
-            synchronized( _handlerHash ){
-                return new ArrayList<>(_messages);
-            }
+        public synchronized List<CellMessage> getMessages() {
+            return new ArrayList<>(_messages);
         }
 
         public String getPoolCandidate()
@@ -919,9 +916,7 @@ public class RequestContainerV5
         //
         private void clearSteering() {
             if (_waitingFor != null) {
-                synchronized (_messageHash) {
-                  _messageHash.remove(_waitingFor);
-                }
+                _messageHash.remove(_waitingFor);
                 _waitingFor = null;
             }
         }
@@ -938,19 +933,19 @@ public class RequestContainerV5
                                         pool.getName(),
                                         _fileAttributes)
                                 );
-            synchronized( _messageHash ){
+            synchronized( _restoreLock ){
                 if( ( _maxRestore >=0 ) &&
                     ( _messageHash.size() >= _maxRestore ) ) {
                     return false;
                 }
-                sendMessage( cellMessage );
                 if( _waitingFor != null ) {
                     _messageHash.remove(_waitingFor);
                 }
-                _poolMonitor.messageToCostModule( cellMessage ) ;
                 _messageHash.put( _waitingFor = cellMessage.getUOID() , this ) ;
-                _status = "Staging "+ LocalDateTime.now().format(DATE_TIME_FORMAT);
             }
+            sendMessage( cellMessage );
+            _poolMonitor.messageToCostModule( cellMessage ) ;
+            _status = "Staging "+ LocalDateTime.now().format(DATE_TIME_FORMAT);
             return true ;
 	}
 	private void sendPool2PoolRequest(PoolInfo sourcePool, PoolInfo destPool)
@@ -962,15 +957,13 @@ public class RequestContainerV5
 	    CellMessage cellMessage =
                 new CellMessage(new CellPath(destPool.getAddress()), pool2pool);
 
-            synchronized( _messageHash ){
-                sendMessage( cellMessage );
-                _poolMonitor.messageToCostModule( cellMessage ) ;
-                if( _waitingFor != null ) {
-                    _messageHash.remove(_waitingFor);
-                }
-                _messageHash.put( _waitingFor = cellMessage.getUOID() , this ) ;
-                _status = "[P2P "+ LocalDateTime.now().format(DATE_TIME_FORMAT) +"]" ;
+            if( _waitingFor != null ) {
+                _messageHash.remove(_waitingFor);
             }
+            _messageHash.put( _waitingFor = cellMessage.getUOID() , this ) ;
+            sendMessage( cellMessage );
+            _poolMonitor.messageToCostModule( cellMessage ) ;
+            _status = "[P2P "+ LocalDateTime.now().format(DATE_TIME_FORMAT) +"]" ;
 	}
 
         /**
@@ -982,9 +975,9 @@ public class RequestContainerV5
         private void expireRequests()
         {
             /* Access to _messages is controlled by a lock on
-             * _handlerHash.
+             * the handler.
              */
-            synchronized (_handlerHash) {
+            synchronized (this) {
                 long now = System.currentTimeMillis();
                 _nextTtlTimeout = Long.MAX_VALUE;
 
@@ -1004,7 +997,7 @@ public class RequestContainerV5
             }
         }
 
-        private boolean answerRequest(int count) {
+        private synchronized boolean answerRequest(int count) {
             //
             // if there is an error we won't continue ;
             //
@@ -1026,6 +1019,7 @@ public class RequestContainerV5
                 } else {
                     rpm.setFailed(_currentRc, _currentRm);
                 }
+                _selectionLatency.record(TimeUnit.MILLISECONDS.toNanos(m.getLocalAge()));
                 m.revertDirection();
                 sendMessage(m);
                 _poolMonitor.messageToCostModule(m);
@@ -1052,8 +1046,8 @@ public class RequestContainerV5
         private static final int CONTINUE        = 0 ;
         private static final int WAIT            = 1 ;
 
-        private final Deque<Object> _fifo              = new LinkedList<>() ;
-        private boolean    _stateEngineActive;
+        private final Queue<Object> _fifo              = new ConcurrentLinkedQueue<>() ;
+        private final AtomicBoolean _stateEngineActive = new AtomicBoolean();
         private boolean    _forceContinue;
         private boolean    _overwriteCost;
 
@@ -1062,18 +1056,15 @@ public class RequestContainerV5
            public void run(){
               try (CDC ignored = _cdc.restore()) {
                  stateLoop() ;
-              }finally{
-                 synchronized( _fifo ){
-                   _stateEngineActive = false ;
-                 }
+              } catch (RuntimeException | Error e) {
+                 _stateEngineActive.set(false);
+                 throw e;
               }
            }
 
            @Override
            public void runFailed(){
-              synchronized( _fifo ){
-                   _stateEngineActive = false ;
-              }
+              _stateEngineActive.set(false);
            }
 
            @Override
@@ -1082,20 +1073,26 @@ public class RequestContainerV5
            }
         }
         private void add( Object obj ){
-           synchronized( _fifo ){
-               _log.info( "Adding Object : "+obj ) ;
-               _fifo.addFirst(obj) ;
-               if( _stateEngineActive ) {
-                   return;
-               }
-               _log.info( "Starting Engine" ) ;
-               _stateEngineActive = true ;
-               try {
-                   _executor.execute(new FireAndForgetTask(new RunEngine()));
-               } catch (RuntimeException e) {
-                   _stateEngineActive = false;
-                   throw e;
-               }
+           _log.info( "Adding Object : "+obj ) ;
+           _fifo.add(obj) ;
+           startEngine() ;
+        }
+
+        /**
+         * Submits the state engine to the executor unless it is already
+         * active. At most one thread runs the state engine of a handler
+         * at any time.
+         */
+        private void startEngine(){
+           if( !_stateEngineActive.compareAndSet(false, true) ) {
+               return;
+           }
+           _log.info( "Starting Engine" ) ;
+           try {
+               _executor.execute(new FireAndForgetTask(new RunEngine()));
+           } catch (RuntimeException e) {
+               _stateEngineActive.set(false);
+               throw e;
            }
         }
         private void stateLoop(){
@@ -1107,12 +1104,17 @@ public class RequestContainerV5
 
               if( ! _forceContinue ){
 
-                 synchronized( _fifo ){
-                    if( _fifo.size() == 0 ){
-                       _stateEngineActive = false ;
-                       return ;
+                 inputObject = _fifo.poll() ;
+                 if( inputObject == null ){
+                    _stateEngineActive.set(false) ;
+                    //
+                    // An object may have been added after polling but
+                    // before the engine was marked inactive.
+                    //
+                    if( _fifo.isEmpty() || !_stateEngineActive.compareAndSet(false, true) ) {
+                        return;
                     }
-                    inputObject = _fifo.removeLast() ;
+                    continue;
                  }
               }else{
                  inputObject = null ;
@@ -1138,6 +1140,7 @@ public class RequestContainerV5
                   _log.error("Unexpected Exception in state loop for " + _pnfsId, e);
               }
            }
+           _stateEngineActive.set(false) ;
         }
 
         private boolean canStage()
@@ -1152,7 +1155,7 @@ public class RequestContainerV5
             /* Staging is allowed if just one of the requests has
              * permission to stage.
              */
-            for (CellMessage envelope: _messages) {
+            for (CellMessage envelope: getMessages()) {
                 try {
                     PoolMgrSelectReadPoolMsg msg =
                         (PoolMgrSelectReadPoolMsg) envelope.getMessageObject();
@@ -1171,17 +1174,26 @@ public class RequestContainerV5
             return false;
         }
 
+        private void setState(RequestState state)
+        {
+            if (!_isRemoved) {
+                _stateCounts.get(_state).decrement();
+                _stateCounts.get(state).increment();
+            }
+            _state = state;
+        }
+
         private void nextStep(RequestState state, int shouldContinue ){
             if (_currentRc == CacheException.NOT_IN_TRASH ||
                 _currentRc == CacheException.FILE_NOT_FOUND) {
-                _state = RequestState.ST_DONE;
+                setState(RequestState.ST_DONE);
                 _forceContinue = true;
                 _status = "Failed";
                 sendInfoMessage(
                         _currentRc , "Failed "+_currentRm);
             } else {
                 if (state == RequestState.ST_STAGE && !canStage()) {
-                    _state = RequestState.ST_DONE;
+                    setState(RequestState.ST_DONE);
                     _forceContinue = true;
                     _status = "Failed";
                     _log.debug("Subject is not authorized to stage");
@@ -1190,7 +1202,7 @@ public class RequestContainerV5
                     sendInfoMessage(
                             _currentRc , "Permission denied." + _currentRm);
                 } else if (!_allowedStates.contains(state)) {
-                    _state = RequestState.ST_DONE;
+                    setState(RequestState.ST_DONE);
                     _forceContinue = true;
                     _status = "Failed";
                     _log.debug("No permission to perform {}", state);
@@ -1199,7 +1211,7 @@ public class RequestContainerV5
                     sendInfoMessage(_currentRc,
                                     "Permission denied for " + state);
                 } else {
-                    _state = state;
+                    setState(state);
                     _forceContinue = shouldContinue == CONTINUE ;
                     if( _state != RequestState.ST_DONE ){
                         _currentRc = 0 ;
@@ -1324,15 +1336,11 @@ public class RequestContainerV5
 
               case ST_INIT :
                  _log.debug( "stateEngine: case ST_INIT");
-                 synchronized( _selections ){
-
-                    CacheException ce = _selections.get(_pnfsId) ;
-                    if( ce != null ){
-                       setError(ce.getRc(),ce.getMessage());
-                       nextStep(RequestState.ST_DONE , CONTINUE ) ;
-                       return ;
-                    }
-
+                 CacheException ce = _selections.get(_pnfsId) ;
+                 if( ce != null ){
+                    setError(ce.getRc(),ce.getMessage());
+                    nextStep(RequestState.ST_DONE , CONTINUE ) ;
+                    return ;
                  }
 
 
@@ -1646,11 +1654,16 @@ public class RequestContainerV5
 
                     clearSteering();
                     //
-                    // it is essential that we are not within any other
-                    // lock when trying to get the handlerHash lock.
+                    // Once removed, no further requests are added to
+                    // this handler, so the remaining requests can be
+                    // answered.
                     //
-                    synchronized (_handlerHash) {
-                        _handlerHash.remove(_name);
+                    synchronized (this) {
+                        if (!_isRemoved) {
+                            _isRemoved = true;
+                            _handlerHash.remove(_name, this);
+                            _stateCounts.get(_state).decrement();
+                        }
                     }
                     while (answerRequest(MAX_REQUEST_CLUMPING)) {
                         setError(CacheException.OUT_OF_DATE,
@@ -2073,13 +2086,9 @@ public class RequestContainerV5
                         long now = System.currentTimeMillis();
 
                         // Determine which pools to query
-                        List<PoolRequestHandler> list;
-                        synchronized (_handlerHash) {
-                            list = new ArrayList<>(_handlerHash.values());
-                        }
                         Multimap<CellAddressCore, PoolRequestHandler> p2pRequests = ArrayListMultimap.create();
                         Multimap<CellAddressCore, PoolRequestHandler> stageRequests = ArrayListMultimap.create();
-                        for (PoolRequestHandler handler : list) {
+                        for (PoolRequestHandler handler : _handlerHash.values()) {
                             if (handler._started < now - _checkFilePingTimer) {
                                 PoolInfo pool;
                                 switch (handler._state) {
@@ -20,7 +20,6 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
-import io.netty.handler.stream.ChunkedInput;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import org.slf4j.Logger;
@@ -35,6 +34,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FileCorruptedCacheException;
@@ -46,6 +46,8 @@ import dmg.util.HttpException;
 
 import org.dcache.pool.movers.IoMode;
 import org.dcache.pool.movers.NettyTransferService;
+import org.dcache.pool.movers.RepositoryFileRegion;
+import org.dcache.pool.movers.ThrottledChunkedInput;
 import org.dcache.vehicles.FileAttributes;
 
 import static io.netty.handler.codec.http.HttpHeaders.Names.*;
@@ -98,6 +100,13 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
      */
     private NettyTransferService<HttpProtocolInfo>.NettyMoverChannel _writeChannel;
 
+    /**
+     * Identifies the pending task resuming reads suspended for staying
+     * within the bandwidth limits of an upload. Only accessed from the
+     * event loop.
+     */
+    private Object _throttleSuspension;
+
     public HttpPoolRequestHandler(NettyTransferService<HttpProtocolInfo> server, int chunkSize)
     {
         _server = server;
@@ -284,7 +293,7 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
              */
             context.write(new HttpGetResponse(fileSize, file))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-            context.write(read(file, 0, fileSize - 1))
+            context.write(read(context, file, 0, fileSize - 1))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             return context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
         } else if (ranges.size() == 1) {
@@ -295,7 +304,7 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
             context.write(new HttpPartialContentResponse(range.getLower(), range.getUpper(),
                                                          fileSize, buildDigest(file)))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-            context.write(read(file, range.getLower(), range.getUpper()))
+            context.write(read(context, file, range.getLower(), range.getUpper()))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             return context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
         } else {
@@ -323,7 +332,7 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
                 HttpByteRange range = ranges.get(i);
                 context.write(fragmentMarkers[i])
                         .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-                context.write(read(file, range.getLower(), range.getUpper()))
+                context.write(read(context, file, range.getLower(), range.getUpper()))
                         .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             }
             return context.writeAndFlush(new DefaultLastHttpContent(endMarker));
@@ -384,10 +393,13 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
                 while (data.isReadable()) {
                     data.readBytes(_writeChannel, data.readableBytes());
                 }
-                if (content instanceof LastHttpContent) {
+                if (!(content instanceof LastHttpContent)) {
+                    throttleUpload(context, _writeChannel);
+                } else {
                     checkContentHeader(((LastHttpContent) content).trailingHeaders().names(),
                                        asList(CONTENT_LENGTH));
 
+                    _throttleSuspension = null;
                     context.channel().config().setAutoRead(false);
 
                     NettyTransferService<HttpProtocolInfo>.NettyMoverChannel writeChannel = _writeChannel;
@@ -518,26 +530,60 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
 
     /**
      * Read the resources requested in HTTP-request from the pool. Return a
-     * ChunkedInput pointing to the requested portions of the file.
+     * RepositoryFileRegion or a ChunkedInput pointing to the requested
+     * portions of the file.
+     *
+     * A RepositoryFileRegion is sent by the kernel without copying the
+     * data into user space. It is used unless the channel transforms the
+     * data written to it or the mover is bandwidth limited, in which case
+     * the file is read in chunks.
      *
      * Renew the keep-alive heartbeat, meaning that the last transferred time
      * will be updated, resetting the keep-alive timeout.
      *
+     * @param context the context of the channel the data is sent to
      * @param file the mover channel to read from
      * @param lowerRange The lower delimiter of the requested byte range of the
      *                   file
      * @param upperRange The upper delimiter of the requested byte range of the
      *                   file
-     * @return ChunkedInput View upon the file suitable for sending with
-     *         netty and representing the requested parts.
+     * @return View upon the file suitable for sending with netty and
+     *         representing the requested parts.
      */
-    private ChunkedInput read(NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file,
-                              long lowerRange, long upperRange)
+    private Object read(ChannelHandlerContext context,
+                        NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file,
+                        long lowerRange, long upperRange)
     {
         /* need to count position 0 as well */
         long length = (upperRange - lowerRange) + 1;
 
-        return new ReusableChunkedNioFile(file, lowerRange, length, _chunkSize);
+        if (_server.isZeroCopyAllowed(context.channel(), file)) {
+            return new RepositoryFileRegion(file, lowerRange, length);
+        }
+        return new ThrottledChunkedInput<>(new ReusableChunkedNioFile(file, lowerRange, length, _chunkSize), file);
+    }
+
+    /**
+     * Stops reading from the client while the bandwidth limits of the
+     * upload are in debt. Reading is resumed from the event loop unless
+     * reading has been suspended for completing the upload in the
+     * meantime, in which case completing the upload resumes reading.
+     */
+    private void throttleUpload(ChannelHandlerContext context,
+                                NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file)
+    {
+        long delay = file.getThrottleDelay();
+        if (delay > 0 && context.channel().config().isAutoRead()) {
+            Object suspension = new Object();
+            _throttleSuspension = suspension;
+            context.channel().config().setAutoRead(false);
+            context.executor().schedule(() -> {
+                if (_throttleSuspension == suspension) {
+                    _throttleSuspension = null;
+                    context.channel().config().setAutoRead(true);
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+        }
     }
 
     private static String buildDigest(NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file)
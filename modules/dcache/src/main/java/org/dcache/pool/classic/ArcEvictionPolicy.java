@@ -0,0 +1,245 @@
+package org.dcache.pool.classic;
+
+import com.google.common.collect.AbstractIterator;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import diskCacheV111.util.PnfsId;
+
+/**
+ * Adaptive Replacement Cache (ARC) eviction policy.
+ *
+ * Replicas read only once since they became removable are kept in a
+ * recency list T1, replicas read more than once in a frequency list T2.
+ * Evicted replicas are remembered in the ghost lists B1 and B2. A replica
+ * that is added again while remembered in B1 indicates that T1 should have
+ * been larger and vice versa for B2. The target size of T1 adapts
+ * accordingly, and eviction takes from T1 while it exceeds its target and
+ * from T2 otherwise.
+ *
+ * Unlike the original algorithm, sizes are measured in bytes rather than
+ * entries, the lists are ordered by access time, and the ghost lists are
+ * bounded by the number of tracked replicas since the policy does not know
+ * the capacity of the pool.
+ *
+ * T1 and T2 are ConcurrentLruQueues and all modifications of a tracked
+ * replica happen within an atomic operation on a ConcurrentHashMap, thus
+ * reads do not contend for a lock. Only adding and evicting replicas
+ * update the ghost lists under the monitor of the policy.
+ */
+public class ArcEvictionPolicy implements EvictionPolicy
+{
+    private final ConcurrentMap<PnfsId, Entry> _entries = new ConcurrentHashMap<>();
+    private final ConcurrentLruQueue<PnfsId> _t1 = new ConcurrentLruQueue<>();
+    private final ConcurrentLruQueue<PnfsId> _t2 = new ConcurrentLruQueue<>();
+    private final AtomicLong _t1Bytes = new AtomicLong();
+    private final AtomicLong _t2Bytes = new AtomicLong();
+
+    @GuardedBy("this")
+    private final LinkedHashMap<PnfsId, Long> _b1 = new LinkedHashMap<>();
+    @GuardedBy("this")
+    private final LinkedHashMap<PnfsId, Long> _b2 = new LinkedHashMap<>();
+    @GuardedBy("this")
+    private long _b1Bytes;
+    @GuardedBy("this")
+    private long _b2Bytes;
+
+    /** Target size of T1 in bytes. Only modified under the monitor. */
+    private volatile long _p;
+
+    @Override
+    public boolean add(PnfsId id, long size, long accessTime)
+    {
+        AtomicBoolean added = new AtomicBoolean();
+        _entries.computeIfAbsent(id, k -> {
+            Entry entry = new Entry(size, forget(k, size));
+            put(k, entry, accessTime);
+            added.set(true);
+            return entry;
+        });
+        return added.get();
+    }
+
+    @Override
+    public boolean remove(PnfsId id)
+    {
+        return remove(id, false);
+    }
+
+    @Override
+    public boolean evict(PnfsId id)
+    {
+        return remove(id, true);
+    }
+
+    private boolean remove(PnfsId id, boolean evicted)
+    {
+        AtomicBoolean removed = new AtomicBoolean();
+        _entries.computeIfPresent(id, (k, entry) -> {
+            if (entry.frequent) {
+                _t2.remove(k);
+                _t2Bytes.addAndGet(-entry.size);
+            } else {
+                _t1.remove(k);
+                _t1Bytes.addAndGet(-entry.size);
+            }
+            if (evicted) {
+                remember(k, entry);
+            }
+            removed.set(true);
+            return null;
+        });
+        return removed.get();
+    }
+
+    @Override
+    public boolean access(PnfsId id, long accessTime)
+    {
+        AtomicBoolean accessed = new AtomicBoolean();
+        _entries.computeIfPresent(id, (k, entry) -> {
+            accessed.set(true);
+            if (entry.frequent) {
+                _t2.update(k, accessTime);
+                return entry;
+            }
+            _t1.remove(k);
+            _t1Bytes.addAndGet(-entry.size);
+            Entry frequent = new Entry(entry.size, true);
+            put(k, frequent, accessTime);
+            return frequent;
+        });
+        return accessed.get();
+    }
+
+    private void put(PnfsId id, Entry entry, long accessTime)
+    {
+        if (entry.frequent) {
+            _t2.add(id, accessTime);
+            _t2Bytes.addAndGet(entry.size);
+        } else {
+            _t1.add(id, accessTime);
+            _t1Bytes.addAndGet(entry.size);
+        }
+    }
+
+    /**
+     * Removes a replica from the ghost lists and adapts the target size of
+     * T1 if it was found.
+     *
+     * @return true if the replica was remembered, i.e. it belongs in T2
+     */
+    private synchronized boolean forget(PnfsId id, long size)
+    {
+        Long ghost = _b1.remove(id);
+        if (ghost != null) {
+            _b1Bytes -= ghost;
+            long delta = (_b1Bytes > 0) ? Math.max(size, (long) (size * ((double) _b2Bytes / _b1Bytes))) : size;
+            _p = Math.min(_p + delta, _t1Bytes.get() + _t2Bytes.get() + size);
+            return true;
+        }
+
+        ghost = _b2.remove(id);
+        if (ghost != null) {
+            _b2Bytes -= ghost;
+            long delta = (_b2Bytes > 0) ? Math.max(size, (long) (size * ((double) _b1Bytes / _b2Bytes))) : size;
+            _p = Math.max(_p - delta, 0);
+            return true;
+        }
+
+        return false;
+    }
+
+    private synchronized void remember(PnfsId id, Entry entry)
+    {
+        if (entry.frequent) {
+            _b2.put(id, entry.size);
+            _b2Bytes += entry.size;
+        } else {
+            _b1.put(id, entry.size);
+            _b1Bytes += entry.size;
+        }
+
+        int limit = Math.max(_entries.size(), 1);
+        while (_b1.size() > limit) {
+            _b1Bytes -= removeEldest(_b1);
+        }
+        while (_b2.size() > limit) {
+            _b2Bytes -= removeEldest(_b2);
+        }
+    }
+
+    private static long removeEldest(Map<PnfsId, Long> ghosts)
+    {
+        Iterator<Long> iterator = ghosts.values().iterator();
+        long size = iterator.next();
+        iterator.remove();
+        return size;
+    }
+
+    /**
+     * Returns the replicas of T1 while T1 exceeds its target size and those
+     * of T2 otherwise, merging the two lists without copying them.
+     */
+    @Override
+    public Iterable<PnfsId> victims()
+    {
+        return () -> new AbstractIterator<PnfsId>()
+        {
+            private final Iterator<PnfsId> t1 = _t1.iterator();
+            private final Iterator<PnfsId> t2 = _t2.iterator();
+            private final long p = _p;
+            private long t1Bytes = _t1Bytes.get();
+
+            @Override
+            protected PnfsId computeNext()
+            {
+                if (t1.hasNext() && (t1Bytes > p || !t2.hasNext())) {
+                    PnfsId id = t1.next();
+                    Entry entry = _entries.get(id);
+                    if (entry != null) {
+                        t1Bytes -= entry.size;
+                    }
+                    return id;
+                }
+                return t2.hasNext() ? t2.next() : endOfData();
+            }
+        };
+    }
+
+    @Override
+    public int size()
+    {
+        return _entries.size();
+    }
+
+    @Override
+    public long getLru()
+    {
+        long t1 = _t1.getTimeOfLeastRecentlyUsedElement();
+        long t2 = _t2.getTimeOfLeastRecentlyUsedElement();
+        return (t1 > 0 && (_t1Bytes.get() > _p || t2 == 0)) ? t1 : t2;
+    }
+
+    /**
+     * Size of a tracked replica and whether it is in T2.
+     */
+    private static class Entry
+    {
+        private final long size;
+        private final boolean frequent;
+
+        Entry(long size, boolean frequent)
+        {
+            this.size = size;
+            this.frequent = frequent;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.dcache.pool.classic;
+
+/**
+ * Space sweeper using the adaptive replacement (ARC) eviction policy.
+ */
+public class ArcSpaceSweeper extends SpaceSweeper2
+{
+    public ArcSpaceSweeper()
+    {
+        super(new ArcEvictionPolicy());
+    }
+}
@@ -21,11 +21,15 @@ package org.dcache.pool.classic;
 import java.io.File;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.ChecksumFactory;
 import diskCacheV111.util.FileCorruptedCacheException;
 
+import org.dcache.pool.movers.DirectBufferPool;
 import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.util.Checksum;
 
@@ -83,6 +87,34 @@ public interface ChecksumModule
     ChecksumFactory getPreferredChecksumFactory(ReplicaDescriptor handle)
             throws NoSuchAlgorithmException, CacheException;
 
+    /**
+     * Returns checksum factories for all checksums to compute while writing
+     * a file. The first factory is the preferred one as returned by
+     * {@link #getPreferredChecksumFactory}.
+     *
+     * @param handle A replica descriptor
+     * @return A non-empty list of checksum factories
+     * @throws NoSuchAlgorithmException If no suitable checksum algorithm is supported
+     * @throws CacheException If the checksums of the file could not be retrieved
+     */
+    default List<ChecksumFactory> getPreferredChecksumFactories(ReplicaDescriptor handle)
+            throws NoSuchAlgorithmException, CacheException
+    {
+        return Collections.singletonList(getPreferredChecksumFactory(handle));
+    }
+
+    /**
+     * Returns the executor used for computing checksums while files are
+     * written, or null if checksums are to be computed by the writing thread.
+     */
+    Executor getChecksumExecutor();
+
+    /**
+     * Returns the pool of the buffers holding data waiting to be digested
+     * by the checksum executor.
+     */
+    DirectBufferPool getChecksumBufferPool();
+
     /**
      * Applies the post-transfer checksum policy.
      *
@@ -24,11 +24,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import diskCacheV111.util.CacheException;
@@ -42,6 +45,7 @@ import dmg.util.command.Option;
 import dmg.cells.nucleus.AbstractCellComponent;
 import dmg.cells.nucleus.CellCommandListener;
 
+import org.dcache.pool.movers.DirectBufferPool;
 import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
@@ -65,12 +69,36 @@ public class ChecksumModuleV1
     private ChecksumType _defaultChecksumType = ADLER32;
 
     private ChecksumScanner _scanner;
+    private Executor _checksumExecutor;
+    private DirectBufferPool _checksumBufferPool;
 
     public void setChecksumScanner(ChecksumScanner scanner)
     {
         _scanner = scanner;
     }
 
+    public void setChecksumExecutor(Executor executor)
+    {
+        _checksumExecutor = executor;
+    }
+
+    @Override
+    public Executor getChecksumExecutor()
+    {
+        return _checksumExecutor;
+    }
+
+    public void setChecksumBufferPool(DirectBufferPool bufferPool)
+    {
+        _checksumBufferPool = bufferPool;
+    }
+
+    @Override
+    public DirectBufferPool getChecksumBufferPool()
+    {
+        return _checksumBufferPool;
+    }
+
     public synchronized ChecksumType getDefaultChecksumType()
     {
         return _defaultChecksumType;
@@ -368,6 +396,28 @@ public class ChecksumModuleV1
         return ChecksumFactory.getFactory(existingChecksumsByPreference, getDefaultChecksumType());
     }
 
+    @Override
+    public List<ChecksumFactory> getPreferredChecksumFactories(ReplicaDescriptor handle)
+            throws NoSuchAlgorithmException, CacheException
+    {
+        ChecksumFactory preferred = getPreferredChecksumFactory(handle);
+        Set<ChecksumType> types = EnumSet.of(preferred.getType(), getDefaultChecksumType());
+        for (Checksum checksum : handle.getChecksums()) {
+            types.add(checksum.getType());
+        }
+        types.remove(preferred.getType());
+
+        List<ChecksumFactory> factories = new ArrayList<>(types.size() + 1);
+        factories.add(preferred);
+        for (ChecksumType type : types) {
+            try {
+                factories.add(ChecksumFactory.getFactory(type));
+            } catch (NoSuchAlgorithmException ignored) {
+            }
+        }
+        return factories;
+    }
+
     @Override
     public void enforcePostTransferPolicy(
             ReplicaDescriptor handle, Iterable<Checksum> actualChecksums)
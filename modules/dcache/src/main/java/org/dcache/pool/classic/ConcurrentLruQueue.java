@@ -0,0 +1,186 @@
+package org.dcache.pool.classic;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Queue of keys ordered by a timestamp.
+ *
+ * Unlike a TreeSet guarded by a monitor, the queue may be modified and
+ * traversed concurrently. Time stamps are tracked in a ConcurrentHashMap
+ * and the order is maintained by a ConcurrentSkipListSet of immutable
+ * nodes. All modifications of a key happen within an atomic operation on
+ * the map, thus the set holds exactly one node for each key of the map.
+ * Operations on different keys do not block each other and all operations
+ * are O(log n).
+ *
+ * Traversal is weakly consistent: an iterator reflects some state of the
+ * queue at or since its creation. A key moved by {@link #update} during
+ * traversal may be returned again at its new position.
+ */
+class ConcurrentLruQueue<T extends Comparable<T>> implements Iterable<T>
+{
+    private final ConcurrentMap<T, Node<T>> nodes = new ConcurrentHashMap<>();
+
+    private final NavigableSet<Node<T>> queue = new ConcurrentSkipListSet<>();
+
+    /**
+     * Adds {@code key} with the given time stamp unless the key is already
+     * in the queue.
+     *
+     * @return true if the key was added
+     */
+    public boolean add(T key, long time)
+    {
+        AtomicBoolean added = new AtomicBoolean();
+        nodes.computeIfAbsent(key, k -> {
+            Node<T> node = new Node<>(k, time);
+            queue.add(node);
+            added.set(true);
+            return node;
+        });
+        return added.get();
+    }
+
+    /**
+     * Removes {@code key} from the queue.
+     *
+     * @return true if the key was in the queue
+     */
+    public boolean remove(T key)
+    {
+        AtomicBoolean removed = new AtomicBoolean();
+        nodes.computeIfPresent(key, (k, node) -> {
+            queue.remove(node);
+            removed.set(true);
+            return null;
+        });
+        return removed.get();
+    }
+
+    /**
+     * Moves {@code key} to the position of the given time stamp if it is
+     * in the queue.
+     *
+     * @return true if the key was in the queue
+     */
+    public boolean update(T key, long time)
+    {
+        AtomicBoolean updated = new AtomicBoolean();
+        nodes.computeIfPresent(key, (k, node) -> {
+            updated.set(true);
+            if (node.time == time) {
+                return node;
+            }
+            /* Remove first so the set never holds two nodes for the key. */
+            queue.remove(node);
+            Node<T> replacement = new Node<>(k, time);
+            queue.add(replacement);
+            return replacement;
+        });
+        return updated.get();
+    }
+
+    public T getLeastRecentlyUsedElement()
+    {
+        Node<T> node = first();
+        return (node == null) ? null : node.key;
+    }
+
+    public long getTimeOfLeastRecentlyUsedElement()
+    {
+        Node<T> node = first();
+        return (node == null) ? 0 : node.time;
+    }
+
+    private Node<T> first()
+    {
+        Iterator<Node<T>> iterator = queue.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    public int size()
+    {
+        return nodes.size();
+    }
+
+    /**
+     * Returns the keys from least to most recently used.
+     */
+    @Override
+    public Iterator<T> iterator()
+    {
+        Iterator<Node<T>> iterator = queue.iterator();
+        return new Iterator<T>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next()
+            {
+                return iterator.next().key;
+            }
+        };
+    }
+
+    public List<T> values()
+    {
+        List<T> values = new ArrayList<>(nodes.size());
+        for (T key : this) {
+            values.add(key);
+        }
+        return values;
+    }
+
+    /**
+     * Immutable position of a key in the queue. Nodes are ordered by time
+     * and then by key, consistent with equals.
+     */
+    private static class Node<T extends Comparable<T>> implements Comparable<Node<T>>
+    {
+        private final T key;
+        private final long time;
+
+        Node(T key, long time)
+        {
+            this.key = key;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(Node<T> other)
+        {
+            int c = Long.compare(time, other.time);
+            return (c != 0) ? c : key.compareTo(other.key);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            Node<?> other = (Node<?>) o;
+            return time == other.time && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return key.hashCode() * 31 + Long.hashCode(time);
+        }
+    }
+}
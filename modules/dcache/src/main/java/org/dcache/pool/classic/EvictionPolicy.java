@@ -0,0 +1,65 @@
+package org.dcache.pool.classic;
+
+import diskCacheV111.util.PnfsId;
+
+/**
+ * Decides the order in which SpaceSweeper2 evicts removable replicas.
+ *
+ * A policy only tracks replicas that are currently removable. Replicas are
+ * added when they become removable, evicted when the sweeper deletes them
+ * to free space, and removed when they are deleted for any other reason or
+ * become non-removable, e.g. because they were pinned. Policies that learn
+ * from past evictions may remember replicas after they were evicted.
+ *
+ * Implementations must be thread safe. Reads of replicas are frequent,
+ * thus {@link #access} should not contend with other operations.
+ */
+public interface EvictionPolicy
+{
+    /**
+     * Adds a removable replica unless it is already tracked.
+     *
+     * @return true if the replica was added
+     */
+    boolean add(PnfsId id, long size, long accessTime);
+
+    /**
+     * Stops tracking a replica that was not evicted.
+     *
+     * @return true if the replica was tracked
+     */
+    boolean remove(PnfsId id);
+
+    /**
+     * Stops tracking a replica because it was evicted to free space.
+     *
+     * @return true if the replica was tracked
+     */
+    boolean evict(PnfsId id);
+
+    /**
+     * Records a read of a tracked replica.
+     *
+     * @return true if the replica is tracked
+     */
+    boolean access(PnfsId id, long accessTime);
+
+    /**
+     * Returns the tracked replicas in the order in which they should be
+     * evicted. The result is a weakly consistent view, i.e. it may not
+     * reflect changes made during traversal and may return a replica
+     * more than once if it is read during traversal.
+     */
+    Iterable<PnfsId> victims();
+
+    /**
+     * Returns the number of tracked replicas.
+     */
+    int size();
+
+    /**
+     * Returns the last access time of the replica that would be evicted
+     * next, or zero if no replica is tracked.
+     */
+    long getLru();
+}
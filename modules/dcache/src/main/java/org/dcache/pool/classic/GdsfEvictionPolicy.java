@@ -0,0 +1,43 @@
+package org.dcache.pool.classic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.dcache.util.ByteUnit.GiB;
+
+/**
+ * Greedy-Dual-Size-Frequency (GDSF) eviction policy.
+ *
+ * The priority of a replica is its number of reads times the cost of
+ * staging it again divided by its size. The cost of staging a file is
+ * modelled as a fixed overhead, e.g. for mounting and positioning a tape,
+ * plus the size of the file. Small files are thus kept in preference to
+ * large files that are read equally often, as they are expensive to stage
+ * relative to the space they occupy.
+ */
+public class GdsfEvictionPolicy extends PriorityEvictionPolicy
+{
+    /**
+     * Default stage overhead expressed in bytes that could have been
+     * transferred in the time it takes to mount and position a tape.
+     */
+    public static final long DEFAULT_STAGE_OVERHEAD = GiB.toBytes(1L);
+
+    private final long _stageOverhead;
+
+    public GdsfEvictionPolicy()
+    {
+        this(DEFAULT_STAGE_OVERHEAD);
+    }
+
+    public GdsfEvictionPolicy(long stageOverhead)
+    {
+        checkArgument(stageOverhead >= 0, "Stage overhead must not be negative");
+        _stageOverhead = stageOverhead;
+    }
+
+    @Override
+    protected double priority(long frequency, long size)
+    {
+        long bytes = Math.max(size, 1);
+        return frequency * (double) (_stageOverhead + bytes) / bytes;
+    }
+}
@@ -0,0 +1,12 @@
+package org.dcache.pool.classic;
+
+/**
+ * Space sweeper using the Greedy-Dual-Size-Frequency (GDSF) eviction policy.
+ */
+public class GdsfSpaceSweeper extends SpaceSweeper2
+{
+    public GdsfSpaceSweeper()
+    {
+        super(new GdsfEvictionPolicy());
+    }
+}
@@ -12,15 +12,20 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import diskCacheV111.vehicles.JobInfo;
 import java.util.Collection;
 import java.util.stream.Collectors;
 
+import org.dcache.pool.movers.Mover;
 import org.dcache.util.IoPriority;
+import org.dcache.util.TokenBucket;
 
 import static java.util.Arrays.asList;
 import diskCacheV111.util.CacheException;
+import diskCacheV111.util.DiskSpace;
 
 import static com.google.common.collect.Iterables.concat;
 
@@ -32,6 +37,12 @@ public class IoQueueManager {
     private final ImmutableList<MoverRequestScheduler> _queues;
     private final ImmutableMap<String, MoverRequestScheduler> _queuesByName;
 
+    /**
+     * Bandwidth limits by lower case protocol name. Applied in addition to
+     * the limit of the mover queue.
+     */
+    private final ConcurrentMap<String, TokenBucket> _protocolLimits = new ConcurrentHashMap<>();
+
     public IoQueueManager(JobTimeoutManager jobTimeoutManager, String[] names) {
         Map<String,MoverRequestScheduler> queuesByName = new HashMap<>();
         List<MoverRequestScheduler> queues = new ArrayList<>();
@@ -88,7 +99,29 @@ public class IoQueueManager {
 
     public int getOrCreateMover(String queueName, String doorUniqueId, MoverSupplier moverSupplier, IoPriority priority) throws CacheException
     {
-        return getQueueByNameOrDefault(queueName).getOrCreateMover(moverSupplier, doorUniqueId, priority);
+        MoverSupplier supplier = () -> {
+            Mover<?> mover = moverSupplier.createMover();
+            TokenBucket limit = _protocolLimits.get(mover.getProtocolInfo().getProtocol().toLowerCase());
+            if (limit != null) {
+                mover.addBandwidthLimit(limit);
+            }
+            return mover;
+        };
+        return getQueueByNameOrDefault(queueName).getOrCreateMover(supplier, doorUniqueId, priority);
+    }
+
+    /**
+     * Returns the bandwidth limit of the given protocol, creating an
+     * unlimited one if it doesn't exist yet.
+     */
+    public TokenBucket getProtocolBandwidthLimit(String protocol)
+    {
+        return _protocolLimits.computeIfAbsent(protocol.toLowerCase(), key -> new TokenBucket());
+    }
+
+    public Map<String, TokenBucket> getProtocolBandwidthLimits()
+    {
+        return ImmutableMap.copyOf(_protocolLimits);
     }
 
     public void cancel(int jobId) throws NoSuchElementException {
@@ -120,6 +153,14 @@ public class IoQueueManager {
 
     public void printSetup(PrintWriter pw) {
         _queues.forEach(s -> pw.println("mover set max active -queue=" + s.getName() + " " + s.getMaxActiveJobs()));
+        _queues.stream()
+                .filter(s -> s.getBandwidthLimit().isLimited())
+                .forEach(s -> pw.println("mover set bandwidth -queue=" + s.getName() + " " +
+                                         DiskSpace.toUnitString(s.getBandwidthLimit().getRate())));
+        _protocolLimits.entrySet().stream()
+                .filter(e -> e.getValue().isLimited())
+                .forEach(e -> pw.println("mover set bandwidth -protocol=" + e.getKey() + " " +
+                                         DiskSpace.toUnitString(e.getValue().getRate())));
     }
 
     public JobInfo findJob(String client, long id) {
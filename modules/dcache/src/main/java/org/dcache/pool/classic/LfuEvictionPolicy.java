@@ -0,0 +1,17 @@
+package org.dcache.pool.classic;
+
+/**
+ * Least frequently used eviction policy with dynamic aging (LFU-DA).
+ *
+ * Evicts the replica with the fewest reads first, regardless of its size.
+ * Maximizes the byte hit ratio for workloads with a stable set of popular
+ * files.
+ */
+public class LfuEvictionPolicy extends PriorityEvictionPolicy
+{
+    @Override
+    protected double priority(long frequency, long size)
+    {
+        return frequency;
+    }
+}
@@ -0,0 +1,12 @@
+package org.dcache.pool.classic;
+
+/**
+ * Space sweeper using the least frequently used with dynamic aging (LFU-DA) eviction policy.
+ */
+public class LfuSpaceSweeper extends SpaceSweeper2
+{
+    public LfuSpaceSweeper()
+    {
+        super(new LfuEvictionPolicy());
+    }
+}
@@ -0,0 +1,55 @@
+package org.dcache.pool.classic;
+
+import diskCacheV111.util.PnfsId;
+
+/**
+ * Evicts the least recently used replica first.
+ *
+ * Backed by a ConcurrentLruQueue, thus reads do not contend for a lock.
+ */
+public class LruEvictionPolicy implements EvictionPolicy
+{
+    private final ConcurrentLruQueue<PnfsId> _queue = new ConcurrentLruQueue<>();
+
+    @Override
+    public boolean add(PnfsId id, long size, long accessTime)
+    {
+        return _queue.add(id, accessTime);
+    }
+
+    @Override
+    public boolean remove(PnfsId id)
+    {
+        return _queue.remove(id);
+    }
+
+    @Override
+    public boolean evict(PnfsId id)
+    {
+        return _queue.remove(id);
+    }
+
+    @Override
+    public boolean access(PnfsId id, long accessTime)
+    {
+        return _queue.update(id, accessTime);
+    }
+
+    @Override
+    public Iterable<PnfsId> victims()
+    {
+        return _queue;
+    }
+
+    @Override
+    public int size()
+    {
+        return _queue.size();
+    }
+
+    @Override
+    public long getLru()
+    {
+        return _queue.getTimeOfLeastRecentlyUsedElement();
+    }
+}
@@ -1,6 +1,7 @@
 package org.dcache.pool.classic;
 
 import com.google.common.collect.ImmutableMap;
+import org.springframework.beans.factory.annotation.Required;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -18,6 +19,8 @@ import dmg.cells.nucleus.EnvironmentAware;
 import dmg.util.command.Argument;
 import dmg.util.command.Command;
 
+import org.dcache.pool.movers.DirectBufferPool;
+import org.dcache.pool.movers.DirectBufferPoolAware;
 import org.dcache.pool.movers.MoverProtocol;
 import org.dcache.util.Args;
 
@@ -26,6 +29,13 @@ public class MoverMapTransferService extends AbstractMoverProtocolTransferServic
 {
     private final ConcurrentMap<String, Class<? extends MoverProtocol>> _movermap = new ConcurrentHashMap<>();
     private Map<String,Object> _environment;
+    private DirectBufferPool _bufferPool;
+
+    @Required
+    public void setBufferPool(DirectBufferPool bufferPool)
+    {
+        _bufferPool = bufferPool;
+    }
 
     @Override
     public void setEnvironment(Map<String,Object> environment)
@@ -63,6 +73,9 @@ public class MoverMapTransferService extends AbstractMoverProtocolTransferServic
         if (mover instanceof CellArgsAware) {
             ((CellArgsAware)mover).setCellArgs(getArgs());
         }
+        if (mover instanceof DirectBufferPoolAware) {
+            ((DirectBufferPoolAware)mover).setDirectBufferPool(_bufferPool);
+        }
         return mover;
     }
 
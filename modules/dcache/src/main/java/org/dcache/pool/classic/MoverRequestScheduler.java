@@ -7,14 +7,14 @@ import org.slf4j.LoggerFactory;
 import java.io.InterruptedIOException;
 import java.nio.channels.CompletionHandler;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.stream.Collectors;
 
 import diskCacheV111.util.CacheException;
@@ -24,28 +24,34 @@ import diskCacheV111.vehicles.ProtocolInfo;
 
 import dmg.cells.nucleus.CDC;
 
+import org.dcache.commons.stats.LatencyHistogram;
 import org.dcache.pool.movers.Mover;
-import org.dcache.util.AdjustableSemaphore;
 import org.dcache.util.IoPrioritizable;
 import org.dcache.util.IoPriority;
+import org.dcache.util.TokenBucket;
 
 import static org.dcache.pool.classic.IoRequestState.*;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.stream.Collectors.joining;
 
 /**
+ * Queue of movers of a pool.
+ *
+ * There is no dispatcher thread. Movers are started by whichever thread
+ * submits a request or releases a slot by completing a mover. Slots are
+ * counted with an atomic counter, and queued requests are kept in one
+ * concurrent deque per {@link IoPriority}. Requests of higher priority are
+ * always started first; within a priority, requests are started in FIFO
+ * or LIFO order depending on the queue configuration.
  *
  * @since 1.9.11
  */
-public class MoverRequestScheduler implements Runnable {
+public class MoverRequestScheduler {
 
     private static final Logger _log =
             LoggerFactory.getLogger(MoverRequestScheduler.class);
 
-    /**
-     * A worker thread for request queue processing.
-     */
-    private final Thread _worker;
+    private static final IoPriority[] PRIORITIES = IoPriority.values();
 
     /**
      * The name of IoScheduler.
@@ -53,9 +59,19 @@ public class MoverRequestScheduler implements Runnable {
     private final String _name;
 
     /**
-     * request queue.
+     * Queued requests by IoPriority ordinal.
+     */
+    private final Deque<PrioritizedRequest>[] _queues;
+
+    /**
+     * Number of queued requests by IoPriority ordinal.
      */
-    private final BlockingQueue<PrioritizedRequest> _queue;
+    private final AtomicIntegerArray _queued = new AtomicIntegerArray(PRIORITIES.length);
+
+    /**
+     * Whether requests of the same priority are started in FIFO order.
+     */
+    private final boolean _fifo;
 
     private final Map<Integer, PrioritizedRequest> _jobs =
         new ConcurrentHashMap<>(128);
@@ -75,40 +91,50 @@ public class MoverRequestScheduler implements Runnable {
     /**
      * job id generator
      */
-    private int _nextId;
+    private final AtomicInteger _nextId = new AtomicInteger();
 
     /**
      * are we need to shutdown.
      */
     private volatile boolean _shutdown;
 
-    private final AdjustableSemaphore _semaphore = new AdjustableSemaphore();
+    /**
+     * Maximum number of concurrently running movers.
+     */
+    private volatile int _maxActive = 2;
+
+    /**
+     * Number of movers holding a slot.
+     */
+    private final AtomicInteger _active = new AtomicInteger();
+
+    /**
+     * Number of pending calls to {@link #dispatch}. The thread incrementing
+     * the counter from zero starts movers on behalf of all concurrent
+     * callers.
+     */
+    private final AtomicInteger _dispatchRequests = new AtomicInteger();
+
+    /**
+     * Time between queuing a request and starting its mover.
+     */
+    private final LatencyHistogram _dispatchLatency = new LatencyHistogram();
+
+    /**
+     * Bandwidth limit shared by all movers of this queue.
+     */
+    private final TokenBucket _bandwidthLimit = new TokenBucket();
 
+    @SuppressWarnings("unchecked")
     public MoverRequestScheduler(String name, int queueId, boolean fifo)
     {
         _name = name;
         _queueId = queueId;
-
-        /* PriorityBlockinQueue returns the least elements first, that is, the
-         * the highest priority requests have to be first in the ordering.
-         */
-        Comparator<IoPrioritizable> comparator =
-            fifo
-            ? Comparator
-                    .comparing(IoPrioritizable::getPriority)
-                    .reversed()
-                    .thenComparingLong(IoPrioritizable::getCreateTime)
-            : Comparator
-                    .comparing(IoPrioritizable::getPriority)
-                    .thenComparingLong(IoPrioritizable::getCreateTime)
-                    .reversed();
-
-        _queue = new PriorityBlockingQueue<>(16, comparator);
-
-        _semaphore.setMaxPermits(2);
-
-        _worker = new Thread(this, _name);
-        _worker.start();
+        _fifo = fifo;
+        _queues = new Deque[PRIORITIES.length];
+        for (int i = 0; i < _queues.length; i++) {
+            _queues[i] = new ConcurrentLinkedDeque<>();
+        }
     }
 
     /**
@@ -144,11 +170,8 @@ public class MoverRequestScheduler implements Runnable {
             /* If not already queued, submit it.
              */
             if (request.queue()) {
-                if (submit(request)) {
-                    /* There was a free slot in the queue so we submit directly to execution.
-                     */
-                    sendToExecution(request);
-                } else if (_semaphore.getMaxPermits() <= 0) {
+                submit(request);
+                if (_maxActive <= 0) {
                     _log.warn("A task was added to queue '{}', however the queue is not " +
                               "configured to execute any tasks.", _name);
                 }
@@ -165,33 +188,96 @@ public class MoverRequestScheduler implements Runnable {
                                              String doorUniqueId,
                                              IoPriority priority) throws CacheException
     {
+        Mover<?> mover = moverSupplier.createMover();
+        mover.addBandwidthLimit(_bandwidthLimit);
         return new PrioritizedRequest(_queueId << 24 | nextId(),
                                       doorUniqueId,
-                                      moverSupplier.createMover(),
+                                      mover,
                                       priority);
     }
 
-    private synchronized boolean submit(PrioritizedRequest request)
+    private void submit(PrioritizedRequest request)
     {
         if (_jobs.put(request.getId(), request) != null) {
             throw new RuntimeException("Duplicate mover id detected. Please report to support@dcache.org.");
         }
+        int priority = request.getPriority().ordinal();
+        _queues[priority].addLast(request);
+        _queued.incrementAndGet(priority);
+        dispatch();
+    }
+
+    private int nextId() {
+        return _nextId.updateAndGet(id -> (id == 0x00FFFFFF) ? 0 : id + 1);
+    }
+
+    /**
+     * Starts queued movers while there are free slots and the scheduler
+     * has not been shut down.
+     *
+     * Only one thread at a time starts movers; concurrent callers merely
+     * record that another pass is needed. This avoids both blocking and
+     * unbounded recursion when a mover completes synchronously.
+     */
+    private void dispatch()
+    {
+        if (_dispatchRequests.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (!_shutdown && tryAcquireSlot()) {
+                PrioritizedRequest request = poll();
+                if (request == null) {
+                    releaseSlot();
+                    break;
+                }
+                request.started(_dispatchLatency);
+                sendToExecution(request);
+            }
+        } while (_dispatchRequests.decrementAndGet() != 0);
+    }
+
+    private PrioritizedRequest poll()
+    {
+        for (int i = _queues.length - 1; i >= 0; i--) {
+            PrioritizedRequest request = _fifo ? _queues[i].pollFirst() : _queues[i].pollLast();
+            if (request != null) {
+                _queued.decrementAndGet(i);
+                return request;
+            }
+        }
+        return null;
+    }
 
-        if (_semaphore.tryAcquire()) {
+    private boolean remove(PrioritizedRequest request)
+    {
+        int priority = request.getPriority().ordinal();
+        if (_queues[priority].remove(request)) {
+            _queued.decrementAndGet(priority);
             return true;
-        } else {
-            _queue.add(request);
-            return false;
         }
+        return false;
     }
 
-    private synchronized int nextId() {
-        if(_nextId == 0x00FFFFFF) {
-            _nextId = 0;
-        }else{
-            _nextId++;
+    private boolean tryAcquireSlot()
+    {
+        int active;
+        do {
+            active = _active.get();
+            if (active >= _maxActive) {
+                return false;
+            }
+        } while (!_active.compareAndSet(active, active + 1));
+        return true;
+    }
+
+    private void releaseSlot()
+    {
+        if (_active.decrementAndGet() == 0 && _shutdown) {
+            synchronized (this) {
+                notifyAll();
+            }
         }
-        return _nextId;
     }
 
     /**
@@ -199,8 +285,8 @@ public class MoverRequestScheduler implements Runnable {
      *
      * @return number of running jobs.
      */
-    public synchronized int getActiveJobs() {
-        return _jobs.size() - _queue.size();
+    public int getActiveJobs() {
+        return _active.get();
     }
 
     /**
@@ -238,7 +324,7 @@ public class MoverRequestScheduler implements Runnable {
      * @return maximal number of jobs.
      */
     public int getMaxActiveJobs() {
-        return _semaphore.getMaxPermits();
+        return _maxActive;
     }
 
     /**
@@ -247,17 +333,37 @@ public class MoverRequestScheduler implements Runnable {
      * @return number of pending requests.
      */
     public int getQueueSize() {
-        return _queue.size();
+        int size = 0;
+        for (int i = 0; i < _queued.length(); i++) {
+            size += _queued.get(i);
+        }
+        return size;
     }
 
     /**
-     * Get the number of write requests running or waiting to run.
+     * Get the number of requests of the given priority waiting to run.
      */
     public int getCountByPriority(IoPriority priority)
     {
-        return (int)_queue.stream()
-                .filter(r -> r.getPriority() == priority)
-                .count();
+        return _queued.get(priority.ordinal());
+    }
+
+    /**
+     * Get the histogram of the time requests spent in the queue before
+     * their mover was started.
+     */
+    public LatencyHistogram getDispatchLatency()
+    {
+        return _dispatchLatency;
+    }
+
+    /**
+     * Get the bandwidth limit shared by all movers of this queue. The
+     * limit also accounts for the throughput of the queue.
+     */
+    public TokenBucket getBandwidthLimit()
+    {
+        return _bandwidthLimit;
     }
 
     /**
@@ -287,7 +393,7 @@ public class MoverRequestScheduler implements Runnable {
     private void cancel(final PrioritizedRequest request)
     {
         try (CDC ignored = request.getCdc().restore()) {
-            boolean wasQueued = _queue.remove(request);
+            boolean wasQueued = remove(request);
             request.kill();
             if (wasQueued) {
                 /*
@@ -336,7 +442,8 @@ public class MoverRequestScheduler implements Runnable {
      * @param maxJobs
      */
     public void setMaxActiveJobs(int maxJobs) {
-        _semaphore.setMaxPermits(maxJobs);
+        _maxActive = maxJobs;
+        dispatch();
     }
 
     /**
@@ -347,11 +454,15 @@ public class MoverRequestScheduler implements Runnable {
     {
         if (!_shutdown) {
             _shutdown = true;
-            _worker.interrupt();
             _jobs.values().forEach(this::cancel);
 
             _log.info("Waiting for movers on queue '{}' to finish", _name);
-            if (!_semaphore.tryAcquire(_semaphore.getMaxPermits(), 2000L, TimeUnit.MILLISECONDS)) {
+            long deadline = System.currentTimeMillis() + 2000L;
+            long timeout;
+            while (_active.get() > 0 && (timeout = deadline - System.currentTimeMillis()) > 0) {
+                wait(timeout);
+            }
+            if (_active.get() > 0) {
                 // This is often due to a mover not reacting to interrupt or the transfer
                 // doing a lengthy checksum calculation during post processing.
                 String versions =
@@ -365,24 +476,6 @@ public class MoverRequestScheduler implements Runnable {
         }
     }
 
-    @Override
-    public void run() {
-        try {
-            while (!_shutdown) {
-                _semaphore.acquire();
-                try {
-                    final PrioritizedRequest request = _queue.take();
-                    sendToExecution(request);
-                } catch (RuntimeException | Error | InterruptedException e) {
-                    _semaphore.release();
-                    throw e;
-                }
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
     private void sendToExecution(final PrioritizedRequest request) {
         try (CDC ignore = request.getCdc().restore()) {
             request.transfer(
@@ -421,7 +514,8 @@ public class MoverRequestScheduler implements Runnable {
                                             request.done();
                                             _jobs.remove(request.getId());
                                             _moverByRequests.remove(request.getDoorUniqueId());
-                                            _semaphore.release();
+                                            releaseSlot();
+                                            dispatch();
                                         }
                                     });
                         }
@@ -446,6 +540,11 @@ public class MoverRequestScheduler implements Runnable {
          * Transfer start time.
          */
         private long _startTime;
+
+        /**
+         * Time the request was queued as returned by System.nanoTime().
+         */
+        private long _queueTime;
         private Cancellable _cancellable;
         private final String _doorUniqueId;
 
@@ -522,15 +621,23 @@ public class MoverRequestScheduler implements Runnable {
         {
             if (_state == NEW) {
                 _state = QUEUED;
+                _queueTime = System.nanoTime();
                 return true;
             }
             return false;
         }
 
+        public synchronized void started(LatencyHistogram dispatchLatency)
+        {
+            dispatchLatency.record(System.nanoTime() - _queueTime);
+        }
+
         public synchronized void transfer(CompletionHandler<Void,Void> completionHandler) {
             try {
                 if (_state != QUEUED) {
+                    /* Cancelled after being taken from the queue. */
                     completionHandler.failed(new InterruptedException("Transfer cancelled"), null);
+                    return;
                 }
                 _state = RUNNING;
                 _startTime = System.currentTimeMillis();
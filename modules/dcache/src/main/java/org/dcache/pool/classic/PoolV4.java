@@ -39,6 +39,7 @@ import diskCacheV111.repository.CacheRepositoryEntryInfo;
 import diskCacheV111.repository.RepositoryCookie;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.CacheFileAvailable;
+import diskCacheV111.util.DiskSpace;
 import diskCacheV111.util.FileCorruptedCacheException;
 import diskCacheV111.util.FileInCacheException;
 import diskCacheV111.util.FileNotFoundCacheException;
@@ -107,7 +108,9 @@ import org.dcache.pool.repository.StateChangeEvent;
 import org.dcache.pool.repository.StickyRecord;
 import org.dcache.pool.repository.v5.CacheRepositoryV5;
 import org.dcache.util.Args;
+import org.dcache.util.ColumnWriter;
 import org.dcache.util.IoPriority;
+import org.dcache.util.TokenBucket;
 import org.dcache.util.Version;
 import org.dcache.vehicles.FileAttributes;
 
@@ -711,6 +714,7 @@ public class PoolV4
             pw.println("Mover Queue (" + js.getName() + ") "
                        + js.getActiveJobs() + "(" + js.getMaxActiveJobs()
                        + ")/" + js.getQueueSize());
+            pw.println("    Dispatch latency : " + js.getDispatchLatency());
         }
     }
 
@@ -2029,6 +2033,131 @@ public class PoolV4
         }
     }
 
+    @Command(name = "mover set bandwidth",
+            hint = "limit the bandwidth of a mover queue or protocol",
+            description = "Set the maximum aggregate bandwidth of all movers of a mover " +
+                    "queue or of a protocol. Transfers exceeding the limit are slowed " +
+                    "down. A mover subject to both a queue and a protocol limit is " +
+                    "throttled by both.\n\n" +
+                    "The limit applies to movers using the mover channel of the pool " +
+                    "(e.g. xrootd, http and nfs); legacy movers are not throttled.")
+    public class MoverSetBandwidthCommand implements Callable<String>
+    {
+        @Argument(valueSpec = "-|BYTES[k|m|g|t]",
+                usage = "Bandwidth in bytes, kibibytes, mebibytes, gibibytes or tebibytes " +
+                        "per second. If - is specified, the limit is removed.")
+        DiskSpace rate;
+
+        @Option(name = "queue", metaVar = "queueName",
+                usage = "Specify the mover queue name to operate on. If neither " +
+                        "a queue nor a protocol is specified, the default mover queue " +
+                        "is assumed.")
+        String queueName;
+
+        @Option(name = "protocol", metaVar = "name",
+                usage = "Specify the protocol (e.g. xrootd or http) to operate on.")
+        String protocol;
+
+        @Override
+        public String call() throws IllegalArgumentException
+        {
+            checkArgument(queueName == null || protocol == null,
+                          "-queue and -protocol are mutually exclusive");
+            TokenBucket limit;
+            if (protocol != null) {
+                limit = _ioQueue.getProtocolBandwidthLimit(protocol);
+            } else {
+                MoverRequestScheduler js = (queueName == null) ? _ioQueue.getDefaultQueue() : _ioQueue.getQueue(queueName);
+                if (js == null) {
+                    return "Not found : " + queueName;
+                }
+                limit = js.getBandwidthLimit();
+            }
+            limit.setRate(rate.longValue());
+            return "";
+        }
+    }
+
+    @Command(name = "mover queue bandwidth",
+            hint = "show bandwidth limits and throughput",
+            description = "Show the bandwidth limit, the current throughput and the " +
+                    "total number of transferred bytes of every mover queue and of " +
+                    "every protocol with a bandwidth limit. The throughput is the " +
+                    "average since the previous invocation of this command, but over " +
+                    "at least one second.")
+    public class MoverQueueBandwidthCommand implements Callable<String>
+    {
+        @Override
+        public String call()
+        {
+            ColumnWriter writer = new ColumnWriter()
+                    .header("QUEUE").left("queue").space()
+                    .header("PROTOCOL").left("protocol").space()
+                    .header("LIMIT").right("limit").space()
+                    .header("THROUGHPUT").bytes("throughput").space()
+                    .header("TRANSFERRED").bytes("transferred")
+                    .abbreviateBytes(true);
+            for (MoverRequestScheduler js : _ioQueue.getQueues()) {
+                TokenBucket limit = js.getBandwidthLimit();
+                writer.row()
+                        .value("queue", js.getName())
+                        .value("limit", DiskSpace.toUnitString(limit.getRate()))
+                        .value("throughput", (long) limit.getThroughput())
+                        .value("transferred", limit.getTransferred());
+            }
+            for (Map.Entry<String, TokenBucket> e : _ioQueue.getProtocolBandwidthLimits().entrySet()) {
+                TokenBucket limit = e.getValue();
+                writer.row()
+                        .value("protocol", e.getKey())
+                        .value("limit", DiskSpace.toUnitString(limit.getRate()))
+                        .value("throughput", (long) limit.getThroughput())
+                        .value("transferred", limit.getTransferred());
+            }
+            return writer.toString();
+        }
+    }
+
+    @Command(name = "mover queue latency",
+            hint = "show the dispatch latency of the mover queues",
+            description = "Show a summary of the time requests spent waiting in " +
+                    "the mover queues before their mover was started. The summary " +
+                    "includes the number of started movers and the mean, median, " +
+                    "90th and 99th percentile and maximum latency.")
+    public class MoverQueueLatencyCommand implements Callable<String>
+    {
+        @Argument(required = false,
+                usage = "The name of the mover queue. All queues are shown if not specified.")
+        String queueName;
+
+        @Option(name = "reset",
+                usage = "Reset the latency statistics after showing them.")
+        boolean reset;
+
+        @Override
+        public String call() throws NoSuchElementException
+        {
+            Collection<MoverRequestScheduler> queues;
+            if (queueName == null) {
+                queues = _ioQueue.getQueues();
+            } else {
+                MoverRequestScheduler js = _ioQueue.getQueue(queueName);
+                if (js == null) {
+                    throw new NoSuchElementException(queueName);
+                }
+                queues = Collections.singletonList(js);
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (MoverRequestScheduler js : queues) {
+                sb.append(js.getName()).append(" : ").append(js.getDispatchLatency()).append('\n');
+                if (reset) {
+                    js.getDispatchLatency().reset();
+                }
+            }
+            return sb.toString();
+        }
+    }
+
     public Object ac_mover_ls_$_0_1(Args args)
             throws NoSuchElementException, NumberFormatException
     {
@@ -0,0 +1,158 @@
+package org.dcache.pool.classic;
+
+import com.google.common.collect.Iterables;
+
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+import diskCacheV111.util.PnfsId;
+
+/**
+ * Base class for eviction policies that evict the replica with the lowest
+ * priority first, using the Greedy-Dual family of algorithms.
+ *
+ * The priority of a replica is computed from the number of reads and its
+ * size when the replica is added or read, and is offset by an inflation
+ * value. Whenever a replica is evicted, the inflation value is raised to
+ * its priority. Replicas that are no longer read thus age relative to newly
+ * added or recently read replicas, which prevents replicas that were popular
+ * in the past from staying forever. Replicas removed for other reasons,
+ * e.g. because they were pinned, do not affect the inflation value.
+ *
+ * As in ConcurrentLruQueue, all modifications of a replica happen within
+ * an atomic operation on a ConcurrentHashMap and the order is maintained
+ * by a ConcurrentSkipListSet, thus operations on different replicas do not
+ * block each other and the queue may be traversed without copying it.
+ */
+public abstract class PriorityEvictionPolicy implements EvictionPolicy
+{
+    private final ConcurrentMap<PnfsId, Node> _nodes = new ConcurrentHashMap<>();
+    private final NavigableSet<Node> _queue = new ConcurrentSkipListSet<>();
+
+    private final DoubleAccumulator _inflation = new DoubleAccumulator(Math::max, 0);
+    private final AtomicLong _sequence = new AtomicLong();
+
+    /**
+     * Returns the priority of a replica, not counting the inflation value.
+     *
+     * @param frequency the number of reads of the replica, at least one
+     * @param size the size of the replica in bytes
+     */
+    protected abstract double priority(long frequency, long size);
+
+    private Node node(PnfsId id, long size, long frequency, long accessTime)
+    {
+        return new Node(id, size, frequency, accessTime,
+                        _inflation.get() + priority(frequency, size),
+                        _sequence.getAndIncrement());
+    }
+
+    @Override
+    public boolean add(PnfsId id, long size, long accessTime)
+    {
+        AtomicBoolean added = new AtomicBoolean();
+        _nodes.computeIfAbsent(id, k -> {
+            Node node = node(k, size, 1, accessTime);
+            _queue.add(node);
+            added.set(true);
+            return node;
+        });
+        return added.get();
+    }
+
+    @Override
+    public boolean remove(PnfsId id)
+    {
+        AtomicBoolean removed = new AtomicBoolean();
+        _nodes.computeIfPresent(id, (k, node) -> {
+            _queue.remove(node);
+            removed.set(true);
+            return null;
+        });
+        return removed.get();
+    }
+
+    @Override
+    public boolean evict(PnfsId id)
+    {
+        AtomicBoolean evicted = new AtomicBoolean();
+        _nodes.computeIfPresent(id, (k, node) -> {
+            _queue.remove(node);
+            _inflation.accumulate(node.priority);
+            evicted.set(true);
+            return null;
+        });
+        return evicted.get();
+    }
+
+    @Override
+    public boolean access(PnfsId id, long accessTime)
+    {
+        AtomicBoolean accessed = new AtomicBoolean();
+        _nodes.computeIfPresent(id, (k, node) -> {
+            accessed.set(true);
+            /* Remove first so the set never holds two nodes for the replica. */
+            _queue.remove(node);
+            Node replacement = node(k, node.size, node.frequency + 1, accessTime);
+            _queue.add(replacement);
+            return replacement;
+        });
+        return accessed.get();
+    }
+
+    @Override
+    public Iterable<PnfsId> victims()
+    {
+        return Iterables.transform(_queue, node -> node.id);
+    }
+
+    @Override
+    public int size()
+    {
+        return _nodes.size();
+    }
+
+    @Override
+    public long getLru()
+    {
+        Iterator<Node> iterator = _queue.iterator();
+        return iterator.hasNext() ? iterator.next().accessTime : 0;
+    }
+
+    /**
+     * Immutable position of a replica in the queue. Nodes are ordered by
+     * priority and then by the order in which they were created.
+     */
+    private static class Node implements Comparable<Node>
+    {
+        private final PnfsId id;
+        private final long size;
+        private final long frequency;
+        private final long accessTime;
+        private final double priority;
+        private final long sequence;
+
+        Node(PnfsId id, long size, long frequency, long accessTime, double priority, long sequence)
+        {
+            this.id = id;
+            this.size = size;
+            this.frequency = frequency;
+            this.accessTime = accessTime;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Node other)
+        {
+            int c = Double.compare(priority, other.priority);
+            return (c != 0) ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+}
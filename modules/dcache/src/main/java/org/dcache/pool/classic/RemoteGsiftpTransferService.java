@@ -30,6 +30,7 @@ import diskCacheV111.vehicles.transferManager.RemoteGsiftpTransferProtocolInfo;
 
 import dmg.cells.nucleus.CDC;
 
+import org.dcache.pool.movers.DirectBufferPool;
 import org.dcache.pool.movers.MoverProtocol;
 import org.dcache.pool.movers.RemoteGsiftpTransferProtocol;
 import org.dcache.ssl.CanlContextFactory;
@@ -47,6 +48,7 @@ public class RemoteGsiftpTransferService extends AbstractMoverProtocolTransferSe
     private CanlContextFactory sslContextFactory;
     private String[] bannedCiphers;
     private PortRange portRange;
+    private DirectBufferPool bufferPool;
 
     public String[] getBannedCiphers()
     {
@@ -68,6 +70,12 @@ public class RemoteGsiftpTransferService extends AbstractMoverProtocolTransferSe
         this.portRange = portRange;
     }
 
+    @Required
+    public void setBufferPool(DirectBufferPool bufferPool)
+    {
+        this.bufferPool = bufferPool;
+    }
+
     public String getCertificateAuthorityPath()
     {
         return caPath;
@@ -139,7 +147,8 @@ public class RemoteGsiftpTransferService extends AbstractMoverProtocolTransferSe
     {
         MoverProtocol moverProtocol;
         if (info instanceof RemoteGsiftpTransferProtocolInfo) {
-            moverProtocol = new RemoteGsiftpTransferProtocol(getCellEndpoint(), portRange, bannedCiphers, getContextFactory());
+            moverProtocol = new RemoteGsiftpTransferProtocol(getCellEndpoint(), portRange, bannedCiphers,
+                                                            getContextFactory(), bufferPool);
         } else {
             throw new CacheException(27, "Could not create mover for " + info);
         }
@@ -3,17 +3,16 @@ package org.dcache.pool.classic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.PrintWriter;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FileNotInCacheException;
@@ -21,6 +20,8 @@ import diskCacheV111.util.PnfsId;
 import diskCacheV111.vehicles.StorageInfos;
 
 import dmg.cells.nucleus.CellCommandListener;
+import dmg.cells.nucleus.CellInfo;
+import dmg.cells.nucleus.CellInfoProvider;
 import dmg.util.Formats;
 import dmg.util.command.Argument;
 import dmg.util.command.Command;
@@ -32,7 +33,6 @@ import org.dcache.pool.repository.Account;
 import org.dcache.pool.repository.CacheEntry;
 import org.dcache.pool.repository.EntryChangeEvent;
 import org.dcache.pool.repository.EntryState;
-import org.dcache.pool.repository.IllegalTransitionException;
 import org.dcache.pool.repository.Repository;
 import org.dcache.pool.repository.SpaceSweeperPolicy;
 import org.dcache.pool.repository.StateChangeEvent;
@@ -40,18 +40,25 @@ import org.dcache.pool.repository.StateChangeListener;
 import org.dcache.pool.repository.StickyChangeEvent;
 import org.dcache.vehicles.FileAttributes;
 
-import static java.util.Comparator.naturalOrder;
-
+/**
+ * Garbage collector deleting removable replicas when the pool runs out of
+ * space. Replicas are deleted in the order chosen by an EvictionPolicy,
+ * which by default is least recently used first.
+ */
 public class SpaceSweeper2
     implements Runnable, CellCommandListener, StateChangeListener,
-               SpaceSweeperPolicy
+               SpaceSweeperPolicy, CellInfoProvider
 {
     private static final Logger _log = LoggerFactory.getLogger(SpaceSweeper2.class);
 
     private static final DateTimeFormatter ISO8601_FORMAT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault());
 
-    private final LruQueue<PnfsId> _queue = new LruQueue<>();
+    private final EvictionPolicy _policy;
+
+    private final long _started = System.currentTimeMillis();
+    private final LongAdder _evictedFiles = new LongAdder();
+    private final LongAdder _evictedBytes = new LongAdder();
 
     private Repository _repository;
 
@@ -60,6 +67,12 @@ public class SpaceSweeper2
 
     public SpaceSweeper2()
     {
+        this(new LruEvictionPolicy());
+    }
+
+    protected SpaceSweeper2(EvictionPolicy policy)
+    {
+        _policy = policy;
     }
 
     public void setRepository(Repository repository)
@@ -97,20 +110,13 @@ public class SpaceSweeper2
     }
 
     /**
-     * Returns the pnfsid of the eldest removable entry.
-     */
-    private synchronized PnfsId getEldest()
-    {
-        return _queue.getLeastRecentlyUsedElement();
-    }
-
-    /**
-     * Returns the last access time of the eldest removable entry.
+     * Returns the last access time of the removable entry that would be
+     * evicted next.
      */
     @Override
     public long getLru()
     {
-        return _queue.getTimeOfLeastRecentlyUsedElement();
+        return _policy.getLru();
     }
 
     /**
@@ -125,7 +131,7 @@ public class SpaceSweeper2
         }
 
         PnfsId id = entry.getPnfsId();
-        if (_queue.add(id, entry.getLastAccessTime())) {
+        if (_policy.add(id, entry.getReplicaSize(), entry.getLastAccessTime())) {
             _log.debug("Added {} to sweeper", id);
             /* The sweeper thread may be waiting for more files to
              * delete.
@@ -139,7 +145,7 @@ public class SpaceSweeper2
     private synchronized boolean remove(CacheEntry entry)
     {
         PnfsId id = entry.getPnfsId();
-        if (_queue.remove(id)) {
+        if (_policy.remove(id)) {
             _log.debug("Removed {} from sweeper", id);
             return true;
         }
@@ -177,13 +183,15 @@ public class SpaceSweeper2
         }
     }
 
+    /**
+     * Called on every read of a replica, thus does not take the monitor
+     * of the sweeper.
+     */
     @Override
-    public synchronized void accessTimeChanged(EntryChangeEvent event)
+    public void accessTimeChanged(EntryChangeEvent event)
     {
         CacheEntry entry = event.getNewEntry();
-        if (remove(entry)) {
-            add(entry);
-        }
+        _policy.access(entry.getPnfsId(), entry.getLastAccessTime());
     }
 
     @Command(name = "sweeper purge", hint = "Purges all removable files from pool",
@@ -253,12 +261,8 @@ public class SpaceSweeper2
                 throws CacheException, InterruptedException
         {
             StringBuilder sb = new StringBuilder();
-            List<PnfsId> list;
-            synchronized (SpaceSweeper2.this) {
-                list = _queue.values();
-            }
             int i = 0;
-            for (PnfsId id : list) {
+            for (PnfsId id : _policy.victims()) {
                 try {
                     CacheEntry entry = _repository.getEntry(id);
                     if (showVerbose) {
@@ -326,20 +330,26 @@ public class SpaceSweeper2
         }
     }
 
-    private long reclaim(long amount)
+    /**
+     * Selects the removable entries first in line for eviction that together
+     * free at least {@code amount} bytes, or all removable entries if they
+     * are not enough. The entries may change before they are removed, thus
+     * they must be checked again when removing them.
+     */
+    private List<CacheEntry> selectVictims(long amount)
         throws InterruptedException
     {
-        _log.debug("Sweeper tries to reclaim {} bytes.", amount);
-
-        /* We copy the entries into a tmp list to avoid
-         * ConcurrentModificationException.
-         */
-        List<PnfsId> tmpList = _queue.values();
-
-        /* Delete the files.
-         */
-        long deleted = 0;
-        for (PnfsId id: tmpList) {
+        List<CacheEntry> victims = new ArrayList<>();
+        Set<PnfsId> ids = new HashSet<>();
+        long selected = 0;
+        for (PnfsId id : _policy.victims()) {
+            if (selected >= amount) {
+                break;
+            }
+            /* An entry accessed during the traversal may be seen twice. */
+            if (!ids.add(id)) {
+                continue;
+            }
             try {
                 CacheEntry entry = _repository.getEntry(id);
 
@@ -354,25 +364,91 @@ public class SpaceSweeper2
                     continue;
                 }
 
-                long size = entry.getReplicaSize();
-                _log.debug("Sweeper removes {}.", id);
-                _repository.setState(id, EntryState.REMOVED);
-                deleted += size;
-            } catch (IllegalTransitionException | FileNotInCacheException e) {
+                victims.add(entry);
+                selected += entry.getReplicaSize();
+            } catch (FileNotInCacheException e) {
                 /* Normal if file got removed just as we wanted to
                  * remove it ourselves.
                  */
             } catch (CacheException e) {
                 _log.error(e.getMessage());
             }
-            if (deleted >= amount) {
-                break;
+        }
+        return victims;
+    }
+
+    /**
+     * Tells the policy that a victim is evicted if it is still unused and
+     * removable. Called with the entry locked, i.e. before the repository
+     * announces the removal, thus the policy does not mistake the eviction
+     * for an ordinary removal.
+     */
+    private boolean evict(CacheEntry entry)
+    {
+        if (entry.getLinkCount() > 0 || !isRemovable(entry)) {
+            return false;
+        }
+        _policy.evict(entry.getPnfsId());
+        return true;
+    }
+
+    private long reclaim(long amount)
+        throws InterruptedException
+    {
+        _log.debug("Sweeper tries to reclaim {} bytes.", amount);
+
+        /* The queue is traversed without copying it, and the victims
+         * are selected in a single pass before any of them is deleted.
+         * Each victim is checked again under the lock of the entry, as it
+         * may have been opened, made sticky or precious in the meantime.
+         */
+        List<CacheEntry> victims = selectVictims(amount);
+
+        long deleted = 0;
+        for (CacheEntry entry : victims) {
+            PnfsId id = entry.getPnfsId();
+            try {
+                long size = entry.getReplicaSize();
+                _log.debug("Sweeper removes {}.", id);
+                if (_repository.removeIf(id, this::evict)) {
+                    deleted += size;
+                    _evictedFiles.increment();
+                    _evictedBytes.add(size);
+                } else {
+                    _log.debug("File skipped by sweeper (in use or not removable): {}", id);
+                }
+            } catch (CacheException e) {
+                _log.error(e.getMessage());
             }
         }
 
         return deleted;
     }
 
+    @Override
+    public void getInfo(PrintWriter pw)
+    {
+        long files = _evictedFiles.sum();
+        long bytes = _evictedBytes.sum();
+        double seconds = Math.max(1, System.currentTimeMillis() - _started) / 1000.0;
+        long lru = getLru();
+        pw.println("Sweeper:");
+        pw.println("    Policy          : " + _policy.getClass().getSimpleName());
+        pw.println("    Queue length    : " + _policy.size());
+        if (lru > 0) {
+            pw.println("    LRU age         : " + getTimeString((System.currentTimeMillis() - lru) / 1000L));
+        }
+        pw.println("    Evicted files   : " + files);
+        pw.println("    Evicted bytes   : " + bytes);
+        pw.printf("    Eviction rate   : %.3f files/s, %.0f bytes/s\n", files / seconds, bytes / seconds);
+    }
+
+    @Override
+    public CellInfo getCellInfo(CellInfo info)
+    {
+        return info;
+    }
+
     /**
      * Blocks until the requested space is larger than the free space
      * and removable space exists. Returns the number of requested
@@ -420,67 +496,4 @@ public class SpaceSweeper2
             _repository.removeListener(this);
         }
     }
-
-    /**
-     * Queue of keys ordered by a timestamp.
-     */
-    private static class LruQueue<T extends Comparable<T>>
-    {
-        /**
-         * Tracks the time stamp of each element in the queue.
-         */
-        private final Map<T, Long> timeStamps = new HashMap<>();
-
-        /**
-         * Elements sorted by access time and value.
-         * <p>
-         * The comparator uses {@code timeStamps} to look up the time of keys. A compound comparator is used
-         * to ensure consistency with equals (otherwise two keys with the same time would be collapsed to
-         * a single element in the set).
-         * <p>
-         * Any element inserted into this set must have its access time recorded in {@code timeStamps}
-         * before being inserted into the set. The time must not change while the key is in the set.
-         */
-        private final SortedSet<T> queue =
-                new TreeSet<>(Comparator.<T, Long>comparing(k -> timeStamps.getOrDefault(k, 0L)).thenComparing(naturalOrder()));
-
-        public synchronized boolean add(T key, long time)
-        {
-            if (timeStamps.putIfAbsent(key, time) == null) {
-                queue.add(key);
-                return true;
-            }
-            return false;
-        }
-
-        public synchronized boolean remove(T key)
-        {
-            if (queue.remove(key)) {
-                timeStamps.remove(key);
-                return true;
-            }
-            return false;
-        }
-
-        public synchronized T getLeastRecentlyUsedElement()
-        {
-            if (queue.isEmpty()) {
-                return null;
-            }
-            return queue.first();
-        }
-
-        public synchronized long getTimeOfLeastRecentlyUsedElement()
-        {
-            if (queue.isEmpty()) {
-                return 0;
-            }
-            return timeStamps.get(queue.first());
-        }
-
-        public synchronized List<T> values()
-        {
-            return new ArrayList<>(queue);
-        }
-    }
 }
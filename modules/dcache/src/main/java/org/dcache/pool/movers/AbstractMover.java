@@ -17,7 +17,6 @@
  */
 package org.dcache.pool.movers;
 
-import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.reflect.TypeToken;
@@ -31,7 +30,10 @@ import java.io.InterruptedIOException;
 import java.nio.channels.CompletionHandler;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.ChecksumFactory;
@@ -48,6 +50,7 @@ import org.dcache.pool.classic.TransferService;
 import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.pool.repository.RepositoryChannel;
 import org.dcache.util.Checksum;
+import org.dcache.util.TokenBucket;
 import org.dcache.util.TryCatchTemplate;
 import org.dcache.vehicles.FileAttributes;
 
@@ -74,8 +77,11 @@ public abstract class AbstractMover<P extends ProtocolInfo, M extends AbstractMo
     protected final String _transferPath;
     protected volatile int _errorCode;
     protected volatile String _errorMessage = "";
-    private final ChecksumFactory _checksumFactory;
+    private final List<ChecksumFactory> _checksumFactories;
+    private final Executor _checksumExecutor;
+    private final DirectBufferPool _checksumBufferPool;
     private volatile ChecksumChannel _checksumChannel;
+    private final List<TokenBucket> _bandwidthLimits = new CopyOnWriteArrayList<>();
 
     public AbstractMover(ReplicaDescriptor handle, PoolIoFileMessage message, CellPath pathToDoor,
                          TransferService<M> transferService,
@@ -96,7 +102,9 @@ public abstract class AbstractMover<P extends ProtocolInfo, M extends AbstractMo
         _pathToDoor = pathToDoor;
         _handle = handle;
         _transferService = transferService;
-        _checksumFactory = getChecksumFactoryFor(checksumModule, handle);
+        _checksumFactories = getChecksumFactoriesFor(checksumModule, handle);
+        _checksumExecutor = checksumModule.getChecksumExecutor();
+        _checksumBufferPool = checksumModule.getChecksumBufferPool();
     }
 
     @Override
@@ -132,6 +140,18 @@ public abstract class AbstractMover<P extends ProtocolInfo, M extends AbstractMo
         return _queue;
     }
 
+    @Override
+    public void addBandwidthLimit(TokenBucket limit)
+    {
+        _bandwidthLimits.add(limit);
+    }
+
+    @Override
+    public List<TokenBucket> getBandwidthLimits()
+    {
+        return Collections.unmodifiableList(_bandwidthLimits);
+    }
+
     @Override
     public int getErrorCode()
     {
@@ -255,7 +275,8 @@ public abstract class AbstractMover<P extends ProtocolInfo, M extends AbstractMo
             channel = _handle.createChannel();
             if (getIoMode() == IoMode.WRITE) {
                 try {
-                    channel = _checksumChannel = new ChecksumChannel(channel, _checksumFactory);
+                    channel = _checksumChannel = new ChecksumChannel(channel, _checksumFactories, _checksumExecutor,
+                                                                      _checksumBufferPool);
                 } catch (Throwable t) {
                     /* This should only happen in case of JVM Errors or if the checksum digest cannot be
                      * instantiated (which, barring bugs, should never happen).
@@ -279,7 +300,7 @@ public abstract class AbstractMover<P extends ProtocolInfo, M extends AbstractMo
     public Set<Checksum> getActualChecksums() {
         return (_checksumChannel == null)
                 ? Collections.<Checksum>emptySet()
-                : Optional.fromNullable(_checksumChannel.getChecksum()).asSet();
+                : _checksumChannel.getChecksums();
     }
 
     @Override
@@ -304,10 +325,10 @@ public abstract class AbstractMover<P extends ProtocolInfo, M extends AbstractMo
         return sb.toString();
     }
 
-    private static ChecksumFactory getChecksumFactoryFor(ChecksumModule checksumModule, ReplicaDescriptor handle)
+    private static List<ChecksumFactory> getChecksumFactoriesFor(ChecksumModule checksumModule, ReplicaDescriptor handle)
     {
         try {
-            return checksumModule.getPreferredChecksumFactory(handle);
+            return checksumModule.getPreferredChecksumFactories(handle);
         } catch (NoSuchAlgorithmException | CacheException e) {
             LOGGER.error("Failed to instantiate mover due to unsupported checksum type: " + e.getMessage(), e);
         }
@@ -2,6 +2,8 @@ package org.dcache.pool.movers;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeSet;
 import com.google.common.collect.TreeRangeSet;
@@ -9,11 +11,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -22,15 +33,28 @@ import diskCacheV111.util.ChecksumFactory;
 
 import org.dcache.pool.repository.RepositoryChannel;
 import org.dcache.util.Checksum;
+import org.dcache.util.SequentialExecutor;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.dcache.util.ByteUnit.KiB;
+import static org.dcache.util.ByteUnit.MiB;
 
 /**
  * A wrapper for RepositoryChannel that computes a digest
  * on the fly during write as long as all writes are
  * sequential.
+ *
+ * Several digests may be computed in a single pass over the data.
+ *
+ * If an executor is provided, digests are computed asynchronously: data
+ * extending the contiguous prefix of the file is copied to buffers taken
+ * from the direct buffer pool of the pool and digested by tasks running on
+ * the executor. Tasks of a channel run one at a time in the order of file
+ * offsets. The number of copy buffers of a channel is bounded; writers
+ * block if all of them are waiting to be digested. Closing the channel
+ * waits for all pending tasks.
  */
 public class ChecksumChannel implements RepositoryChannel
 {
@@ -44,19 +68,52 @@ public class ChecksumChannel implements RepositoryChannel
     RepositoryChannel _channel;
 
     /**
-     * Factory object for creating digests.
+     * Size of the buffers to which data is copied for asynchronous
+     * digesting.
      */
-    private final ChecksumFactory _checksumFactory;
+    private static final int COPY_BUFFER_SIZE = KiB.toBytes(256);
 
     /**
-     * Digest used for computing the checksum during write.
+     * Maximum number of copy buffers holding data not yet digested.
      */
-    private final MessageDigest _digest;
+    private static final int MAX_PENDING_BUFFERS = MiB.toBytes(16) / COPY_BUFFER_SIZE;
 
     /**
-     * Cached checksum after getChecksum is called the first time.
+     * Factory objects for creating digests.
      */
-    private Checksum _finalChecksum;
+    private final List<ChecksumFactory> _checksumFactories;
+
+    /**
+     * Digests used for computing the checksums during write.
+     */
+    private final List<MessageDigest> _digests;
+
+    /**
+     * Cached checksums after getChecksum is called the first time.
+     */
+    private List<Checksum> _finalChecksums;
+
+    /**
+     * Executes digest tasks in order, or null if digests are computed
+     * synchronously by the writing thread.
+     */
+    private final Executor _digestExecutor;
+
+    /**
+     * Bounds the number of copy buffers waiting to be digested.
+     */
+    private final Semaphore _pendingBuffers = new Semaphore(MAX_PENDING_BUFFERS);
+
+    /**
+     * Pool from which copy buffers are taken. The pool caps the direct
+     * memory used by all channels and movers of the pool.
+     */
+    private final DirectBufferPool _bufferPool;
+
+    /**
+     * First failure of an asynchronous digest task.
+     */
+    private volatile IOException _digestFailure;
 
     /**
      * RangeSet to keep track of written bytes
@@ -101,9 +158,33 @@ public class ChecksumChannel implements RepositoryChannel
     public ChecksumChannel(RepositoryChannel inner,
                            ChecksumFactory checksumFactory)
     {
+        this(inner, Collections.singletonList(checksumFactory), null, null);
+    }
+
+    /**
+     * @param inner channel to which all operations are delegated
+     * @param checksumFactories factories of the digests to compute; the first
+     *                          one determines the result of {@link #getChecksum}
+     * @param executor executor for computing digests asynchronously, or null
+     *                 to compute them while writing
+     * @param bufferPool pool of the buffers holding data waiting to be digested;
+     *                   required if an executor is given
+     */
+    public ChecksumChannel(RepositoryChannel inner,
+                           List<ChecksumFactory> checksumFactories,
+                           Executor executor,
+                           DirectBufferPool bufferPool)
+    {
+        checkArgument(!checksumFactories.isEmpty(), "At least one checksum factory is required");
+        checkArgument(executor == null || bufferPool != null, "A buffer pool is required for asynchronous digests");
         _channel = inner;
-        _checksumFactory = checksumFactory;
-        _digest = _checksumFactory.create();
+        _checksumFactories = ImmutableList.copyOf(checksumFactories);
+        _digests = new ArrayList<>(checksumFactories.size());
+        for (ChecksumFactory factory : checksumFactories) {
+            _digests.add(factory.create());
+        }
+        _digestExecutor = (executor == null) ? null : new SequentialExecutor(executor);
+        _bufferPool = bufferPool;
     }
 
     @Override
@@ -234,10 +315,25 @@ public class ChecksumChannel implements RepositoryChannel
         return _channel.isOpen();
     }
 
+    /**
+     * Closes the inner channel after all pending digest tasks have
+     * completed.
+     *
+     * @throws IOException if the inner channel could not be closed or if
+     * the checksum calculation failed
+     */
     @Override
     public void close() throws IOException
     {
-        _channel.close();
+        try {
+            awaitDigestTasks();
+        } finally {
+            _channel.close();
+        }
+        IOException failure = _digestFailure;
+        if (failure != null) {
+            throw new IOException("Checksum calculation failed: " + failure.getMessage(), failure);
+        }
     }
 
     @Override
@@ -263,38 +359,81 @@ public class ChecksumChannel implements RepositoryChannel
      * @return final checksum of this channel
      */
     public Checksum getChecksum()
+    {
+        List<Checksum> checksums = getFinalChecksums();
+        return checksums.isEmpty() ? null : checksums.get(0);
+    }
+
+    /**
+     * @return final checksums of this channel, one for each checksum factory
+     */
+    public Set<Checksum> getChecksums()
+    {
+        return ImmutableSet.copyOf(getFinalChecksums());
+    }
+
+    private List<Checksum> getFinalChecksums()
     {
         if (!_isChecksumViable) {
-            return null;
+            return Collections.emptyList();
         }
 
-        if (_finalChecksum == null) {
-            _finalChecksum = finalizeChecksum();
+        Lock lock = _checksumLock.writeLock();
+        lock.lock();
+        try {
+            if (_finalChecksums == null) {
+                _finalChecksums = finalizeChecksums();
+            }
+        } finally {
+            lock.unlock();
         }
-        return _finalChecksum;
+        return _isChecksumViable ? _finalChecksums : Collections.emptyList();
     }
 
     /**
-     * Returns the computed digest or null if overlapping writes have been detected.
+     * Returns the computed digests or an empty list if the checksums could
+     * not be computed. Must be called with the write lock held.
      *
-     * @return Checksum
+     * @return Checksums
      */
-    private Checksum finalizeChecksum() {
-        Lock lock = _checksumLock.writeLock();
-        lock.lock();
+    private List<Checksum> finalizeChecksums() {
         try {
             _isWritable = false;
 
+            awaitDigestTasks();
             if (_dataRangeSet.asRanges().size() != 1 || _fileStartRange.isEmpty()) {
                 feedZerosToDigesterForRangeGaps();
+                awaitDigestTasks();
+            }
+            if (_digestFailure != null) {
+                throw _digestFailure;
             }
 
-            return _checksumFactory.create(_digest.digest());
+            List<Checksum> checksums = new ArrayList<>(_digests.size());
+            for (int i = 0; i < _digests.size(); i++) {
+                checksums.add(_checksumFactories.get(i).create(_digests.get(i).digest()));
+            }
+            return checksums;
         } catch (IOException e) {
             _log.info("Unable to generate checksum of sparse file: {}", e.toString());
-            return null;
-        } finally {
-            lock.unlock();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Waits until all submitted digest tasks have completed.
+     */
+    private void awaitDigestTasks() throws IOException
+    {
+        if (_digestExecutor != null) {
+            try {
+                CompletableFuture.runAsync(() -> {}, _digestExecutor).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for checksum calculation");
+            } catch (ExecutionException e) {
+                throw new IOException("Checksum calculation failed: " + e.getCause(), e.getCause());
+            }
         }
     }
 
@@ -358,20 +497,93 @@ public class ChecksumChannel implements RepositoryChannel
         _fileStartRange = _dataRangeSet.rangeContaining(0L);
         long digestEnd = _fileStartRange.upperEndpoint();
 
-        digestStart += buffer.remaining();
-        _digest.update(buffer);
-        long bytesToRead = digestEnd - digestStart;
+        long readBackStart = digestStart + buffer.remaining();
+        if (_digestExecutor == null) {
+            digest(buffer, readBackStart, digestEnd);
+        } else {
+            while (buffer.hasRemaining()) {
+                DirectBufferPool.PooledBuffer pooled = acquireCopyBuffer();
+                ByteBuffer copy = pooled.buffer();
+                copy.limit(COPY_BUFFER_SIZE);
+                ByteBuffer chunk = buffer.duplicate();
+                chunk.limit(chunk.position() + Math.min(copy.remaining(), chunk.remaining()));
+                copy.put(chunk).flip();
+                buffer.position(chunk.position());
+
+                /* Data written beyond this write is read back after the last chunk. */
+                long end = buffer.hasRemaining() ? readBackStart : digestEnd;
+                try {
+                    _digestExecutor.execute(() -> {
+                        try {
+                            if (_digestFailure == null) {
+                                digest(copy, readBackStart, end);
+                            }
+                        } catch (IOException e) {
+                            _digestFailure = e;
+                        } finally {
+                            releaseCopyBuffer(pooled);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    releaseCopyBuffer(pooled);
+                    throw new IOException("Checksum calculation rejected: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an empty copy buffer, blocking while the maximum number of
+     * buffers of this channel is waiting to be digested.
+     */
+    private DirectBufferPool.PooledBuffer acquireCopyBuffer() throws InterruptedIOException
+    {
+        try {
+            _pendingBuffers.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for checksum calculation");
+        }
+        return _bufferPool.acquire(COPY_BUFFER_SIZE);
+    }
+
+    private void releaseCopyBuffer(DirectBufferPool.PooledBuffer buffer)
+    {
+        buffer.close();
+        _pendingBuffers.release();
+    }
+
+    /**
+     * Updates all digests with the given data followed by data read back
+     * from the inner channel.
+     *
+     * @param buffer data to digest
+     * @param readBackStart position of the first byte to read back
+     * @param readBackEnd position after the last byte to read back
+     */
+    private void digest(ByteBuffer buffer, long readBackStart, long readBackEnd) throws IOException
+    {
+        update(buffer);
+        long bytesToRead = readBackEnd - readBackStart;
         long lastBytesRead;
         for (long totalBytesRead = 0; totalBytesRead < bytesToRead; totalBytesRead += lastBytesRead) {
             _readBackBuffer.clear();
             long limit = Math.min(_readBackBuffer.capacity(), bytesToRead - totalBytesRead);
             _readBackBuffer.limit((int)limit);
-            lastBytesRead = _channel.read(_readBackBuffer, digestStart + totalBytesRead);
+            lastBytesRead = _channel.read(_readBackBuffer, readBackStart + totalBytesRead);
             if (lastBytesRead < 0) {
                 throw new IOException("Checksum: Unexpectedly hit end-of-stream while reading data back from channel.");
             }
             _readBackBuffer.flip();
-            _digest.update(_readBackBuffer);
+            update(_readBackBuffer);
+        }
+    }
+
+    private void update(ByteBuffer buffer)
+    {
+        for (MessageDigest digest : _digests) {
+            digest.update(buffer.duplicate());
         }
+        buffer.position(buffer.limit());
     }
 }
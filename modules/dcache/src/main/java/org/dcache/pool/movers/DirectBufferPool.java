@@ -0,0 +1,312 @@
+package org.dcache.pool.movers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import dmg.cells.nucleus.CellInfo;
+import dmg.cells.nucleus.CellInfoProvider;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.dcache.util.ByteUnit.KiB;
+import static org.dcache.util.ByteUnit.MiB;
+
+/**
+ * Pool of direct ByteBuffers shared by the movers of a pool.
+ *
+ * Buffers are handed out in power of two size classes between 4 KiB and
+ * 4 MiB, thus the capacity of a buffer may exceed the requested size.
+ * Released buffers are kept for reuse. Direct buffers avoid the copy
+ * between heap and native memory that the JDK performs for socket and
+ * file IO on heap buffers.
+ *
+ * The direct memory allocated by the pool is capped. If the cap is
+ * reached, buffers of other size classes are dropped to make room. If
+ * that is not enough, or if a buffer larger than the largest size class
+ * is requested, a heap buffer is returned instead.
+ *
+ * Buffers must be closed once no longer used. Buffers that become
+ * unreachable without being closed are counted as leaks and their
+ * memory is given back to the cap. With leak detection enabled, the
+ * stack trace of where a leaked buffer was acquired is logged.
+ */
+public class DirectBufferPool implements CellInfoProvider
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectBufferPool.class);
+
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 22;
+
+    public static final int MIN_SIZE = KiB.toBytes(4);
+    public static final int MAX_SIZE = MiB.toBytes(4);
+
+    private final Deque<ByteBuffer>[] _free;
+    private final ReferenceQueue<PooledBuffer> _leaked = new ReferenceQueue<>();
+    private final Set<Tracker> _trackers = ConcurrentHashMap.newKeySet();
+
+    /** Direct memory allocated by the pool, whether in use or not. */
+    private final AtomicLong _allocated = new AtomicLong();
+    private final AtomicLong _inUse = new AtomicLong();
+
+    private final LongAdder _acquisitions = new LongAdder();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _fallbacks = new LongAdder();
+    private final LongAdder _leaks = new LongAdder();
+
+    private volatile long _maxMemory;
+    private volatile boolean _leakDetection;
+
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(long maxMemory)
+    {
+        _maxMemory = maxMemory;
+        _free = new Deque[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < _free.length; i++) {
+            _free[i] = new ConcurrentLinkedDeque<>();
+        }
+    }
+
+    public void setMaxMemory(long maxMemory)
+    {
+        checkArgument(maxMemory >= 0, "Memory limit must not be negative");
+        _maxMemory = maxMemory;
+    }
+
+    public long getMaxMemory()
+    {
+        return _maxMemory;
+    }
+
+    public void setLeakDetection(boolean leakDetection)
+    {
+        _leakDetection = leakDetection;
+    }
+
+    public boolean isLeakDetection()
+    {
+        return _leakDetection;
+    }
+
+    /**
+     * Returns a cleared buffer with a capacity of at least {@code size}
+     * bytes.
+     */
+    public PooledBuffer acquire(int size)
+    {
+        checkArgument(size >= 0, "Size must not be negative");
+        expungeLeaks();
+        _acquisitions.increment();
+
+        if (size > MAX_SIZE) {
+            _fallbacks.increment();
+            return new PooledBuffer(ByteBuffer.allocate(size), -1);
+        }
+
+        int index = sizeClass(size);
+        int capacity = 1 << (index + MIN_SHIFT);
+        ByteBuffer buffer = _free[index].pollFirst();
+        if (buffer != null) {
+            _hits.increment();
+        } else if (reserve(capacity)) {
+            _misses.increment();
+            buffer = ByteBuffer.allocateDirect(capacity);
+        } else {
+            _fallbacks.increment();
+            return new PooledBuffer(ByteBuffer.allocate(size), -1);
+        }
+        _inUse.addAndGet(capacity);
+        buffer.clear();
+        return new PooledBuffer(buffer, index);
+    }
+
+    private static int sizeClass(int size)
+    {
+        return Math.max(0, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1) - MIN_SHIFT);
+    }
+
+    /**
+     * Reserves direct memory for a new buffer, dropping pooled buffers if
+     * necessary.
+     */
+    private boolean reserve(int capacity)
+    {
+        while (true) {
+            long allocated = _allocated.get();
+            if (allocated + capacity <= _maxMemory) {
+                if (_allocated.compareAndSet(allocated, allocated + capacity)) {
+                    return true;
+                }
+            } else if (!dropFreeBuffer()) {
+                return false;
+            }
+        }
+    }
+
+    private boolean dropFreeBuffer()
+    {
+        for (int i = _free.length - 1; i >= 0; i--) {
+            ByteBuffer buffer = _free[i].pollLast();
+            if (buffer != null) {
+                _allocated.addAndGet(-buffer.capacity());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void release(ByteBuffer buffer, int index)
+    {
+        _inUse.addAndGet(-buffer.capacity());
+        if (_allocated.get() <= _maxMemory) {
+            buffer.clear();
+            _free[index].offerFirst(buffer);
+        } else {
+            _allocated.addAndGet(-buffer.capacity());
+        }
+    }
+
+    private void expungeLeaks()
+    {
+        Tracker tracker;
+        while ((tracker = (Tracker) _leaked.poll()) != null) {
+            if (_trackers.remove(tracker)) {
+                _leaks.increment();
+                _inUse.addAndGet(-tracker.capacity);
+                _allocated.addAndGet(-tracker.capacity);
+                if (tracker.origin != null) {
+                    LOGGER.warn("Buffer of {} bytes was garbage collected without being released.",
+                                tracker.capacity, tracker.origin);
+                } else {
+                    LOGGER.warn("Buffer of {} bytes was garbage collected without being released. " +
+                                "Enable leak detection to find where it was acquired.", tracker.capacity);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void getInfo(PrintWriter pw)
+    {
+        expungeLeaks();
+        long acquisitions = _acquisitions.sum();
+        pw.println("Direct buffer pool:");
+        pw.println("    Max memory      : " + _maxMemory);
+        pw.println("    Allocated       : " + _allocated.get());
+        pw.println("    In use          : " + _inUse.get());
+        pw.println("    Acquisitions    : " + acquisitions);
+        pw.println("    Hits            : " + _hits.sum());
+        pw.println("    Misses          : " + _misses.sum());
+        pw.println("    Heap fallbacks  : " + _fallbacks.sum());
+        pw.println("    Leaks           : " + _leaks.sum());
+        if (acquisitions > 0) {
+            pw.printf("    Hit ratio       : %.1f%%\n", 100.0 * _hits.sum() / acquisitions);
+        }
+    }
+
+    @Override
+    public CellInfo getCellInfo(CellInfo info)
+    {
+        return info;
+    }
+
+    public long getAllocated()
+    {
+        return _allocated.get();
+    }
+
+    public long getInUse()
+    {
+        return _inUse.get();
+    }
+
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    public long getFallbacks()
+    {
+        return _fallbacks.sum();
+    }
+
+    public long getLeaks()
+    {
+        expungeLeaks();
+        return _leaks.sum();
+    }
+
+    /**
+     * A buffer acquired from the pool. The buffer must not be used after
+     * it has been closed.
+     */
+    public final class PooledBuffer implements AutoCloseable
+    {
+        private final ByteBuffer _buffer;
+        private final int _index;
+        private final Tracker _tracker;
+        private boolean _closed;
+
+        private PooledBuffer(ByteBuffer buffer, int index)
+        {
+            _buffer = buffer;
+            _index = index;
+            if (index >= 0) {
+                _tracker = new Tracker(this, buffer.capacity(),
+                                       _leakDetection ? new Exception("Buffer acquired here") : null);
+                _trackers.add(_tracker);
+            } else {
+                _tracker = null;
+            }
+        }
+
+        public ByteBuffer buffer()
+        {
+            return _buffer;
+        }
+
+        /**
+         * Returns the buffer to the pool. Closing a buffer more than once
+         * has no effect.
+         */
+        @Override
+        public synchronized void close()
+        {
+            if (!_closed) {
+                _closed = true;
+                if (_tracker != null && _trackers.remove(_tracker)) {
+                    _tracker.clear();
+                    release(_buffer, _index);
+                }
+            }
+        }
+    }
+
+    private class Tracker extends PhantomReference<PooledBuffer>
+    {
+        private final int capacity;
+        private final Exception origin;
+
+        Tracker(PooledBuffer buffer, int capacity, Exception origin)
+        {
+            super(buffer, _leaked);
+            this.capacity = capacity;
+            this.origin = origin;
+        }
+    }
+}
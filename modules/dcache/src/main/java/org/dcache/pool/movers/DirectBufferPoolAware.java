@@ -0,0 +1,13 @@
+package org.dcache.pool.movers;
+
+/**
+ * The class that implements this interface takes its IO buffers from the
+ * direct buffer pool of the pool it runs on.
+ */
+public interface DirectBufferPoolAware
+{
+    /**
+     * Injects the buffer pool of the pool.
+     */
+    void setDirectBufferPool(DirectBufferPool bufferPool);
+}
@@ -20,6 +20,7 @@ package org.dcache.pool.movers;
 import javax.security.auth.Subject;
 
 import java.nio.channels.CompletionHandler;
+import java.util.List;
 import java.util.Set;
 
 import diskCacheV111.vehicles.ProtocolInfo;
@@ -29,6 +30,7 @@ import dmg.cells.nucleus.CellPath;
 import org.dcache.pool.classic.Cancellable;
 import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.util.Checksum;
+import org.dcache.util.TokenBucket;
 import org.dcache.vehicles.FileAttributes;
 
 /**
@@ -142,6 +144,17 @@ public interface Mover<T extends ProtocolInfo>
      */
     String getTransferPath();
 
+    /**
+     * Adds a bandwidth limit to the transfer of this mover. Must be called
+     * before the mover is executed.
+     */
+    void addBandwidthLimit(TokenBucket limit);
+
+    /**
+     * Returns the bandwidth limits of the transfer of this mover.
+     */
+    List<TokenBucket> getBandwidthLimits();
+
     /**
      * Initiates the actual transfer phase. The operation is asynchronous. Completion
      * is signaled through the <code>completionHandler</code>.
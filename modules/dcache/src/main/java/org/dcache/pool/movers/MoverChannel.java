@@ -10,6 +10,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import diskCacheV111.vehicles.ProtocolInfo;
@@ -17,6 +19,7 @@ import diskCacheV111.vehicles.ProtocolInfo;
 import org.dcache.pool.repository.Allocator;
 import org.dcache.pool.repository.OutOfDiskException;
 import org.dcache.pool.repository.RepositoryChannel;
+import org.dcache.util.TokenBucket;
 import org.dcache.vehicles.FileAttributes;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -95,13 +98,52 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
      */
     private final AllocatorMode _allocatorMode;
 
+    /**
+     * Token buckets charged for every transferred byte.
+     */
+    private final List<TokenBucket> _bandwidthLimits;
+
+    /**
+     * Whether exceeding a bandwidth limit blocks the caller. If not, the
+     * caller is expected to consult {@link #getThrottleDelay} and to
+     * defer further transfers.
+     */
+    private final boolean _isThrottleBlocking;
+
+    /**
+     * System.nanoTime() until which further transfers should be deferred.
+     * Only used if throttling is non-blocking.
+     */
+    private final AtomicLong _throttledUntil = new AtomicLong(System.nanoTime());
+
     public MoverChannel(Mover<T> mover, RepositoryChannel channel, AllocatorMode allocatorMode)
     {
-        this(mover.getIoMode(), mover.getFileAttributes(), mover.getProtocolInfo(), channel, mover.getIoHandle(), allocatorMode);
+        this(mover, channel, allocatorMode, true);
+    }
+
+    public MoverChannel(Mover<T> mover, RepositoryChannel channel, AllocatorMode allocatorMode,
+                        boolean isThrottleBlocking)
+    {
+        this(mover.getIoMode(), mover.getFileAttributes(), mover.getProtocolInfo(), channel, mover.getIoHandle(),
+             allocatorMode, mover.getBandwidthLimits(), isThrottleBlocking);
     }
 
     public MoverChannel(IoMode mode, FileAttributes attributes, T protocolInfo,
             RepositoryChannel channel, Allocator allocator, AllocatorMode allocatorMode)
+    {
+        this(mode, attributes, protocolInfo, channel, allocator, allocatorMode, Collections.emptyList());
+    }
+
+    public MoverChannel(IoMode mode, FileAttributes attributes, T protocolInfo,
+            RepositoryChannel channel, Allocator allocator, AllocatorMode allocatorMode,
+            List<TokenBucket> bandwidthLimits)
+    {
+        this(mode, attributes, protocolInfo, channel, allocator, allocatorMode, bandwidthLimits, true);
+    }
+
+    public MoverChannel(IoMode mode, FileAttributes attributes, T protocolInfo,
+            RepositoryChannel channel, Allocator allocator, AllocatorMode allocatorMode,
+            List<TokenBucket> bandwidthLimits, boolean isThrottleBlocking)
     {
         _mode = mode;
         _protocolInfo = protocolInfo;
@@ -109,6 +151,8 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
         _allocator = allocator;
         _fileAttributes = attributes;
         _allocatorMode = allocatorMode;
+        _bandwidthLimits = bandwidthLimits;
+        _isThrottleBlocking = isThrottleBlocking;
     }
 
     @Override
@@ -167,6 +211,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
         try {
             int bytes = _channel.read(dst);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -178,6 +223,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
         try {
             int bytes = _channel.read(buffer, position);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -189,6 +235,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
         try {
             long bytes = _channel.read(dsts, offset, length);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -200,6 +247,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
         try {
             long bytes = _channel.read(dsts);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -212,6 +260,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
             preallocate(position() + src.remaining());
             int bytes = _channel.write(src);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -224,6 +273,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
             preallocate(position + buffer.remaining());
             int bytes = _channel.write(buffer, position);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -241,6 +291,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
 
             long bytes = _channel.write(srcs, offset, length);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -258,6 +309,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
 
             long bytes = _channel.write(srcs);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -269,6 +321,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
         try {
             long bytes = _channel.transferTo(position, count, target);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -281,6 +334,7 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
             preallocate(position + count);
             long bytes = _channel.transferFrom(src, position, count);
             _bytesTransferred.getAndAdd(bytes);
+            throttle(bytes);
             return bytes;
         } finally {
             _lastTransferred.set(System.currentTimeMillis());
@@ -317,6 +371,47 @@ public class MoverChannel<T extends ProtocolInfo> implements RepositoryChannel
         return _reserved;
     }
 
+    /**
+     * Returns whether any bandwidth limit currently applies to this channel.
+     */
+    public boolean isBandwidthLimited()
+    {
+        for (TokenBucket limit : _bandwidthLimits) {
+            if (limit.isLimited()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the time in nanoseconds for which further transfers should
+     * be deferred to stay within the bandwidth limits. Always zero if
+     * throttling blocks the transferring thread.
+     */
+    public long getThrottleDelay()
+    {
+        return Math.max(0, _throttledUntil.get() - System.nanoTime());
+    }
+
+    private void throttle(long bytes) throws InterruptedIOException
+    {
+        if (_isThrottleBlocking) {
+            for (TokenBucket limit : _bandwidthLimits) {
+                limit.consume(bytes);
+            }
+        } else {
+            long delay = 0;
+            for (TokenBucket limit : _bandwidthLimits) {
+                delay = Math.max(delay, limit.charge(bytes));
+            }
+            if (delay > 0) {
+                long until = System.nanoTime() + delay;
+                _throttledUntil.accumulateAndGet(until, (a, b) -> (a - b < 0) ? b : a);
+            }
+        }
+    }
+
     private synchronized void preallocate(long pos)
         throws IOException
     {
@@ -53,6 +53,16 @@ public class MoverChannelDecorator<T extends ProtocolInfo> implements Repository
         return channel.getFileAttributes();
     }
 
+    public boolean isBandwidthLimited()
+    {
+        return channel.isBandwidthLimited();
+    }
+
+    public long getThrottleDelay()
+    {
+        return channel.getThrottleDelay();
+    }
+
     @Override
     public long transferTo(long position, long count, WritableByteChannel target) throws IOException
     {
@@ -85,10 +85,20 @@ public abstract class MoverChannelMover<P extends ProtocolInfo, M extends MoverC
     public synchronized MoverChannel<P> open() throws DiskErrorCacheException
     {
         checkState(_wrappedChannel == null);
-        _wrappedChannel = new MoverChannel<>(this, openChannel(), _allocatorMode);
+        _wrappedChannel = new MoverChannel<>(this, openChannel(), _allocatorMode, isThrottleBlocking());
         return _wrappedChannel;
     }
 
+    /**
+     * Returns whether the MoverChannel of this mover blocks the calling
+     * thread when exceeding a bandwidth limit. Movers driven by a shared
+     * event loop must not block and return false.
+     */
+    protected boolean isThrottleBlocking()
+    {
+        return true;
+    }
+
     /**
      * Get the MoverChannel for the replica of this mover.
      *
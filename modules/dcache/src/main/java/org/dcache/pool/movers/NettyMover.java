@@ -51,4 +51,14 @@ public class NettyMover<P extends ProtocolInfo> extends MoverChannelMover<P, Net
     {
         return uuid;
     }
+
+    /**
+     * Netty movers run on the event loop shared with other movers and thus
+     * defer transfers rather than sleep when exceeding a bandwidth limit.
+     */
+    @Override
+    protected boolean isThrottleBlocking()
+    {
+        return false;
+    }
 }
@@ -31,6 +31,7 @@ import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -140,6 +141,9 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
     /** Communication stub for talking to doors. */
     protected CellStub doorStub;
 
+    /** Whether file contents may be sent without copying them to user space. */
+    private boolean zeroCopy = true;
+
     public NettyTransferService(String name)
     {
         this.name = name;
@@ -215,6 +219,33 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
     }
 
 
+    public boolean isZeroCopy()
+    {
+        return zeroCopy;
+    }
+
+    public void setZeroCopy(boolean zeroCopy)
+    {
+        this.zeroCopy = zeroCopy;
+    }
+
+    /**
+     * Returns whether the contents of {@code file} may be written to
+     * {@code channel} as a RepositoryFileRegion rather than in chunks read
+     * into buffers.
+     *
+     * This is only the case if zero copy is enabled and the pipeline does
+     * not transform the data written to the socket, e.g. by encrypting it.
+     * Nor is it the case for bandwidth limited movers, as a file region is
+     * written in one go and cannot be paused without blocking the event
+     * loop.
+     */
+    public boolean isZeroCopyAllowed(Channel channel, NettyMoverChannel file)
+    {
+        return zeroCopy && channel.pipeline().get(SslHandler.class) == null &&
+               !file.isBandwidthLimited();
+    }
+
     @Required
     public void setDoorStub(CellStub stub)
     {
@@ -148,14 +148,16 @@ public class RemoteGsiftpTransferProtocol
     private final PortRange _portRange;
     private final String[] _bannedCiphers;
     private final SslContextFactory _sslContextFactory;
+    private final DirectBufferPool _bufferPool;
 
     public RemoteGsiftpTransferProtocol(CellEndpoint cell, PortRange portRange, String[] bannedCiphers,
-                                        SslContextFactory sslContextFactory)
+                                        SslContextFactory sslContextFactory, DirectBufferPool bufferPool)
     {
         _cell = cell;
         _portRange = portRange;
         _bannedCiphers = bannedCiphers;
         _sslContextFactory = sslContextFactory;
+        _bufferPool = bufferPool;
     }
 
     private void createFtpClient(RemoteGsiftpTransferProtocolInfo protocolInfo)
@@ -330,12 +332,15 @@ public class RemoteGsiftpTransferProtocol
                 return null;
             }
 
-            ByteBuffer buffer = ByteBuffer.allocate(KiB.toBytes(128));
-            _fileChannel.position(_previousUpdateEndOffset);
-            while (_fileChannel.read(buffer) >= 0) {
-                buffer.flip();
-                _transferMessageDigest.update(buffer);
-                buffer.clear();
+            try (DirectBufferPool.PooledBuffer pooled =
+                         _bufferPool.acquire(KiB.toBytes(128))) {
+                ByteBuffer buffer = pooled.buffer();
+                _fileChannel.position(_previousUpdateEndOffset);
+                while (_fileChannel.read(buffer) >= 0) {
+                    buffer.flip();
+                    _transferMessageDigest.update(buffer);
+                    buffer.clear();
+                }
             }
 
             return _checksumFactory.create(_transferMessageDigest.digest());
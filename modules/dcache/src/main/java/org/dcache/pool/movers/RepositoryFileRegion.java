@@ -0,0 +1,109 @@
+package org.dcache.pool.movers;
+
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import org.dcache.pool.repository.RepositoryChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Netty FileRegion backed by a RepositoryChannel.
+ *
+ * Netty writes a FileRegion by calling RepositoryChannel#transferTo with
+ * the socket channel as the target, which for plain files ends up in
+ * FileChannel#transferTo. On most platforms this is a sendfile system
+ * call, thus data is sent without being copied into user space.
+ *
+ * Like ReusableChunkedNioFile, releasing the region does not close the
+ * underlying channel, as a single mover channel may serve several
+ * requests.
+ */
+public class RepositoryFileRegion extends AbstractReferenceCounted implements FileRegion
+{
+    private final RepositoryChannel _channel;
+    private final long _position;
+    private final long _count;
+    private long _transferred;
+
+    public RepositoryFileRegion(RepositoryChannel channel, long position, long count)
+    {
+        checkNotNull(channel, "Channel must not be null");
+        checkArgument(position >= 0, "position: %s (expected: 0 or greater)", position);
+        checkArgument(count >= 0, "count: %s (expected: 0 or greater)", count);
+        _channel = channel;
+        _position = position;
+        _count = count;
+    }
+
+    /**
+     * Returns the repository channel. Used for unit testing.
+     */
+    public RepositoryChannel getChannel()
+    {
+        return _channel;
+    }
+
+    @Override
+    public long position()
+    {
+        return _position;
+    }
+
+    @Override
+    public long count()
+    {
+        return _count;
+    }
+
+    @Override
+    public long transfered()
+    {
+        return _transferred;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException
+    {
+        long count = _count - position;
+        if (count < 0 || position < 0) {
+            throw new IllegalArgumentException(
+                    "position out of range: " + position + " (expected: 0 - " + (_count - 1) + ')');
+        }
+        if (count == 0) {
+            return 0L;
+        }
+        long written = _channel.transferTo(_position + position, count, target);
+        if (written > 0) {
+            _transferred += written;
+        } else if (_position + position >= _channel.size()) {
+            throw new IOException("File is shorter than the requested range: " +
+                                  _channel.size() + " < " + (_position + _count));
+        }
+        return written;
+    }
+
+    @Override
+    public RepositoryFileRegion retain()
+    {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public RepositoryFileRegion retain(int increment)
+    {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    protected void deallocate()
+    {
+        /* The channel is owned by the mover. */
+    }
+}
@@ -0,0 +1,62 @@
+package org.dcache.pool.movers;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * ChunkedInput that pauses while the bandwidth limits of a mover are in
+ * debt.
+ *
+ * Rather than blocking the event loop, no chunk is produced while the
+ * mover channel asks for transfers to be deferred. ChunkedWriteHandler
+ * then suspends the transfer and is resumed from a task scheduled on the
+ * event loop once the delay has passed. Other channels served by the same
+ * event loop are thus not affected.
+ *
+ * Must be written through a ChunkedWriteHandler.
+ */
+public class ThrottledChunkedInput<T> implements ChunkedInput<T>
+{
+    private final ChunkedInput<T> _input;
+    private final MoverChannelDecorator<?> _channel;
+
+    public ThrottledChunkedInput(ChunkedInput<T> input, MoverChannelDecorator<?> channel)
+    {
+        _input = checkNotNull(input);
+        _channel = checkNotNull(channel);
+    }
+
+    public ChunkedInput<T> getInput()
+    {
+        return _input;
+    }
+
+    @Override
+    public boolean isEndOfInput() throws Exception
+    {
+        return _input.isEndOfInput();
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        _input.close();
+    }
+
+    @Override
+    public T readChunk(ChannelHandlerContext ctx) throws Exception
+    {
+        long delay = _channel.getThrottleDelay();
+        if (delay > 0 && !_input.isEndOfInput()) {
+            ChunkedWriteHandler handler = (ChunkedWriteHandler) ctx.handler();
+            ctx.executor().schedule(handler::resumeTransfer, delay, TimeUnit.NANOSECONDS);
+            return null;
+        }
+        return _input.readChunk(ctx);
+    }
+}
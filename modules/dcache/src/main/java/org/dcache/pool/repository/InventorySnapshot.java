@@ -0,0 +1,226 @@
+package org.dcache.pool.repository;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import diskCacheV111.util.PnfsId;
+
+/**
+ * Compact binary snapshot of the inventory of a pool.
+ *
+ * A snapshot holds the PNFS ID, state, size, creation time, access time
+ * and sticky records of each replica. It allows the repository to rebuild
+ * space accounting and LRU ordering at startup by reading a single file
+ * sequentially rather than the meta data record of every replica.
+ *
+ * The file consists of a header (magic, version, clean flag, creation time
+ * and number of entries), the entries, and a CRC32 of everything before
+ * it. A snapshot is written to a temporary file which is then atomically
+ * moved into place, thus readers never observe a partially written
+ * snapshot.
+ *
+ * A snapshot is clean if it was written after the repository stopped
+ * modifying meta data, i.e. during shutdown.
+ */
+public class InventorySnapshot
+{
+    private static final int MAGIC = 0x64437376;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final boolean _isClean;
+    private final long _creationTime;
+    private final List<Entry> _entries;
+
+    public InventorySnapshot(Collection<Entry> entries, boolean isClean, long creationTime)
+    {
+        _entries = ImmutableList.copyOf(entries);
+        _isClean = isClean;
+        _creationTime = creationTime;
+    }
+
+    public boolean isClean()
+    {
+        return _isClean;
+    }
+
+    public long getCreationTime()
+    {
+        return _creationTime;
+    }
+
+    public List<Entry> getEntries()
+    {
+        return _entries;
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @throws IOException if the file cannot be read, or is corrupted or
+     *                     of an unsupported version
+     */
+    public static InventorySnapshot read(File file) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(
+                new CheckedInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an inventory snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported inventory snapshot version " + version);
+            }
+            boolean isClean = in.readBoolean();
+            long creationTime = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Inventory snapshot is corrupted");
+            }
+
+            List<Entry> entries = new ArrayList<>(count);
+            EntryState[] states = EntryState.values();
+            for (int i = 0; i < count; i++) {
+                PnfsId id = new PnfsId(in.readUTF());
+                int state = in.readUnsignedByte();
+                if (state >= states.length) {
+                    throw new IOException("Inventory snapshot is corrupted");
+                }
+                long size = in.readLong();
+                long creation = in.readLong();
+                long access = in.readLong();
+                int stickyCount = in.readUnsignedShort();
+                List<StickyRecord> sticky = new ArrayList<>(stickyCount);
+                for (int j = 0; j < stickyCount; j++) {
+                    sticky.add(new StickyRecord(in.readUTF(), in.readLong()));
+                }
+                entries.add(new Entry(id, states[state], size, creation, access, sticky));
+            }
+
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Inventory snapshot checksum mismatch");
+            }
+            return new InventorySnapshot(entries, isClean, creationTime);
+        } catch (EOFException e) {
+            throw new IOException("Inventory snapshot is truncated", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Inventory snapshot is corrupted: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes this snapshot to a file, replacing any existing file.
+     */
+    public void write(File file) throws IOException
+    {
+        File tmp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(_isClean);
+            out.writeLong(_creationTime);
+            out.writeInt(_entries.size());
+            for (Entry entry : _entries) {
+                out.writeUTF(entry.getPnfsId().toString());
+                out.writeByte(entry.getState().ordinal());
+                out.writeLong(entry.getReplicaSize());
+                out.writeLong(entry.getCreationTime());
+                out.writeLong(entry.getLastAccessTime());
+                out.writeShort(entry.getStickyRecords().size());
+                for (StickyRecord record : entry.getStickyRecords()) {
+                    out.writeUTF(record.owner());
+                    out.writeLong(record.expire());
+                }
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * The snapshot of a single replica.
+     */
+    public static class Entry
+    {
+        private final PnfsId _id;
+        private final EntryState _state;
+        private final long _size;
+        private final long _creationTime;
+        private final long _lastAccessTime;
+        private final Collection<StickyRecord> _stickyRecords;
+
+        public Entry(PnfsId id, EntryState state, long size, long creationTime, long lastAccessTime,
+                     Collection<StickyRecord> stickyRecords)
+        {
+            _id = id;
+            _state = state;
+            _size = size;
+            _creationTime = creationTime;
+            _lastAccessTime = lastAccessTime;
+            _stickyRecords = ImmutableList.copyOf(stickyRecords);
+        }
+
+        public PnfsId getPnfsId()
+        {
+            return _id;
+        }
+
+        public EntryState getState()
+        {
+            return _state;
+        }
+
+        public long getReplicaSize()
+        {
+            return _size;
+        }
+
+        public long getCreationTime()
+        {
+            return _creationTime;
+        }
+
+        public long getLastAccessTime()
+        {
+            return _lastAccessTime;
+        }
+
+        public boolean isSticky()
+        {
+            return !_stickyRecords.isEmpty();
+        }
+
+        public Collection<StickyRecord> getStickyRecords()
+        {
+            return _stickyRecords;
+        }
+    }
+}
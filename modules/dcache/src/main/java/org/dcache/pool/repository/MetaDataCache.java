@@ -1,5 +1,7 @@
 package org.dcache.pool.repository;
 
+import com.google.common.collect.ImmutableSet;
+
 import javax.annotation.concurrent.GuardedBy;
 
 import java.io.File;
@@ -8,6 +10,7 @@ import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.DiskErrorCacheException;
@@ -39,6 +42,18 @@ import static org.dcache.pool.repository.EntryState.NEW;
  * listener is called from the thread making the modification and with
  * the MetaDataRecord locked. Care must be taken in the listener to
  * not cause deadlocks or slow down the store.
+ *
+ * Entries may be restored from an inventory snapshot. Restoring an entry
+ * announces it to the listener without reading its record from the inner
+ * store. The record is read on first access, at which point any difference
+ * to the snapshot is announced as a change event.
+ *
+ * In write-behind mode, access time updates of complete replicas are
+ * recorded in memory and only written to the inner store by flush. Such
+ * updates are merely used to order replicas for garbage collection, so
+ * losing the most recent updates on a crash is acceptable, while every
+ * read otherwise causes a write to disk. All other modifications,
+ * in particular state transitions, are written through immediately.
  */
 public class MetaDataCache
     implements MetaDataStore
@@ -51,8 +66,16 @@ public class MetaDataCache
     private final StateChangeListener _stateChangeListener;
     private final FaultListener _faultListener;
 
+    /** Monitors with pending access time updates. */
+    private final Set<Monitor> _dirty = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder _deferredUpdates = new LongAdder();
+    private final LongAdder _flushedUpdates = new LongAdder();
+
     private volatile boolean _isClosed;
 
+    private volatile boolean _isWriteBehind;
+
     /**
      * Constructs a new cache.
      */
@@ -95,6 +118,18 @@ public class MetaDataCache
         private final PnfsId _id;
         private MetaDataRecord _record;
 
+        /**
+         * Snapshot the entry was restored from until the record is read.
+         */
+        @GuardedBy("this")
+        private InventorySnapshot.Entry _snapshot;
+
+        /**
+         * Access time not yet written to the inner store, or zero.
+         * Only modified while holding the monitor.
+         */
+        private volatile long _pendingAccessTime;
+
         private Monitor(PnfsId id)
         {
             _id = id;
@@ -109,17 +144,80 @@ public class MetaDataCache
             assert _entries.get(_id) == this;
             if (_record == null) {
                 _record = _inner.get(_id);
+                InventorySnapshot.Entry snapshot = _snapshot;
+                _snapshot = null;
                 if (_record == null) {
                     _entries.remove(_id, this);
+                    if (snapshot != null) {
+                        CacheEntry restored = new RestoredEntry(this, snapshot);
+                        _stateChangeListener.stateChanged(
+                                new StateChangeEvent(restored, restored, snapshot.getState(), DESTROYED));
+                    }
                     return null;
                 }
-                CacheEntry entry = new CacheEntryImpl(_record);
-                _stateChangeListener.stateChanged(
-                        new StateChangeEvent(entry, entry, NEW, _record.getState()));
+                CacheEntry entry = new CacheEntryImpl(this);
+                if (snapshot == null) {
+                    _stateChangeListener.stateChanged(
+                            new StateChangeEvent(entry, entry, NEW, _record.getState()));
+                } else {
+                    reconcile(new RestoredEntry(this, snapshot), entry);
+                }
             }
             return this;
         }
 
+        /**
+         * Announces the differences between a restored entry and its record.
+         */
+        @GuardedBy("this")
+        private void reconcile(CacheEntry restored, CacheEntry entry)
+        {
+            if (restored.getReplicaSize() != entry.getReplicaSize()) {
+                /* There is no event for size changes. Announcing the restored
+                 * entry as destroyed and the record as new corrects the space
+                 * accounting and covers all other differences.
+                 */
+                _stateChangeListener.stateChanged(
+                        new StateChangeEvent(restored, restored, restored.getState(), DESTROYED));
+                _stateChangeListener.stateChanged(
+                        new StateChangeEvent(entry, entry, NEW, entry.getState()));
+                return;
+            }
+            if (restored.getState() != entry.getState()) {
+                _stateChangeListener.stateChanged(
+                        new StateChangeEvent(restored, entry, restored.getState(), entry.getState()));
+            }
+            if (!ImmutableSet.copyOf(restored.getStickyRecords()).equals(
+                    ImmutableSet.copyOf(entry.getStickyRecords()))) {
+                _stateChangeListener.stickyChanged(new StickyChangeEvent(restored, entry));
+            }
+            if (restored.getLastAccessTime() != entry.getLastAccessTime()) {
+                _stateChangeListener.accessTimeChanged(new EntryChangeEvent(restored, entry));
+            }
+        }
+
+        private synchronized boolean restore(InventorySnapshot.Entry snapshot)
+        {
+            if (_entries.get(_id) != this || _record != null || _snapshot != null) {
+                return false;
+            }
+            _snapshot = snapshot;
+            CacheEntry entry = new RestoredEntry(this, snapshot);
+            _stateChangeListener.stateChanged(
+                    new StateChangeEvent(entry, entry, NEW, snapshot.getState()));
+            return true;
+        }
+
+        private synchronized InventorySnapshot.Entry snapshot()
+        {
+            if (_record == null) {
+                return _snapshot;
+            }
+            return new InventorySnapshot.Entry(_id, _record.getState(), _record.getSize(),
+                                               _record.getCreationTime(), getLastAccessTime(),
+                                               _record.stickyRecords());
+        }
+
         private synchronized MetaDataRecord create()
                 throws CacheException
         {
@@ -164,7 +262,8 @@ public class MetaDataCache
             if (_record.getLinkCount() == 0 && _record.getState() == EntryState.REMOVED) {
                 assert _entries.get(_id) == this;
                 try {
-                    CacheEntry entry = new CacheEntryImpl(_record);
+                    CacheEntry entry = new CacheEntryImpl(this);
+                    _pendingAccessTime = 0;
                     _record.setState(DESTROYED);
                     _inner.remove(_id);
                     _entries.remove(_id);
@@ -185,6 +284,51 @@ public class MetaDataCache
             _entries.remove(_id, this);
         }
 
+        /**
+         * Whether access time updates may be deferred. Only complete
+         * replicas qualify, as for incomplete replicas touch creates the
+         * data file and the access time is part of completing the upload.
+         */
+        @GuardedBy("this")
+        private boolean isWriteBehind()
+        {
+            if (!_isWriteBehind) {
+                return false;
+            }
+            EntryState state = _record.getState();
+            return state == EntryState.CACHED || state == EntryState.PRECIOUS;
+        }
+
+        @GuardedBy("this")
+        private void defer(long time)
+        {
+            _pendingAccessTime = time;
+            _dirty.add(this);
+            _deferredUpdates.increment();
+        }
+
+        /**
+         * Writes a pending access time to the inner store.
+         */
+        private synchronized void flush()
+        {
+            long time = _pendingAccessTime;
+            if (time == 0 || _entries.get(_id) != this || _record == null) {
+                return;
+            }
+            try {
+                _record.setLastAccessTime(time);
+                _pendingAccessTime = 0;
+                _flushedUpdates.increment();
+            } catch (RuntimeException | DiskErrorCacheException e) {
+                _faultListener.faultOccurred(
+                        new FaultEvent("repository", FaultAction.DEAD, "Internal repository error", e));
+            } catch (CacheException e) {
+                _faultListener.faultOccurred(
+                        new FaultEvent("repository", FaultAction.READONLY, "Internal repository error", e));
+            }
+        }
+
         @Override
         public PnfsId getPnfsId()
         {
@@ -248,9 +392,9 @@ public class MetaDataCache
         {
             try {
                 if (_record.getState() != state) {
-                    CacheEntry oldEntry = new CacheEntryImpl(_record);
+                    CacheEntry oldEntry = new CacheEntryImpl(this);
                     _record.setState(state);
-                    CacheEntry newEntry = new CacheEntryImpl(_record);
+                    CacheEntry newEntry = new CacheEntryImpl(this);
                     _stateChangeListener.stateChanged(
                             new StateChangeEvent(oldEntry, newEntry, oldEntry.getState(), newEntry.getState()));
                     destroyIfRemoved();
@@ -304,7 +448,8 @@ public class MetaDataCache
         public long getLastAccessTime()
         {
             try {
-                return _record.getLastAccessTime();
+                long pending = _pendingAccessTime;
+                return (pending != 0) ? pending : _record.getLastAccessTime();
             } catch (RuntimeException e) {
                 _faultListener.faultOccurred(
                         new FaultEvent("repository", FaultAction.DEAD, "Internal repository error", e));
@@ -313,10 +458,15 @@ public class MetaDataCache
         }
 
         @Override
-        public void setLastAccessTime(long time) throws CacheException
+        public synchronized void setLastAccessTime(long time) throws CacheException
         {
             try {
-                _record.setLastAccessTime(time);
+                if (isWriteBehind()) {
+                    defer(time);
+                } else {
+                    _record.setLastAccessTime(time);
+                    _pendingAccessTime = 0;
+                }
             } catch (IllegalArgumentException e) {
                 throw e;
             } catch (RuntimeException | DiskErrorCacheException e) {
@@ -330,9 +480,14 @@ public class MetaDataCache
         public synchronized void touch() throws CacheException
         {
             try {
-                CacheEntry oldEntry = new CacheEntryImpl(_record);
-                _record.touch();
-                CacheEntryImpl newEntry = new CacheEntryImpl(_record);
+                CacheEntry oldEntry = new CacheEntryImpl(this);
+                if (isWriteBehind()) {
+                    defer(System.currentTimeMillis());
+                } else {
+                    _record.touch();
+                    _pendingAccessTime = 0;
+                }
+                CacheEntryImpl newEntry = new CacheEntryImpl(this);
                 _stateChangeListener.accessTimeChanged(new EntryChangeEvent(oldEntry, newEntry));
             } catch (RuntimeException | DiskErrorCacheException e) {
                 _faultListener.faultOccurred(
@@ -393,10 +548,10 @@ public class MetaDataCache
         public synchronized Collection<StickyRecord> removeExpiredStickyFlags() throws CacheException
         {
             try {
-                CacheEntry oldEntry = new CacheEntryImpl(_record);
+                CacheEntry oldEntry = new CacheEntryImpl(this);
                 Collection<StickyRecord> removed = _record.removeExpiredStickyFlags();
                 if (!removed.isEmpty()) {
-                    CacheEntryImpl newEntry = new CacheEntryImpl(_record);
+                    CacheEntryImpl newEntry = new CacheEntryImpl(this);
                     _stateChangeListener.stickyChanged(new StickyChangeEvent(oldEntry, newEntry));
                 }
                 return removed;
@@ -411,10 +566,10 @@ public class MetaDataCache
         public synchronized boolean setSticky(String owner, long validTill, boolean overwrite) throws CacheException
         {
             try {
-                CacheEntry oldEntry = new CacheEntryImpl(_record);
+                CacheEntry oldEntry = new CacheEntryImpl(this);
                 boolean changed = _record.setSticky(owner, validTill, overwrite);
                 if (changed) {
-                    CacheEntryImpl newEntry = new CacheEntryImpl(_record);
+                    CacheEntryImpl newEntry = new CacheEntryImpl(this);
                     _stateChangeListener.stickyChanged(new StickyChangeEvent(oldEntry, newEntry));
                 }
                 return changed;
@@ -500,6 +655,80 @@ public class MetaDataCache
         return Collections.unmodifiableSet(_entries.keySet());
     }
 
+    /**
+     * Restores an entry from an inventory snapshot without reading its
+     * record from the inner store.
+     *
+     * @return true if the entry was restored, false if the entry is not in
+     *         the store or its record has already been read
+     */
+    public boolean restore(InventorySnapshot.Entry snapshot)
+    {
+        Monitor monitor = _entries.get(snapshot.getPnfsId());
+        return monitor != null && monitor.restore(snapshot);
+    }
+
+    /**
+     * Returns the current snapshot of an entry, or null if its record has
+     * neither been read nor restored.
+     */
+    public InventorySnapshot.Entry snapshotOf(PnfsId id)
+    {
+        Monitor monitor = _entries.get(id);
+        return (monitor == null) ? null : monitor.snapshot();
+    }
+
+    /**
+     * Enables or disables write-behind of access time updates. Pending
+     * updates are written by flush, which should be called periodically.
+     */
+    public void setWriteBehind(boolean writeBehind)
+    {
+        _isWriteBehind = writeBehind;
+        if (!writeBehind) {
+            flush();
+        }
+    }
+
+    public boolean isWriteBehind()
+    {
+        return _isWriteBehind;
+    }
+
+    /**
+     * Writes all pending access time updates to the inner store.
+     */
+    public void flush()
+    {
+        for (Monitor monitor : _dirty) {
+            _dirty.remove(monitor);
+            monitor.flush();
+        }
+    }
+
+    public int getPendingUpdates()
+    {
+        return _dirty.size();
+    }
+
+    /**
+     * Returns the number of access time updates that were deferred.
+     */
+    public long getDeferredUpdates()
+    {
+        return _deferredUpdates.sum();
+    }
+
+    /**
+     * Returns the number of deferred access time updates that were
+     * written. Updates of the same replica between two flushes are
+     * coalesced into a single write.
+     */
+    public long getFlushedUpdates()
+    {
+        return _flushedUpdates.sum();
+    }
+
     @Override
     public boolean isOk()
     {
@@ -509,6 +738,7 @@ public class MetaDataCache
     @Override
     public void close()
     {
+        flush();
         _isClosed = true;
         for (Monitor monitor : _entries.values()) {
             monitor.close();
@@ -527,4 +757,90 @@ public class MetaDataCache
     {
         return _inner.getTotalSpace();
     }
+
+    /**
+     * CacheEntry of an entry restored from a snapshot. File attributes are
+     * not part of the snapshot and are read from the store on demand.
+     */
+    private static class RestoredEntry implements CacheEntry
+    {
+        private final Monitor _monitor;
+        private final InventorySnapshot.Entry _snapshot;
+        private volatile FileAttributes _fileAttributes;
+
+        private RestoredEntry(Monitor monitor, InventorySnapshot.Entry snapshot)
+        {
+            _monitor = monitor;
+            _snapshot = snapshot;
+        }
+
+        @Override
+        public PnfsId getPnfsId()
+        {
+            return _snapshot.getPnfsId();
+        }
+
+        @Override
+        public long getReplicaSize()
+        {
+            return _snapshot.getReplicaSize();
+        }
+
+        @Override
+        public FileAttributes getFileAttributes()
+        {
+            FileAttributes attributes = _fileAttributes;
+            if (attributes == null) {
+                try {
+                    MetaDataRecord record = _monitor.get();
+                    if (record == null) {
+                        throw new IllegalStateException("Entry " + getPnfsId() + " no longer exists");
+                    }
+                    _fileAttributes = attributes = record.getFileAttributes();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while reading meta data of " + getPnfsId(), e);
+                } catch (CacheException e) {
+                    throw new IllegalStateException("Failed to read meta data of " + getPnfsId() + ": " + e.getMessage(), e);
+                }
+            }
+            return attributes;
+        }
+
+        @Override
+        public EntryState getState()
+        {
+            return _snapshot.getState();
+        }
+
+        @Override
+        public long getCreationTime()
+        {
+            return _snapshot.getCreationTime();
+        }
+
+        @Override
+        public long getLastAccessTime()
+        {
+            return _snapshot.getLastAccessTime();
+        }
+
+        @Override
+        public int getLinkCount()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean isSticky()
+        {
+            return _snapshot.isSticky();
+        }
+
+        @Override
+        public Collection<StickyRecord> getStickyRecords()
+        {
+            return _snapshot.getStickyRecords();
+        }
+    }
 }
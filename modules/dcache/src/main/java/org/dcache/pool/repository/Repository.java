@@ -3,6 +3,7 @@ package org.dcache.pool.repository;
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FileInCacheException;
@@ -178,6 +179,22 @@ public interface Repository
         throws IllegalTransitionException, IllegalArgumentException,
                InterruptedException, CacheException;
 
+    /**
+     * Removes an entry if it is PRECIOUS, CACHED or BROKEN and satisfies
+     * the given predicate. The predicate is evaluated while holding the
+     * lock of the entry, thus the entry cannot be opened or change state
+     * or sticky flags between the check and the removal.
+     *
+     * @param id a PNFS ID
+     * @param predicate condition for removing the entry
+     * @return true if the entry was removed, false otherwise
+     * @throws IllegalArgumentException if <code>id</code> is null.
+     * @throws InterruptedException if thread was interrupted
+     * @throws CacheException in case of other errors
+     */
+    boolean removeIf(PnfsId id, Predicate<CacheEntry> predicate)
+        throws IllegalArgumentException, InterruptedException, CacheException;
+
     /**
      * Adds a state change listener.
      */
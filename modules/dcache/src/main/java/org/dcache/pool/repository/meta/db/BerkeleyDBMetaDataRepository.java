@@ -50,7 +50,7 @@ public class BerkeleyDBMetaDataRepository
     private static final Logger _log =
         LoggerFactory.getLogger(BerkeleyDBMetaDataRepository.class);
 
-    private static final String DIRECTORY_NAME = "meta";
+    static final String DIRECTORY_NAME = "meta";
 
     private static final String REMOVING_REDUNDANT_META_DATA =
             "Removing redundant meta data for %s.";
@@ -97,10 +97,19 @@ public class BerkeleyDBMetaDataRepository
                                         File directory,
                                         boolean readOnly)
             throws FileNotFoundException, DatabaseException
+    {
+        this(fileStore, directory, DIRECTORY_NAME, readOnly);
+    }
+
+    protected BerkeleyDBMetaDataRepository(FileStore fileStore,
+                                           File directory,
+                                           String name,
+                                           boolean readOnly)
+            throws FileNotFoundException, DatabaseException
     {
         _fileStore = fileStore;
         _readOnly = readOnly;
-        _dir = new File(directory, DIRECTORY_NAME);
+        _dir = new File(directory, name);
 
         if (!_dir.exists()) {
             if (!_dir.mkdir()) {
@@ -127,7 +136,7 @@ public class BerkeleyDBMetaDataRepository
     {
         try {
             _database = new MetaDataRepositoryDatabase(_properties, _dir, _readOnly);
-            _views = new MetaDataRepositoryViews(_database);
+            _views = createViews(_database);
         } catch (EnvironmentFailureException e) {
             throw new CacheException(CacheException.PANIC, "Failed to open Berkeley DB database. When upgrading to " +
                                                            "dCache 2.6, it may be necessary to run the /usr/sbin/dcache-pool-meta-preupgrade utility " +
@@ -136,6 +145,14 @@ public class BerkeleyDBMetaDataRepository
         }
     }
 
+    /**
+     * Creates the views defining the format of the records.
+     */
+    protected MetaDataRepositoryViews createViews(MetaDataRepositoryDatabase database)
+    {
+        return new MetaDataRepositoryViews(database);
+    }
+
     @Override
     public Set<PnfsId> index(IndexOption... options) throws CacheException
     {
@@ -336,6 +353,14 @@ public class BerkeleyDBMetaDataRepository
         return _database.getEnvironment().isValid();
     }
 
+    /**
+     * Flushes all changes to disk.
+     */
+    protected void sync()
+    {
+        _database.getEnvironment().sync();
+    }
+
     public EnvironmentConfig getConfig()
     {
         return _database.getEnvironment().getConfig();
@@ -0,0 +1,70 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.dcache.pool.repository.EntryState;
+import org.dcache.pool.repository.StickyRecord;
+
+/**
+ * Tuple binding for CacheRepositoryEntryState.
+ *
+ * The state is written as a single byte followed by the sticky records.
+ * The byte values are part of the persistent format and must not change.
+ */
+class CacheRepositoryEntryStateBinding extends TupleBinding<CacheRepositoryEntryState>
+{
+    private static final EntryState[] STATES = {
+        EntryState.NEW,
+        EntryState.FROM_CLIENT,
+        EntryState.FROM_STORE,
+        EntryState.FROM_POOL,
+        EntryState.CACHED,
+        EntryState.PRECIOUS,
+        EntryState.BROKEN,
+        EntryState.REMOVED,
+        EntryState.DESTROYED
+    };
+
+    @Override
+    public CacheRepositoryEntryState entryToObject(TupleInput input)
+    {
+        int state = input.readUnsignedByte();
+        if (state >= STATES.length) {
+            throw new IllegalArgumentException("Unknown entry state: " + state);
+        }
+        int count = input.readPackedInt();
+        List<StickyRecord> sticky = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sticky.add(new StickyRecord(input.readString().intern(), input.readPackedLong()));
+        }
+        return new CacheRepositoryEntryState(STATES[state], sticky);
+    }
+
+    @Override
+    public void objectToEntry(CacheRepositoryEntryState object, TupleOutput output)
+    {
+        output.writeUnsignedByte(codeOf(object.getState()));
+        Collection<StickyRecord> sticky = object.stickyRecords();
+        output.writePackedInt(sticky.size());
+        for (StickyRecord record : sticky) {
+            output.writeString(record.owner());
+            output.writePackedLong(record.expire());
+        }
+    }
+
+    private static int codeOf(EntryState state)
+    {
+        for (int i = 0; i < STATES.length; i++) {
+            if (STATES[i] == state) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown entry state: " + state);
+    }
+}
@@ -0,0 +1,141 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.je.DatabaseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.DiskErrorCacheException;
+import diskCacheV111.util.PnfsId;
+
+import org.dcache.pool.repository.FileStore;
+import org.dcache.pool.repository.MetaDataRecord;
+
+/**
+ * BerkeleyDB based MetaDataRepository storing records in a compact
+ * tuple format rather than with Java serialization.
+ *
+ * The database is stored in a subdirectory of the pool directory
+ * called 'meta-compact'.
+ *
+ * If the pool directory contains a database of BerkeleyDBMetaDataRepository
+ * and the migration of its records has not completed yet, then its records
+ * are copied to the new database when the store is initialized. Completion
+ * is recorded by a marker file in the meta-compact directory, which is
+ * only created once all records have been copied and flushed to disk. An
+ * interrupted migration is thus restarted from the beginning on the next
+ * start; copying a record again overwrites the earlier copy. The old
+ * database is left untouched. Pools may also be converted offline using
+ * MetaDataStoreCopyTool.
+ */
+public class CompactBerkeleyDBMetaDataRepository
+    extends BerkeleyDBMetaDataRepository
+{
+    private static final Logger _log =
+        LoggerFactory.getLogger(CompactBerkeleyDBMetaDataRepository.class);
+
+    private static final String DIRECTORY_NAME = "meta-compact";
+
+    private static final String MIGRATED_MARKER = "MIGRATED";
+
+    private final FileStore _fileStore;
+    private final File _poolDir;
+    private final boolean _readOnly;
+    private Map<String, Object> _environment = Collections.emptyMap();
+
+    public CompactBerkeleyDBMetaDataRepository(FileStore fileStore,
+                                               File directory)
+            throws FileNotFoundException, DatabaseException
+    {
+        this(fileStore, directory, false);
+    }
+
+    public CompactBerkeleyDBMetaDataRepository(FileStore fileStore,
+                                               File directory,
+                                               boolean readOnly)
+            throws FileNotFoundException, DatabaseException
+    {
+        super(fileStore, directory, DIRECTORY_NAME, readOnly);
+        _fileStore = fileStore;
+        _poolDir = directory;
+        _readOnly = readOnly;
+    }
+
+    @Override
+    public void setEnvironment(Map<String, Object> environment)
+    {
+        super.setEnvironment(environment);
+        _environment = environment;
+    }
+
+    @Override
+    protected MetaDataRepositoryViews createViews(MetaDataRepositoryDatabase database)
+    {
+        return MetaDataRepositoryViews.compact(database);
+    }
+
+    @Override
+    public void init() throws CacheException
+    {
+        super.init();
+        if (!_readOnly && hasLegacyDatabase() && !getMigratedMarker().exists()) {
+            migrate();
+        }
+    }
+
+    private File getMigratedMarker()
+    {
+        return new File(getPath(), MIGRATED_MARKER);
+    }
+
+    private boolean hasLegacyDatabase()
+    {
+        File[] logs = new File(_poolDir, BerkeleyDBMetaDataRepository.DIRECTORY_NAME)
+                .listFiles((dir, name) -> name.endsWith(".jdb"));
+        return logs != null && logs.length > 0;
+    }
+
+    /**
+     * Copies all records from the database of BerkeleyDBMetaDataRepository
+     * and marks the migration as completed.
+     */
+    private void migrate() throws CacheException
+    {
+        try (BerkeleyDBMetaDataRepository legacy =
+                     new BerkeleyDBMetaDataRepository(_fileStore, _poolDir, true)) {
+            legacy.setEnvironment(_environment);
+            legacy.init();
+
+            Collection<PnfsId> ids = legacy.index(IndexOption.META_ONLY);
+            _log.warn("Migrating {} meta data records from {} to {}.", ids.size(), legacy.getPath(), getPath());
+            int count = 0;
+            for (PnfsId id : ids) {
+                MetaDataRecord entry = legacy.get(id);
+                if (entry != null) {
+                    copy(entry);
+                    count++;
+                }
+            }
+            sync();
+            try {
+                Files.createFile(getMigratedMarker().toPath());
+            } catch (FileAlreadyExistsException ignored) {
+            }
+            _log.warn("Migrated {} meta data records. The directory {} is no longer used and may be deleted.",
+                      count, legacy.getPath());
+        } catch (FileNotFoundException e) {
+            throw new DiskErrorCacheException("Failed to open meta data database: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new DiskErrorCacheException("Failed to mark meta data migration as completed: " + e.getMessage(), e);
+        }
+    }
+}
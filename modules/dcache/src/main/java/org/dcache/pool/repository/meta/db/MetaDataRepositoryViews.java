@@ -1,8 +1,8 @@
 package org.dcache.pool.repository.meta.db;
 
 import com.sleepycat.bind.EntryBinding;
-import com.sleepycat.bind.serial.ClassCatalog;
 import com.sleepycat.bind.serial.SerialBinding;
+import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.collections.StoredMap;
 import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DiskOrderedCursor;
@@ -15,6 +15,10 @@ import diskCacheV111.vehicles.StorageInfo;
 /**
  * MetaDataRepositoryViews encapsulates creation of views into
  * MetaDataRepositoryDatabase.
+ *
+ * Records are either stored using Java serialization with a class
+ * catalog, or in the compact tuple format. The two formats are not
+ * compatible.
  */
 class MetaDataRepositoryViews
 {
@@ -26,15 +30,21 @@ class MetaDataRepositoryViews
     private final EntryBinding<CacheRepositoryEntryState> stateBinding;
 
     public MetaDataRepositoryViews(MetaDataRepositoryDatabase db)
+    {
+        this(db, new SerialBinding<>(db.getClassCatalog(), String.class),
+             new SerialBinding<>(db.getClassCatalog(), StorageInfo.class),
+             new SerialBinding<>(db.getClassCatalog(), CacheRepositoryEntryState.class));
+    }
+
+    private MetaDataRepositoryViews(MetaDataRepositoryDatabase db,
+                                    EntryBinding<String> keyBinding,
+                                    EntryBinding<StorageInfo> storageInfoBinding,
+                                    EntryBinding<CacheRepositoryEntryState> stateBinding)
     {
         this.db = db;
-        ClassCatalog catalog = db.getClassCatalog();
-        keyBinding =
-                new SerialBinding<>(catalog, String.class);
-        storageInfoBinding =
-                new SerialBinding<>(catalog, StorageInfo.class);
-        stateBinding =
-                new SerialBinding<>(catalog, CacheRepositoryEntryState.class);
+        this.keyBinding = keyBinding;
+        this.storageInfoBinding = storageInfoBinding;
+        this.stateBinding = stateBinding;
         storageInfoMap =
             new StoredMap<>(db.getStorageInfoDatabase(),
                             keyBinding, storageInfoBinding, true);
@@ -43,6 +53,15 @@ class MetaDataRepositoryViews
                             keyBinding, stateBinding, true);
     }
 
+    /**
+     * Returns views using the compact tuple format.
+     */
+    public static MetaDataRepositoryViews compact(MetaDataRepositoryDatabase db)
+    {
+        return new MetaDataRepositoryViews(db, new StringBinding(),
+                                           new StorageInfoBinding(), new CacheRepositoryEntryStateBinding());
+    }
+
     public final StoredMap<String, StorageInfo> getStorageInfoMap()
     {
         return storageInfoMap;
@@ -0,0 +1,152 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.util.RuntimeExceptionWrapper;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.StorageInfo;
+
+/**
+ * Tuple binding for StorageInfo.
+ *
+ * GenericStorageInfo is written field by field. Other StorageInfo
+ * implementations are rare on pools and fall back to Java serialization.
+ */
+class StorageInfoBinding extends TupleBinding<StorageInfo>
+{
+    private static final byte GENERIC = 1;
+    private static final byte SERIALIZED = 2;
+
+    private static final int SET_HSM = 0x01;
+    private static final int SET_STORAGE_CLASS = 0x02;
+    private static final int SET_BITFILE_ID = 0x04;
+    private static final int SET_LOCATION = 0x08;
+    private static final int IS_NEW = 0x10;
+    private static final int IS_STORED = 0x20;
+
+    private static final String UNKNOWN_BITFILE_ID = "<Unknown>";
+
+    @Override
+    public StorageInfo entryToObject(TupleInput input)
+    {
+        byte format = input.readByte();
+        switch (format) {
+        case GENERIC:
+            return readGeneric(input);
+        case SERIALIZED:
+            try (ObjectInputStream in = new ObjectInputStream(input)) {
+                return (StorageInfo) in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new RuntimeExceptionWrapper(e);
+            }
+        default:
+            throw new IllegalArgumentException("Unknown storage info format: " + format);
+        }
+    }
+
+    @Override
+    public void objectToEntry(StorageInfo info, TupleOutput output)
+    {
+        if (info.getClass() == GenericStorageInfo.class) {
+            output.writeByte(GENERIC);
+            writeGeneric(info, output);
+        } else {
+            output.writeByte(SERIALIZED);
+            try (ObjectOutputStream out = new ObjectOutputStream(output)) {
+                out.writeObject(info);
+            } catch (IOException e) {
+                throw new RuntimeExceptionWrapper(e);
+            }
+        }
+    }
+
+    private static void writeGeneric(StorageInfo info, TupleOutput output)
+    {
+        output.writeString(info.getHsm());
+        output.writeString(info.getStorageClass());
+        output.writeString(info.getCacheClass());
+        String bitfileId = info.getBitfileId();
+        output.writeString(UNKNOWN_BITFILE_ID.equals(bitfileId) ? null : bitfileId);
+
+        int flags = 0;
+        flags |= info.isSetHsm() ? SET_HSM : 0;
+        flags |= info.isSetStorageClass() ? SET_STORAGE_CLASS : 0;
+        flags |= info.isSetBitFileId() ? SET_BITFILE_ID : 0;
+        flags |= info.isSetAddLocation() ? SET_LOCATION : 0;
+        flags |= info.isCreatedOnly() ? IS_NEW : 0;
+        flags |= info.isStored() ? IS_STORED : 0;
+        output.writeUnsignedByte(flags);
+
+        AccessLatency accessLatency = info.getLegacyAccessLatency();
+        output.writePackedInt(accessLatency == null ? -1 : accessLatency.getId());
+        RetentionPolicy retentionPolicy = info.getLegacyRetentionPolicy();
+        output.writePackedInt(retentionPolicy == null ? -1 : retentionPolicy.getId());
+        output.writePackedLong(info.getLegacySize());
+
+        Map<String, String> keys = info.getMap();
+        output.writePackedInt(keys.size());
+        for (Map.Entry<String, String> entry : keys.entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeString(entry.getValue());
+        }
+
+        List<URI> locations = info.locations();
+        output.writePackedInt(locations.size());
+        for (URI location : locations) {
+            output.writeString(location.toString());
+        }
+    }
+
+    private static StorageInfo readGeneric(TupleInput input)
+    {
+        String hsm = intern(input.readString());
+        String storageClass = intern(input.readString());
+        GenericStorageInfo info = new GenericStorageInfo(hsm, storageClass);
+        info.setCacheClass(intern(input.readString()));
+        String bitfileId = input.readString();
+        if (bitfileId != null) {
+            info.setBitfileId(bitfileId);
+        }
+
+        int flags = input.readUnsignedByte();
+        info.isSetHsm((flags & SET_HSM) != 0);
+        info.isSetStorageClass((flags & SET_STORAGE_CLASS) != 0);
+        info.isSetBitFileId((flags & SET_BITFILE_ID) != 0);
+        info.isSetAddLocation((flags & SET_LOCATION) != 0);
+        info.setIsNew((flags & IS_NEW) != 0);
+        info.setIsStored((flags & IS_STORED) != 0);
+
+        int accessLatency = input.readPackedInt();
+        info.setLegacyAccessLatency(accessLatency < 0 ? null : AccessLatency.getAccessLatency(accessLatency));
+        int retentionPolicy = input.readPackedInt();
+        info.setLegacyRetentionPolicy(retentionPolicy < 0 ? null : RetentionPolicy.getRetentionPolicy(retentionPolicy));
+        info.setLegacySize(input.readPackedLong());
+
+        int keys = input.readPackedInt();
+        for (int i = 0; i < keys; i++) {
+            info.setKey(input.readString().intern(), input.readString());
+        }
+
+        int locations = input.readPackedInt();
+        for (int i = 0; i < locations; i++) {
+            info.addLocation(URI.create(input.readString()));
+        }
+        return info;
+    }
+
+    private static String intern(String s)
+    {
+        return (s == null) ? null : s.intern();
+    }
+}
@@ -1,13 +1,18 @@
 package org.dcache.pool.repository.v5;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.concurrent.GuardedBy;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -17,12 +22,19 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.DiskErrorCacheException;
@@ -50,6 +62,7 @@ import org.dcache.pool.repository.DuplicateEntryException;
 import org.dcache.pool.repository.EntryChangeEvent;
 import org.dcache.pool.repository.EntryState;
 import org.dcache.pool.repository.IllegalTransitionException;
+import org.dcache.pool.repository.InventorySnapshot;
 import org.dcache.pool.repository.MetaDataCache;
 import org.dcache.pool.repository.MetaDataRecord;
 import org.dcache.pool.repository.MetaDataStore;
@@ -62,6 +75,7 @@ import org.dcache.pool.repository.StateChangeListener;
 import org.dcache.pool.repository.StickyChangeEvent;
 import org.dcache.pool.repository.StickyRecord;
 import org.dcache.util.CacheExceptionFactory;
+import org.dcache.util.TimeUtils;
 import org.dcache.vehicles.FileAttributes;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -69,6 +83,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.dcache.namespace.FileAttribute.PNFSID;
 import static org.dcache.namespace.FileAttribute.STORAGEINFO;
+import static org.dcache.pool.repository.EntryState.CACHED;
 import static org.dcache.pool.repository.EntryState.NEW;
 import static org.dcache.pool.repository.EntryState.PRECIOUS;
 import static org.dcache.pool.repository.EntryState.REMOVED;
@@ -136,7 +151,51 @@ public class CacheRepositoryV5
      * Meta data about files in the pool.
      */
     @GuardedBy("_stateLock")
-    private MetaDataStore _store;
+    private MetaDataCache _store;
+
+    /**
+     * File holding the inventory snapshot, or null if snapshots are disabled.
+     */
+    @GuardedBy("_stateLock")
+    private File _snapshotFile;
+
+    /**
+     * Period between writing inventory snapshots while the repository is
+     * open. Zero disables periodic snapshots.
+     */
+    @GuardedBy("_stateLock")
+    private long _snapshotPeriod;
+
+    @GuardedBy("_stateLock")
+    private TimeUnit _snapshotPeriodUnit = TimeUnit.MINUTES;
+
+    @GuardedBy("_stateLock")
+    private ScheduledFuture<?> _snapshotTask;
+
+    /**
+     * Period between writing deferred access time updates. Zero disables
+     * write-behind of access times.
+     */
+    @GuardedBy("_stateLock")
+    private long _accessTimeWriteBehindPeriod;
+
+    @GuardedBy("_stateLock")
+    private TimeUnit _accessTimeWriteBehindPeriodUnit = TimeUnit.SECONDS;
+
+    @GuardedBy("_stateLock")
+    private ScheduledFuture<?> _accessTimeFlushTask;
+
+    /**
+     * Serializes writing inventory snapshots.
+     */
+    private final Object _snapshotLock = new Object();
+
+    /**
+     * Whether the clean snapshot has been written at shutdown. Periodic
+     * snapshots must not overwrite it.
+     */
+    @GuardedBy("_snapshotLock")
+    private boolean _isSnapshotFinal;
 
     /**
      * Current state of the repository.
@@ -151,7 +210,7 @@ public class CacheRepositoryV5
     }
 
     @GuardedBy("_stateLock")
-    private State _state = State.UNINITIALIZED;
+    private volatile State _state = State.UNINITIALIZED;
 
     /**
      * Lock for the field changes.
@@ -159,9 +218,24 @@ public class CacheRepositoryV5
     private final ReadWriteLock _stateLock = new ReentrantReadWriteLock();
 
     /**
-     * Initialization progress between 0 and 1.
+     * Number of threads reading meta data during load.
+     */
+    private volatile int _loadThreads = 1;
+
+    /**
+     * Number of files to check during load.
+     */
+    private volatile int _loadTotal;
+
+    /**
+     * Number of files checked so far during load.
+     */
+    private final AtomicInteger _loadCount = new AtomicInteger();
+
+    /**
+     * Time in nanoseconds at which checking files started.
      */
-    private volatile float _initializationProgress;
+    private volatile long _loadStartTime;
 
     /**
      * Shared repository account object for tracking space.
@@ -425,6 +499,91 @@ public class CacheRepositoryV5
         }
     }
 
+    /**
+     * Sets the file in which to keep a snapshot of the inventory. If set,
+     * a snapshot is written on shutdown and used on the next start to
+     * avoid reading the meta data of every file.
+     */
+    public void setInventorySnapshotFile(File file)
+    {
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _snapshotFile = file;
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the period between inventory snapshots written while the pool
+     * is running. A period of zero disables periodic snapshots.
+     */
+    public void setInventorySnapshotPeriod(long period)
+    {
+        checkArgument(period >= 0, "Period must not be negative");
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _snapshotPeriod = period;
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
+    public void setInventorySnapshotPeriodUnit(TimeUnit unit)
+    {
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _snapshotPeriodUnit = checkNotNull(unit);
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the period between writing deferred access time updates. If
+     * positive, access time updates of complete replicas are kept in
+     * memory and written in batches. Zero writes them immediately.
+     */
+    public void setAccessTimeWriteBehindPeriod(long period)
+    {
+        checkArgument(period >= 0, "Period must not be negative");
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _accessTimeWriteBehindPeriod = period;
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
+    public void setAccessTimeWriteBehindPeriodUnit(TimeUnit unit)
+    {
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _accessTimeWriteBehindPeriodUnit = checkNotNull(unit);
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the number of threads used to read meta data during load.
+     */
+    public void setLoadThreads(int threads)
+    {
+        checkArgument(threads > 0, "Number of threads must be positive");
+        _loadThreads = threads;
+    }
+
+    public int getLoadThreads()
+    {
+        return _loadThreads;
+    }
+
     public void setMaxDiskSpaceString(String size)
     {
         setMaxDiskSpace(size.isEmpty() ? DiskSpace.UNSPECIFIED : new DiskSpace(size));
@@ -492,32 +651,50 @@ public class CacheRepositoryV5
             LOGGER.warn("Reading inventory from {}.", _store);
             _store.init();
 
-            Collection<PnfsId> ids = _store.index();
-
-            int fileCount = ids.size();
-            LOGGER.info("Checking meta data for {} files.", fileCount);
-            int cnt = 0;
-            for (PnfsId id: ids) {
-                MetaDataRecord entry = readMetaDataRecord(id);
-                if (entry != null)  {
-                    EntryState state = entry.getState();
-                    LOGGER.debug("{} {}", id, state);
-                }
-                _initializationProgress = ((float) cnt) / fileCount;
-                cnt++;
+            List<PnfsId> ids = new ArrayList<>(_store.index());
 
-                // Lazily check if repository was closed
-                if (_state != State.LOADING) {
-                    throw new IllegalStateException("Repository was closed during loading.");
+            InventorySnapshot snapshot = readInventorySnapshot();
+            List<PnfsId> restored = new ArrayList<>();
+            if (snapshot != null) {
+                for (InventorySnapshot.Entry entry : snapshot.getEntries()) {
+                    if (_store.restore(entry)) {
+                        restored.add(entry.getPnfsId());
+                    }
                 }
+                ids.removeIf(id -> _store.snapshotOf(id) != null);
+                LOGGER.info("Restored {} files from inventory snapshot.", restored.size());
             }
 
+            int threads = _loadThreads;
+            _loadTotal = ids.size();
+            _loadStartTime = System.nanoTime();
+            LOGGER.info("Checking meta data for {} files using {} threads.", ids.size(), threads);
+            loadMetaDataRecords(ids, threads);
+            LOGGER.info("Checked meta data for {} files in {}.", ids.size(),
+                        TimeUtils.duration(System.nanoTime() - _loadStartTime, TimeUnit.NANOSECONDS,
+                                           TimeUtils.TimeUnitFormat.SHORT));
+
             _stateLock.writeLock().lock();
             try {
                 updateAccountSize();
                 if (!compareAndSetState(State.LOADING, State.OPEN)) {
                     throw new IllegalStateException("Repository was closed during loading.");
                 }
+                if (snapshot != null && !snapshot.isClean()) {
+                    _executor.execute(() -> verifyRestoredEntries(restored));
+                }
+                if (_snapshotFile != null && _snapshotPeriod > 0) {
+                    _snapshotTask = _executor.scheduleWithFixedDelay(() -> writeInventorySnapshot(false),
+                                                                     _snapshotPeriod, _snapshotPeriod,
+                                                                     _snapshotPeriodUnit);
+                }
+                if (_accessTimeWriteBehindPeriod > 0) {
+                    _store.setWriteBehind(true);
+                    _accessTimeFlushTask = _executor.scheduleWithFixedDelay(_store::flush,
+                                                                            _accessTimeWriteBehindPeriod,
+                                                                            _accessTimeWriteBehindPeriod,
+                                                                            _accessTimeWriteBehindPeriodUnit);
+                }
             } finally {
                 _stateLock.writeLock().unlock();
             }
@@ -528,6 +705,137 @@ public class CacheRepositoryV5
         LOGGER.info("Done generating inventory.");
     }
 
+    /**
+     * Reads the meta data of the given files. The files are partitioned
+     * into contiguous ranges, each of which is read by its own thread.
+     * Entries are accessible through getEntry and openEntry as soon as they
+     * have been read.
+     */
+    private void loadMetaDataRecords(List<PnfsId> ids, int threads)
+            throws CacheException, InterruptedException
+    {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<List<PnfsId>> partitions = Lists.partition(ids, (ids.size() + threads - 1) / threads);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                partitions.size(),
+                new ThreadFactoryBuilder().setNameFormat("repository-load-%d").build());
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            for (List<PnfsId> partition : partitions) {
+                completionService.submit(() -> {
+                    for (PnfsId id : partition) {
+                        MetaDataRecord entry = readMetaDataRecord(id);
+                        if (entry != null) {
+                            EntryState state = entry.getState();
+                            LOGGER.debug("{} {}", id, state);
+                        }
+                        _loadCount.incrementAndGet();
+
+                        // Lazily check if repository was closed
+                        if (_state != State.LOADING) {
+                            throw new IllegalStateException("Repository was closed during loading.");
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (int i = 0; i < partitions.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    Throwables.propagateIfPossible(cause, CacheException.class, InterruptedException.class);
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads and removes the inventory snapshot. A snapshot is only used for
+     * the start following the one that wrote it, as the meta data may be
+     * modified afterwards.
+     *
+     * @return the snapshot, or null if there is no usable snapshot
+     */
+    private InventorySnapshot readInventorySnapshot()
+    {
+        if (_snapshotFile == null || !_snapshotFile.exists()) {
+            return null;
+        }
+        try {
+            InventorySnapshot snapshot = InventorySnapshot.read(_snapshotFile);
+            if (!snapshot.isClean()) {
+                LOGGER.warn("Pool was not shut down cleanly; inventory snapshot will be verified in the background.");
+            }
+            return snapshot;
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring inventory snapshot {}: {}", _snapshotFile, e.getMessage());
+            return null;
+        } finally {
+            try {
+                Files.deleteIfExists(_snapshotFile.toPath());
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete inventory snapshot {}: {}", _snapshotFile, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of all complete entries to the snapshot file.
+     *
+     * @param isClean whether meta data is no longer modified
+     */
+    private void writeInventorySnapshot(boolean isClean)
+    {
+        synchronized (_snapshotLock) {
+            if (_isSnapshotFinal) {
+                return;
+            }
+            _isSnapshotFinal = isClean;
+            List<InventorySnapshot.Entry> entries = new ArrayList<>();
+            for (PnfsId id : _store.index()) {
+                InventorySnapshot.Entry entry = _store.snapshotOf(id);
+                if (entry != null && (entry.getState() == CACHED || entry.getState() == PRECIOUS)) {
+                    entries.add(entry);
+                }
+            }
+            try {
+                new InventorySnapshot(entries, isClean, System.currentTimeMillis()).write(_snapshotFile);
+                LOGGER.debug("Wrote inventory snapshot with {} files to {}.", entries.size(), _snapshotFile);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write inventory snapshot {}: {}", _snapshotFile, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Reads the meta data of entries restored from a snapshot that may be
+     * stale. Differences to the snapshot are announced as change events.
+     */
+    private void verifyRestoredEntries(List<PnfsId> ids)
+    {
+        LOGGER.info("Verifying {} files restored from inventory snapshot.", ids.size());
+        try {
+            for (PnfsId id : ids) {
+                if (_state != State.OPEN) {
+                    return;
+                }
+                readMetaDataRecord(id);
+            }
+            LOGGER.info("Done verifying inventory snapshot.");
+        } catch (CacheException e) {
+            LOGGER.error("Failed to verify inventory snapshot: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public Iterator<PnfsId> iterator()
     {
@@ -815,6 +1123,42 @@ public class CacheRepositoryV5
         }
     }
 
+    @Override
+    public boolean removeIf(PnfsId id, Predicate<CacheEntry> predicate)
+        throws IllegalArgumentException, InterruptedException, CacheException
+    {
+        if (id == null) {
+            throw new IllegalArgumentException("id is null");
+        }
+
+        _stateLock.readLock().lock();
+        try {
+            checkOpen();
+
+            try {
+                MetaDataRecord entry = getMetaDataRecord(id);
+                synchronized (entry) {
+                    switch (entry.getState()) {
+                    case PRECIOUS:
+                    case CACHED:
+                    case BROKEN:
+                        if (predicate.test(new CacheEntryImpl(entry))) {
+                            entry.setState(REMOVED);
+                            return true;
+                        }
+                        return false;
+                    default:
+                        return false;
+                    }
+                }
+            } catch (FileNotInCacheException e) {
+                return false;
+            }
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
     /**
      * If set to true, then state change listeners are notified
      * synchronously. In this case listeners must not acquire any
@@ -876,7 +1220,7 @@ public class CacheRepositoryV5
             State state = _state;
             pw.append("State : ").append(state.toString());
             if (state == State.LOADING) {
-                pw.append(" (").append(String.valueOf((int) (_initializationProgress * 100))).append("% done)");
+                appendLoadProgress(pw);
             }
             pw.println();
             try {
@@ -915,17 +1259,52 @@ public class CacheRepositoryV5
             pw.println("    File system          : " + (fsFree + used));
             pw.println("    Statically configured: " + _staticMaxSize);
             pw.println("    Runtime configured   : " + _runtimeMaxSize);
+            if (_store.isWriteBehind()) {
+                pw.println("Access time write-behind");
+                pw.println("    Pending  : " + _store.getPendingUpdates());
+                pw.println("    Deferred : " + _store.getDeferredUpdates());
+                pw.println("    Written  : " + _store.getFlushedUpdates());
+            }
         } finally {
             _stateLock.readLock().unlock();
         }
     }
 
+    private void appendLoadProgress(PrintWriter pw)
+    {
+        int total = _loadTotal;
+        int count = _loadCount.get();
+        long elapsed = System.nanoTime() - _loadStartTime;
+        pw.append(" (").append(String.valueOf((total == 0) ? 0 : (int) (100L * count / total))).append("% done");
+        if (count > 0 && elapsed > 0) {
+            double rate = count * 1e9 / elapsed;
+            pw.append(", ").append(String.valueOf((long) rate)).append(" files/s");
+            pw.append(", ETA ").append(TimeUtils.duration((long) ((total - count) / rate), TimeUnit.SECONDS,
+                                                          TimeUtils.TimeUnitFormat.SHORT));
+        }
+        pw.append(")");
+    }
+
     public void shutdown()
     {
         _stateLock.writeLock().lock();
         try {
             _stateChangeListeners.stop();
+            boolean wasOpen = (_state == State.OPEN);
             _state = State.CLOSED;
+            if (_snapshotTask != null) {
+                _snapshotTask.cancel(false);
+            }
+            if (_accessTimeFlushTask != null) {
+                _accessTimeFlushTask.cancel(false);
+            }
+            /* A periodic snapshot that is already running cannot be cancelled.
+             * Writing the final snapshot waits for it to complete, after which
+             * periodic snapshots are no longer written.
+             */
+            if (wasOpen && _snapshotFile != null) {
+                writeInventorySnapshot(true);
+            }
             _store.close();
         } finally {
             _stateLock.writeLock().unlock();
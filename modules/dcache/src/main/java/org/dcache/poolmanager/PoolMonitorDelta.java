@@ -0,0 +1,45 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2016 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.poolmanager;
+
+import java.io.Serializable;
+
+/**
+ * Changes to the dynamic state of a SerializablePoolMonitor, such as pool
+ * heartbeats and cost information, between two of its versions.
+ *
+ * Pool manager publishes deltas in between full snapshots of its pool
+ * monitor. A delta can be applied to any copy of the pool monitor it was
+ * obtained from as long as the copy is at least as recent as the version
+ * the delta is relative to.
+ */
+public abstract class PoolMonitorDelta implements Serializable
+{
+    private static final long serialVersionUID = 6263853658036254937L;
+
+    /**
+     * Returns the version this delta is relative to.
+     */
+    public abstract long getSince();
+
+    /**
+     * Returns the version of the pool monitor after applying this delta.
+     */
+    public abstract long getVersion();
+}
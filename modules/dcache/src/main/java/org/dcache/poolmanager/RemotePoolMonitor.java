@@ -65,8 +65,10 @@ public class RemotePoolMonitor
 
     private long lastRefreshTime;
     private CellStub poolManagerStub;
-    private PoolMonitor poolMonitor;
+    private SerializablePoolMonitor poolMonitor;
     private long refreshCount;
+    private long deltaCount;
+    private boolean isResynchronizing;
     private LastEvent lastEvent = LastEvent.NONE;
 
     @Required
@@ -191,14 +193,68 @@ public class RemotePoolMonitor
         return lastRefreshTime;
     }
 
+    public synchronized long getDeltaCount()
+    {
+        return deltaCount;
+    }
+
     public synchronized void messageArrived(SerializablePoolMonitor monitor)
     {
         poolMonitor = monitor;
         lastRefreshTime = System.currentTimeMillis();
         refreshCount++;
+        isResynchronizing = false;
         notifyAll();
     }
 
+    /**
+     * Applies an incremental update to a copy of the cached pool monitor and
+     * replaces the cached pool monitor with the copy. Pool monitors already
+     * handed out are thus not modified. If the update does not apply, e.g.
+     * because a previous update was lost, a full copy is requested from
+     * pool manager.
+     */
+    public synchronized void messageArrived(PoolMonitorDelta delta)
+    {
+        if (poolMonitor == null || isResynchronizing) {
+            return;
+        }
+        SerializablePoolMonitor monitor = poolMonitor.withChanges(delta);
+        if (monitor != null) {
+            poolMonitor = monitor;
+            lastRefreshTime = System.currentTimeMillis();
+            deltaCount++;
+        } else {
+            LOGGER.debug("Pool monitor update since version {} does not apply; requesting full copy.",
+                         delta.getSince());
+            resynchronize();
+        }
+    }
+
+    private void resynchronize()
+    {
+        isResynchronizing = true;
+        CellStub.addCallback(poolManagerStub.send(new PoolManagerGetPoolMonitor()),
+                             new AbstractMessageCallback<PoolManagerGetPoolMonitor>()
+                             {
+                                 @Override
+                                 public void success(PoolManagerGetPoolMonitor message)
+                                 {
+                                     messageArrived(message.getPoolMonitor());
+                                 }
+
+                                 @Override
+                                 public void failure(int rc, Object error)
+                                 {
+                                     LOGGER.warn("Failed to fetch pool monitor: {}", error);
+                                     synchronized (RemotePoolMonitor.this) {
+                                         isResynchronizing = false;
+                                     }
+                                 }
+                             },
+                             MoreExecutors.directExecutor());
+    }
+
     private synchronized PoolMonitor getPoolMonitor()
     {
         try {
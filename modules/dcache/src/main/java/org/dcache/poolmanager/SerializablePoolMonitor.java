@@ -23,4 +23,27 @@ import java.io.Serializable;
 public abstract class SerializablePoolMonitor implements PoolMonitor, Serializable
 {
     private static final long serialVersionUID = -3568502579459711629L;
+
+    /**
+     * Returns the current version of the dynamic state of this pool
+     * monitor.
+     */
+    public abstract long getVersion();
+
+    /**
+     * Returns the changes to the dynamic state of this pool monitor since
+     * the given version. Changes to the pool selection configuration are
+     * not included.
+     */
+    public abstract PoolMonitorDelta getChangesSince(long version);
+
+    /**
+     * Returns a copy of this pool monitor with the changes obtained from
+     * the pool monitor this pool monitor is a copy of. The cost information
+     * of this pool monitor is not modified, thus it may be used concurrently.
+     *
+     * @return the updated copy, or null if the delta does not apply to this
+     * pool monitor, in which case a new copy has to be obtained.
+     */
+    public abstract SerializablePoolMonitor withChanges(PoolMonitorDelta delta);
 }
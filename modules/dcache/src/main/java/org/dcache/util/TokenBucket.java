@@ -0,0 +1,134 @@
+package org.dcache.util;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Token bucket limiting the rate at which bytes are transferred.
+ *
+ * The bucket is refilled at the configured rate and holds at most one
+ * second worth of tokens. Transfers are charged after the fact: a caller
+ * that transferred more bytes than there are tokens puts the bucket into
+ * debt and has to wait until the debt is paid off, either by sleeping or,
+ * for callers running on an event loop, by deferring further transfers.
+ * Thus concurrent callers sharing a bucket are throttled to the configured
+ * aggregate rate.
+ *
+ * A rate of Long.MAX_VALUE disables the limit. The number of transferred
+ * bytes is accounted for in either case.
+ */
+public class TokenBucket
+{
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final LongAdder _transferred = new LongAdder();
+
+    /** Bytes per second. */
+    private volatile long _rate = UNLIMITED;
+
+    /* Guarded by this. */
+    private double _tokens;
+    private long _lastRefill = System.nanoTime();
+    private long _lastSample = System.nanoTime();
+    private long _lastSampleBytes;
+    private double _throughput;
+
+    public long getRate()
+    {
+        return _rate;
+    }
+
+    public synchronized void setRate(long bytesPerSecond)
+    {
+        checkArgument(bytesPerSecond > 0, "Rate must be positive");
+        _rate = bytesPerSecond;
+        _tokens = (bytesPerSecond == UNLIMITED) ? 0 : bytesPerSecond;
+        _lastRefill = System.nanoTime();
+    }
+
+    public boolean isLimited()
+    {
+        return _rate != UNLIMITED;
+    }
+
+    /**
+     * Charges the bucket for {@code bytes} transferred bytes, blocking the
+     * caller if this exceeds the configured rate.
+     *
+     * Only to be used by callers that own their thread. Event driven
+     * callers must use {@link #charge} and defer further transfers.
+     *
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void consume(long bytes) throws InterruptedIOException
+    {
+        long delay = charge(bytes);
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling transfer");
+            }
+        }
+    }
+
+    /**
+     * Charges the bucket for {@code bytes} transferred bytes without
+     * blocking.
+     *
+     * @return the time in nanoseconds the caller should wait before
+     * transferring more data, or zero if the bucket is not in debt
+     */
+    public long charge(long bytes)
+    {
+        if (bytes <= 0) {
+            return 0;
+        }
+        _transferred.add(bytes);
+        if (_rate == UNLIMITED) {
+            return 0;
+        }
+
+        synchronized (this) {
+            long rate = _rate;
+            if (rate == UNLIMITED) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            _tokens = Math.min(rate, _tokens + (now - _lastRefill) * rate / 1e9);
+            _lastRefill = now;
+            _tokens -= bytes;
+            return (_tokens < 0) ? (long) (-_tokens * 1e9 / rate) : 0;
+        }
+    }
+
+    /**
+     * Returns the total number of bytes charged to this bucket.
+     */
+    public long getTransferred()
+    {
+        return _transferred.sum();
+    }
+
+    /**
+     * Returns the average throughput in bytes per second since the previous
+     * sample. A new sample is taken if the previous one is more than a
+     * second old.
+     */
+    public synchronized double getThroughput()
+    {
+        long now = System.nanoTime();
+        long elapsed = now - _lastSample;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            long bytes = _transferred.sum();
+            _throughput = (bytes - _lastSampleBytes) * 1e9 / elapsed;
+            _lastSample = now;
+            _lastSampleBytes = bytes;
+        }
+        return _throughput;
+    }
+}
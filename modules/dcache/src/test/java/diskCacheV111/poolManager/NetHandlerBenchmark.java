@@ -0,0 +1,163 @@
+package diskCacheV111.poolManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigInteger;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares longest prefix matching of client addresses against the net
+ * units of a large site using the trie of NetHandler with a walk over the
+ * per mask hash tables, as NetHandler used to match addresses.
+ *
+ * Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=diskCacheV111.poolManager.NetHandlerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NetHandlerBenchmark
+{
+    private static final int ADDRESSES = 4096;
+
+    @Param({"100", "1000", "5000"})
+    public int subnets;
+
+    @Param({"4", "6"})
+    public int version;
+
+    private NetHandler _handler;
+    private InetAddress[] _inetAddresses;
+    private int _next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws UnknownHostException
+    {
+        Random random = new Random(42);
+        _handler = new NetHandler();
+        _handler.add(new NetUnit("0.0.0.0/0"));
+        _handler.add(new NetUnit("::/0"));
+        for (int i = 0; i < subnets; i++) {
+            if (version == 4) {
+                _handler.add(new NetUnit(randomIPv4(random) + "/" + (16 + random.nextInt(13))));
+            } else {
+                _handler.add(new NetUnit(randomIPv6(random) + "/" + (32 + 4 * random.nextInt(9))));
+            }
+        }
+
+        _inetAddresses = new InetAddress[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            _inetAddresses[i] = InetAddress.getByName((version == 4) ? randomIPv4(random) : randomIPv6(random));
+        }
+    }
+
+    /**
+     * Restricts addresses to a few networks so that most of them are
+     * covered by one of the configured subnets.
+     */
+    private static String randomIPv4(Random random)
+    {
+        return (128 + random.nextInt(8)) + "." + random.nextInt(256) + "." +
+               random.nextInt(256) + "." + random.nextInt(256);
+    }
+
+    private static String randomIPv6(Random random)
+    {
+        return String.format("2001:%x:%x:%x::%x", random.nextInt(8), random.nextInt(65536),
+                             random.nextInt(65536), random.nextInt(65536));
+    }
+
+    private int next()
+    {
+        _next = (_next + 1) & (ADDRESSES - 1);
+        return _next;
+    }
+
+    @Benchmark
+    public NetUnit trie()
+    {
+        return _handler.match(_inetAddresses[next()]);
+    }
+
+    @Benchmark
+    public NetUnit maskWalk()
+    {
+        InetAddress address = _inetAddresses[next()];
+        return (address instanceof Inet4Address)
+               ? maskWalkV4(address)
+               : maskWalkV6(address);
+    }
+
+    private NetUnit maskWalkV4(InetAddress address)
+    {
+        long addr = 0;
+        int i = 24;
+        for (byte b : address.getAddress()) {
+            addr |= (b & 0xffL) << i;
+            i -= 8;
+        }
+        long mask = 0;
+        long cursor = 1;
+        for (Map<Long, NetUnit> map : _handler._netList) {
+            if (map != null) {
+                NetUnit unit = map.get(addr & ~mask);
+                if (unit != null) {
+                    return unit;
+                }
+            }
+            mask |= cursor;
+            cursor <<= 1;
+        }
+        return null;
+    }
+
+    private NetUnit maskWalkV6(InetAddress address)
+    {
+        BigInteger addr = new BigInteger(address.getAddress());
+        BigInteger mask = BigInteger.ZERO;
+        BigInteger cursor = BigInteger.ONE;
+        for (Map<BigInteger, NetUnit> map : _handler._netListV6) {
+            if (map != null) {
+                NetUnit unit = map.get(addr.and(mask.not()));
+                if (unit != null) {
+                    return unit;
+                }
+            }
+            mask = mask.or(cursor);
+            cursor = cursor.shiftLeft(1);
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                           .include(NetHandlerBenchmark.class.getSimpleName())
+                           .threads(1)
+                           .build()).run();
+    }
+}
@@ -7,6 +7,10 @@ package diskCacheV111.poolManager;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.net.UnknownHostException;
 
 import static org.junit.Assert.*;
@@ -121,6 +125,56 @@ public class NetHandlerTest {
         assertCIDRSubnetMatches("131.169.252.76/32", "131.169.252.76");
     }
 
+    @Test
+    public void testMatchLongestPrefix() throws UnknownHostException {
+        NetHandler nh = new NetHandler();
+        nh.add(new NetUnit("0.0.0.0/0"));
+        nh.add(new NetUnit("131.169.0.0/16"));
+        nh.add(new NetUnit("131.169.252.0/24"));
+        nh.add(new NetUnit("131.169.253.0/24"));
+        nh.add(new NetUnit("::/0"));
+        nh.add(new NetUnit("2001:638:700::/48"));
+
+        assertEquals("131.169.252.0/24", nh.match("131.169.252.76").getCanonicalName());
+        assertEquals("131.169.253.0/24", nh.match("131.169.253.76").getCanonicalName());
+        assertEquals("131.169.0.0/16", nh.match("131.169.254.76").getCanonicalName());
+        assertEquals("0.0.0.0/0", nh.match("192.168.1.1").getCanonicalName());
+        assertEquals(new NetUnit("2001:638:700::/48").getCanonicalName(),
+                     nh.match("2001:638:700:1::1").getCanonicalName());
+        assertEquals(new NetUnit("::/0").getCanonicalName(),
+                     nh.match("2001:638:701::1").getCanonicalName());
+
+        nh.remove(new NetUnit("131.169.252.0/24"));
+        assertEquals("131.169.0.0/16", nh.match("131.169.252.76").getCanonicalName());
+
+        nh.remove(new NetUnit("131.169.0.0/16"));
+        assertEquals("131.169.253.0/24", nh.match("131.169.253.76").getCanonicalName());
+        assertEquals("0.0.0.0/0", nh.match("131.169.252.76").getCanonicalName());
+    }
+
+    @Test
+    public void testMatchWithoutCoveringUnit() throws UnknownHostException {
+        NetHandler nh = new NetHandler();
+        nh.add(new NetUnit("10.0.0.0/8"));
+        nh.add(new NetUnit("10.1.0.0/16"));
+
+        assertNull(nh.match("11.1.0.1"));
+        assertNull(nh.match(IPV6_HOSTNAME_1));
+    }
+
+    @Test
+    public void testMatchAfterDeserialization() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(netHandler);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            NetHandler copy = (NetHandler) in.readObject();
+            assertEquals(IPV4_MASKED_SUBNET, copy.match(IPV4_HOSTNAME_2).getCanonicalName());
+            assertEquals(IPV6_MASKED_SUBNET, copy.match(IPV6_HOSTNAME_2).getCanonicalName());
+        }
+    }
+
     private void assertCIDRSubnetMatches(String subnet, String ip)
     {
         NetHandler nh = new NetHandler();
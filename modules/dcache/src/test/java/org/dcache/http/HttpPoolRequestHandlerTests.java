@@ -47,6 +47,8 @@ import diskCacheV111.vehicles.HttpProtocolInfo;
 
 import org.dcache.pool.movers.IoMode;
 import org.dcache.pool.movers.NettyTransferService;
+import org.dcache.pool.movers.RepositoryFileRegion;
+import org.dcache.pool.movers.ThrottledChunkedInput;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
 import org.dcache.vehicles.FileAttributes;
@@ -160,6 +162,26 @@ public class HttpPoolRequestHandlerTests
         assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
     }
 
+    @Test
+    public void shouldDeliverFileRegionIfZeroCopyIsAllowed()
+            throws Exception
+    {
+        given(_server.isZeroCopyAllowed(eq(_channel), any(NettyTransferService.NettyMoverChannel.class))).willReturn(true);
+        givenPoolHas(file("/path/to/file").withSize(100));
+        givenDoorHasOrganisedReadOf(file("/path/to/file").with(SOME_UUID));
+
+        whenClientMakes(a(GET).
+                forUri("/path/to/file?dcache-http-uuid="+SOME_UUID));
+
+        assertThat(_response.getStatus(), is(OK));
+        assertThat(_response, hasHeader(CONTENT_LENGTH, "100"));
+
+        assertThat(_additionalWrites, hasSize(2));
+        assertThat(_additionalWrites.get(0), instanceOf(RepositoryFileRegion.class));
+        assertThat(_additionalWrites.get(0), isCompleteRead("/path/to/file"));
+        assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
+    }
+
     @Test
     public void shouldDeliverCompleteFileWithChecksumIfReceivesRequestForWholeFileWithChecksum()
             throws Exception
@@ -824,6 +846,20 @@ public class HttpPoolRequestHandlerTests
         @Override
         public boolean matches(Object o)
         {
+            if(o instanceof RepositoryFileRegion) {
+                RepositoryFileRegion region = (RepositoryFileRegion) o;
+
+                NettyTransferService<HttpProtocolInfo>.NettyMoverChannel channel =
+                        (NettyTransferService<HttpProtocolInfo>.NettyMoverChannel) region.getChannel();
+
+                return _path.equals(channel.getProtocolInfo().getPath()) &&
+                       region.position() == _lower && region.count() == _upper - _lower + 1;
+            }
+
+            if (o instanceof ThrottledChunkedInput) {
+                o = ((ThrottledChunkedInput<?>) o).getInput();
+            }
+
             if(!(o instanceof ReusableChunkedNioFile)) {
                 return false;
             }
@@ -0,0 +1,100 @@
+package org.dcache.pool.classic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ConcurrentLruQueueTest
+{
+    private ConcurrentLruQueue<String> _queue;
+
+    @Before
+    public void setUp()
+    {
+        _queue = new ConcurrentLruQueue<>();
+    }
+
+    @Test
+    public void shouldOrderByTimeAndKey()
+    {
+        _queue.add("c", 20);
+        _queue.add("b", 10);
+        _queue.add("a", 20);
+
+        assertThat(_queue.values(), contains("b", "a", "c"));
+        assertThat(_queue.getLeastRecentlyUsedElement(), is("b"));
+        assertThat(_queue.getTimeOfLeastRecentlyUsedElement(), is(10L));
+    }
+
+    @Test
+    public void shouldNotAddExistingKey()
+    {
+        assertThat(_queue.add("a", 10), is(true));
+        assertThat(_queue.add("a", 20), is(false));
+
+        assertThat(_queue.size(), is(1));
+        assertThat(_queue.getTimeOfLeastRecentlyUsedElement(), is(10L));
+    }
+
+    @Test
+    public void shouldMoveKeyOnUpdate()
+    {
+        _queue.add("a", 10);
+        _queue.add("b", 20);
+
+        assertThat(_queue.update("a", 30), is(true));
+
+        assertThat(_queue.values(), contains("b", "a"));
+        assertThat(_queue.size(), is(2));
+    }
+
+    @Test
+    public void shouldNotAddKeyOnUpdate()
+    {
+        assertThat(_queue.update("a", 30), is(false));
+
+        assertThat(_queue.size(), is(0));
+        assertThat(_queue.getLeastRecentlyUsedElement(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldRemoveKey()
+    {
+        _queue.add("a", 10);
+        _queue.add("b", 20);
+
+        assertThat(_queue.remove("a"), is(true));
+        assertThat(_queue.remove("a"), is(false));
+
+        assertThat(_queue.values(), contains("b"));
+    }
+
+    @Test
+    public void shouldKeepOneNodePerKeyUnderConcurrentUpdates() throws Exception
+    {
+        for (int i = 0; i < 100; i++) {
+            _queue.add("key" + i, i);
+        }
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int n = 0; n < 10000; n++) {
+                    _queue.update("key" + (n % 100), n * threads.length + offset);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(_queue.size(), is(100));
+        assertThat(_queue.values().size(), is(100));
+    }
+}
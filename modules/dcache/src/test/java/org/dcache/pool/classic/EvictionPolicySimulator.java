@@ -0,0 +1,213 @@
+package org.dcache.pool.classic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import diskCacheV111.util.PnfsId;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Replays a trace of file reads against an eviction policy to compare
+ * policies offline.
+ *
+ * The simulated pool has a fixed capacity and initially holds no files.
+ * A read of a file on the pool is a hit. Any other read is a miss and
+ * stages the file, evicting files in the order chosen by the policy until
+ * the file fits. All staged files are removable, as on a read pool in
+ * front of tape.
+ *
+ * The trace is a text file with one read per line consisting of the time
+ * in milliseconds since the epoch, the PNFS ID and the size of the file,
+ * separated by white space. Empty lines and lines starting with # are
+ * ignored. Such a trace can be extracted from the billing database with
+ *
+ * <pre>
+ *     psql -At -F ' ' -c "SELECT (extract(epoch FROM datestamp) * 1000)::bigint, pnfsid, fullsize
+ *                         FROM billinginfo WHERE isnew = 'f' AND errorcode = 0 ORDER BY datestamp" billing
+ * </pre>
+ *
+ * The simulator is a development tool and is not part of the pool. It is
+ * run from the test classpath of the dcache module, e.g. with
+ *
+ * <pre>
+ *     mvn -pl modules/dcache test-compile exec:java -Dexec.classpathScope=test \
+ *         -Dexec.mainClass=org.dcache.pool.classic.EvictionPolicySimulator \
+ *         -Dexec.args="CAPACITY TRACE"
+ * </pre>
+ */
+public class EvictionPolicySimulator
+{
+    private static final Map<String, Supplier<EvictionPolicy>> POLICIES = new LinkedHashMap<>();
+
+    static {
+        POLICIES.put("lru", LruEvictionPolicy::new);
+        POLICIES.put("arc", ArcEvictionPolicy::new);
+        POLICIES.put("lfu", LfuEvictionPolicy::new);
+        POLICIES.put("gdsf", GdsfEvictionPolicy::new);
+    }
+
+    private final EvictionPolicy _policy;
+    private final long _capacity;
+    private final Map<PnfsId, Long> _files = new HashMap<>();
+    private long _used;
+
+    private long _requests;
+    private long _hits;
+    private long _requestedBytes;
+    private long _stagedBytes;
+    private long _evictions;
+
+    public EvictionPolicySimulator(EvictionPolicy policy, long capacity)
+    {
+        checkArgument(capacity > 0, "Capacity must be positive");
+        _policy = policy;
+        _capacity = capacity;
+    }
+
+    /**
+     * Simulates a read of a file.
+     */
+    public void read(long time, PnfsId id, long size)
+    {
+        _requests++;
+        _requestedBytes += size;
+
+        Long cached = _files.get(id);
+        if (cached != null) {
+            _hits++;
+            _policy.access(id, time);
+            return;
+        }
+
+        _stagedBytes += size;
+        if (size > _capacity) {
+            return;
+        }
+        if (_used + size > _capacity) {
+            for (PnfsId victim : _policy.victims()) {
+                evict(victim);
+                if (_used + size <= _capacity) {
+                    break;
+                }
+            }
+        }
+        _files.put(id, size);
+        _used += size;
+        _policy.add(id, size, time);
+    }
+
+    private void evict(PnfsId id)
+    {
+        Long size = _files.remove(id);
+        if (size != null) {
+            _used -= size;
+            _evictions++;
+            _policy.evict(id);
+        }
+    }
+
+    public long getRequests()
+    {
+        return _requests;
+    }
+
+    public long getHits()
+    {
+        return _hits;
+    }
+
+    public long getRequestedBytes()
+    {
+        return _requestedBytes;
+    }
+
+    public long getStagedBytes()
+    {
+        return _stagedBytes;
+    }
+
+    public long getEvictions()
+    {
+        return _evictions;
+    }
+
+    public double getHitRatio()
+    {
+        return (_requests == 0) ? 0 : (double) _hits / _requests;
+    }
+
+    public double getByteHitRatio()
+    {
+        return (_requestedBytes == 0) ? 0 : 1 - (double) _stagedBytes / _requestedBytes;
+    }
+
+    /**
+     * Replays a trace in the format described above.
+     */
+    public void replay(BufferedReader trace) throws IOException
+    {
+        String line;
+        int lineNumber = 0;
+        while ((line = trace.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length < 3) {
+                throw new IOException("Line " + lineNumber + ": expected time, PNFS ID and size");
+            }
+            try {
+                read(Long.parseLong(fields[0]), new PnfsId(fields[1]), Long.parseLong(fields[2]));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: EvictionPolicySimulator CAPACITY TRACE [POLICY ...]");
+            System.err.println("  CAPACITY is the size of the simulated pool in bytes.");
+            System.err.println("  POLICY is one of " + POLICIES.keySet() + "; all are simulated by default.");
+            System.exit(2);
+        }
+
+        long capacity = Long.parseLong(args[0]);
+        List<String> names = (args.length > 2)
+                             ? Arrays.asList(args).subList(2, args.length)
+                             : new ArrayList<>(POLICIES.keySet());
+
+        System.out.printf("%-6s %12s %12s %10s %20s %20s %12s\n",
+                          "Policy", "Requests", "Hits", "Hit ratio",
+                          "Requested bytes", "Staged bytes", "Evictions");
+        for (String name : names) {
+            Supplier<EvictionPolicy> policy = POLICIES.get(name);
+            if (policy == null) {
+                System.err.println("Unknown policy: " + name);
+                System.exit(2);
+            }
+            EvictionPolicySimulator simulator = new EvictionPolicySimulator(policy.get(), capacity);
+            try (BufferedReader trace = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.US_ASCII)) {
+                simulator.replay(trace);
+            }
+            System.out.printf("%-6s %12d %12d %9.2f%% %20d %20d %12d\n",
+                              name, simulator.getRequests(), simulator.getHits(),
+                              100 * simulator.getHitRatio(), simulator.getRequestedBytes(),
+                              simulator.getStagedBytes(), simulator.getEvictions());
+        }
+    }
+}
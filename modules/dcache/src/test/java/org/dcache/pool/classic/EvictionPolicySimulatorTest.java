@@ -0,0 +1,167 @@
+package org.dcache.pool.classic;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import diskCacheV111.util.PnfsId;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class EvictionPolicySimulatorTest
+{
+    private static PnfsId id(int i)
+    {
+        return new PnfsId(String.format("%036X", i));
+    }
+
+    /**
+     * Reads a popular file twice and then repeatedly scans three new
+     * files before reading the popular file again.
+     */
+    private static EvictionPolicySimulator replayScans(EvictionPolicy policy)
+    {
+        EvictionPolicySimulator simulator = new EvictionPolicySimulator(policy, 30);
+        PnfsId popular = id(0);
+        int next = 1;
+        long time = 0;
+        simulator.read(time++, popular, 10);
+        simulator.read(time++, popular, 10);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                simulator.read(time++, id(next++), 10);
+            }
+            simulator.read(time++, popular, 10);
+        }
+        return simulator;
+    }
+
+    @Test
+    public void shouldEvictPopularFileUnderLru()
+    {
+        EvictionPolicySimulator simulator = replayScans(new LruEvictionPolicy());
+
+        assertThat(simulator.getHits(), is(1L));
+    }
+
+    @Test
+    public void shouldKeepPopularFileUnderLfu()
+    {
+        EvictionPolicySimulator simulator = replayScans(new LfuEvictionPolicy());
+
+        assertThat(simulator.getHits(), is(11L));
+    }
+
+    @Test
+    public void shouldKeepPopularFileUnderArc()
+    {
+        EvictionPolicySimulator simulator = replayScans(new ArcEvictionPolicy());
+
+        assertThat(simulator.getHits(), is(11L));
+    }
+
+    @Test
+    public void shouldEvictLargeFilesFirstUnderGdsf()
+    {
+        GdsfEvictionPolicy policy = new GdsfEvictionPolicy(100);
+        policy.add(id(1), 10, 0);
+        policy.add(id(2), 60, 1);
+        policy.add(id(3), 10, 2);
+
+        assertThat(policy.victims(), contains(id(2), id(1), id(3)));
+    }
+
+    @Test
+    public void shouldAgeFrequentlyReadFilesUnderLfu()
+    {
+        LfuEvictionPolicy policy = new LfuEvictionPolicy();
+        policy.add(id(1), 10, 0);
+        policy.access(id(1), 1);
+        policy.add(id(2), 10, 2);
+        policy.evict(id(2));
+        policy.add(id(3), 10, 3);
+        policy.evict(id(3));
+        policy.add(id(4), 10, 4);
+
+        assertThat(policy.victims(), contains(id(1), id(4)));
+    }
+
+    @Test
+    public void shouldNotAgeFilesOnRemovalUnderLfu()
+    {
+        LfuEvictionPolicy policy = new LfuEvictionPolicy();
+        policy.add(id(1), 10, 0);
+        policy.access(id(1), 1);
+        policy.add(id(2), 10, 2);
+        policy.remove(id(2));
+        policy.add(id(3), 10, 3);
+        policy.remove(id(3));
+        policy.add(id(4), 10, 4);
+
+        assertThat(policy.victims(), contains(id(4), id(1)));
+    }
+
+    @Test
+    public void shouldPreferFrequencyListForEvictedFileAddedAgainUnderArc()
+    {
+        ArcEvictionPolicy policy = new ArcEvictionPolicy();
+        policy.add(id(1), 10, 0);
+        policy.evict(id(1));
+        policy.add(id(2), 10, 1);
+        policy.add(id(1), 10, 2);
+
+        assertThat(policy.victims(), contains(id(1), id(2)));
+    }
+
+    @Test
+    public void shouldNotRememberRemovedFileUnderArc()
+    {
+        ArcEvictionPolicy policy = new ArcEvictionPolicy();
+        policy.add(id(1), 10, 0);
+        policy.remove(id(1));
+        policy.add(id(2), 10, 1);
+        policy.add(id(1), 10, 2);
+
+        assertThat(policy.victims(), contains(id(2), id(1)));
+    }
+
+    @Test
+    public void shouldAllowEvictionDuringTraversal()
+    {
+        GdsfEvictionPolicy policy = new GdsfEvictionPolicy(100);
+        policy.add(id(1), 10, 0);
+        policy.add(id(2), 20, 1);
+        policy.add(id(3), 30, 2);
+
+        for (PnfsId id : policy.victims()) {
+            policy.evict(id);
+        }
+
+        assertThat(policy.size(), is(0));
+        assertThat(policy.victims(), is(emptyIterable()));
+    }
+
+    @Test
+    public void shouldCountStagedBytes() throws IOException
+    {
+        EvictionPolicySimulator simulator = new EvictionPolicySimulator(new LruEvictionPolicy(), 100);
+        simulator.replay(new BufferedReader(new StringReader(
+                "# time pnfsid size\n" +
+                "1 " + id(1) + " 60\n" +
+                "2 " + id(2) + " 60\n" +
+                "\n" +
+                "3 " + id(2) + " 60\n")));
+
+        assertThat(simulator.getRequests(), is(3L));
+        assertThat(simulator.getHits(), is(1L));
+        assertThat(simulator.getStagedBytes(), is(120L));
+        assertThat(simulator.getEvictions(), is(1L));
+        assertThat(simulator.getByteHitRatio(), is(greaterThan(0.0)));
+    }
+}
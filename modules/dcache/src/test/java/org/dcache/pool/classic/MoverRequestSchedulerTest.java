@@ -0,0 +1,272 @@
+package org.dcache.pool.classic;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dcache.pool.movers.Mover;
+import org.dcache.util.IoPriority;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class MoverRequestSchedulerTest
+{
+    private final List<Transfer> _started = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger _running = new AtomicInteger();
+    private final AtomicInteger _maxRunning = new AtomicInteger();
+
+    private MoverRequestScheduler _scheduler;
+    private ExecutorService _executor;
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (_scheduler != null) {
+            _scheduler.shutdown();
+        }
+        if (_executor != null) {
+            _executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldStartMoversByPriorityAndInFifoOrder() throws Exception
+    {
+        _scheduler = new MoverRequestScheduler("test", 0, true);
+        _scheduler.setMaxActiveJobs(1);
+
+        Transfer first = submit("first", IoPriority.REGULAR);
+        Transfer low = submit("low", IoPriority.LOW);
+        Transfer regular1 = submit("regular1", IoPriority.REGULAR);
+        Transfer high = submit("high", IoPriority.HIGH);
+        Transfer regular2 = submit("regular2", IoPriority.REGULAR);
+
+        assertThat(_started, contains(first));
+        assertThat(_scheduler.getQueueSize(), is(4));
+        assertThat(_scheduler.getCountByPriority(IoPriority.REGULAR), is(2));
+
+        first.finish();
+        high.finish();
+        regular1.finish();
+        regular2.finish();
+        low.finish();
+
+        assertThat(_started, contains(first, high, regular1, regular2, low));
+        assertThat(_scheduler.getActiveJobs(), is(0));
+        assertThat(_scheduler.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void shouldStartMoversOfSamePriorityInLifoOrder() throws Exception
+    {
+        _scheduler = new MoverRequestScheduler("test", 0, false);
+        _scheduler.setMaxActiveJobs(1);
+
+        Transfer first = submit("first", IoPriority.REGULAR);
+        Transfer second = submit("second", IoPriority.REGULAR);
+        Transfer third = submit("third", IoPriority.REGULAR);
+
+        first.finish();
+        third.finish();
+        second.finish();
+
+        assertThat(_started, contains(first, third, second));
+    }
+
+    @Test
+    public void shouldStartQueuedMoversWhenSlotsAreAdded() throws Exception
+    {
+        _scheduler = new MoverRequestScheduler("test", 0, true);
+        _scheduler.setMaxActiveJobs(0);
+
+        submit("a", IoPriority.REGULAR);
+        submit("b", IoPriority.REGULAR);
+        assertThat(_started, is(empty()));
+
+        _scheduler.setMaxActiveJobs(2);
+
+        assertThat(_started, hasSize(2));
+        assertThat(_scheduler.getActiveJobs(), is(2));
+        assertThat(_scheduler.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void shouldNeverExceedSlotsUnderConcurrentSubmitFinishAndKill() throws Exception
+    {
+        int slots = 4;
+        int threads = 8;
+        int transfersPerThread = 200;
+        _scheduler = new MoverRequestScheduler("test", 0, true);
+        _scheduler.setMaxActiveJobs(slots);
+        _executor = Executors.newFixedThreadPool(4);
+
+        List<Transfer> transfers = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService submitters = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch submitted = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                submitters.execute(() -> {
+                    Random random = new Random(thread);
+                    List<Transfer> own = new ArrayList<>();
+                    try {
+                        for (int i = 0; i < transfersPerThread; i++) {
+                            Transfer transfer = new Transfer(thread + "-" + i, true);
+                            transfer.id = _scheduler.getOrCreateMover(() -> transfer.mover, transfer.name,
+                                                                      IoPriority.values()[random.nextInt(3)]);
+                            own.add(transfer);
+                            if (random.nextInt(4) == 0) {
+                                Transfer victim = own.get(random.nextInt(own.size()));
+                                try {
+                                    _scheduler.cancel(victim.id);
+                                } catch (NoSuchElementException ignored) {
+                                    // already completed
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    } finally {
+                        transfers.addAll(own);
+                        submitted.countDown();
+                    }
+                });
+            }
+            assertThat(submitted.await(30, TimeUnit.SECONDS), is(true));
+        } finally {
+            submitters.shutdown();
+        }
+
+        assertThat(transfers, hasSize(threads * transfersPerThread));
+        for (Transfer transfer : transfers) {
+            assertThat("Transfer " + transfer.name + " was not closed",
+                       transfer.closed.await(30, TimeUnit.SECONDS), is(true));
+        }
+        for (Transfer transfer : transfers) {
+            assertThat("Transfer " + transfer.name + " was closed more than once",
+                       transfer.closes.get(), is(1));
+        }
+        assertThat(_maxRunning.get(), is(lessThanOrEqualTo(slots)));
+        assertThat(_running.get(), is(0));
+        assertThat(_scheduler.getActiveJobs(), is(0));
+        assertThat(_scheduler.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void shouldCancelQueuedMoversOnShutdownWithoutStartingThem() throws Exception
+    {
+        _scheduler = new MoverRequestScheduler("test", 0, true);
+        _scheduler.setMaxActiveJobs(1);
+
+        Transfer running = submit("running", IoPriority.REGULAR);
+        Transfer queued1 = submit("queued1", IoPriority.REGULAR);
+        Transfer queued2 = submit("queued2", IoPriority.HIGH);
+
+        long start = System.currentTimeMillis();
+        _scheduler.shutdown();
+
+        assertThat(System.currentTimeMillis() - start, is(lessThan(2000L)));
+        assertThat(_started, contains(running));
+        assertThat(running.closes.get(), is(1));
+        assertThat(queued1.closes.get(), is(1));
+        assertThat(queued2.closes.get(), is(1));
+        assertThat(_scheduler.getActiveJobs(), is(0));
+        assertThat(_scheduler.getQueueSize(), is(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectMoversAfterShutdown() throws Exception
+    {
+        _scheduler = new MoverRequestScheduler("test", 0, true);
+        _scheduler.shutdown();
+
+        submit("late", IoPriority.REGULAR);
+    }
+
+    private Transfer submit(String name, IoPriority priority) throws Exception
+    {
+        Transfer transfer = new Transfer(name, false);
+        transfer.id = _scheduler.getOrCreateMover(() -> transfer.mover, name, priority);
+        return transfer;
+    }
+
+    /**
+     * A mover that runs until it is finished by the test or, if
+     * asynchronous, finishes itself on the executor of the test. Killing
+     * the mover fails the transfer as an interrupted mover would.
+     */
+    private class Transfer
+    {
+        private final String name;
+        private final Mover<?> mover = mock(Mover.class);
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final AtomicInteger closes = new AtomicInteger();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile boolean isStarted;
+        private volatile CompletionHandler<Void, Void> handler;
+        private volatile int id;
+
+        @SuppressWarnings("unchecked")
+        Transfer(String name, boolean isAsynchronous)
+        {
+            this.name = name;
+            doAnswer(invocation -> {
+                handler = (CompletionHandler<Void, Void>) invocation.getArguments()[0];
+                isStarted = true;
+                _started.add(this);
+                int running = _running.incrementAndGet();
+                _maxRunning.accumulateAndGet(running, Math::max);
+                if (isAsynchronous) {
+                    _executor.execute(this::finish);
+                }
+                return (Cancellable) this::kill;
+            }).when(mover).execute(any(CompletionHandler.class));
+            doAnswer(invocation -> {
+                if (isStarted) {
+                    _running.decrementAndGet();
+                }
+                closes.incrementAndGet();
+                closed.countDown();
+                ((CompletionHandler<Void, Void>) invocation.getArguments()[0]).completed(null, null);
+                return null;
+            }).when(mover).close(any(CompletionHandler.class));
+        }
+
+        void finish()
+        {
+            if (finished.compareAndSet(false, true)) {
+                handler.completed(null, null);
+            }
+        }
+
+        void kill()
+        {
+            if (finished.compareAndSet(false, true)) {
+                handler.failed(new InterruptedIOException("Killed"), null);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+}
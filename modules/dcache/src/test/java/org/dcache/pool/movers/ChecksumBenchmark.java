@@ -0,0 +1,105 @@
+package org.dcache.pool.movers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.util.ChecksumFactory;
+
+import org.dcache.util.ChecksumType;
+
+import static org.dcache.util.ByteUnit.MiB;
+
+/**
+ * Measures the single core throughput of the digests used by
+ * ChecksumChannel, for heap and direct buffers, and of computing an
+ * ADLER32 and an MD5 checksum in a single pass.
+ *
+ * Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=org.dcache.pool.movers.ChecksumBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ChecksumBenchmark
+{
+    private static final int SIZE = MiB.toBytes(1);
+
+    @Param({"ADLER32", "MD5_TYPE", "MD4_TYPE"})
+    public ChecksumType type;
+
+    @Param({"true", "false"})
+    public boolean direct;
+
+    private ByteBuffer _buffer;
+    private MessageDigest _digest;
+    private MessageDigest _adler32;
+    private MessageDigest _md5;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchAlgorithmException
+    {
+        byte[] data = new byte[SIZE];
+        ThreadLocalRandom.current().nextBytes(data);
+        _buffer = direct ? ByteBuffer.allocateDirect(SIZE) : ByteBuffer.allocate(SIZE);
+        _buffer.put(data).flip();
+        _digest = ChecksumFactory.getFactory(type).create();
+        _adler32 = ChecksumFactory.getFactory(ChecksumType.ADLER32).create();
+        _md5 = ChecksumFactory.getFactory(ChecksumType.MD5_TYPE).create();
+    }
+
+    /**
+     * Digests one MiB with the given algorithm; multiply the score by one
+     * MiB to obtain the throughput per core.
+     */
+    @Benchmark
+    public byte[] digest()
+    {
+        _digest.update(_buffer.duplicate());
+        return _digest.digest();
+    }
+
+    /**
+     * Digests one MiB with both ADLER32 and MD5 as done by ChecksumChannel
+     * for files with several known checksums.
+     */
+    @Benchmark
+    public byte[] adler32AndMd5()
+    {
+        _adler32.update(_buffer.duplicate());
+        _md5.update(_buffer.duplicate());
+        _adler32.digest();
+        return _md5.digest();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+                           .include(ChecksumBenchmark.class.getSimpleName())
+                           .threads(1)
+                           .build()).run();
+    }
+}
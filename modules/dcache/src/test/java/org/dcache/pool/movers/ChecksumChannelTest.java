@@ -14,6 +14,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import diskCacheV111.util.ChecksumFactory;
 
@@ -121,6 +123,73 @@ public class ChecksumChannelTest {
         assertThat(chksumChannel.getChecksum(), equalTo(expectedChecksum));
     }
 
+    @Test
+    public void shouldComputeAllChecksumsIfWrittenOutOfOrder() throws IOException, NoSuchAlgorithmException {
+        ChecksumFactory md5 = ChecksumFactory.getFactory(ChecksumType.MD5_TYPE);
+        ChecksumFactory adler32 = ChecksumFactory.getFactory(ChecksumType.ADLER32);
+        chksumChannel = new ChecksumChannel(chksumChannel._channel, Arrays.asList(md5, adler32), null, null);
+        chksumChannel._readBackBuffer = ByteBuffer.allocate(2);
+        chksumChannel._zerosBuffer = ByteBuffer.allocate(1);
+
+        int[] blockorder = getRandomPermutationOfBlockOrder();
+        for (int i = 0; i < blockcount; i++) {
+            chksumChannel.write(buffers[blockorder[i]], blockorder[i] * blocksize);
+        }
+
+        assertThat(chksumChannel.getChecksum(), equalTo(expectedChecksum));
+        assertThat(chksumChannel.getChecksums(),
+                   containsInAnyOrder(expectedChecksum,
+                                      new Checksum(ChecksumType.ADLER32, adler32.create().digest(data))));
+    }
+
+    @Test
+    public void shouldSucceedIfChecksumIsComputedAsynchronously() throws IOException, NoSuchAlgorithmException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ChecksumFactory md5 = ChecksumFactory.getFactory(ChecksumType.MD5_TYPE);
+            DirectBufferPool bufferPool = new DirectBufferPool(1 << 20);
+            chksumChannel = new ChecksumChannel(chksumChannel._channel, Collections.singletonList(md5),
+                                                executor, bufferPool);
+            chksumChannel._readBackBuffer = ByteBuffer.allocate(2);
+            chksumChannel._zerosBuffer = ByteBuffer.allocate(1);
+
+            int[] blockorder = getRandomPermutationOfBlockOrder();
+            for (int i = 0; i < blockcount; i++) {
+                chksumChannel.write(buffers[blockorder[i]], blockorder[i] * blocksize);
+            }
+
+            assertThat(chksumChannel.getChecksum(), equalTo(expectedChecksum));
+            assertThat(bufferPool.getInUse(), is(0L));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailCloseIfAsynchronousChecksumFails() throws IOException, NoSuchAlgorithmException {
+        RepositoryChannel inner = mock(RepositoryChannel.class);
+        when(inner.write(any(ByteBuffer.class), anyLong())).thenAnswer(invocation -> {
+            ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+            int bytes = buffer.remaining();
+            buffer.position(buffer.limit());
+            return bytes;
+        });
+        when(inner.read(any(ByteBuffer.class), anyLong())).thenThrow(new IOException("Read failed"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ChecksumFactory md5 = ChecksumFactory.getFactory(ChecksumType.MD5_TYPE);
+            ChecksumChannel channel = new ChecksumChannel(inner, Collections.singletonList(md5), executor,
+                                                          new DirectBufferPool(1 << 20));
+
+            channel.write(buffers[1], blocksize);
+            channel.write(buffers[0], 0);
+
+            channel.close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void shouldSucceedIfWrittenInOrderWithMultipleBuffersAndOffset() throws IOException {
         ByteBuffer[] buffers = new ByteBuffer[blockcount+2];
@@ -0,0 +1,86 @@
+package org.dcache.pool.movers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DirectBufferPoolTest
+{
+    @Test
+    public void shouldRoundCapacityToSizeClass()
+    {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+
+        try (DirectBufferPool.PooledBuffer buffer = pool.acquire(5000)) {
+            assertThat(buffer.buffer().isDirect(), is(true));
+            assertThat(buffer.buffer().capacity(), is(8192));
+            assertThat(buffer.buffer().remaining(), is(8192));
+        }
+    }
+
+    @Test
+    public void shouldReuseReleasedBuffers()
+    {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+
+        ByteBuffer first;
+        try (DirectBufferPool.PooledBuffer buffer = pool.acquire(4096)) {
+            first = buffer.buffer();
+            first.putInt(42);
+        }
+        try (DirectBufferPool.PooledBuffer buffer = pool.acquire(4096)) {
+            assertThat(buffer.buffer(), is(sameInstance(first)));
+            assertThat(buffer.buffer().position(), is(0));
+        }
+
+        assertThat(pool.getMisses(), is(1L));
+        assertThat(pool.getHits(), is(1L));
+        assertThat(pool.getInUse(), is(0L));
+    }
+
+    @Test
+    public void shouldFallBackToHeapWhenMemoryIsExhausted()
+    {
+        DirectBufferPool pool = new DirectBufferPool(8192);
+
+        try (DirectBufferPool.PooledBuffer first = pool.acquire(8192);
+             DirectBufferPool.PooledBuffer second = pool.acquire(8192)) {
+            assertThat(first.buffer().isDirect(), is(true));
+            assertThat(second.buffer().isDirect(), is(false));
+            assertThat(pool.getFallbacks(), is(1L));
+        }
+        assertThat(pool.getAllocated(), is(8192L));
+    }
+
+    @Test
+    public void shouldDropFreeBuffersOfOtherSizesWhenMemoryIsExhausted()
+    {
+        DirectBufferPool pool = new DirectBufferPool(8192);
+
+        pool.acquire(8192).close();
+        try (DirectBufferPool.PooledBuffer buffer = pool.acquire(4096)) {
+            assertThat(buffer.buffer().isDirect(), is(true));
+        }
+        assertThat(pool.getAllocated(), is(4096L));
+    }
+
+    @Test
+    public void shouldIgnoreRepeatedClose()
+    {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+
+        DirectBufferPool.PooledBuffer buffer = pool.acquire(4096);
+        buffer.close();
+        buffer.close();
+
+        try (DirectBufferPool.PooledBuffer first = pool.acquire(4096);
+             DirectBufferPool.PooledBuffer second = pool.acquire(4096)) {
+            assertThat(first.buffer(), is(sameInstance(buffer.buffer())));
+            assertThat(second.buffer() == first.buffer(), is(false));
+        }
+    }
+}
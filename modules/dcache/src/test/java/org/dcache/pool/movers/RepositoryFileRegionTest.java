@@ -0,0 +1,149 @@
+package org.dcache.pool.movers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.dcache.pool.repository.RepositoryChannel;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+
+public class RepositoryFileRegionTest
+{
+    private final byte[] content = new byte[100];
+    private RepositoryChannel channel;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        channel = mock(RepositoryChannel.class);
+        given(channel.size()).willReturn((long) content.length);
+        given(channel.transferTo(anyLong(), anyLong(), any(WritableByteChannel.class))).willAnswer(invocation -> {
+            int position = (int) (long) (Long) invocation.getArguments()[0];
+            int count = (int) Math.min((Long) invocation.getArguments()[1], content.length - position);
+            WritableByteChannel target = (WritableByteChannel) invocation.getArguments()[2];
+            return (long) target.write(ByteBuffer.wrap(content, position, Math.max(0, count)));
+        });
+    }
+
+    @Test
+    public void shouldTransferRequestedRange() throws Exception
+    {
+        RepositoryFileRegion region = new RepositoryFileRegion(channel, 10, 25);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = region.transferTo(new Target(out, Integer.MAX_VALUE), 0);
+
+        assertThat(written, is(25L));
+        assertThat(region.transfered(), is(25L));
+        assertThat(out.toByteArray(), is(payload(10, 25)));
+    }
+
+    @Test
+    public void shouldResumePartialWrites() throws Exception
+    {
+        RepositoryFileRegion region = new RepositoryFileRegion(channel, 5, 32);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Target target = new Target(out, 7);
+
+        while (region.transfered() < region.count()) {
+            target.allowMore();
+            region.transferTo(target, region.transfered());
+        }
+
+        assertThat(region.transfered(), is(32L));
+        assertThat(out.toByteArray(), is(payload(5, 32)));
+    }
+
+    @Test
+    public void shouldNotWriteBeyondEndOfRegion() throws Exception
+    {
+        RepositoryFileRegion region = new RepositoryFileRegion(channel, 0, 10);
+
+        region.transferTo(new Target(new ByteArrayOutputStream(), Integer.MAX_VALUE), 0);
+
+        assertThat(region.transferTo(new Target(new ByteArrayOutputStream(), Integer.MAX_VALUE), 10), is(0L));
+        assertThat(region.transfered(), is(10L));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailIfFileIsShorterThanRegion() throws Exception
+    {
+        RepositoryFileRegion region = new RepositoryFileRegion(channel, 90, 20);
+        Target target = new Target(new ByteArrayOutputStream(), Integer.MAX_VALUE);
+
+        region.transferTo(target, 0);
+        region.transferTo(target, region.transfered());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPositionBeyondEndOfRegion() throws Exception
+    {
+        RepositoryFileRegion region = new RepositoryFileRegion(channel, 0, 10);
+
+        region.transferTo(new Target(new ByteArrayOutputStream(), Integer.MAX_VALUE), 11);
+    }
+
+    private byte[] payload(int offset, int length)
+    {
+        return Arrays.copyOfRange(content, offset, offset + length);
+    }
+
+    /**
+     * Channel accepting at most a given number of bytes between calls to
+     * allowMore, similar to a non-blocking socket with a full send buffer.
+     */
+    private static class Target implements WritableByteChannel
+    {
+        private final ByteArrayOutputStream out;
+        private final int limit;
+        private int remaining;
+
+        Target(ByteArrayOutputStream out, int limit)
+        {
+            this.out = out;
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        void allowMore()
+        {
+            remaining = limit;
+        }
+
+        @Override
+        public int write(ByteBuffer src)
+        {
+            int n = Math.min(src.remaining(), remaining);
+            byte[] bytes = new byte[n];
+            src.get(bytes);
+            out.write(bytes, 0, n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.dcache.pool.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+import diskCacheV111.util.PnfsId;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class InventorySnapshotTest
+{
+    private File _file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        _file = File.createTempFile("inventory", ".snapshot");
+    }
+
+    @After
+    public void tearDown()
+    {
+        _file.delete();
+    }
+
+    @Test
+    public void shouldReadWhatWasWritten() throws IOException
+    {
+        InventorySnapshot.Entry precious =
+                new InventorySnapshot.Entry(new PnfsId("000000000001"), EntryState.PRECIOUS, 1024, 10, 20,
+                                            Collections.emptyList());
+        InventorySnapshot.Entry cached =
+                new InventorySnapshot.Entry(new PnfsId("000000000002"), EntryState.CACHED, 2048, 30, 40,
+                                            Arrays.asList(new StickyRecord("system", -1),
+                                                          new StickyRecord("pin", 50)));
+        new InventorySnapshot(Arrays.asList(precious, cached), true, 60).write(_file);
+
+        InventorySnapshot snapshot = InventorySnapshot.read(_file);
+
+        assertThat(snapshot.isClean(), is(true));
+        assertThat(snapshot.getCreationTime(), is(60L));
+        assertThat(snapshot.getEntries().size(), is(2));
+        InventorySnapshot.Entry entry = snapshot.getEntries().get(1);
+        assertThat(entry.getPnfsId(), is(cached.getPnfsId()));
+        assertThat(entry.getState(), is(EntryState.CACHED));
+        assertThat(entry.getReplicaSize(), is(2048L));
+        assertThat(entry.getCreationTime(), is(30L));
+        assertThat(entry.getLastAccessTime(), is(40L));
+        assertThat(entry.getStickyRecords(),
+                   contains(new StickyRecord("system", -1), new StickyRecord("pin", 50)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCorruptedSnapshot() throws IOException
+    {
+        InventorySnapshot.Entry entry =
+                new InventorySnapshot.Entry(new PnfsId("000000000001"), EntryState.CACHED, 1024, 10, 20,
+                                            Collections.emptyList());
+        new InventorySnapshot(Collections.singletonList(entry), true, 60).write(_file);
+        try (RandomAccessFile file = new RandomAccessFile(_file, "rw")) {
+            file.seek(file.length() - 12);
+            file.write(0xff);
+        }
+
+        InventorySnapshot.read(_file);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectTruncatedSnapshot() throws IOException
+    {
+        InventorySnapshot.Entry entry =
+                new InventorySnapshot.Entry(new PnfsId("000000000001"), EntryState.CACHED, 1024, 10, 20,
+                                            Collections.emptyList());
+        new InventorySnapshot(Collections.singletonList(entry), true, 60).write(_file);
+        try (RandomAccessFile file = new RandomAccessFile(_file, "rw")) {
+            file.setLength(file.length() - 4);
+        }
+
+        InventorySnapshot.read(_file);
+    }
+}
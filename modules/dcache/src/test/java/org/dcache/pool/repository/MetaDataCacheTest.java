@@ -0,0 +1,165 @@
+package org.dcache.pool.repository;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.List;
+
+import diskCacheV111.util.PnfsId;
+
+import org.dcache.pool.FaultListener;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MetaDataCacheTest
+{
+    private static final PnfsId ID = new PnfsId("000000000001");
+    private static final PnfsId RESTORED_ID = new PnfsId("000000000002");
+
+    private MetaDataStore _inner;
+    private MetaDataRecord _record;
+    private MetaDataCache _cache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _inner = mock(MetaDataStore.class);
+        _record = mock(MetaDataRecord.class);
+        when(_inner.get(ID)).thenReturn(_record);
+        when(_inner.create(ID)).thenReturn(_record);
+        _cache = new MetaDataCache(_inner, mock(StateChangeListener.class), mock(FaultListener.class));
+        _cache.create(ID);
+    }
+
+    @Test
+    public void shouldWriteThroughByDefault() throws Exception
+    {
+        when(_record.getState()).thenReturn(EntryState.CACHED);
+
+        _cache.get(ID).touch();
+
+        verify(_record).touch();
+        assertThat(_cache.getPendingUpdates(), is(0));
+    }
+
+    @Test
+    public void shouldCoalesceAccessTimeUpdatesInWriteBehindMode() throws Exception
+    {
+        when(_record.getState()).thenReturn(EntryState.CACHED);
+        _cache.setWriteBehind(true);
+
+        MetaDataRecord record = _cache.get(ID);
+        record.touch();
+        record.touch();
+
+        verify(_record, never()).touch();
+        verify(_record, never()).setLastAccessTime(anyLong());
+        assertThat(record.getLastAccessTime(), is(greaterThan(0L)));
+        assertThat(_cache.getPendingUpdates(), is(1));
+
+        _cache.flush();
+
+        verify(_record, times(1)).setLastAccessTime(anyLong());
+        assertThat(_cache.getPendingUpdates(), is(0));
+        assertThat(_cache.getDeferredUpdates(), is(2L));
+        assertThat(_cache.getFlushedUpdates(), is(1L));
+    }
+
+    @Test
+    public void shouldWriteThroughForIncompleteReplicas() throws Exception
+    {
+        when(_record.getState()).thenReturn(EntryState.FROM_CLIENT);
+        _cache.setWriteBehind(true);
+
+        _cache.get(ID).touch();
+
+        verify(_record).touch();
+        assertThat(_cache.getPendingUpdates(), is(0));
+    }
+
+    @Test
+    public void shouldFlushOnClose() throws Exception
+    {
+        when(_record.getState()).thenReturn(EntryState.CACHED);
+        _cache.setWriteBehind(true);
+
+        _cache.get(ID).setLastAccessTime(42);
+        _cache.close();
+
+        verify(_record).setLastAccessTime(42);
+        verify(_inner).close();
+    }
+
+    @Test
+    public void shouldAnnounceEachDifferenceOfRestoredEntry() throws Exception
+    {
+        StateChangeListener listener = mock(StateChangeListener.class);
+        MetaDataRecord record = givenRestoredRecord(listener,
+                new InventorySnapshot.Entry(RESTORED_ID, EntryState.CACHED, 1024, 1, 1000,
+                                            Collections.emptyList()));
+        when(record.getState()).thenReturn(EntryState.PRECIOUS);
+        when(record.getSize()).thenReturn(1024L);
+        when(record.getLastAccessTime()).thenReturn(2000L);
+        when(record.stickyRecords()).thenReturn(Collections.singletonList(new StickyRecord("owner", -1)));
+
+        _cache.get(RESTORED_ID);
+
+        List<StateChangeEvent> events = captureStateChanges(listener, 2);
+        assertThat(events.get(1).getOldState(), is(EntryState.CACHED));
+        assertThat(events.get(1).getNewState(), is(EntryState.PRECIOUS));
+        verify(listener).stickyChanged(any(StickyChangeEvent.class));
+        verify(listener).accessTimeChanged(any(EntryChangeEvent.class));
+    }
+
+    @Test
+    public void shouldAnnounceSizeDifferenceOfRestoredEntryAsReplacement() throws Exception
+    {
+        StateChangeListener listener = mock(StateChangeListener.class);
+        MetaDataRecord record = givenRestoredRecord(listener,
+                new InventorySnapshot.Entry(RESTORED_ID, EntryState.CACHED, 1024, 1, 1000,
+                                            Collections.emptyList()));
+        when(record.getState()).thenReturn(EntryState.CACHED);
+        when(record.getSize()).thenReturn(2048L);
+        when(record.getLastAccessTime()).thenReturn(1000L);
+
+        _cache.get(RESTORED_ID);
+
+        List<StateChangeEvent> events = captureStateChanges(listener, 3);
+        assertThat(events.get(1).getOldState(), is(EntryState.CACHED));
+        assertThat(events.get(1).getNewState(), is(EntryState.DESTROYED));
+        assertThat(events.get(1).getOldEntry().getReplicaSize(), is(1024L));
+        assertThat(events.get(2).getOldState(), is(EntryState.NEW));
+        assertThat(events.get(2).getNewState(), is(EntryState.CACHED));
+        assertThat(events.get(2).getNewEntry().getReplicaSize(), is(2048L));
+    }
+
+    private MetaDataRecord givenRestoredRecord(StateChangeListener listener, InventorySnapshot.Entry snapshot)
+            throws Exception
+    {
+        MetaDataRecord record = mock(MetaDataRecord.class);
+        when(_inner.index(MetaDataStore.IndexOption.ALLOW_REPAIR)).thenReturn(Collections.singleton(RESTORED_ID));
+        when(_inner.get(RESTORED_ID)).thenReturn(record);
+        _cache = new MetaDataCache(_inner, listener, mock(FaultListener.class));
+        _cache.init();
+        assertThat(_cache.restore(snapshot), is(true));
+        return record;
+    }
+
+    private static List<StateChangeEvent> captureStateChanges(StateChangeListener listener, int count)
+    {
+        ArgumentCaptor<StateChangeEvent> captor = ArgumentCaptor.forClass(StateChangeEvent.class);
+        verify(listener, times(count)).stateChanged(captor.capture());
+        return captor.getAllValues();
+    }
+}
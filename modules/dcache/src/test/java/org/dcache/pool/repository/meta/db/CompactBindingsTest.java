@@ -0,0 +1,66 @@
+package org.dcache.pool.repository.meta.db;
+
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.StorageInfo;
+
+import org.dcache.pool.repository.EntryState;
+import org.dcache.pool.repository.StickyRecord;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompactBindingsTest
+{
+    @Test
+    public void shouldRoundTripGenericStorageInfo()
+    {
+        GenericStorageInfo info = new GenericStorageInfo("osm", "test:disk");
+        info.setCacheClass("cache");
+        info.setBitfileId("bfid");
+        info.setKey("flag-c", "1:1234abcd");
+        info.addLocation(URI.create("osm://osm/?store=test&group=disk&bfid=bfid"));
+        info.setLegacyAccessLatency(AccessLatency.ONLINE);
+        info.setLegacyRetentionPolicy(RetentionPolicy.REPLICA);
+        info.setLegacySize(4711);
+        info.setIsStored(true);
+
+        StorageInfoBinding binding = new StorageInfoBinding();
+        TupleOutput output = new TupleOutput();
+        binding.objectToEntry(info, output);
+        StorageInfo copy = binding.entryToObject(new TupleInput(output.toByteArray()));
+
+        assertThat(copy, is((StorageInfo) info));
+        assertThat(copy.getCacheClass(), is("cache"));
+        assertThat(copy.getKey("flag-c"), is("1:1234abcd"));
+        assertThat(copy.getLegacySize(), is(4711L));
+        assertThat(copy.isStored(), is(true));
+    }
+
+    @Test
+    public void shouldRoundTripEntryState()
+    {
+        CacheRepositoryEntryState state =
+                new CacheRepositoryEntryState(EntryState.CACHED,
+                                              Arrays.asList(new StickyRecord("system", -1),
+                                                            new StickyRecord("pin", 1234567890L)));
+
+        CacheRepositoryEntryStateBinding binding = new CacheRepositoryEntryStateBinding();
+        TupleOutput output = new TupleOutput();
+        binding.objectToEntry(state, output);
+        CacheRepositoryEntryState copy = binding.entryToObject(new TupleInput(output.toByteArray()));
+
+        assertThat(copy.getState(), is(EntryState.CACHED));
+        assertThat(copy.stickyRecords(),
+                   containsInAnyOrder(new StickyRecord("system", -1), new StickyRecord("pin", 1234567890L)));
+    }
+}
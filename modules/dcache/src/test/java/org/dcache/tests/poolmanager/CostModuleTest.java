@@ -3,6 +3,12 @@ package org.dcache.tests.poolmanager;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Arrays;
 
 import diskCacheV111.poolManager.CostModuleV1;
@@ -248,6 +254,107 @@ public class CostModuleTest {
      */
 
 
+    @Test
+    public void testDeltaUpdatesCopy() throws Exception {
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 30, 10, 20));
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS_2),
+                                   buildPoolUpMessageWithCost(POOL_NAME_2, 100, 30, 10, 20));
+        CostModuleV1 copy = serializeAndDeserialize(_costModule);
+        long version = _costModule.getVersion();
+
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 50, 10, 20));
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS_2),
+                                   buildEmptyPoolUpMessage(POOL_NAME_2, PoolV2Mode.DISABLED));
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS_3),
+                                   buildPoolUpMessageWithCost(POOL_NAME_3, 100, 30, 10, 20));
+
+        CostModuleV1.Delta delta = serializeAndDeserialize(_costModule.getChangesSince(version));
+
+        assertEquals(2, delta.getChangedPools().size());
+        assertTrue("delta should apply to copy", copy.apply(delta));
+        assertEquals(GiB.toBytes(50L), copy.getPoolCostInfo(POOL_NAME).getSpaceInfo().getFreeSpace());
+        assertNull(copy.getPoolCostInfo(POOL_NAME_2));
+        assertNotNull(copy.getPoolCostInfo(POOL_NAME_3));
+        assertEquals(_costModule.getVersion(), copy.getVersion());
+    }
+
+    @Test
+    public void testDeltaAppliedToCopyDoesNotModifyOriginal() throws Exception {
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 30, 10, 20));
+        CostModuleV1 original = serializeAndDeserialize(_costModule);
+        long version = _costModule.getVersion();
+
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 50, 10, 20));
+
+        CostModuleV1 copy = original.copy();
+        assertTrue("delta should apply to copy",
+                   copy.apply(serializeAndDeserialize(_costModule.getChangesSince(version))));
+        assertEquals(GiB.toBytes(50L), copy.getPoolCostInfo(POOL_NAME).getSpaceInfo().getFreeSpace());
+        assertEquals(GiB.toBytes(30L), original.getPoolCostInfo(POOL_NAME).getSpaceInfo().getFreeSpace());
+        assertEquals(version, original.getVersion());
+    }
+
+    @Test
+    public void testCopySharesUnchangedPoolsWithOriginal() throws Exception {
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 30, 10, 20));
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS_2),
+                                   buildPoolUpMessageWithCost(POOL_NAME_2, 100, 30, 10, 20));
+        CostModuleV1 original = serializeAndDeserialize(_costModule);
+        double percentile = original.getPoolsPercentilePerformanceCost(DEFAULT_PERCENTILE);
+        long version = _costModule.getVersion();
+
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 50, 10, 20));
+
+        CostModuleV1 copy = original.copy();
+        assertSame(original.getPoolCostInfo(POOL_NAME_2), copy.getPoolCostInfo(POOL_NAME_2));
+        assertTrue("delta should apply to copy",
+                   copy.apply(serializeAndDeserialize(_costModule.getChangesSince(version))));
+        assertSame(original.getPoolCostInfo(POOL_NAME_2), copy.getPoolCostInfo(POOL_NAME_2));
+        assertNotSame(original.getPoolCostInfo(POOL_NAME), copy.getPoolCostInfo(POOL_NAME));
+        assertEquals(_costModule.getPoolsPercentilePerformanceCost(DEFAULT_PERCENTILE),
+                     copy.getPoolsPercentilePerformanceCost(DEFAULT_PERCENTILE), 0);
+        assertEquals(percentile, original.getPoolsPercentilePerformanceCost(DEFAULT_PERCENTILE), 0);
+    }
+
+    @Test
+    public void testDeltaDoesNotApplyToOtherCostModule() throws Exception {
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 30, 10, 20));
+
+        assertFalse(new CostModuleV1().apply(_costModule.getChangesSince(0)));
+    }
+
+    @Test
+    public void testDeltaDoesNotApplyToOlderCopy() throws Exception {
+        CostModuleV1 copy = serializeAndDeserialize(_costModule);
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS),
+                                   buildPoolUpMessageWithCost(POOL_NAME, 100, 30, 10, 20));
+        long version = _costModule.getVersion();
+        _costModule.messageArrived(buildEnvelope(POOL_ADDRESS_2),
+                                   buildPoolUpMessageWithCost(POOL_NAME_2, 100, 30, 10, 20));
+
+        assertFalse(copy.apply(_costModule.getChangesSince(version)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> T serializeAndDeserialize(T object)
+            throws IOException, ClassNotFoundException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
     private static CellMessage buildEnvelope(CellAddressCore source)
     {
         CellMessage envelope = new CellMessage(new CellAddressCore("irrelevant"), null);
@@ -831,4 +831,25 @@ public class PoolSelectionUnitTest {
                       null); // linkGroup
         assertEquals(0, preference.length);
    }
+
+    /*
+     * test case: check that repeated matches reflect changes of the setup
+     */
+    @Test
+    public void testMatchAfterSetupChange() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("*", "*"), fileAttributes);
+
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.READ, "131.169.214.149", null,
+                                                      fileAttributes, null);
+        assertEquals(1, preference.length);
+
+        _ci.command(new Args("psu set link default-read-link-in -readpref=0"));
+
+        preference = _psu.match(DirectionType.READ, "131.169.214.149", null,
+                                fileAttributes, null);
+        assertEquals("Disabled link must not be matched", 0, preference.length);
+    }
 }
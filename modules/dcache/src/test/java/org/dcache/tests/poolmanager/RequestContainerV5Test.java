@@ -0,0 +1,288 @@
+package org.dcache.tests.poolmanager;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.hamcrest.Matcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.poolManager.CostModuleV1;
+import diskCacheV111.poolManager.PoolMonitorV5;
+import diskCacheV111.poolManager.PoolSelectionUnitV2;
+import diskCacheV111.poolManager.RequestContainerV5;
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.util.PnfsHandler;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.DCapProtocolInfo;
+import diskCacheV111.vehicles.OSMStorageInfo;
+import diskCacheV111.vehicles.PoolFetchFileMessage;
+import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
+import diskCacheV111.vehicles.PoolMgrSelectReadPoolMsg;
+import diskCacheV111.vehicles.ProtocolInfo;
+import diskCacheV111.vehicles.StorageInfo;
+import diskCacheV111.vehicles.StorageInfos;
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.CellPath;
+import org.dcache.pool.classic.IoQueueManager;
+import org.dcache.poolmanager.PartitionManager;
+import org.dcache.tests.cells.MockCellEndpoint;
+import org.dcache.util.Args;
+import org.dcache.vehicles.FileAttributes;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests the hand-off of requests between the threads delivering them and
+ * the state engines of the request handlers. All requests are for files
+ * that have to be staged on a single pool, thus every handler waits for a
+ * stage reply delivered by the test.
+ */
+public class RequestContainerV5Test
+{
+    private static final String POOL = "pool1";
+    private static final String DOOR = "door";
+
+    private static int _counter;
+
+    private final BlockingQueue<CellMessage> _stageRequests = new LinkedBlockingQueue<>();
+    private final BlockingQueue<PoolMgrSelectReadPoolMsg> _replies = new LinkedBlockingQueue<>();
+
+    private MockCellEndpoint _cell;
+    private PoolSelectionUnitV2 _selectionUnit;
+    private PoolMonitorV5 _poolMonitor;
+    private PartitionManager _partitionManager;
+    private PnfsHandler _pnfsHandler;
+    private ProtocolInfo _protocolInfo;
+    private RequestContainerV5 _rc;
+    private ExecutorService _executor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _counter = _counter + 1;
+        _cell = new MockCellEndpoint("RequestContainerV5Test" + _counter);
+        _protocolInfo = new DCapProtocolInfo("DCap", 3, 0, new InetSocketAddress("127.0.0.1", 17));
+
+        _partitionManager = new PartitionManager();
+        _partitionManager.setProperties(null, ImmutableMap.of("stage-allowed", "yes"));
+        _selectionUnit = new PoolSelectionUnitV2();
+        PoolMonitorHelper.prepareSelectionUnit(_selectionUnit, _selectionUnit,
+                                               Collections.singletonList(POOL));
+        CostModuleV1 costModule = new CostModuleV1();
+        _poolMonitor = new PoolMonitorV5();
+        _poolMonitor.setPoolSelectionUnit(_selectionUnit);
+        _poolMonitor.setCostModule(costModule);
+        _poolMonitor.setPartitionManager(_partitionManager);
+        _pnfsHandler = new PnfsHandler(new CellPath("PnfsManager"));
+        _pnfsHandler.setCellEndpoint(_cell);
+
+        PoolV2Mode poolMode = new PoolV2Mode(PoolV2Mode.ENABLED);
+        PoolCostInfo poolCostInfo = new PoolCostInfo(POOL, IoQueueManager.DEFAULT_QUEUE);
+        poolCostInfo.setSpaceUsage(100, 20, 30, 50);
+        poolCostInfo.setQueueSizes(0, 10, 0, 0, 10, 0);
+        poolCostInfo.addExtendedMoverQueueSizes(IoQueueManager.DEFAULT_QUEUE, 0, 10, 0, 0, 0);
+        CellMessage envelope = new CellMessage(new CellAddressCore("PoolManager"), null);
+        envelope.addSourceAddress(new CellAddressCore(POOL));
+        _selectionUnit.getPool(POOL).setHsmInstances(Collections.singleton("osm"));
+        _selectionUnit.getPool(POOL).setPoolMode(poolMode);
+        costModule.messageArrived(envelope,
+                                  new PoolManagerPoolUpMessage(POOL, System.currentTimeMillis(),
+                                                               poolMode, poolCostInfo));
+
+        _cell.registerAction(POOL, PoolFetchFileMessage.class, _stageRequests::add);
+        _cell.registerAction(DOOR, PoolMgrSelectReadPoolMsg.class,
+                             message -> _replies.add((PoolMgrSelectReadPoolMsg) message.getMessageObject()));
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (_rc != null) {
+            _rc.shutdown();
+        }
+        if (_executor != null) {
+            _executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldAnswerRequestArrivingWhileHandlerIsDoneByNewHandler() throws Exception
+    {
+        givenContainer(60000, MoreExecutors.directExecutor());
+        PnfsId pnfsId = pnfsId(1);
+
+        /* The reply to the first request is sent by its handler after the
+         * handler reached ST_DONE and was removed. A request arriving at
+         * this point must be served by a new handler rather than being
+         * added to the completed one.
+         */
+        CountDownLatch resubmitted = new CountDownLatch(1);
+        _cell.registerAction(DOOR, PoolMgrSelectReadPoolMsg.class, message -> {
+            _replies.add((PoolMgrSelectReadPoolMsg) message.getMessageObject());
+            if (resubmitted.getCount() > 0) {
+                resubmitted.countDown();
+                request(pnfsId);
+            }
+        });
+
+        request(pnfsId);
+        assertThat(requestCounts(), containsString("ST_WAITING_FOR_STAGING=1"));
+        stage(_stageRequests.poll());
+
+        assertThat(_replies.poll(), is(succeeded()));
+        assertThat(_replies.poll(), is(nullValue()));
+        assertThat(requestCounts(), containsString("ST_WAITING_FOR_STAGING=1"));
+
+        stage(_stageRequests.poll());
+
+        assertThat(_replies.poll(), is(succeeded()));
+        assertThat(_stageRequests.poll(), is(nullValue()));
+        assertThat(requestCounts(), containsString("none"));
+    }
+
+    @Test
+    public void shouldProcessAllInputWhileStateEnginesStartAndStop() throws Exception
+    {
+        /* The ticker adds input to every handler each millisecond and
+         * stage replies are delivered by several threads, thus input
+         * frequently arrives while a state engine is about to stop. An
+         * input that is lost leaves its request unanswered.
+         */
+        int files = 20;
+        int rounds = 20;
+        givenContainer(1, Executors.newFixedThreadPool(4));
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                CountDownLatch submitted = new CountDownLatch(2 * files);
+                for (int i = 0; i < 2 * files; i++) {
+                    PnfsId pnfsId = pnfsId(i % files);
+                    threads.execute(() -> {
+                        request(pnfsId);
+                        submitted.countDown();
+                    });
+                }
+                assertThat(submitted.await(10, TimeUnit.SECONDS), is(true));
+
+                for (int i = 0; i < files; i++) {
+                    CellMessage stageRequest = _stageRequests.poll(10, TimeUnit.SECONDS);
+                    assertThat(stageRequest, is(notNullValue()));
+                    threads.execute(() -> stage(stageRequest));
+                }
+                for (int i = 0; i < 2 * files; i++) {
+                    assertThat(_replies.poll(10, TimeUnit.SECONDS), is(succeeded()));
+                }
+                assertThat(_stageRequests.isEmpty(), is(true));
+                assertThat(requestCounts(), containsString("none"));
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReturnStateCountsToZeroWhenAllRequestsAreDone() throws Exception
+    {
+        givenContainer(60000, MoreExecutors.directExecutor());
+
+        request(pnfsId(1));
+        request(pnfsId(1));
+        request(pnfsId(2));
+        assertThat(requestCounts(), containsString("ST_WAITING_FOR_STAGING=2"));
+
+        stage(_stageRequests.poll());
+        assertThat(requestCounts(), containsString("ST_WAITING_FOR_STAGING=1"));
+
+        stage(_stageRequests.poll());
+        assertThat(_replies.size(), is(3));
+        assertThat(requestCounts(), containsString("none"));
+    }
+
+    private void givenContainer(long tickerInterval, Executor executor) throws Exception
+    {
+        if (executor instanceof ExecutorService) {
+            _executor = (ExecutorService) executor;
+        }
+        _rc = new RequestContainerV5(tickerInterval);
+        _rc.setPoolSelectionUnit(_selectionUnit);
+        _rc.setPnfsHandler(_pnfsHandler);
+        _rc.setPoolMonitor(_poolMonitor);
+        _rc.setPartitionManager(_partitionManager);
+        _rc.setExecutor(executor);
+        _rc.setCellEndpoint(_cell);
+        _rc.ac_rc_set_retry_$_1(new Args("0"));
+        _rc.setStageConfigurationFile(null);
+    }
+
+    private static PnfsId pnfsId(int i)
+    {
+        return new PnfsId(String.format("%036X", i));
+    }
+
+    private void request(PnfsId pnfsId)
+    {
+        try {
+            StorageInfo storageInfo = new OSMStorageInfo("h1", "rawd");
+            storageInfo.addLocation(new URI("osm://osm?"));
+            storageInfo.setIsNew(false);
+            FileAttributes attributes = new FileAttributes();
+            StorageInfos.injectInto(storageInfo, attributes);
+            attributes.setPnfsId(pnfsId);
+            attributes.setLocations(Collections.<String>emptyList());
+            attributes.setSize(5);
+            attributes.setAccessLatency(StorageInfo.DEFAULT_ACCESS_LATENCY);
+            attributes.setRetentionPolicy(StorageInfo.DEFAULT_RETENTION_POLICY);
+            attributes.setChecksums(Collections.emptySet());
+
+            PoolMgrSelectReadPoolMsg request = new PoolMgrSelectReadPoolMsg(attributes, _protocolInfo, null);
+            CellMessage envelope = new CellMessage(new CellAddressCore("PoolManager"), request);
+            envelope.getSourcePath().add(new CellAddressCore(DOOR, "local"));
+            _rc.messageArrived(envelope, request);
+        } catch (Exception e) {
+            throw new AssertionError("Failed to submit request: " + e, e);
+        }
+    }
+
+    /**
+     * Delivers a successful reply to a stage request.
+     */
+    private void stage(CellMessage stageRequest)
+    {
+        _rc.messageArrived(stageRequest, stageRequest.getMessageObject());
+    }
+
+    private String requestCounts()
+    {
+        StringWriter info = new StringWriter();
+        _rc.getInfo(new PrintWriter(info));
+        for (String line : info.toString().split("\n")) {
+            if (line.trim().startsWith("Requests :")) {
+                return line;
+            }
+        }
+        throw new AssertionError("No request counts in " + info);
+    }
+
+    private static Matcher<PoolMgrSelectReadPoolMsg> succeeded()
+    {
+        return allOf(notNullValue(), hasProperty("returnCode", is(0)),
+                     hasProperty("poolName", is(POOL)));
+    }
+}
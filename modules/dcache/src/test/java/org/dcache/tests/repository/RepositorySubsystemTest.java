@@ -428,6 +428,46 @@ public class RepositorySubsystemTest
         assertSpaceRecord(5120, 2048, 1024, 1024);
     }
 
+    @Test
+    public void testGetSpaceRecordWithParallelLoad()
+        throws IOException, CacheException, InterruptedException
+    {
+        repository.setLoadThreads(3);
+        repository.init();
+        repository.load();
+        assertSpaceRecord(5120, 2048, 1024, 1024);
+        assertCanOpen(id1, size1, PRECIOUS);
+        assertCanOpen(id2, size2, CACHED);
+        assertCanOpen(id3, size3, CACHED);
+    }
+
+    @Test
+    public void testLoadFromInventorySnapshot()
+        throws Exception
+    {
+        File snapshot = new File(root, "inventory.snapshot");
+        repository.setInventorySnapshotFile(snapshot);
+        repository.init();
+        repository.load();
+        sweeper.stop();
+        repository.shutdown();
+        metaDataStore.close();
+        assertTrue(snapshot.exists());
+
+        initRepository();
+        sweeper.setAccount(account);
+        sweeper.setRepository(repository);
+        sweeper.start();
+        repository.setInventorySnapshotFile(snapshot);
+        repository.init();
+        repository.load();
+        assertFalse(snapshot.exists());
+        assertSpaceRecord(5120, 2048, 1024, 1024);
+        assertCanOpen(id1, size1, PRECIOUS);
+        assertCanOpen(id2, size2, CACHED);
+        assertCanOpen(id3, size3, CACHED);
+    }
+
     @Test
     public void testOpenEntryBeforeLoad()
         throws IOException, CacheException, InterruptedException
@@ -0,0 +1,69 @@
+package org.dcache.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class TokenBucketTest
+{
+    private TokenBucket _bucket;
+
+    @Before
+    public void setUp()
+    {
+        _bucket = new TokenBucket();
+    }
+
+    @Test
+    public void shouldBeUnlimitedByDefault() throws InterruptedIOException
+    {
+        _bucket.consume(1L << 40);
+
+        assertThat(_bucket.isLimited(), is(false));
+        assertThat(_bucket.getTransferred(), is(1L << 40));
+    }
+
+    @Test
+    public void shouldAllowBurstOfOneSecond() throws InterruptedIOException
+    {
+        _bucket.setRate(1_000_000);
+
+        long start = System.nanoTime();
+        _bucket.consume(1_000_000);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500, is(true));
+    }
+
+    @Test
+    public void shouldDelayTransfersExceedingTheRate() throws InterruptedIOException
+    {
+        _bucket.setRate(1_000_000);
+
+        long start = System.nanoTime();
+        _bucket.consume(1_000_000);
+        _bucket.consume(300_000);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), is(greaterThanOrEqualTo(250L)));
+        assertThat(_bucket.getTransferred(), is(1_300_000L));
+    }
+
+    @Test
+    public void shouldReturnDelayWithoutBlocking()
+    {
+        _bucket.setRate(1_000_000);
+
+        long start = System.nanoTime();
+        assertThat(_bucket.charge(1_000_000), is(0L));
+        long delay = _bucket.charge(500_000);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250, is(true));
+        assertThat(delay, is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(400))));
+        assertThat(_bucket.getTransferred(), is(1_500_000L));
+    }
+}
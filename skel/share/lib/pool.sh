@@ -75,6 +75,10 @@ printPoolConfig() # $1 = path, $2 = name, $3 = domain, $4 = optional size, $5 =
             echo "pool.plugins.meta=org.dcache.pool.repository.meta.db.BerkeleyDBMetaDataRepository"
             echo "pool.wait-for-files=\${pool.path}/data:\${pool.path}/meta"
             ;;
+        db-compact)
+            echo "pool.plugins.meta=org.dcache.pool.repository.meta.db.CompactBerkeleyDBMetaDataRepository"
+            echo "pool.wait-for-files=\${pool.path}/data:\${pool.path}/meta-compact"
+            ;;
         *)
             echo "pool.wait-for-files=\${pool.path}/data"
             ;;
@@ -142,6 +146,10 @@ createPool() # $1 = path, $2 = name, $3 = domain, $4 = optional size, $5 = optio
             mkdir "${path}/meta" ||
             fail 1 "Failed to create directory tree"
             ;;
+        db-compact)
+            mkdir "${path}/meta-compact" ||
+            fail 1 "Failed to create directory tree"
+            ;;
         ?*)
             fail 1 "Unknown meta data format: $meta"
             ;;